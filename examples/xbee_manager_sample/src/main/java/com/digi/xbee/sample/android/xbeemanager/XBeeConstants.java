@@ -33,6 +33,7 @@ public class XBeeConstants {
 	
 	public final static String AT_COMMAND_NI = "NI";
 	public final static String AT_COMMAND_ID = "ID";
+	public final static String AT_COMMAND_OP = "OP";
 	public final static String AT_COMMAND_DH = "DH";
 	public final static String AT_COMMAND_DL = "DL";
 	public final static String AT_COMMAND_NT = "NT";
@@ -40,6 +40,7 @@ public abstract class AbstractXBeeDeviceFragment extends Fragment {
 	protected static final int ACTION_DISABLE_DISCOVER_BUTTONS = 14;
 	protected static final int ACTION_ADD_PACKET_TO_LIST = 15;
 	protected static final int ACTION_ADD_DEVICE_TO_LIST = 16;
+	protected static final int ACTION_REMOVE_DEVICE_FROM_LIST = 17;
 
 	// Variables.
 	protected XBeeManager xbeeManager;
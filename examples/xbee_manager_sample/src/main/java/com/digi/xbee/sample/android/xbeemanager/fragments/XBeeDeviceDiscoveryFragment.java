@@ -19,6 +19,7 @@ package com.digi.xbee.sample.android.xbeemanager.fragments;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import com.digi.xbee.sample.android.xbeemanager.R;
 import com.digi.xbee.sample.android.xbeemanager.XBeeConstants;
@@ -29,8 +30,14 @@ import com.digi.xbee.sample.android.xbeemanager.dialogs.SendDataDialog;
 import com.digi.xbee.sample.android.xbeemanager.internal.RemoteXBeeDevicesAdapter;
 import com.digi.xbee.sample.android.xbeemanager.managers.XBeeManager;
 import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.RemoteDeviceRegistry;
+import com.digi.xbee.api.android.TopologyListener;
+import com.digi.xbee.api.android.TopologyNode;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.ConnectionFutureListener;
 import com.digi.xbee.api.exceptions.XBeeException;
 import com.digi.xbee.api.listeners.IDiscoveryListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
 import com.digi.xbee.api.utils.HexUtils;
 
 import android.app.ProgressDialog;
@@ -47,13 +54,23 @@ import android.widget.Button;
 import android.widget.ListView;
 import android.widget.TextView;
 
-public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment implements IDiscoveryListener {
+public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment implements IDiscoveryListener, TopologyListener {
 
 	// Variables.
 	private ArrayList<RemoteXBeeDevice> remoteDevices;
 	
 	private RemoteXBeeDevicesAdapter remoteDevicesAdapter;
 	
+	// Finds the listed devices by address without scanning the list.
+	private final RemoteDeviceRegistry remoteDevicesIndex = new RemoteDeviceRegistry() {
+		@Override
+		protected void onEvicted(RemoteXBeeDevice device) {
+			Message msg = handler.obtainMessage(ACTION_REMOVE_DEVICE_FROM_LIST);
+			msg.obj = device.get64BitAddress();
+			handler.sendMessage(msg);
+		}
+	};
+	
 	private ListView remoteDevicesList;
 	
 	private Button discoverButton;
@@ -139,6 +156,9 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 						devDiscoveryFragment.progressDialog.dismiss();
 					break;
 				case ACTION_UPDATE_LIST_VIEW:
+					// Cached devices can arrive before the view is created.
+					if (devDiscoveryFragment.remoteDevicesList == null)
+						break;
 					devDiscoveryFragment.remoteDevicesAdapter.notifyDataSetChanged();
 					devDiscoveryFragment.remoteDevicesList.invalidateViews();
 					this.sendEmptyMessage(ACTION_UPDATE_LIST_TEXT);
@@ -183,16 +203,32 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 				case ACTION_ADD_DEVICE_TO_LIST:
 					RemoteXBeeDevice remoteDevice = (RemoteXBeeDevice)msg.obj;
 					synchronized (devDiscoveryFragment.remoteDevicesLock) {
-						boolean found = false;
-						for (RemoteXBeeDevice xbeeDevice:devDiscoveryFragment.remoteDevices) {
-							if (xbeeDevice.get64BitAddress().equals(remoteDevice.get64BitAddress())) {
-								found = true;
-								break;
+						if (devDiscoveryFragment.remoteDevicesIndex.put(remoteDevice) == null)
+							devDiscoveryFragment.remoteDevices.add(remoteDevice);
+					}
+					devDiscoveryFragment.updateListView();
+					break;
+				case ACTION_REMOVE_DEVICE_FROM_LIST:
+					XBee64BitAddress address = (XBee64BitAddress)msg.obj;
+					boolean selectionRemoved = false;
+					synchronized (devDiscoveryFragment.remoteDevicesLock) {
+						devDiscoveryFragment.remoteDevicesIndex.remove(address);
+						for (int i = 0; i < devDiscoveryFragment.remoteDevices.size(); i++) {
+							if (!devDiscoveryFragment.remoteDevices.get(i).get64BitAddress().equals(address))
+								continue;
+							devDiscoveryFragment.remoteDevices.remove(i);
+							int selection = devDiscoveryFragment.remoteDevicesAdapter.getSelection();
+							if (selection == i) {
+								devDiscoveryFragment.remoteDevicesAdapter.setSelection(RemoteXBeeDevicesAdapter.NOTHING_SELECTED);
+								selectionRemoved = true;
+							} else if (selection > i) {
+								devDiscoveryFragment.remoteDevicesAdapter.setSelection(selection - 1);
 							}
+							break;
 						}
-						if (!found)
-							devDiscoveryFragment.remoteDevices.add(remoteDevice);
 					}
+					if (selectionRemoved)
+						devDiscoveryFragment.handleRemoteDeviceSelected(null);
 					devDiscoveryFragment.updateListView();
 					break;
 				default:
@@ -204,7 +240,13 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 	@Override
 	public void setXBeeManager(XBeeManager manager) {
 		super.setXBeeManager(manager);
+		if (remoteDevices == null) {
+			remoteDevices = new ArrayList<RemoteXBeeDevice>();
+			remoteDevicesAdapter = new RemoteXBeeDevicesAdapter(this, remoteDevices);
+		}
 		manager.addDiscoveryListener(this);
+		// Show the devices found in previous sessions without waiting for a discovery.
+		manager.addTopologyListener(this);
 	}
 	
 	@Override
@@ -239,6 +281,31 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 		handler.sendMessage(msg);
 	}
 
+	@Override
+	public void topologyLoaded(List<TopologyNode> nodes) {
+		for (TopologyNode node : nodes)
+			nodeAdded(node);
+	}
+
+	@Override
+	public void nodeAdded(TopologyNode node) {
+		RemoteXBeeDevice remoteDevice = xbeeManager.getRemoteDevice(node.get64BitAddress());
+		if (remoteDevice != null)
+			deviceDiscovered(remoteDevice);
+	}
+
+	@Override
+	public void nodeUpdated(TopologyNode node) {
+		updateListView();
+	}
+
+	@Override
+	public void nodeRemoved(TopologyNode node) {
+		Message msg = handler.obtainMessage(ACTION_REMOVE_DEVICE_FROM_LIST);
+		msg.obj = node.get64BitAddress();
+		handler.sendMessage(msg);
+	}
+
 	@Override
 	public void discoveryError(String errorMessage) {
 		setErrorMessage("Error discovering devices > " + errorMessage);
@@ -246,10 +313,9 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 
 	@Override
 	public void discoveryFinished(String errorMessage) {
+		// The discovery future hides the progress dialog.
 		if (errorMessage != null)
 			setErrorMessage("Error discovering devices > " + errorMessage);
-		hideProgressDialog();
-		enableDiscoverButtons();
 	}
 
 	/**
@@ -461,31 +527,28 @@ public class XBeeDeviceDiscoveryFragment extends AbstractXBeeDeviceFragment impl
 	 * Handles what happens when the discover button is pressed.
 	 */
 	private void handleDiscoverButtonPressed() {
-		Thread discoverThread = new Thread() {
+		clearErrorMessage();
+		disableDiscoverButtons();
+		showDiscoverProgressDialog();
+		xbeeManager.startDiscoveryProcess().addListener(new ConnectionFutureListener<List<RemoteXBeeDevice>>() {
 			@Override
-			public void run() {
-				clearErrorMessage();
-				disableDiscoverButtons();
-				showDiscoverProgressDialog();
-				xbeeManager.startDiscoveryProcess();
-				while (xbeeManager.isDiscoveryRunning()) {
-					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
+			public void operationCompleted(ConnectionFuture<List<RemoteXBeeDevice>> future) {
+				if (future.getException() != null)
+					setErrorMessage("Error discovering devices > " + future.getException().getMessage());
+				hideProgressDialog();
+				enableDiscoverButtons();
 			}
-		};
-		discoverThread.start();
+		});
 	}
 	
 	/**
 	 * Handles what happens when the clear button is pressed.
 	 */
 	private void handleClearButtonPressed() {
+		xbeeManager.clearRemoteDevices();
 		synchronized (remoteDevicesLock) {
 			remoteDevices.clear();
+			remoteDevicesIndex.clear();
 		}
 		remoteDevicesAdapter.setSelection(RemoteXBeeDevicesAdapter.NOTHING_SELECTED);
 		updateListView();
@@ -20,8 +20,8 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 
 import com.digi.xbee.sample.android.xbeemanager.R;
+import com.digi.xbee.sample.android.xbeemanager.internal.ReceivedPacketsBuffer;
 import com.digi.xbee.sample.android.xbeemanager.internal.ReceivedXBeePacketsAdapter;
-import com.digi.xbee.sample.android.xbeemanager.internal.RemoteXBeeDevicesAdapter;
 import com.digi.xbee.sample.android.xbeemanager.models.AbstractReceivedPacket;
 import com.digi.xbee.sample.android.xbeemanager.models.ReceivedDataPacket;
 import com.digi.xbee.sample.android.xbeemanager.models.ReceivedIOSamplePacket;
@@ -37,21 +37,24 @@ import com.digi.xbee.api.models.XBeeMessage;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.View.OnClickListener;
-import android.widget.AdapterView;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.TextView;
-import android.widget.AdapterView.OnItemClickListener;
 
 public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 		implements IDataReceiveListener, IIOSampleReceiveListener, IModemStatusReceiveListener {
 
+	// Constants.
+	private static final int MAX_VISIBLE_PACKETS = 1000;
+
 	// Variables.
-	private ArrayList<AbstractReceivedPacket> receivedPackets;
+	private ReceivedPacketsBuffer receivedPackets;
 	private ReceivedXBeePacketsAdapter receivedPacketsAdapter;
 
 	private TextView receivedPacketsText;
@@ -62,6 +65,19 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 	
 	private final Object receivedPacketsLock = new Object();
 
+	// Packets received since the last frame, guarded by receivedPacketsLock.
+	private ArrayList<AbstractReceivedPacket> pendingPackets = new ArrayList<AbstractReceivedPacket>();
+	private boolean frameScheduled = false;
+
+	private final Choreographer choreographer = Choreographer.getInstance();
+
+	private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			flushPendingPackets();
+		}
+	};
+
 	private IncomingHandler handler = new IncomingHandler(this);
 
 	// Handler used to perform actions in the UI thread.
@@ -86,10 +102,7 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 					sendEmptyMessage(ACTION_UPDATE_LIST_TEXT);
 					break;
 				case ACTION_UPDATE_LIST_TEXT:
-					recPacketsFragment.receivedPacketsText.setText(
-							String.format("%s %s",
-									recPacketsFragment.receivedPackets.size(),
-									recPacketsFragment.getResources().getString(R.string.packets_received)));
+					recPacketsFragment.updateListText();
 					break;
 				case ACTION_CLEAR_VALUES:
 					recPacketsFragment.dateText.setText("");
@@ -97,18 +110,6 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 					recPacketsFragment.sourceAddressText.setText("");
 					recPacketsFragment.packetDataText.setText("");
 					break;
-				case ACTION_ADD_PACKET_TO_LIST:
-					synchronized (recPacketsFragment.receivedPacketsLock) {
-						recPacketsFragment.receivedPackets.add(0, (AbstractReceivedPacket)msg.obj);
-						recPacketsFragment.updateListView();
-
-						int sel = recPacketsFragment.receivedPacketsAdapter.getSelection();
-						if (sel != ReceivedXBeePacketsAdapter.NOTHING_SELECTED)
-							recPacketsFragment.receivedPacketsAdapter.setSelection(sel + 1);
-
-						recPacketsFragment.updateListView();
-					}
-					break;
 				default:
 					break;
 			}
@@ -123,7 +124,7 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 		
 		// Check if we have to initialize the received packets variables.
 		if (receivedPackets == null) {
-			receivedPackets = new ArrayList<AbstractReceivedPacket>();
+			receivedPackets = new ReceivedPacketsBuffer(MAX_VISIBLE_PACKETS);
 			receivedPacketsAdapter = new ReceivedXBeePacketsAdapter(getActivity(), receivedPackets);
 		}
 		
@@ -193,15 +194,18 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 	 */
 	private void initializeUIElements(View view) {
 		// XBee packet list.
-        ListView receivedPacketsList = (ListView)view.findViewById(R.id.received_packets_list);
+		RecyclerView receivedPacketsList = (RecyclerView)view.findViewById(R.id.received_packets_list);
+		receivedPacketsList.setLayoutManager(new LinearLayoutManager(getActivity()));
+		receivedPacketsList.setHasFixedSize(true);
+		// Packets may arrive every frame, do not animate each insertion.
+		receivedPacketsList.setItemAnimator(null);
 		receivedPacketsList.setAdapter(receivedPacketsAdapter);
-		receivedPacketsList.setOnItemClickListener(new OnItemClickListener() {
+		receivedPacketsAdapter.setOnPacketClickListener(new ReceivedXBeePacketsAdapter.OnPacketClickListener() {
 
 			@Override
-			public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
-				receivedPacketsAdapter.setSelection(i);
-				updateListView();
-				handlePacketSelected(receivedPackets.get(i));
+			public void onPacketClick(int position) {
+				receivedPacketsAdapter.setSelection(position);
+				handlePacketSelected(receivedPackets.get(position));
 			}
 		});
 
@@ -236,7 +240,7 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 		typeText.setText(String.format("%s %s",
 				selectedPacket.getType().getName(),
 				getResources().getString(R.string.packet_suffix)));
-		sourceAddressText.setText(selectedPacket.getSourceAddress().toString());
+		sourceAddressText.setText(selectedPacket.getSourceAddressString());
 		packetDataText.setText(selectedPacket.getPacketData());
 	}
 	
@@ -245,9 +249,10 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 	 */
 	private void handleClearButtonPressed() {
 		synchronized (receivedPacketsLock) {
-			receivedPackets.clear();
+			pendingPackets.clear();
 		}
-		receivedPacketsAdapter.setSelection(RemoteXBeeDevicesAdapter.NOTHING_SELECTED);
+		receivedPackets.clear();
+		receivedPacketsAdapter.setSelection(ReceivedXBeePacketsAdapter.NOTHING_SELECTED);
 		updateListView();
 		handlePacketSelected(null);
 	}
@@ -259,14 +264,65 @@ public class XBeeReceivedPacketsFragment extends AbstractXBeeDeviceFragment
 		handler.sendEmptyMessage(ACTION_CLEAR_VALUES);
 	}
 	
+	/**
+	 * Updates the text with the number of received packets.
+	 */
+	private void updateListText() {
+		String text = String.format("%s %s",
+				receivedPackets.getReceivedCount(),
+				getResources().getString(R.string.packets_received));
+		if (receivedPackets.getDroppedCount() > 0)
+			text += getResources().getString(R.string.packets_dropped_from_view,
+					receivedPackets.getDroppedCount());
+		receivedPacketsText.setText(text);
+	}
+	
 	/**
 	 * Adds the given packet to the list of packets.
 	 * 
+	 * <p>Packets are queued and added to the list once per frame, so the UI
+	 * thread handles a single update no matter how many packets arrive.</p>
+	 * 
 	 * @param receivedPacket Packet to add to the list.
 	 */
 	private void addPacketToList(AbstractReceivedPacket receivedPacket) {
-		Message msg = handler.obtainMessage(ACTION_ADD_PACKET_TO_LIST);
-		msg.obj = receivedPacket;
-		handler.sendMessage(msg);
+		synchronized (receivedPacketsLock) {
+			pendingPackets.add(receivedPacket);
+			if (frameScheduled)
+				return;
+			frameScheduled = true;
+		}
+		choreographer.postFrameCallback(frameCallback);
+	}
+	
+	/**
+	 * Moves the packets queued since the last frame to the list and notifies
+	 * the inserted and dropped ranges to the adapter.
+	 */
+	private void flushPendingPackets() {
+		ArrayList<AbstractReceivedPacket> batch;
+		synchronized (receivedPacketsLock) {
+			batch = pendingPackets;
+			pendingPackets = new ArrayList<AbstractReceivedPacket>();
+			frameScheduled = false;
+		}
+		if (batch.isEmpty())
+			return;
+
+		int oldSize = receivedPackets.size();
+		for (AbstractReceivedPacket packet : batch)
+			receivedPackets.add(packet);
+		int inserted = Math.min(batch.size(), receivedPackets.getCapacity());
+		int removed = oldSize + inserted - receivedPackets.size();
+
+		if (receivedPacketsAdapter.getSelection() != ReceivedXBeePacketsAdapter.NOTHING_SELECTED
+				&& !receivedPacketsAdapter.shiftSelection(inserted))
+			handlePacketSelected(null);
+
+		if (removed > 0)
+			receivedPacketsAdapter.notifyItemRangeRemoved(oldSize - removed, removed);
+		receivedPacketsAdapter.notifyItemRangeInserted(0, inserted);
+		if (receivedPacketsText != null)
+			updateListText();
 	}
 }
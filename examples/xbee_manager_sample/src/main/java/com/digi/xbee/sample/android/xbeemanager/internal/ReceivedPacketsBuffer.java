@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.digi.xbee.sample.android.xbeemanager.internal;
+
+import com.digi.xbee.sample.android.xbeemanager.models.AbstractReceivedPacket;
+
+/**
+ * Fixed-capacity list of received packets backed by a ring buffer.
+ *
+ * <p>Packets are indexed from the newest one (position 0) to the oldest one.
+ * Adding a packet to a full buffer drops the oldest packet, so adding is
+ * always O(1) and the memory used never grows beyond the capacity.</p>
+ *
+ * <p>This class is not thread safe, it must only be used from the UI
+ * thread.</p>
+ */
+public class ReceivedPacketsBuffer {
+
+	// Variables.
+	private final AbstractReceivedPacket[] packets;
+
+	private int head = 0;
+	private int size = 0;
+
+	private long receivedCount = 0;
+	private long droppedCount = 0;
+
+	/**
+	 * Class constructor. Instantiates a new {@code ReceivedPacketsBuffer}
+	 * object with the given capacity.
+	 *
+	 * @param capacity Maximum number of packets to keep.
+	 *
+	 * @throws IllegalArgumentException if {@code capacity < 1}.
+	 */
+	public ReceivedPacketsBuffer(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be greater than 0.");
+
+		packets = new AbstractReceivedPacket[capacity];
+	}
+
+	/**
+	 * Adds the given packet as the newest one, dropping the oldest packet if
+	 * the buffer is full.
+	 *
+	 * @param packet Packet to add.
+	 *
+	 * @return {@code true} if the oldest packet was dropped to make room,
+	 *         {@code false} otherwise.
+	 *
+	 * @throws NullPointerException if {@code packet == null}.
+	 */
+	public boolean add(AbstractReceivedPacket packet) {
+		if (packet == null)
+			throw new NullPointerException("Packet cannot be null.");
+
+		head = (head + 1) % packets.length;
+		packets[head] = packet;
+		receivedCount++;
+
+		if (size < packets.length) {
+			size++;
+			return false;
+		}
+		droppedCount++;
+		return true;
+	}
+
+	/**
+	 * Returns the packet at the given position, 0 being the newest one.
+	 *
+	 * @param position Position of the packet.
+	 *
+	 * @return The packet at the given position.
+	 *
+	 * @throws IndexOutOfBoundsException if {@code position < 0} or
+	 *                                   {@code position >= size()}.
+	 */
+	public AbstractReceivedPacket get(int position) {
+		if (position < 0 || position >= size)
+			throw new IndexOutOfBoundsException("Position " + position + ", size " + size + ".");
+
+		return packets[(head - position + packets.length) % packets.length];
+	}
+
+	/**
+	 * Returns the number of packets in the buffer.
+	 *
+	 * @return The number of packets in the buffer.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the maximum number of packets this buffer keeps.
+	 *
+	 * @return The capacity of the buffer.
+	 */
+	public int getCapacity() {
+		return packets.length;
+	}
+
+	/**
+	 * Returns the number of packets added since the last clear.
+	 *
+	 * @return The number of packets added.
+	 */
+	public long getReceivedCount() {
+		return receivedCount;
+	}
+
+	/**
+	 * Returns the number of packets dropped because the buffer was full since
+	 * the last clear.
+	 *
+	 * @return The number of packets dropped.
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Removes all the packets and resets the counters.
+	 */
+	public void clear() {
+		for (int i = 0; i < packets.length; i++)
+			packets[i] = null;
+		head = 0;
+		size = 0;
+		receivedCount = 0;
+		droppedCount = 0;
+	}
+}
@@ -16,55 +16,124 @@
 
 package com.digi.xbee.sample.android.xbeemanager.internal;
 
-import java.util.ArrayList;
-
 import com.digi.xbee.sample.android.xbeemanager.R;
 import com.digi.xbee.sample.android.xbeemanager.models.AbstractReceivedPacket;
-import com.digi.xbee.api.utils.ByteUtils;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-@SuppressLint("InflateParams")
-public class ReceivedXBeePacketsAdapter extends BaseAdapter {
+public class ReceivedXBeePacketsAdapter extends RecyclerView.Adapter<ReceivedXBeePacketsAdapter.PacketViewHolder> {
 
 	public static final int NOTHING_SELECTED = -1;
 	
 	// Variables.
-	private ArrayList<AbstractReceivedPacket> receivedPackets;
+	private ReceivedPacketsBuffer receivedPackets;
 	
 	private LayoutInflater layoutInflater;
 	
-	private Context context;
+	private OnPacketClickListener clickListener;
+	
+	private int selectedColor;
+	private int unselectedColor;
 	
 	private int selectedItem = NOTHING_SELECTED;
 	
 	/**
-	 * Class constructor. Instantiates a new {@code RemoteXBeeDevicesAdapter}
+	 * Listener notified when a packet of the list is clicked.
+	 */
+	public interface OnPacketClickListener {
+		/**
+		 * Called when the packet at the given position is clicked.
+		 * 
+		 * @param position Position of the clicked packet.
+		 */
+		void onPacketClick(int position);
+	}
+	
+	/**
+	 * Holds the views of a list row so they are only looked up once.
+	 */
+	static class PacketViewHolder extends RecyclerView.ViewHolder {
+		
+		final RelativeLayout rootLayout;
+		final TextView dateText;
+		final TextView typeText;
+		final TextView sourceAddressText;
+		final TextView packetDataText;
+		
+		PacketViewHolder(View view) {
+			super(view);
+			rootLayout = (RelativeLayout)view.findViewById(R.id.root_layout);
+			dateText = (TextView)view.findViewById(R.id.date_text);
+			typeText = (TextView)view.findViewById(R.id.packet_type_text);
+			sourceAddressText = (TextView)view.findViewById(R.id.source_address_text);
+			packetDataText = (TextView)view.findViewById(R.id.packet_data_text);
+		}
+	}
+	
+	/**
+	 * Class constructor. Instantiates a new {@code ReceivedXBeePacketsAdapter}
 	 * object with the given parameters.
 	 * 
 	 * @param context Application context.
-	 * @param receivedPackets List of received XBee packets.
+	 * @param receivedPackets Buffer of received XBee packets.
 	 */
-	public ReceivedXBeePacketsAdapter(Context context, ArrayList<AbstractReceivedPacket> receivedPackets) {
-		this.context = context;
+	public ReceivedXBeePacketsAdapter(Context context, ReceivedPacketsBuffer receivedPackets) {
 		this.receivedPackets = receivedPackets;
 		layoutInflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		selectedColor = context.getResources().getColor(R.color.light_yellow);
+		unselectedColor = context.getResources().getColor(R.color.white);
+	}
+
+	/**
+	 * Sets the listener notified when a packet is clicked.
+	 * 
+	 * @param clickListener Packet click listener, {@code null} to remove it.
+	 */
+	public void setOnPacketClickListener(OnPacketClickListener clickListener) {
+		this.clickListener = clickListener;
 	}
 
 	/**
 	 * Sets the selected item position.
 	 * 
+	 * <p>Only the rows of the old and new selections are redrawn.</p>
+	 * 
 	 * @param position Selected item position.
 	 */
 	public void setSelection(int position) {
+		int oldSelection = selectedItem;
 		selectedItem = position;
+		if (oldSelection != NOTHING_SELECTED && oldSelection < getItemCount())
+			notifyItemChanged(oldSelection);
+		if (position != NOTHING_SELECTED && position != oldSelection && position < getItemCount())
+			notifyItemChanged(position);
+	}
+	
+	/**
+	 * Moves the selection by the given number of positions without redrawing
+	 * any row. The selection is cleared if it moves out of the list.
+	 * 
+	 * <p>Used when packets are inserted before the selected one, the moved
+	 * rows are already redrawn by the insertion.</p>
+	 * 
+	 * @param offset Number of positions to move the selection.
+	 * 
+	 * @return {@code true} if there is still a selected item, {@code false}
+	 *         otherwise.
+	 */
+	public boolean shiftSelection(int offset) {
+		if (selectedItem == NOTHING_SELECTED)
+			return false;
+		selectedItem += offset;
+		if (selectedItem >= getItemCount())
+			selectedItem = NOTHING_SELECTED;
+		return selectedItem != NOTHING_SELECTED;
 	}
 	
 	/**
@@ -77,49 +146,37 @@ public class ReceivedXBeePacketsAdapter extends BaseAdapter {
 	}
 
 	@Override
-	public int getCount() {
+	public int getItemCount() {
 		return receivedPackets.size();
 	}
 
 	@Override
-	public Object getItem(int position) {
-		return receivedPackets.get(position);
-	}
-
-	@Override
-	public long getItemId(int position) {
-		return ByteUtils.byteArrayToLong(receivedPackets.get(position).getSourceAddress().getValue());
+	public PacketViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+		final PacketViewHolder holder = new PacketViewHolder(
+				layoutInflater.inflate(R.layout.received_frame_list_item, parent, false));
+		holder.itemView.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				int position = holder.getAdapterPosition();
+				if (position != RecyclerView.NO_POSITION && clickListener != null)
+					clickListener.onPacketClick(position);
+			}
+		});
+		return holder;
 	}
 
 	@Override
-	public View getView(final int position, View convertView, ViewGroup parent) {
-		// Inflate the view if required.
-		View view = convertView;
-		if (convertView == null)
-			view = layoutInflater.inflate(R.layout.received_frame_list_item, null);
-
-		// Find view fields.
-		RelativeLayout rootLayout = (RelativeLayout)view.findViewById(R.id.root_layout);
-		TextView dateText = (TextView)view.findViewById(R.id.date_text);
-		TextView typeText = (TextView)view.findViewById(R.id.packet_type_text);
-		TextView sourceAddressText = (TextView)view.findViewById(R.id.source_address_text);
-		TextView packetDataText = (TextView)view.findViewById(R.id.packet_data_text);
-		
+	public void onBindViewHolder(PacketViewHolder holder, int position) {
 		// Retrieve selected packet.
-		final AbstractReceivedPacket receivedPacket = receivedPackets.get(position);
+		AbstractReceivedPacket receivedPacket = receivedPackets.get(position);
 		
 		// Set background.
-		if (position == selectedItem)
-			rootLayout.setBackgroundColor(context.getResources().getColor(R.color.light_yellow));
-		else
-			rootLayout.setBackgroundColor(context.getResources().getColor(R.color.white));
+		holder.rootLayout.setBackgroundColor(position == selectedItem ? selectedColor : unselectedColor);
 		
 		// Fill in all fields.
-		dateText.setText(receivedPacket.getTimeString());
-		typeText.setText(receivedPacket.getType().getName());
-		sourceAddressText.setText(receivedPacket.getSourceAddress().toString());
-		packetDataText.setText(receivedPacket.getShortPacketData());
-		
-		return view;
+		holder.dateText.setText(receivedPacket.getTimeString());
+		holder.typeText.setText(receivedPacket.getType().getName());
+		holder.sourceAddressText.setText(receivedPacket.getSourceAddressString());
+		holder.packetDataText.setText(receivedPacket.getShortPacketData());
 	}
 }
@@ -16,20 +16,35 @@
 
 package com.digi.xbee.sample.android.xbeemanager.managers;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import android.content.Context;
 import android.hardware.usb.UsbDevice;
 
 import com.digi.xbee.sample.android.xbeemanager.XBeeConstants;
 import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.IOSampleStore;
+import com.digi.xbee.api.android.NetworkDiscovery;
+import com.digi.xbee.api.android.ParameterCache;
+import com.digi.xbee.api.android.SampleRecorder;
+import com.digi.xbee.api.android.TopologyCache;
+import com.digi.xbee.api.android.TopologyListener;
 import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
 import com.digi.xbee.api.exceptions.XBeeException;
 import com.digi.xbee.api.listeners.IDataReceiveListener;
 import com.digi.xbee.api.listeners.IDiscoveryListener;
 import com.digi.xbee.api.listeners.IIOSampleReceiveListener;
 import com.digi.xbee.api.listeners.IModemStatusReceiveListener;
 import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeProtocol;
 import com.digi.xbee.api.utils.ByteUtils;
 import com.digi.xbee.api.utils.HexUtils;
 
@@ -37,6 +52,9 @@ public class XBeeManager {
 	
 	// Constants.
 	private final static String USB_HOST_API = "USB Host API";
+	private final static String TOPOLOGY_FILE = "topology.cache";
+	private final static String RECORDINGS_DIRECTORY = "recordings";
+	private final static String RECORDING_NAME = "samples";
 	
 	// Variables.
 	private String port;
@@ -45,8 +63,20 @@ public class XBeeManager {
 	
 	private XBeeDevice localDevice;
 	
+	private ParameterCache parameterCache;
+	
+	private TopologyCache topologyCache;
+	
+	private NetworkDiscovery networkDiscovery;
+	
+	private final IOSampleStore ioSampleStore = new IOSampleStore();
+	
+	private SampleRecorder sampleRecorder;
+	
 	private Context context;
 	
+	private final Logger logger = LoggerFactory.getLogger(XBeeManager.class);
+	
 	/**
 	 * Class constructor. Instances a new {@code XBeeManager} object with the
 	 * given parameters.
@@ -131,7 +161,7 @@ public class XBeeManager {
 	 *                       any other error executing the request.
 	 */
 	public void setLocalParameter(String parameter, byte[] value) throws XBeeException {
-		localDevice.setParameter(parameter, value);
+		parameterCache.setParameter(parameter, value);
 	}
 	
 	/**
@@ -157,20 +187,25 @@ public class XBeeManager {
 	 * @throws XBeeException if there is a timeout
 	 */
 	public HashMap<String, String> readBasicLocalParameters() throws XBeeException {
-		localDevice.readDeviceInfo();
+		// Values that rarely change are read from the cache.
+		parameterCache.readDeviceInfo();
 		HashMap<String, String> readParams = new HashMap<String, String>();
 		readParams.put(XBeeConstants.PARAM_NODE_IDENTIFIER, localDevice.getNodeID());
 		readParams.put(XBeeConstants.PARAM_MAC_ADDRESS, localDevice.get64BitAddress().toString());
 		readParams.put(XBeeConstants.PARAM_FIRMWARE_VERSION, localDevice.getFirmwareVersion());
 		readParams.put(XBeeConstants.PARAM_HARDWARE_VERSION, localDevice.getHardwareVersion().toString());
 		readParams.put(XBeeConstants.PARAM_XBEE_PROTOCOL, localDevice.getXBeeProtocol().toString());
-		readParams.put(XBeeConstants.PARAM_PAN_ID, "" + HexUtils.byteArrayToHexString(localDevice.getPANID()));
-		readParams.put(XBeeConstants.PARAM_DEST_ADDRESS_H, HexUtils.byteArrayToHexString(localDevice.getParameter(XBeeConstants.AT_COMMAND_DH)));
-		readParams.put(XBeeConstants.PARAM_DEST_ADDRESS_L, HexUtils.byteArrayToHexString(localDevice.getParameter(XBeeConstants.AT_COMMAND_DL)));
-		byte[] ntValue = localDevice.getParameter(XBeeConstants.AT_COMMAND_NT);
+		// The missing values are read in a single pipelined batch.
+		String panCommand = localDevice.getXBeeProtocol() == XBeeProtocol.ZIGBEE ? XBeeConstants.AT_COMMAND_OP : XBeeConstants.AT_COMMAND_ID;
+		Map<String, byte[]> values = parameterCache.getParameters(panCommand, XBeeConstants.AT_COMMAND_DH,
+				XBeeConstants.AT_COMMAND_DL, XBeeConstants.AT_COMMAND_NT, XBeeConstants.AT_COMMAND_IR);
+		readParams.put(XBeeConstants.PARAM_PAN_ID, "" + HexUtils.byteArrayToHexString(values.get(panCommand)));
+		readParams.put(XBeeConstants.PARAM_DEST_ADDRESS_H, HexUtils.byteArrayToHexString(values.get(XBeeConstants.AT_COMMAND_DH)));
+		readParams.put(XBeeConstants.PARAM_DEST_ADDRESS_L, HexUtils.byteArrayToHexString(values.get(XBeeConstants.AT_COMMAND_DL)));
+		byte[] ntValue = values.get(XBeeConstants.AT_COMMAND_NT);
 		long nodeDiscoveryTime = ByteUtils.byteArrayToLong(ntValue) * 100;
 		readParams.put(XBeeConstants.PARAM_NODE_DISCOVERY_TIME, "" + nodeDiscoveryTime);
-		byte[] irValue = localDevice.getParameter(XBeeConstants.AT_COMMAND_IR);
+		byte[] irValue = values.get(XBeeConstants.AT_COMMAND_IR);
 		long samplingRateTime = ByteUtils.byteArrayToLong(irValue);
 		readParams.put(XBeeConstants.PARAM_IO_SAMPLING_RATE, "" + samplingRateTime);
 		if (port == null)
@@ -234,11 +269,54 @@ public class XBeeManager {
 		localDevice.getNetwork().addDiscoveryListener(listener);
 	}
 	
+	/**
+	 * Adds the given listener to the list of listeners that will be notified
+	 * with the cached remote devices and their changes.
+	 * 
+	 * @param listener Topology listener to add.
+	 */
+	public void addTopologyListener(TopologyListener listener) {
+		topologyCache.addTopologyListener(listener);
+	}
+	
+	/**
+	 * Removes the given listener from the list of topology listeners.
+	 * 
+	 * @param listener Topology listener to remove.
+	 */
+	public void removeTopologyListener(TopologyListener listener) {
+		topologyCache.removeTopologyListener(listener);
+	}
+	
+	/**
+	 * Returns the remote XBee device of the network with the given 64-bit
+	 * address.
+	 * 
+	 * @param address 64-bit address of the remote device.
+	 * @return The remote XBee device, {@code null} if it is not in the
+	 *         network.
+	 */
+	public RemoteXBeeDevice getRemoteDevice(XBee64BitAddress address) {
+		return localDevice.getNetwork().getDevice(address);
+	}
+	
+	/**
+	 * Removes all the remote devices from the topology cache.
+	 */
+	public void clearRemoteDevices() {
+		topologyCache.clear();
+	}
+	
 	/**
 	 * Starts the device discovery process.
+	 * 
+	 * <p>The discovery finishes as soon as no new device answers for a
+	 * while instead of waiting for the whole node discovery time.</p>
+	 * 
+	 * @return The future with the discovered devices.
 	 */
-	public void startDiscoveryProcess() {
-		localDevice.getNetwork().startDiscoveryProcess();
+	public ConnectionFuture<List<RemoteXBeeDevice>> startDiscoveryProcess() {
+		return networkDiscovery.discover();
 	}
 	
 	/**
@@ -258,7 +336,7 @@ public class XBeeManager {
 	 *                          any other error during the operation.
 	 */
 	public void saveChanges() throws XBeeException {
-		localDevice.writeChanges();
+		parameterCache.writeChanges();
 	}
 	
 	/**
@@ -299,6 +377,26 @@ public class XBeeManager {
 		localDevice.removeIOSampleListener(listener);
 	}
 	
+	/**
+	 * Returns the store with the values of the IO samples received from the
+	 * remote devices.
+	 * 
+	 * @return The IO sample store.
+	 */
+	public IOSampleStore getIOSampleStore() {
+		return ioSampleStore;
+	}
+	
+	/**
+	 * Returns the recorder that stores the IO samples and data received from
+	 * the remote devices on disk.
+	 * 
+	 * @return The sample recorder, {@code null} if it could not be created.
+	 */
+	public SampleRecorder getSampleRecorder() {
+		return sampleRecorder;
+	}
+	
 	/**
 	 * Subscribes the given listener to the list of listeners that will be
 	 * notified when Modem Status events are received.
@@ -327,6 +425,39 @@ public class XBeeManager {
 	public void openConnection() throws XBeeException {
 		if (!localDevice.isOpen())
 			localDevice.open();
+		if (parameterCache == null || parameterCache.getDevice() != localDevice) {
+			if (parameterCache != null)
+				parameterCache.close();
+			parameterCache = new ParameterCache(localDevice);
+		}
+		if (networkDiscovery == null || networkDiscovery.getDevice() != localDevice)
+			networkDiscovery = new NetworkDiscovery(localDevice);
+		// Keep the IO sample history of the remote devices.
+		localDevice.removeIOSampleListener(ioSampleStore);
+		localDevice.addIOSampleListener(ioSampleStore);
+		// Record the IO samples and data on disk.
+		if (sampleRecorder == null) {
+			try {
+				sampleRecorder = new SampleRecorder(new File(context.getFilesDir(), RECORDINGS_DIRECTORY), RECORDING_NAME);
+			} catch (IOException e) {
+				logger.error("Could not create the sample recorder.", e);
+			}
+		}
+		if (sampleRecorder != null) {
+			sampleRecorder.detach(localDevice);
+			sampleRecorder.attach(localDevice);
+		}
+		// Preload the remote devices found in previous sessions.
+		if (topologyCache == null || topologyCache.getDevice() != localDevice) {
+			if (topologyCache != null)
+				topologyCache.close();
+			topologyCache = new TopologyCache(localDevice, new File(context.getFilesDir(), TOPOLOGY_FILE));
+			try {
+				topologyCache.load();
+			} catch (IOException e) {
+				logger.error("Could not load the topology cache.", e);
+			}
+		}
 	}
 	
 	/**
@@ -335,5 +466,11 @@ public class XBeeManager {
 	public void closeConnection() {
 		if (localDevice.isOpen())
 			localDevice.close();
+		// Called from the main thread, do not wait for the disk.
+		if (sampleRecorder != null)
+			sampleRecorder.flushAsync();
+		// The module can be reconfigured while disconnected.
+		if (parameterCache != null)
+			parameterCache.invalidateAll();
 	}
 }
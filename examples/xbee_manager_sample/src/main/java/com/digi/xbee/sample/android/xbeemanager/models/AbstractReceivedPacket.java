@@ -16,7 +16,6 @@
  
 package com.digi.xbee.sample.android.xbeemanager.models;
 
-import java.util.Calendar;
 import java.util.Date;
 
 import com.digi.xbee.api.models.XBee64BitAddress;
@@ -24,12 +23,21 @@ import com.digi.xbee.api.models.XBee64BitAddress;
 public abstract class AbstractReceivedPacket {
 	
 	// Variables.
-	protected Date receivedDate;
+	protected final long receivedTime;
+	
+	protected final long receivedNanos;
 	
 	protected XBee64BitAddress sourceAddress;
 	
 	private PacketType type;
 	
+	// Display strings, built the first time they are requested.
+	private String timeString;
+	private String dateAndTimeString;
+	private String sourceAddressString;
+	private String packetData;
+	private String shortPacketData;
+	
 	/**
 	 * Class constructor. Instantiates a new {@code AbstractReceivedXBeePacket}
 	 * object with the given parameters.
@@ -40,51 +48,61 @@ public abstract class AbstractReceivedPacket {
 	public AbstractReceivedPacket(XBee64BitAddress sourceAddress, PacketType type) {
 		this.sourceAddress = sourceAddress;
 		this.type = type;
-		receivedDate = new Date();
+		receivedTime = System.currentTimeMillis();
+		receivedNanos = System.nanoTime();
 	}
 	
 	/**
 	 * Returns the date at which packet was received.
 	 * 
 	 * @return The date at which packet was received.
+	 * 
+	 * @see #getTimestamp()
 	 */
 	public Date getDate() {
-		return receivedDate;
+		return new Date(receivedTime);
+	}
+	
+	/**
+	 * Returns the time at which the packet was received.
+	 * 
+	 * @return The epoch time in milliseconds at which the packet was received.
+	 */
+	public long getTimestamp() {
+		return receivedTime;
 	}
 	
 	/**
-	 * Returns the received time in format HH:mm:ss.
+	 * Returns the value of {@link System#nanoTime()} when the packet was
+	 * received, to measure the elapsed time between packets.
 	 * 
-	 * @return Received time in format HH:mm:ss.
+	 * @return The monotonic time in nanoseconds at which the packet was
+	 *         received.
+	 */
+	public long getElapsedNanos() {
+		return receivedNanos;
+	}
+	
+	/**
+	 * Returns the received time in format HH:mm:ss.SSS.
+	 * 
+	 * @return Received time in format HH:mm:ss.SSS.
 	 */
 	public String getTimeString() {
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(receivedDate);
-		return completeNumber(cal.get(Calendar.HOUR_OF_DAY)) + ':'
-				+ completeNumber(cal.get(Calendar.MINUTE)) + ':'
-				+ completeNumber(cal.get(Calendar.SECOND)) + '.'
-				+ completeMilliseconds(cal.get(Calendar.MILLISECOND));
+		if (timeString == null)
+			timeString = PacketTimeFormatter.formatTime(receivedTime);
+		return timeString;
 	}
 	
 	/**
-	 * Returns the received date and time in format yyyy-MM-dd HH:mm:ss.
+	 * Returns the received date and time in format yyyy-M-d HH:mm:ss.SSS.
 	 * 
-	 * @return Received date and time in format yyyy-MM-dd HH:mm:ss.
+	 * @return Received date and time in format yyyy-M-d HH:mm:ss.SSS.
 	 */
 	public String getDateAndTimeString() {
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(receivedDate);
-
-		String dateString = String.valueOf(cal.get(Calendar.YEAR)) + '-'
-				+ (cal.get(Calendar.MONTH) + 1) + '-'
-				+ cal.get(Calendar.DAY_OF_MONTH) + " ";
-
-		String timeString = completeNumber(cal.get(Calendar.HOUR_OF_DAY)) + ':'
-				+ completeNumber(cal.get(Calendar.MINUTE)) + ':'
-				+ completeNumber(cal.get(Calendar.SECOND)) + '.'
-				+ completeMilliseconds(cal.get(Calendar.MILLISECOND));
-
-		return dateString + timeString;
+		if (dateAndTimeString == null)
+			dateAndTimeString = PacketTimeFormatter.formatDateAndTime(receivedTime);
+		return dateAndTimeString;
 	}
 	
 	/**
@@ -96,6 +114,17 @@ public abstract class AbstractReceivedPacket {
 		return sourceAddress;
 	}
 	
+	/**
+	 * Returns the received packet source address in a readable format.
+	 * 
+	 * @return The received packet 64-bit source address as string.
+	 */
+	public String getSourceAddressString() {
+		if (sourceAddressString == null)
+			sourceAddressString = sourceAddress.toString();
+		return sourceAddressString;
+	}
+	
 	/**
 	 * Returns the packet type.
 	 * 
@@ -110,43 +139,40 @@ public abstract class AbstractReceivedPacket {
 	 * 
 	 * @return The packet data in a readable format.
 	 */
-	public abstract String getPacketData();
+	public final String getPacketData() {
+		if (packetData == null)
+			packetData = formatPacketData();
+		return packetData;
+	}
 	
 	/**
 	 * Returns the packet data (short format) in a readable format.
 	 * 
 	 * @return The packet data (short formal) in a readable format.
 	 */
-	public abstract String getShortPacketData();
+	public final String getShortPacketData() {
+		if (shortPacketData == null)
+			shortPacketData = formatShortPacketData();
+		return shortPacketData;
+	}
 	
 	/**
-	 * Completes the given number by adding a preceding zero if necessary.
+	 * Builds the readable packet data. Called once, the first time the data
+	 * is requested.
+	 * 
+	 * @return The packet data in a readable format.
 	 * 
-	 * @param number Number to complete.
-	 * @return Completed number.
+	 * @see #getPacketData()
 	 */
-	private String completeNumber(int number) {
-		if (number < 10)
-			return "0" + number;
-		return "" + number;
-	}
+	protected abstract String formatPacketData();
 	
 	/**
-	 * Completes the given milliseconds value by adding '0' until reaching 3
-	 * floating point decimals.
+	 * Builds the readable packet data (short format). Called once, the first
+	 * time the data is requested.
+	 * 
+	 * @return The packet data (short format) in a readable format.
 	 * 
-	 * @param milliseconds Milliseconds number to complete.
-	 * @return Completed milliseconds number.
+	 * @see #getShortPacketData()
 	 */
-	private String completeMilliseconds(int milliseconds) {
-		if (("" + milliseconds).length() == 3)
-			return "" + milliseconds;
-		int diff = 3 - ("" + milliseconds).length();
-		StringBuilder sb = new StringBuilder();
-		sb.append(milliseconds);
-		for (int i = 0; i < diff; i++){
-			sb.append("0");
-		}
-		return sb.toString();
-	}
+	protected abstract String formatShortPacketData();
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.digi.xbee.sample.android.xbeemanager.models;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Formats packet timestamps shared by all the received packet models.
+ *
+ * <p>The digits are written into a reused buffer instead of going through a
+ * {@code Calendar} for every packet, the calendar is only used to build the
+ * date prefix when the day changes. Only the returned string is
+ * allocated.</p>
+ */
+final class PacketTimeFormatter {
+
+	// Constants.
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	// Variables.
+	private static final char[] buffer = new char[12];
+
+	private static final TimeZone timeZone = TimeZone.getDefault();
+	private static final Calendar calendar = Calendar.getInstance(timeZone);
+
+	private static long cachedDay = Long.MIN_VALUE;
+	private static String cachedDatePrefix;
+
+	private PacketTimeFormatter() {
+	}
+
+	/**
+	 * Returns the given time in format HH:mm:ss.SSS.
+	 *
+	 * @param time Epoch time in milliseconds.
+	 *
+	 * @return The formatted time.
+	 */
+	static synchronized String formatTime(long time) {
+		writeTime(time);
+		return new String(buffer);
+	}
+
+	/**
+	 * Returns the given time in format yyyy-M-d HH:mm:ss.SSS.
+	 *
+	 * @param time Epoch time in milliseconds.
+	 *
+	 * @return The formatted date and time.
+	 */
+	static synchronized String formatDateAndTime(long time) {
+		long day = floorDiv(toLocal(time), MILLIS_PER_DAY);
+		if (day != cachedDay) {
+			calendar.setTimeInMillis(time);
+			cachedDatePrefix = String.valueOf(calendar.get(Calendar.YEAR)) + '-'
+					+ (calendar.get(Calendar.MONTH) + 1) + '-'
+					+ calendar.get(Calendar.DAY_OF_MONTH) + " ";
+			cachedDay = day;
+		}
+		writeTime(time);
+		return new StringBuilder(cachedDatePrefix.length() + buffer.length)
+				.append(cachedDatePrefix).append(buffer).toString();
+	}
+
+	/**
+	 * Writes the time of day of the given time in the buffer.
+	 *
+	 * @param time Epoch time in milliseconds.
+	 */
+	private static void writeTime(long time) {
+		long local = toLocal(time);
+		int millisOfDay = (int)(local - floorDiv(local, MILLIS_PER_DAY) * MILLIS_PER_DAY);
+		int millis = millisOfDay % 1000;
+		int seconds = millisOfDay / 1000;
+
+		writeDigits(0, seconds / 3600, 2);
+		buffer[2] = ':';
+		writeDigits(3, seconds / 60 % 60, 2);
+		buffer[5] = ':';
+		writeDigits(6, seconds % 60, 2);
+		buffer[8] = '.';
+		writeDigits(9, millis, 3);
+	}
+
+	/**
+	 * Writes the given value in the buffer padded with leading zeros.
+	 *
+	 * @param offset Buffer position of the first digit.
+	 * @param value Value to write.
+	 * @param digits Number of digits to write.
+	 */
+	private static void writeDigits(int offset, int value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			buffer[i] = (char)('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static long toLocal(long time) {
+		return time + timeZone.getOffset(time);
+	}
+
+	private static long floorDiv(long value, long divisor) {
+		long result = value / divisor;
+		if (value % divisor < 0)
+			result--;
+		return result;
+	}
+}
@@ -21,7 +21,7 @@ import com.digi.xbee.api.models.XBee64BitAddress;
 public class ReceivedDataPacket extends AbstractReceivedPacket {
 
 	// Variables.
-	private byte[] receivedData;
+	private final byte[] receivedData;
 	
 	/**
 	 * Class constructor. Instantiates a new {@code ReceivedDataPacket} object
@@ -35,13 +35,23 @@ public class ReceivedDataPacket extends AbstractReceivedPacket {
 		this.receivedData = receivedData;
 	}
 
+	/**
+	 * Returns the received data.
+	 * 
+	 * @return The received packet data.
+	 */
+	public byte[] getReceivedData() {
+		return receivedData;
+	}
+
 	@Override
-	public String getShortPacketData() {
-		return new String(receivedData);
+	protected String formatShortPacketData() {
+		// The list row shows the same text as the details.
+		return getPacketData();
 	}
 	
 	@Override
-	public String getPacketData() {
+	protected String formatPacketData() {
 		return new String(receivedData);
 	}
 }
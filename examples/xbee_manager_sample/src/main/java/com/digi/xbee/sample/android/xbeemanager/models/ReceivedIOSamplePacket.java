@@ -47,7 +47,7 @@ public class ReceivedIOSamplePacket extends AbstractReceivedPacket {
 	}
 
 	@Override
-	public String getShortPacketData() {
+	protected String formatShortPacketData() {
 		StringBuilder sb = new StringBuilder();
 		if (ioSample.hasAnalogValues())
 			sb.append(ioSample.getAnalogValues().size()).append(ANALOG_VALUES_SHORT);
@@ -61,7 +61,7 @@ public class ReceivedIOSamplePacket extends AbstractReceivedPacket {
 	}
 	
 	@Override
-	public String getPacketData() {
+	protected String formatPacketData() {
 		StringBuilder sb = new StringBuilder();
 		if (ioSample.hasAnalogValues()) {
 			sb.append(ANALOG_VALUES);
@@ -37,12 +37,12 @@ public class ReceivedModemStatusPacket extends AbstractReceivedPacket {
 	}
 
 	@Override
-	public String getShortPacketData() {
-		return modemStatusEvent.getDescription();
+	protected String formatShortPacketData() {
+		return getPacketData();
 	}
 	
 	@Override
-	public String getPacketData() {
+	protected String formatPacketData() {
 		return modemStatusEvent.getDescription();
 	}
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.ShortBufferException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.digi.xbee.api.connection.bluetooth.AbstractBluetoothInterface;
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * Benchmarks the AES/CTR encryption and decryption applied to every
+ * Bluetooth characteristic write and notification.
+ *
+ * <p>The ciphers are the ones configured by
+ * {@link AbstractBluetoothInterface#setEncryptionKeys(byte[], byte[], byte[])}
+ * and are used the same way as the Android Bluetooth interface does.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BLECipherBenchmark {
+
+	// Constants.
+	private static final int KEY_LENGTH = 32;
+	private static final int NONCE_LENGTH = 12;
+
+	// Variables.
+	@Param({"20", "128", "244"})
+	public int chunkSize;
+
+	private CipherInterface cipherInterface;
+
+	private byte[] data;
+	private byte[] encrypted;
+
+	@Setup
+	public void setup() throws XBeeException {
+		cipherInterface = new CipherInterface();
+		cipherInterface.setEncryptionKeys(BenchmarkData.createData(KEY_LENGTH),
+				BenchmarkData.createData(NONCE_LENGTH), BenchmarkData.createData(NONCE_LENGTH));
+		data = BenchmarkData.createData(chunkSize);
+		encrypted = new byte[chunkSize];
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws ShortBufferException {
+		// Same as a characteristic write.
+		cipherInterface.encrypt(data, encrypted);
+		return encrypted;
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws ShortBufferException {
+		// Same as a characteristic notification, decrypted in place.
+		cipherInterface.decrypt(encrypted);
+		return encrypted;
+	}
+
+	/**
+	 * Bluetooth interface that only exposes the ciphers.
+	 */
+	private static class CipherInterface extends AbstractBluetoothInterface {
+
+		void encrypt(byte[] data, byte[] output) throws ShortBufferException {
+			cipherEnc.update(data, 0, data.length, output, 0);
+		}
+
+		void decrypt(byte[] data) throws ShortBufferException {
+			cipherDec.update(data, 0, data.length, data, 0);
+		}
+
+		@Override
+		public void open() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return null;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return null;
+		}
+
+		@Override
+		public void writeData(byte[] data) {
+		}
+
+		@Override
+		public void writeData(byte[] data, int offset, int length) {
+		}
+
+		@Override
+		public int readData(byte[] data) {
+			return 0;
+		}
+
+		@Override
+		public int readData(byte[] data, int offset, int length) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+
+import com.digi.xbee.api.models.OperatingMode;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.common.ReceivePacket;
+
+/**
+ * Helper class that generates the data used by the benchmarks.
+ */
+final class BenchmarkData {
+
+	// Constants.
+	private static final XBee64BitAddress SOURCE_64 = new XBee64BitAddress("0013A20040A1B2C3");
+	private static final XBee16BitAddress SOURCE_16 = new XBee16BitAddress("1234");
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Returns a byte array of the given size with a repeating pattern.
+	 */
+	static byte[] createData(int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) i;
+		return data;
+	}
+
+	/**
+	 * Returns a receive packet with the given payload size.
+	 */
+	static XBeePacket createReceivePacket(int payloadSize) {
+		return new ReceivePacket(SOURCE_64, SOURCE_16, 0x01, createData(payloadSize));
+	}
+
+	/**
+	 * Returns the frame of a receive packet with the given payload size.
+	 */
+	static byte[] createFrame(int payloadSize, OperatingMode mode) {
+		XBeePacket packet = createReceivePacket(payloadSize);
+		return mode == OperatingMode.API_ESCAPE ? packet.generateByteArrayEscaped() : packet.generateByteArray();
+	}
+
+	/**
+	 * Returns a stream with the given number of consecutive frames.
+	 */
+	static byte[] createFrameStream(int payloadSize, OperatingMode mode, int frames) {
+		byte[] frame = createFrame(payloadSize, mode);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream(frame.length * frames);
+		for (int i = 0; i < frames; i++)
+			stream.write(frame, 0, frame.length);
+		return stream.toByteArray();
+	}
+}
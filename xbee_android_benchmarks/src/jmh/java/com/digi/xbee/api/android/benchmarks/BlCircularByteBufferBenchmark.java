@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.digi.xbee.api.android.connection.bluetooth.BlCircularByteBuffer;
+
+/**
+ * Benchmarks the Bluetooth receive buffer, {@link BlCircularByteBuffer},
+ * through its input and output streams.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlCircularByteBufferBenchmark {
+
+	// Constants.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Variables.
+	@Param({"1", "16", "64", "512", "4096"})
+	public int chunkSize;
+
+	private InputStream input;
+	private OutputStream output;
+
+	private byte[] chunk;
+	private byte[] readBuffer;
+
+	@Setup
+	public void setup() throws IOException {
+		BlCircularByteBuffer buffer = new BlCircularByteBuffer(BUFFER_SIZE, false);
+		input = buffer.getInputStream();
+		output = buffer.getOutputStream();
+		chunk = BenchmarkData.createData(chunkSize);
+		readBuffer = new byte[chunkSize];
+		// Start with the indexes in the middle of the buffer.
+		output.write(new byte[BUFFER_SIZE / 2 + 1]);
+		input.skip(BUFFER_SIZE / 2 + 1);
+	}
+
+	@Benchmark
+	public int writeRead() throws IOException {
+		output.write(chunk, 0, chunkSize);
+		return input.read(readBuffer, 0, chunkSize);
+	}
+
+	@Benchmark
+	public long writeSkip() throws IOException {
+		output.write(chunk, 0, chunkSize);
+		return input.skip(chunkSize);
+	}
+}
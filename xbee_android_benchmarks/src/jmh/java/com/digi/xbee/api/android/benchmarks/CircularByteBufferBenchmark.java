@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.digi.xbee.api.android.connection.usb.CircularByteBuffer;
+
+/**
+ * Benchmarks the USB receive buffer, {@link CircularByteBuffer}.
+ *
+ * <p>Each operation writes one chunk and then reads or skips it, so the
+ * buffer wraps around continuously.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CircularByteBufferBenchmark {
+
+	// Constants.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Variables.
+	@Param({"1", "16", "64", "512", "4096"})
+	public int chunkSize;
+
+	private CircularByteBuffer buffer;
+
+	private byte[] chunk;
+	private byte[] readBuffer;
+
+	@Setup
+	public void setup() {
+		buffer = new CircularByteBuffer(BUFFER_SIZE);
+		chunk = BenchmarkData.createData(chunkSize);
+		readBuffer = new byte[chunkSize];
+		// Start with the indexes in the middle of the buffer.
+		buffer.write(new byte[BUFFER_SIZE / 2 + 1], 0, BUFFER_SIZE / 2 + 1);
+		buffer.skip(BUFFER_SIZE / 2 + 1);
+	}
+
+	@Benchmark
+	public int writeRead() {
+		buffer.write(chunk, 0, chunkSize);
+		return buffer.read(readBuffer, 0, chunkSize);
+	}
+
+	@Benchmark
+	public int writeSkip() {
+		buffer.write(chunk, 0, chunkSize);
+		return buffer.skip(chunkSize);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.digi.xbee.api.android.connection.FrameSplitter;
+import com.digi.xbee.api.exceptions.InvalidPacketException;
+import com.digi.xbee.api.models.OperatingMode;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.XBeePacketParser;
+
+/**
+ * Benchmarks the parsing of API frames, as done by the device data reader,
+ * and the splitting of a byte stream in frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameParsingBenchmark {
+
+	// Constants.
+	private static final int FRAMES = 64;
+
+	// Variables.
+	@Param({"16", "84", "255"})
+	public int payloadSize;
+
+	@Param({"API", "API_ESCAPE"})
+	public OperatingMode mode;
+
+	private final XBeePacketParser parser = new XBeePacketParser();
+
+	private byte[] frame;
+	private byte[] stream;
+
+	@Setup
+	public void setup() {
+		frame = BenchmarkData.createFrame(payloadSize, mode);
+		stream = BenchmarkData.createFrameStream(payloadSize, mode, FRAMES);
+	}
+
+	@Benchmark
+	public XBeePacket parseArray() throws InvalidPacketException {
+		return XBeePacket.parsePacket(frame, mode);
+	}
+
+	@Benchmark
+	public XBeePacket parseStream() throws InvalidPacketException {
+		// The data reader consumes the start delimiter before parsing.
+		ByteArrayInputStream input = new ByteArrayInputStream(frame, 1, frame.length - 1);
+		return parser.parsePacket(input, mode);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public List<byte[]> splitStream() {
+		return new FrameSplitter(mode == OperatingMode.API_ESCAPE).feed(stream, 0, stream.length);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import android.content.Context;
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInputStream;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBOutputStream;
+
+/**
+ * Benchmarks the throughput of the USB input and output streams against
+ * fake bulk endpoints.
+ *
+ * <p>The {@code read} benchmark measures the time from a bulk transfer
+ * being available until its data is read from the input stream, including
+ * the hand off between the read thread and the reader. The {@code write}
+ * benchmark measures the time to queue a batch of writes until the write
+ * thread has transferred all of them.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class USBStreamBenchmark {
+
+	// Constants.
+	private static final int MAX_PACKET_SIZE = 64;
+	// Every USB packet starts with the 2 FTDI modem status bytes.
+	private static final int STATUS_BYTES = 2;
+	private static final int TRANSFERS = 16;
+
+	// Variables.
+	@Param({"1", "16"})
+	public int packetsPerTransfer;
+
+	@Param({"16", "256"})
+	public int chunkSize;
+
+	private FakeConnection connection;
+
+	private AndroidUSBInputStream inputStream;
+	private AndroidUSBOutputStream outputStream;
+
+	private byte[] chunk;
+	private byte[] readBuffer;
+
+	@Setup
+	public void setup() {
+		UsbEndpoint inEndpoint = new UsbEndpoint(UsbConstants.USB_DIR_IN | 1, MAX_PACKET_SIZE);
+		UsbEndpoint outEndpoint = new UsbEndpoint(UsbConstants.USB_DIR_OUT | 2, MAX_PACKET_SIZE);
+		connection = new FakeConnection(packetsPerTransfer);
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(new Context(), 9600);
+
+		inputStream = new AndroidUSBInputStream(usbInterface, inEndpoint, connection);
+		inputStream.startReadThread();
+		outputStream = new AndroidUSBOutputStream(outEndpoint, connection);
+
+		chunk = BenchmarkData.createData(chunkSize);
+		readBuffer = new byte[chunkSize];
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		inputStream.stopReadThread();
+		outputStream.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRANSFERS)
+	public int read() throws IOException {
+		// One transfer at a time, the read buffer only holds a full transfer.
+		int transferBytes = packetsPerTransfer * (MAX_PACKET_SIZE - STATUS_BYTES);
+		for (int i = 0; i < TRANSFERS; i++) {
+			connection.allowTransfers(1);
+			int remaining = transferBytes;
+			while (remaining > 0) {
+				int readBytes = inputStream.read(readBuffer, 0, Math.min(remaining, readBuffer.length));
+				if (readBytes > 0)
+					remaining -= readBytes;
+			}
+		}
+		return transferBytes;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRANSFERS)
+	public int write() {
+		for (int i = 0; i < TRANSFERS; i++)
+			outputStream.write(chunk, 0, chunkSize);
+		while (outputStream.getQueuedWrites() > 0)
+			Thread.yield();
+		return connection.getWrittenBytes();
+	}
+
+	/**
+	 * USB connection that emulates the bulk endpoints of an FTDI device.
+	 */
+	private static class FakeConnection extends UsbDeviceConnection {
+
+		private final Semaphore transfers = new Semaphore(0);
+
+		private final byte[] transfer;
+
+		private volatile int writtenBytes;
+
+		FakeConnection(int packetsPerTransfer) {
+			transfer = new byte[packetsPerTransfer * MAX_PACKET_SIZE];
+			for (int i = 0; i < transfer.length; i++)
+				transfer[i] = i % MAX_PACKET_SIZE < STATUS_BYTES ? 0x01 : (byte) i;
+		}
+
+		void allowTransfers(int count) {
+			transfers.release(count);
+		}
+
+		int getWrittenBytes() {
+			return writtenBytes;
+		}
+
+		@Override
+		public int bulkTransfer(UsbEndpoint endpoint, byte[] buffer, int length, int timeout) {
+			if (endpoint.getDirection() == UsbConstants.USB_DIR_OUT) {
+				writtenBytes += length;
+				return length;
+			}
+			try {
+				if (!transfers.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+					return 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return -1;
+			}
+			int transferred = Math.min(length, transfer.length);
+			System.arraycopy(transfer, 0, buffer, 0, transferred);
+			return transferred;
+		}
+	}
+}
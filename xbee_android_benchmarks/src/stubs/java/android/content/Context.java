@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package android.content;
+
+/**
+ * Minimal stub of the Android {@code Context} class.
+ *
+ * <p>Benchmarks can extend it to provide fake system services.</p>
+ */
+public class Context {
+
+	public static final String USB_SERVICE = "usb";
+
+	public Object getSystemService(String name) {
+		return null;
+	}
+
+	public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+		return null;
+	}
+
+	public void unregisterReceiver(BroadcastReceiver receiver) {
+	}
+}
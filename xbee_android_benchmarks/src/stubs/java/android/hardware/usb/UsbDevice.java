@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package android.hardware.usb;
+
+/**
+ * Minimal stub of the Android {@code UsbDevice} class.
+ */
+public class UsbDevice {
+
+	public String getDeviceName() {
+		return "/dev/bus/usb/001/001";
+	}
+
+	public int getDeviceId() {
+		return 1001;
+	}
+
+	public String getSerialNumber() {
+		return null;
+	}
+
+	public int getVendorId() {
+		return 0;
+	}
+
+	public int getProductId() {
+		return 0;
+	}
+
+	public int getInterfaceCount() {
+		return 0;
+	}
+
+	public UsbInterface getInterface(int index) {
+		return null;
+	}
+}
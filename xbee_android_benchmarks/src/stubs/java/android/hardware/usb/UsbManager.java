@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package android.hardware.usb;
+
+import java.util.HashMap;
+
+import android.app.PendingIntent;
+
+/**
+ * Minimal stub of the Android {@code UsbManager} class.
+ */
+public class UsbManager {
+
+	public static final String ACTION_USB_DEVICE_ATTACHED = "android.hardware.usb.action.USB_DEVICE_ATTACHED";
+	public static final String ACTION_USB_DEVICE_DETACHED = "android.hardware.usb.action.USB_DEVICE_DETACHED";
+	public static final String EXTRA_DEVICE = "device";
+	public static final String EXTRA_PERMISSION_GRANTED = "permission";
+
+	public HashMap<String, UsbDevice> getDeviceList() {
+		return new HashMap<>();
+	}
+
+	public boolean hasPermission(UsbDevice device) {
+		return true;
+	}
+
+	public void requestPermission(UsbDevice device, PendingIntent pendingIntent) {
+	}
+
+	public UsbDeviceConnection openDevice(UsbDevice device) {
+		return null;
+	}
+}
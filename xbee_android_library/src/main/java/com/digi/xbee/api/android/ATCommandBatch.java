@@ -0,0 +1,398 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.digi.xbee.api.AbstractXBeeDevice;
+import com.digi.xbee.api.exceptions.ATCommandException;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.listeners.IPacketReceiveListener;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.common.ATCommandPacket;
+import com.digi.xbee.api.packet.common.ATCommandResponsePacket;
+
+/**
+ * This class executes a list of AT commands on a local XBee device without
+ * waiting for each response before sending the next command.
+ *
+ * <p>Up to the pipeline depth commands are in flight at the same time,
+ * each with its own frame ID. The responses are matched by frame ID as
+ * they arrive, so the batch takes about one round trip per pipeline depth
+ * commands instead of one per command. This matters most over Bluetooth
+ * Low Energy, where a round trip takes several connection intervals. The
+ * depth is bounded so the module receive buffer is not overrun.</p>
+ *
+ * <p>The device can be any {@code com.digi.xbee.api.XBeeDevice}, such as
+ * {@link XBeeDevice} and its protocol subclasses, or an
+ * {@link XBeeBLEDevice}.</p>
+ *
+ * @see ATCommandBatchResult
+ */
+public class ATCommandBatch {
+
+    // Constants.
+    /**
+     * Default number of commands in flight at the same time.
+     */
+    public static final int DEFAULT_PIPELINE_DEPTH = 4;
+
+    /**
+     * Maximum number of commands in flight at the same time.
+     */
+    public static final int MAX_PIPELINE_DEPTH = 16;
+
+    // Variables.
+    private final AbstractXBeeDevice device;
+
+    private final int pipelineDepth;
+
+    private final Map<String, byte[]> commands = new LinkedHashMap<String, byte[]>();
+
+    /**
+     * Class constructor. Instantiates a new {@code ATCommandBatch} object
+     * for the given local XBee device with the default pipeline depth.
+     *
+     * @param device The local XBee device.
+     *
+     * @throws IllegalArgumentException if the device is neither a
+     *                                  {@code com.digi.xbee.api.XBeeDevice}
+     *                                  nor an {@code XBeeBLEDevice}.
+     * @throws NullPointerException if {@code device == null}.
+     *
+     * @see #ATCommandBatch(AbstractXBeeDevice, int)
+     */
+    public ATCommandBatch(AbstractXBeeDevice device) {
+        this(device, DEFAULT_PIPELINE_DEPTH);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code ATCommandBatch} object
+     * for the given local XBee device with the given pipeline depth.
+     *
+     * @param device The local XBee device.
+     * @param pipelineDepth Maximum number of commands in flight at the
+     *                      same time.
+     *
+     * @throws IllegalArgumentException if the device is neither a
+     *                                  {@code com.digi.xbee.api.XBeeDevice}
+     *                                  nor an {@code XBeeBLEDevice} or
+     *                                  if {@code pipelineDepth < 1} or
+     *                                  if {@code pipelineDepth > MAX_PIPELINE_DEPTH}.
+     * @throws NullPointerException if {@code device == null}.
+     *
+     * @see #ATCommandBatch(AbstractXBeeDevice)
+     */
+    public ATCommandBatch(AbstractXBeeDevice device, int pipelineDepth) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+        if (!(device instanceof com.digi.xbee.api.XBeeDevice) && !(device instanceof XBeeBLEDevice))
+            throw new IllegalArgumentException("XBee device must be a local XBee device.");
+        if (pipelineDepth < 1 || pipelineDepth > MAX_PIPELINE_DEPTH)
+            throw new IllegalArgumentException("Pipeline depth must be between 1 and " + MAX_PIPELINE_DEPTH + ".");
+
+        this.device = device;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Adds a command that reads the value of the given parameter.
+     *
+     * @param command The AT command.
+     *
+     * @return This batch.
+     *
+     * @throws IllegalArgumentException if the command is already in the
+     *                                  batch or its length is not 2.
+     * @throws NullPointerException if {@code command == null}.
+     *
+     * @see #add(String, byte[])
+     */
+    public ATCommandBatch add(String command) {
+        return add(command, null);
+    }
+
+    /**
+     * Adds a command with the given parameter, for instance to set a
+     * value.
+     *
+     * @param command The AT command.
+     * @param parameter The command parameter, {@code null} to read the
+     *                  value.
+     *
+     * @return This batch.
+     *
+     * @throws IllegalArgumentException if the command is already in the
+     *                                  batch or its length is not 2.
+     * @throws NullPointerException if {@code command == null}.
+     *
+     * @see #add(String)
+     */
+    public ATCommandBatch add(String command, byte[] parameter) {
+        String key = toKey(command);
+        if (key.length() != 2)
+            throw new IllegalArgumentException("AT command must have 2 characters.");
+        synchronized (commands) {
+            if (commands.containsKey(key))
+                throw new IllegalArgumentException("Command " + key + " is already in the batch.");
+            commands.put(key, parameter == null ? null : parameter.clone());
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of commands of this batch.
+     *
+     * @return The number of commands.
+     */
+    public int size() {
+        synchronized (commands) {
+            return commands.size();
+        }
+    }
+
+    /**
+     * Returns the maximum number of commands in flight at the same time.
+     *
+     * @return The pipeline depth.
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Executes the commands of this batch and waits for all the responses.
+     *
+     * <p>Every command is given the receive timeout of the device, counted
+     * from the moment it is sent. A command that fails, is rejected by the
+     * module or times out does not stop the rest, its error is reported in
+     * the result.</p>
+     *
+     * @return The values and errors of the commands.
+     *
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws XBeeException if the thread is interrupted while waiting.
+     */
+    public ATCommandBatchResult execute() throws XBeeException {
+        if (!isOpen())
+            throw new InterfaceNotOpenException();
+
+        Map<String, byte[]> toSend;
+        synchronized (commands) {
+            toSend = new LinkedHashMap<String, byte[]>(commands);
+        }
+        Pipeline pipeline = new Pipeline(getReceiveTimeout());
+        addPacketListener(pipeline);
+        try {
+            for (Map.Entry<String, byte[]> command : toSend.entrySet()) {
+                pipeline.awaitSlot();
+                int frameID = getNextFrameID();
+                pipeline.sent(frameID, command.getKey());
+                try {
+                    sendPacketAsync(new ATCommandPacket(frameID, command.getKey(), command.getValue()));
+                } catch (XBeeException e) {
+                    pipeline.failed(frameID, e);
+                }
+            }
+            pipeline.awaitAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XBeeException("Interrupted while executing the AT command batch.", e);
+        } finally {
+            removePacketListener(pipeline);
+        }
+        return pipeline.getResult(toSend.keySet());
+    }
+
+    /**
+     * Returns the cache key of the given AT command.
+     *
+     * @param command The AT command.
+     *
+     * @return The upper case command.
+     *
+     * @throws NullPointerException if {@code command == null}.
+     */
+    static String toKey(String command) {
+        if (command == null)
+            throw new NullPointerException("AT command cannot be null.");
+        return command.toUpperCase(Locale.US);
+    }
+
+    private boolean isOpen() {
+        if (device instanceof XBeeBLEDevice)
+            return ((XBeeBLEDevice) device).isOpen();
+        return ((com.digi.xbee.api.XBeeDevice) device).isOpen();
+    }
+
+    private int getNextFrameID() {
+        if (device instanceof XBeeBLEDevice)
+            return ((XBeeBLEDevice) device).getNextFrameID();
+        return ((com.digi.xbee.api.XBeeDevice) device).getNextFrameID();
+    }
+
+    private int getReceiveTimeout() {
+        if (device instanceof XBeeBLEDevice)
+            return ((XBeeBLEDevice) device).getReceiveTimeout();
+        return ((com.digi.xbee.api.XBeeDevice) device).getReceiveTimeout();
+    }
+
+    private void addPacketListener(IPacketReceiveListener listener) {
+        if (device instanceof XBeeBLEDevice)
+            ((XBeeBLEDevice) device).addPacketListener(listener);
+        else
+            ((com.digi.xbee.api.XBeeDevice) device).addPacketListener(listener);
+    }
+
+    private void removePacketListener(IPacketReceiveListener listener) {
+        if (device instanceof XBeeBLEDevice)
+            ((XBeeBLEDevice) device).removePacketListener(listener);
+        else
+            ((com.digi.xbee.api.XBeeDevice) device).removePacketListener(listener);
+    }
+
+    private void sendPacketAsync(XBeePacket packet) throws XBeeException {
+        if (device instanceof XBeeBLEDevice)
+            ((XBeeBLEDevice) device).sendPacketAsync(packet);
+        else
+            ((com.digi.xbee.api.XBeeDevice) device).sendPacketAsync(packet);
+    }
+
+    /**
+     * Tracks the commands in flight and matches their responses.
+     */
+    private class Pipeline implements IPacketReceiveListener {
+
+        // Variables.
+        private final long timeout;
+
+        private final Map<Integer, InFlight> inFlight = new HashMap<Integer, InFlight>();
+
+        private final Map<String, byte[]> values = new HashMap<String, byte[]>();
+        private final Map<String, XBeeException> errors = new HashMap<String, XBeeException>();
+
+        Pipeline(long timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void packetReceived(XBeePacket receivedPacket) {
+            if (!(receivedPacket instanceof ATCommandResponsePacket))
+                return;
+            ATCommandResponsePacket response = (ATCommandResponsePacket) receivedPacket;
+            synchronized (this) {
+                InFlight command = inFlight.get(response.getFrameID());
+                // Other operations may be using the same frame ID.
+                if (command == null || !command.command.equalsIgnoreCase(response.getCommand()))
+                    return;
+                inFlight.remove(response.getFrameID());
+                if (response.getStatus() == ATCommandStatus.OK) {
+                    byte[] value = response.getCommandValue();
+                    values.put(command.command, value == null ? new byte[0] : value);
+                } else {
+                    errors.put(command.command, new ATCommandException(response.getStatus()));
+                }
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits until there is room for one more command in flight.
+         */
+        synchronized void awaitSlot() throws InterruptedException {
+            while (inFlight.size() >= pipelineDepth)
+                awaitNextEvent();
+        }
+
+        /**
+         * Waits until all the commands in flight are answered or expire.
+         */
+        synchronized void awaitAll() throws InterruptedException {
+            while (!inFlight.isEmpty())
+                awaitNextEvent();
+        }
+
+        synchronized void sent(int frameID, String command) {
+            inFlight.put(frameID, new InFlight(command, System.nanoTime() + timeout * 1000000L));
+        }
+
+        synchronized void failed(int frameID, XBeeException error) {
+            InFlight command = inFlight.remove(frameID);
+            if (command != null)
+                errors.put(command.command, error);
+        }
+
+        synchronized ATCommandBatchResult getResult(Iterable<String> order) {
+            Map<String, byte[]> orderedValues = new LinkedHashMap<String, byte[]>();
+            Map<String, XBeeException> orderedErrors = new LinkedHashMap<String, XBeeException>();
+            for (String command : order) {
+                if (values.containsKey(command))
+                    orderedValues.put(command, values.get(command));
+                else if (errors.containsKey(command))
+                    orderedErrors.put(command, errors.get(command));
+            }
+            return new ATCommandBatchResult(orderedValues, orderedErrors);
+        }
+
+        /**
+         * Waits for a response or for the next deadline, and expires the
+         * commands whose deadline has passed.
+         */
+        private void awaitNextEvent() throws InterruptedException {
+            long now = System.nanoTime();
+            long nextDeadline = Long.MAX_VALUE;
+            List<Integer> expired = new ArrayList<Integer>();
+            for (Map.Entry<Integer, InFlight> entry : inFlight.entrySet()) {
+                long deadline = entry.getValue().deadline;
+                if (deadline - now <= 0)
+                    expired.add(entry.getKey());
+                else
+                    nextDeadline = Math.min(nextDeadline, deadline);
+            }
+            for (Integer frameID : expired) {
+                InFlight command = inFlight.remove(frameID);
+                errors.put(command.command, new TimeoutException("No response for the " + command.command + " command."));
+            }
+            if (!expired.isEmpty())
+                return;
+            long waitNanos = nextDeadline - now;
+            wait(waitNanos / 1000000L, (int) (waitNanos % 1000000L));
+        }
+    }
+
+    /**
+     * A command waiting for its response.
+     */
+    private static class InFlight {
+
+        // Variables.
+        final String command;
+        final long deadline;
+
+        InFlight(String command, long deadline) {
+            this.command = command;
+            this.deadline = deadline;
+        }
+    }
+}
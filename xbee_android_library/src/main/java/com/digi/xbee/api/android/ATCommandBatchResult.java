@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This class contains the results of an {@link ATCommandBatch}: the value
+ * of every command that succeeded and the error of every command that
+ * failed.
+ *
+ * @see ATCommandBatch#execute()
+ */
+public class ATCommandBatchResult {
+
+    // Variables.
+    private final Map<String, byte[]> values;
+    private final Map<String, XBeeException> errors;
+
+    /**
+     * Class constructor. Instantiates a new {@code ATCommandBatchResult}
+     * object with the given values and errors.
+     *
+     * @param values The values of the successful commands, in the batch
+     *               order.
+     * @param errors The errors of the failed commands, in the batch order.
+     *
+     * @throws NullPointerException if {@code values == null} or
+     *                              if {@code errors == null}.
+     */
+    ATCommandBatchResult(Map<String, byte[]> values, Map<String, XBeeException> errors) {
+        if (values == null)
+            throw new NullPointerException("Values cannot be null.");
+        if (errors == null)
+            throw new NullPointerException("Errors cannot be null.");
+
+        this.values = new LinkedHashMap<String, byte[]>(values);
+        this.errors = new LinkedHashMap<String, XBeeException>(errors);
+    }
+
+    /**
+     * Returns whether all the commands of the batch succeeded.
+     *
+     * @return {@code true} if all the commands succeeded, {@code false}
+     *         otherwise.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Returns the value returned by the given command.
+     *
+     * @param command The AT command.
+     *
+     * @return The command value, an empty array if the command does not
+     *         return any value.
+     *
+     * @throws IllegalArgumentException if the command was not part of the
+     *                                  batch.
+     * @throws NullPointerException if {@code command == null}.
+     * @throws XBeeException if the command failed.
+     *
+     * @see #getError(String)
+     */
+    public byte[] getValue(String command) throws XBeeException {
+        String key = ATCommandBatch.toKey(command);
+        XBeeException error = errors.get(key);
+        if (error != null)
+            throw error;
+        byte[] value = values.get(key);
+        if (value == null)
+            throw new IllegalArgumentException("Command " + key + " is not part of the batch.");
+        return value.clone();
+    }
+
+    /**
+     * Returns the error of the given command.
+     *
+     * @param command The AT command.
+     *
+     * @return The command error, {@code null} if it succeeded or was not
+     *         part of the batch.
+     *
+     * @throws NullPointerException if {@code command == null}.
+     *
+     * @see #getValue(String)
+     */
+    public XBeeException getError(String command) {
+        return errors.get(ATCommandBatch.toKey(command));
+    }
+
+    /**
+     * Returns the commands that succeeded, in the batch order.
+     *
+     * @return The successful commands.
+     */
+    public Set<String> getSuccessfulCommands() {
+        return Collections.unmodifiableSet(values.keySet());
+    }
+
+    /**
+     * Returns the commands that failed, in the batch order.
+     *
+     * @return The failed commands.
+     */
+    public Set<String> getFailedCommands() {
+        return Collections.unmodifiableSet(errors.keySet());
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+import com.digi.xbee.api.connection.IConnectionInterface;
+import com.digi.xbee.api.connection.serial.AbstractSerialPort;
+import com.digi.xbee.api.connection.serial.SerialPortParameters;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.OperationNotSupportedException;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.utils.ByteUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper class used to negotiate the highest baud rate supported by both the
+ * XBee module and the local bridge it is attached to.
+ *
+ * <p>The negotiation talks to the module at the current baud rate, changes
+ * its {@code BD} parameter to the highest standard rate the local side
+ * supports, reconfigures the local side and checks the link with an AT
+ * command round trip. If the check fails, the next lower rate is tried and,
+ * eventually, the original baud rate is restored. A change the module does
+ * not answer may have been applied or not, so the link is checked at the new
+ * rate before falling back.</p>
+ *
+ * <p>The new baud rate is not written to the module flash. Call
+ * {@code writeChanges()} on the device to keep it after a reset.</p>
+ *
+ * <p>{@code BD} is changed on the device directly, so it is invalidated in
+ * the open {@link ParameterCache}s of the device once the negotiation
+ * ends.</p>
+ *
+ * <p>Supported connection interfaces are the FTDI USB bridge
+ * ({@link AndroidUSBInterface}), serial ports ({@link AbstractSerialPort})
+ * and the host side of the {@link XBeeSimulator}.</p>
+ */
+public class BaudRateNegotiator {
+
+    // Constants.
+    private static final String PARAMETER_BD = "BD";
+
+    private static final int[] BAUD_RATES = {1200, 2400, 4800, 9600, 19200, 38400,
+            57600, 115200, 230400, 460800, 921600};
+
+    private static final int SETTLE_TIME = 50;
+
+    /**
+     * Maximum baud rate tried by default.
+     */
+    public static final int DEFAULT_MAX_BAUD_RATE = 921600;
+
+    private static final Logger logger = LoggerFactory.getLogger(BaudRateNegotiator.class);
+
+    private BaudRateNegotiator() {
+    }
+
+    /**
+     * Negotiates the highest baud rate for the given local XBee device, up
+     * to {@link #DEFAULT_MAX_BAUD_RATE}.
+     *
+     * @param device The local XBee device. It must be open.
+     *
+     * @return The baud rate in use after the negotiation.
+     *
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws NullPointerException if {@code device == null}.
+     * @throws OperationNotSupportedException if the baud rate of the device
+     *                                        connection interface cannot be
+     *                                        changed.
+     * @throws XBeeException if the module does not answer at its current
+     *                       baud rate or the original baud rate could not be
+     *                       restored after a failed attempt.
+     *
+     * @see #negotiate(XBeeDevice, int)
+     */
+    public static int negotiate(XBeeDevice device) throws XBeeException {
+        return negotiate(device, DEFAULT_MAX_BAUD_RATE);
+    }
+
+    /**
+     * Negotiates the highest baud rate for the given local XBee device that
+     * does not exceed the given maximum.
+     *
+     * @param device The local XBee device. It must be open.
+     * @param maxBaudRate Maximum baud rate to try.
+     *
+     * @return The baud rate in use after the negotiation.
+     *
+     * @throws IllegalArgumentException if {@code maxBaudRate < 1}.
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws NullPointerException if {@code device == null}.
+     * @throws OperationNotSupportedException if the baud rate of the device
+     *                                        connection interface cannot be
+     *                                        changed.
+     * @throws XBeeException if the module does not answer at its current
+     *                       baud rate or the original baud rate could not be
+     *                       restored after a failed attempt.
+     *
+     * @see #negotiate(XBeeDevice)
+     */
+    public static int negotiate(XBeeDevice device, int maxBaudRate) throws XBeeException {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+        if (maxBaudRate < 1)
+            throw new IllegalArgumentException("Maximum baud rate must be greater than 0.");
+        if (!device.isOpen())
+            throw new InterfaceNotOpenException();
+
+        IConnectionInterface connectionInterface = device.getConnectionInterface();
+        int currentRate = getLocalBaudRate(connectionInterface);
+        int limit = Math.min(maxBaudRate, getMaxLocalBaudRate(connectionInterface));
+
+        // Probe the module at the current baud rate.
+        byte[] currentValue = device.getParameter(PARAMETER_BD);
+
+        try {
+            for (int i = BAUD_RATES.length - 1; i >= 0 && BAUD_RATES[i] > currentRate; i--) {
+                if (BAUD_RATES[i] > limit)
+                    continue;
+                if (tryBaudRate(device, connectionInterface, i, currentRate, currentValue)) {
+                    logger.info("Baud rate changed from " + currentRate + " to " + BAUD_RATES[i] + ".");
+                    return BAUD_RATES[i];
+                }
+            }
+            return currentRate;
+        } finally {
+            ParameterCache.invalidate(device, PARAMETER_BD);
+        }
+    }
+
+    /**
+     * Moves the module and the local side to the baud rate with the given
+     * index and checks the link.
+     *
+     * @return {@code true} if the link works at the new baud rate,
+     *         {@code false} if the original baud rate was restored.
+     *
+     * @throws XBeeException if the original baud rate could not be restored.
+     */
+    private static boolean tryBaudRate(XBeeDevice device, IConnectionInterface connectionInterface,
+                                       int index, int currentRate, byte[] currentValue) throws XBeeException {
+        // The module answers at the current rate and then switches.
+        try {
+            device.setParameter(PARAMETER_BD, new byte[]{(byte) index});
+        } catch (TimeoutException e) {
+            // The answer may have been lost after the module switched.
+            logger.debug("No answer to the baud rate change to " + BAUD_RATES[index]
+                    + " bauds, checking the link at the new rate.");
+        } catch (XBeeException e) {
+            logger.debug("Baud rate " + BAUD_RATES[index] + " rejected by the module: " + e.getMessage());
+            return false;
+        }
+        setLocalBaudRate(connectionInterface, BAUD_RATES[index]);
+        if (checkBaudRate(device, index))
+            return true;
+
+        // Fall back: ask the module to go back and return the local side to
+        // the original rate.
+        logger.warn("Link check failed at " + BAUD_RATES[index] + " bauds, restoring " + currentRate + ".");
+        try {
+            device.setParameter(PARAMETER_BD, currentValue);
+        } catch (XBeeException e) {
+            logger.debug("Could not restore the baud rate at " + BAUD_RATES[index] + " bauds: " + e.getMessage());
+        }
+        setLocalBaudRate(connectionInterface, currentRate);
+        if (!checkBaudRate(device, (int) ByteUtils.byteArrayToLong(currentValue)))
+            throw new XBeeException("Could not restore the original baud rate (" + currentRate + ").");
+        return false;
+    }
+
+    /**
+     * Checks the link with an AT command round trip.
+     *
+     * @return {@code true} if the module answers with the expected
+     *         {@code BD} value, {@code false} otherwise.
+     */
+    private static boolean checkBaudRate(XBeeDevice device, int expectedValue) {
+        try {
+            Thread.sleep(SETTLE_TIME);
+            return ByteUtils.byteArrayToLong(device.getParameter(PARAMETER_BD)) == expectedValue;
+        } catch (XBeeException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the baud rate the local side of the connection is using.
+     */
+    private static int getLocalBaudRate(IConnectionInterface connectionInterface) throws OperationNotSupportedException {
+        if (connectionInterface instanceof AndroidUSBInterface)
+            return ((AndroidUSBInterface) connectionInterface).getBaudRate();
+        if (connectionInterface instanceof XBeeSimulator) {
+            XBeeSimulator simulator = (XBeeSimulator) connectionInterface;
+            int baudRate = simulator.getHostBaudRate();
+            return baudRate != XBeeSimulator.MODULE_BAUD_RATE ? baudRate : simulator.getBaudRate();
+        }
+        if (connectionInterface instanceof AbstractSerialPort) {
+            SerialPortParameters parameters = ((AbstractSerialPort) connectionInterface).getPortParameters();
+            if (parameters != null)
+                return parameters.baudrate;
+        }
+        throw new OperationNotSupportedException("Cannot change the baud rate of " + connectionInterface);
+    }
+
+    /**
+     * Returns the maximum baud rate the local side of the connection
+     * supports.
+     */
+    private static int getMaxLocalBaudRate(IConnectionInterface connectionInterface) {
+        if (connectionInterface instanceof AndroidUSBInterface)
+            return AndroidUSBInterface.MAX_BAUD_RATE;
+        return DEFAULT_MAX_BAUD_RATE;
+    }
+
+    /**
+     * Reconfigures the local side of the connection with the given baud
+     * rate.
+     */
+    private static void setLocalBaudRate(IConnectionInterface connectionInterface, int baudRate) throws XBeeException {
+        if (connectionInterface instanceof AndroidUSBInterface) {
+            ((AndroidUSBInterface) connectionInterface).setBaudRate(baudRate);
+        } else if (connectionInterface instanceof XBeeSimulator) {
+            ((XBeeSimulator) connectionInterface).setHostBaudRate(baudRate);
+        } else {
+            AbstractSerialPort serialPort = (AbstractSerialPort) connectionInterface;
+            SerialPortParameters parameters = serialPort.getPortParameters();
+            serialPort.setPortParameters(baudRate, parameters.dataBits, parameters.stopBits,
+                    parameters.parity, parameters.flowControl);
+        }
+    }
+}
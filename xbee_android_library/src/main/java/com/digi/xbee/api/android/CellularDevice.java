@@ -17,8 +17,14 @@ package com.digi.xbee.api.android;
 
 import android.content.Context;
 
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.TransportStatistics;
 import com.digi.xbee.api.android.connection.usb.AndroidUSBPermissionListener;
+import com.digi.xbee.api.connection.IConnectionInterface;
 import com.digi.xbee.api.connection.serial.SerialPortParameters;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.OperationNotSupportedException;
+import com.digi.xbee.api.exceptions.XBeeException;
 
 /**
  * This class represents a local Cellular device.
@@ -117,4 +123,105 @@ public class CellularDevice extends com.digi.xbee.api.CellularDevice {
     public CellularDevice(Context context, String port, SerialPortParameters parameters) {
         super(XBee.createConnectiontionInterface(context, port, parameters));
     }
+
+    /**
+     * Class constructor. Instantiates a new {@code CellularDevice} object for
+     * Android that communicates through the given connection interface.
+     *
+     * <p>This constructor allows using connection interfaces that do not
+     * need a physical device, such as
+     * {@link com.digi.xbee.api.android.connection.simulator.XBeeSimulator}.</p>
+     *
+     * @param connectionInterface The connection interface with the XBee
+     *                            device.
+     *
+     * @throws NullPointerException if {@code connectionInterface == null}.
+     *
+     * @see #CellularDevice(Context, int)
+     * @see #CellularDevice(Context, String, int)
+     * @see com.digi.xbee.api.connection.IConnectionInterface
+     */
+    public CellularDevice(IConnectionInterface connectionInterface) {
+        super(connectionInterface);
+    }
+
+    /**
+     * Opens the connection with this XBee device without blocking the
+     * calling thread.
+     *
+     * <p>The returned future completes once the USB permissions are granted,
+     * if needed, and the device is open. Use it instead of {@link #open()}
+     * when opening the device from the Android main thread.</p>
+     *
+     * @return The future of the open operation.
+     *
+     * @see XBee#openAsync(com.digi.xbee.api.XBeeDevice)
+     * @see ConnectionFuture
+     */
+    public ConnectionFuture<CellularDevice> openAsync() {
+        return XBee.openAsync(this);
+    }
+
+    /**
+     * Negotiates the highest baud rate supported by both the XBee module and
+     * the local connection, up to
+     * {@link BaudRateNegotiator#DEFAULT_MAX_BAUD_RATE}.
+     *
+     * <p>The new baud rate is not written to the module flash, call
+     * {@link #writeChanges()} to keep it after a reset.</p>
+     *
+     * @return The baud rate in use after the negotiation.
+     *
+     * @throws InterfaceNotOpenException if this device connection is not
+     *                                   open.
+     * @throws OperationNotSupportedException if the baud rate of the
+     *                                        connection cannot be changed.
+     * @throws XBeeException if the module does not answer or the original
+     *                       baud rate could not be restored.
+     *
+     * @see #negotiateBaudRate(int)
+     * @see BaudRateNegotiator
+     */
+    public int negotiateBaudRate() throws XBeeException {
+        return BaudRateNegotiator.negotiate(this);
+    }
+
+    /**
+     * Negotiates the highest baud rate supported by both the XBee module and
+     * the local connection that does not exceed the given maximum.
+     *
+     * <p>The new baud rate is not written to the module flash, call
+     * {@link #writeChanges()} to keep it after a reset.</p>
+     *
+     * @param maxBaudRate Maximum baud rate to try.
+     *
+     * @return The baud rate in use after the negotiation.
+     *
+     * @throws IllegalArgumentException if {@code maxBaudRate < 1}.
+     * @throws InterfaceNotOpenException if this device connection is not
+     *                                   open.
+     * @throws OperationNotSupportedException if the baud rate of the
+     *                                        connection cannot be changed.
+     * @throws XBeeException if the module does not answer or the original
+     *                       baud rate could not be restored.
+     *
+     * @see #negotiateBaudRate()
+     * @see BaudRateNegotiator
+     */
+    public int negotiateBaudRate(int maxBaudRate) throws XBeeException {
+        return BaudRateNegotiator.negotiate(this, maxBaudRate);
+    }
+
+    /**
+     * Returns a snapshot of the traffic statistics of this device
+     * connection interface.
+     *
+     * @return The traffic statistics, {@code null} if the connection
+     *         interface does not report statistics.
+     *
+     * @see TransportStatistics
+     */
+    public TransportStatistics getTransportStatistics() {
+        return XBee.getTransportStatistics(getConnectionInterface());
+    }
 }
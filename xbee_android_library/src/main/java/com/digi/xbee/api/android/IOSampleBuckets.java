@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+/**
+ * This class contains the samples of an IO line aggregated in consecutive
+ * time buckets of the same duration: the number of samples, the minimum,
+ * the maximum and the average value of each bucket.
+ *
+ * @see IOSampleStore#downsample(com.digi.xbee.api.models.XBee64BitAddress,
+ *      com.digi.xbee.api.io.IOLine, long, long, int)
+ */
+public class IOSampleBuckets {
+
+    // Variables.
+    private final long startTime;
+    private final long bucketDuration;
+
+    private final int[] counts;
+    private final int[] mins;
+    private final int[] maxs;
+    private final long[] sums;
+
+    /**
+     * Class constructor. Instantiates a new empty {@code IOSampleBuckets}
+     * object with the given parameters.
+     *
+     * @param startTime Start time of the first bucket in milliseconds.
+     * @param bucketDuration Duration of every bucket in milliseconds.
+     * @param buckets Number of buckets.
+     */
+    IOSampleBuckets(long startTime, long bucketDuration, int buckets) {
+        this.startTime = startTime;
+        this.bucketDuration = bucketDuration;
+        counts = new int[buckets];
+        mins = new int[buckets];
+        maxs = new int[buckets];
+        sums = new long[buckets];
+    }
+
+    /**
+     * Adds the given sample value to the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @param value Sample value.
+     */
+    void add(int bucket, int value) {
+        if (counts[bucket] == 0) {
+            mins[bucket] = value;
+            maxs[bucket] = value;
+        } else if (value < mins[bucket]) {
+            mins[bucket] = value;
+        } else if (value > maxs[bucket]) {
+            maxs[bucket] = value;
+        }
+        counts[bucket]++;
+        sums[bucket] += value;
+    }
+
+    /**
+     * Returns the number of buckets.
+     *
+     * @return The number of buckets.
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the duration of every bucket.
+     *
+     * @return The duration of a bucket in milliseconds.
+     */
+    public long getBucketDuration() {
+        return bucketDuration;
+    }
+
+    /**
+     * Returns the start time of the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     *
+     * @return The start time of the bucket in milliseconds.
+     *
+     * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+     *                                   {@code bucket >= getBucketCount()}.
+     */
+    public long getStartTime(int bucket) {
+        checkBucket(bucket);
+        return startTime + bucket * bucketDuration;
+    }
+
+    /**
+     * Returns the number of samples in the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     *
+     * @return The number of samples, {@code 0} if the bucket is empty.
+     *
+     * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+     *                                   {@code bucket >= getBucketCount()}.
+     */
+    public int getCount(int bucket) {
+        checkBucket(bucket);
+        return counts[bucket];
+    }
+
+    /**
+     * Returns the minimum value of the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     *
+     * @return The minimum value, {@code 0} if the bucket is empty.
+     *
+     * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+     *                                   {@code bucket >= getBucketCount()}.
+     */
+    public int getMin(int bucket) {
+        checkBucket(bucket);
+        return mins[bucket];
+    }
+
+    /**
+     * Returns the maximum value of the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     *
+     * @return The maximum value, {@code 0} if the bucket is empty.
+     *
+     * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+     *                                   {@code bucket >= getBucketCount()}.
+     */
+    public int getMax(int bucket) {
+        checkBucket(bucket);
+        return maxs[bucket];
+    }
+
+    /**
+     * Returns the average value of the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     *
+     * @return The average value, {@link Double#NaN} if the bucket is empty.
+     *
+     * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+     *                                   {@code bucket >= getBucketCount()}.
+     */
+    public double getAverage(int bucket) {
+        checkBucket(bucket);
+        return counts[bucket] == 0 ? Double.NaN : (double)sums[bucket] / counts[bucket];
+    }
+
+    /**
+     * Returns the number of samples in all the buckets.
+     *
+     * @return The total number of samples.
+     */
+    public int getTotalCount() {
+        int total = 0;
+        for (int count : counts)
+            total += count;
+        return total;
+    }
+
+    private void checkBucket(int bucket) {
+        if (bucket < 0 || bucket >= counts.length)
+            throw new IndexOutOfBoundsException("Bucket " + bucket + ", count " + counts.length + ".");
+    }
+}
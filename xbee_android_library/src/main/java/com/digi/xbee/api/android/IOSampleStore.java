@@ -0,0 +1,443 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.io.IOLine;
+import com.digi.xbee.api.io.IOSample;
+import com.digi.xbee.api.io.IOValue;
+import com.digi.xbee.api.listeners.IIOSampleReceiveListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.utils.ByteUtils;
+
+/**
+ * This class stores the values of the IO samples received from remote XBee
+ * devices as a time series for every remote device and IO line.
+ *
+ * <p>Register the store as IO sample listener of the local device to feed
+ * it:</p>
+ *
+ * <pre>
+ * IOSampleStore store = new IOSampleStore();
+ * device.addIOSampleListener(store);
+ * </pre>
+ *
+ * <p>Every sample value takes 8 bytes: an {@code int} time offset and an
+ * {@code int} value kept in fixed-size segments. Every series is a ring of
+ * segments, once all of them are full the oldest segment is reused, so the
+ * memory of a series is bounded. Digital values are stored as {@code 1}
+ * ({@link IOValue#HIGH}) or {@code 0} ({@link IOValue#LOW}).</p>
+ *
+ * <p>Use {@link #downsample(XBee64BitAddress, IOLine, long, long, int)} to
+ * get the minimum, maximum and average values of a time range in as many
+ * buckets as needed to draw it.</p>
+ */
+public class IOSampleStore implements IIOSampleReceiveListener {
+
+    // Constants.
+    /**
+     * Default number of samples of a segment.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+    /**
+     * Default number of segments of every series.
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * Timestamp returned when a series has no samples.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final IOLine[] LINES = IOLine.values();
+
+    // Variables.
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final ConcurrentMap<Long, Series[]> devices = new ConcurrentHashMap<Long, Series[]>();
+
+    /**
+     * Class constructor. Instantiates a new {@code IOSampleStore} object
+     * keeping {@link #DEFAULT_SEGMENTS} segments of
+     * {@link #DEFAULT_SEGMENT_SIZE} samples for every series.
+     *
+     * @see #IOSampleStore(int, int)
+     */
+    public IOSampleStore() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code IOSampleStore} object
+     * with the given segment size and number of segments for every series.
+     *
+     * @param segmentSize Number of samples of a segment.
+     * @param maxSegments Maximum number of segments of a series.
+     *
+     * @throws IllegalArgumentException if {@code segmentSize < 1} or
+     *                                  if {@code maxSegments < 1}.
+     *
+     * @see #IOSampleStore()
+     */
+    public IOSampleStore(int segmentSize, int maxSegments) {
+        if (segmentSize < 1)
+            throw new IllegalArgumentException("Segment size must be greater than 0.");
+        if (maxSegments < 1)
+            throw new IllegalArgumentException("Number of segments must be greater than 0.");
+
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    @Override
+    public void ioSampleReceived(RemoteXBeeDevice remoteDevice, IOSample ioSample) {
+        add(remoteDevice.get64BitAddress(), System.currentTimeMillis(), ioSample);
+    }
+
+    /**
+     * Adds the values of the given IO sample to the series of the given
+     * remote device.
+     *
+     * <p>Samples older than the last one of a series are stored with the
+     * time of the last one, so every series stays sorted by time.</p>
+     *
+     * @param address 64-bit address of the remote device.
+     * @param time Reception time of the sample in milliseconds.
+     * @param ioSample The IO sample.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code ioSample == null}.
+     */
+    public void add(XBee64BitAddress address, long time, IOSample ioSample) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+        if (ioSample == null)
+            throw new NullPointerException("IO sample cannot be null.");
+
+        Series[] lines = getLines(address, true);
+        boolean analog = ioSample.hasAnalogValues();
+        boolean digital = ioSample.hasDigitalValues();
+        for (IOLine line : LINES) {
+            if (analog && ioSample.hasAnalogValue(line))
+                getSeries(lines, line).add(time, ioSample.getAnalogValue(line));
+            else if (digital && ioSample.hasDigitalValue(line))
+                getSeries(lines, line).add(time, ioSample.getDigitalValue(line) == IOValue.HIGH ? 1 : 0);
+        }
+    }
+
+    /**
+     * Aggregates the samples of the given IO line received between the given
+     * times in the given number of buckets.
+     *
+     * @param address 64-bit address of the remote device.
+     * @param line The IO line.
+     * @param from Start of the range in milliseconds, inclusive.
+     * @param to End of the range in milliseconds, exclusive.
+     * @param buckets Number of buckets.
+     *
+     * @return The aggregated samples, all the buckets are empty if there are
+     *         no samples in the range.
+     *
+     * @throws IllegalArgumentException if {@code to <= from} or
+     *                                  if {@code buckets < 1}.
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code line == null}.
+     *
+     * @see IOSampleBuckets
+     */
+    public IOSampleBuckets downsample(XBee64BitAddress address, IOLine line, long from, long to, int buckets) {
+        if (line == null)
+            throw new NullPointerException("IO line cannot be null.");
+        if (to <= from)
+            throw new IllegalArgumentException("End of the range must be after its start.");
+        if (buckets < 1)
+            throw new IllegalArgumentException("Number of buckets must be greater than 0.");
+
+        long duration = to - from;
+        long bucketDuration = duration / buckets + (duration % buckets == 0 ? 0 : 1);
+        IOSampleBuckets result = new IOSampleBuckets(from, bucketDuration, buckets);
+        Series series = getSeries(address, line);
+        if (series != null)
+            series.aggregate(from, to, result);
+        return result;
+    }
+
+    /**
+     * Returns the number of samples stored for the given IO line.
+     *
+     * @param address 64-bit address of the remote device.
+     * @param line The IO line.
+     *
+     * @return The number of samples.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code line == null}.
+     */
+    public int getSampleCount(XBee64BitAddress address, IOLine line) {
+        Series series = getSeries(address, line);
+        return series == null ? 0 : series.size();
+    }
+
+    /**
+     * Returns the time of the oldest sample stored for the given IO line.
+     *
+     * @param address 64-bit address of the remote device.
+     * @param line The IO line.
+     *
+     * @return The time in milliseconds, {@link #NO_TIMESTAMP} if there are
+     *         no samples.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code line == null}.
+     */
+    public long getFirstTimestamp(XBee64BitAddress address, IOLine line) {
+        Series series = getSeries(address, line);
+        return series == null ? NO_TIMESTAMP : series.firstTime();
+    }
+
+    /**
+     * Returns the time of the newest sample stored for the given IO line.
+     *
+     * @param address 64-bit address of the remote device.
+     * @param line The IO line.
+     *
+     * @return The time in milliseconds, {@link #NO_TIMESTAMP} if there are
+     *         no samples.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code line == null}.
+     */
+    public long getLastTimestamp(XBee64BitAddress address, IOLine line) {
+        Series series = getSeries(address, line);
+        return series == null ? NO_TIMESTAMP : series.lastTime();
+    }
+
+    /**
+     * Returns the remote devices with stored samples.
+     *
+     * @return The 64-bit addresses of the remote devices.
+     */
+    public List<XBee64BitAddress> getDevices() {
+        List<XBee64BitAddress> addresses = new ArrayList<XBee64BitAddress>();
+        for (Long address : devices.keySet())
+            addresses.add(new XBee64BitAddress(ByteUtils.longToByteArray(address)));
+        return addresses;
+    }
+
+    /**
+     * Returns the IO lines of the given remote device with stored samples.
+     *
+     * @param address 64-bit address of the remote device.
+     *
+     * @return The IO lines.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     */
+    public List<IOLine> getLines(XBee64BitAddress address) {
+        List<IOLine> result = new ArrayList<IOLine>();
+        Series[] lines = getLines(address, false);
+        if (lines == null)
+            return result;
+        synchronized (lines) {
+            for (IOLine line : LINES) {
+                if (lines[line.ordinal()] != null)
+                    result.add(line);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the samples of the given remote device.
+     *
+     * @param address 64-bit address of the remote device.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     */
+    public void remove(XBee64BitAddress address) {
+        devices.remove(RemoteDeviceRegistry.toLong(address));
+    }
+
+    /**
+     * Removes all the samples.
+     */
+    public void clear() {
+        devices.clear();
+    }
+
+    private Series[] getLines(XBee64BitAddress address, boolean create) {
+        Long key = RemoteDeviceRegistry.toLong(address);
+        Series[] lines = devices.get(key);
+        if (lines == null && create) {
+            lines = new Series[LINES.length];
+            Series[] previous = devices.putIfAbsent(key, lines);
+            if (previous != null)
+                lines = previous;
+        }
+        return lines;
+    }
+
+    private Series getSeries(Series[] lines, IOLine line) {
+        synchronized (lines) {
+            Series series = lines[line.ordinal()];
+            if (series == null) {
+                series = new Series(segmentSize, maxSegments);
+                lines[line.ordinal()] = series;
+            }
+            return series;
+        }
+    }
+
+    private Series getSeries(XBee64BitAddress address, IOLine line) {
+        if (line == null)
+            throw new NullPointerException("IO line cannot be null.");
+
+        Series[] lines = getLines(address, false);
+        if (lines == null)
+            return null;
+        synchronized (lines) {
+            return lines[line.ordinal()];
+        }
+    }
+
+    /**
+     * Time series of an IO line stored in a ring of fixed-size segments.
+     */
+    private static final class Series {
+
+        private final int segmentSize;
+
+        // Every segment stores the offsets from its base time.
+        private final long[] baseTimes;
+        private final int[][] offsets;
+        private final int[][] values;
+        private final int[] counts;
+
+        // Ring of segments, 'first' is the oldest one.
+        private int first = 0;
+        private int used = 0;
+
+        private int size = 0;
+        private long lastTime = NO_TIMESTAMP;
+
+        Series(int segmentSize, int maxSegments) {
+            this.segmentSize = segmentSize;
+            baseTimes = new long[maxSegments];
+            offsets = new int[maxSegments][];
+            values = new int[maxSegments][];
+            counts = new int[maxSegments];
+        }
+
+        synchronized void add(long time, int value) {
+            if (time < lastTime)
+                time = lastTime;
+
+            int segment = (first + used - 1) % baseTimes.length;
+            if (used == 0 || counts[segment] == segmentSize
+                    || time - baseTimes[segment] > Integer.MAX_VALUE)
+                segment = nextSegment(time);
+
+            offsets[segment][counts[segment]] = (int)(time - baseTimes[segment]);
+            values[segment][counts[segment]] = value;
+            counts[segment]++;
+            size++;
+            lastTime = time;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long firstTime() {
+            return used == 0 ? NO_TIMESTAMP : baseTimes[first] + offsets[first][0];
+        }
+
+        synchronized long lastTime() {
+            return lastTime;
+        }
+
+        synchronized void aggregate(long from, long to, IOSampleBuckets result) {
+            long bucketDuration = result.getBucketDuration();
+            for (int i = 0; i < used; i++) {
+                int segment = (first + i) % baseTimes.length;
+                int count = counts[segment];
+                long base = baseTimes[segment];
+                if (base >= to)
+                    break;
+                if (base + offsets[segment][count - 1] < from)
+                    continue;
+
+                int[] segmentOffsets = offsets[segment];
+                int[] segmentValues = values[segment];
+                for (int j = firstIndex(segmentOffsets, count, from - base); j < count; j++) {
+                    long time = base + segmentOffsets[j];
+                    if (time >= to)
+                        return;
+                    result.add((int)((time - from) / bucketDuration), segmentValues[j]);
+                }
+            }
+        }
+
+        /**
+         * Moves to the next segment, reusing the oldest one if all the
+         * segments are in use.
+         */
+        private int nextSegment(long time) {
+            int segment;
+            if (used < baseTimes.length) {
+                segment = (first + used) % baseTimes.length;
+                used++;
+                if (offsets[segment] == null) {
+                    offsets[segment] = new int[segmentSize];
+                    values[segment] = new int[segmentSize];
+                }
+            } else {
+                segment = first;
+                first = (first + 1) % baseTimes.length;
+                size -= counts[segment];
+            }
+            baseTimes[segment] = time;
+            counts[segment] = 0;
+            return segment;
+        }
+
+        /**
+         * Returns the index of the first offset that is not lower than the
+         * given one.
+         */
+        private static int firstIndex(int[] offsets, int count, long offset) {
+            if (offset <= 0)
+                return 0;
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (offsets[middle] < offset)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+}
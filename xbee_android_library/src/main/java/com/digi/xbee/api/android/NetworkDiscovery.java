@@ -0,0 +1,514 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.XBeeNetwork;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.listeners.IDiscoveryListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+/**
+ * This class discovers the network of a local XBee device without always
+ * waiting for the whole node discovery time ({@code NT}).
+ *
+ * <p>A discovery started by this class finishes as soon as one of these
+ * conditions is met:</p>
+ * <ul>
+ *     <li>The expected number of nodes, see {@link #setExpectedNodes(int)},
+ *     has answered.</li>
+ *     <li>All the nodes looked up with {@link #discoverDevices(Collection)}
+ *     or {@link #discoverDevicesByAddress(Collection)} have answered.</li>
+ *     <li>No new node has answered during the quiet window, see
+ *     {@link #setQuietWindow(long)}.</li>
+ *     <li>The node discovery time of the module expires.</li>
+ * </ul>
+ *
+ * <p>All the nodes are queried at once by a single node discovery, so
+ * looking up several nodes takes as long as the slowest of them instead of
+ * one discovery per node. The result is delivered through the returned
+ * {@link ConnectionFuture}, so there is no need to poll
+ * {@link XBeeNetwork#isDiscoveryRunning()}. The discovered nodes are also
+ * added to the {@link XBeeNetwork} of the device and notified to its
+ * discovery listeners as usual.</p>
+ *
+ * @see XBeeNetwork
+ */
+public class NetworkDiscovery {
+
+    // Constants.
+    /**
+     * Quiet window value to wait for the whole node discovery time.
+     */
+    public static final long NO_QUIET_WINDOW = -1;
+
+    /**
+     * Default quiet window, in milliseconds.
+     */
+    public static final long DEFAULT_QUIET_WINDOW = 3000;
+
+    /**
+     * Expected nodes value when the size of the network is unknown.
+     */
+    public static final int UNKNOWN_NODE_COUNT = 0;
+
+    private static final long IDLE_CHECK_PERIOD = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkDiscovery.class);
+
+    // Networks whose running discovery was stopped before the node
+    // discovery time expired.
+    private static final Set<XBeeNetwork> stoppedEarly = Collections.newSetFromMap(
+            new WeakHashMap<XBeeNetwork, Boolean>());
+
+    // Variables.
+    private final com.digi.xbee.api.XBeeDevice device;
+
+    private long quietWindow = DEFAULT_QUIET_WINDOW;
+
+    private int expectedNodes = UNKNOWN_NODE_COUNT;
+
+    private Run current;
+
+    /**
+     * Class constructor. Instantiates a new {@code NetworkDiscovery} object
+     * for the given local XBee device.
+     *
+     * @param device The local XBee device.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     */
+    public NetworkDiscovery(com.digi.xbee.api.XBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+
+        this.device = device;
+    }
+
+    /**
+     * Returns the XBee device whose network is discovered.
+     *
+     * @return The XBee device.
+     */
+    public com.digi.xbee.api.XBeeDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Sets the time without new answers after which the discovery
+     * finishes.
+     *
+     * <p>The window starts when the discovery starts and restarts with
+     * every answer. The nodes answer at a random time within the node
+     * discovery time of the module, so a very short window may miss the
+     * slow ones.</p>
+     *
+     * @param quietWindow The quiet window in milliseconds, or
+     *                    {@link #NO_QUIET_WINDOW}.
+     *
+     * @throws IllegalArgumentException if {@code quietWindow < 1} and
+     *                                  {@code quietWindow != NO_QUIET_WINDOW}.
+     *
+     * @see #getQuietWindow()
+     */
+    public synchronized void setQuietWindow(long quietWindow) {
+        if (quietWindow < 1 && quietWindow != NO_QUIET_WINDOW)
+            throw new IllegalArgumentException("Quiet window must be greater than 0.");
+
+        this.quietWindow = quietWindow;
+    }
+
+    /**
+     * Returns the time without new answers after which the discovery
+     * finishes.
+     *
+     * @return The quiet window in milliseconds, or {@link #NO_QUIET_WINDOW}.
+     *
+     * @see #setQuietWindow(long)
+     */
+    public synchronized long getQuietWindow() {
+        return quietWindow;
+    }
+
+    /**
+     * Sets the number of nodes after which {@link #discover()} finishes.
+     *
+     * @param expectedNodes The expected number of nodes, or
+     *                      {@link #UNKNOWN_NODE_COUNT}.
+     *
+     * @throws IllegalArgumentException if {@code expectedNodes < 0}.
+     *
+     * @see #getExpectedNodes()
+     */
+    public synchronized void setExpectedNodes(int expectedNodes) {
+        if (expectedNodes < 0)
+            throw new IllegalArgumentException("Expected nodes cannot be negative.");
+
+        this.expectedNodes = expectedNodes;
+    }
+
+    /**
+     * Returns the number of nodes after which {@link #discover()} finishes.
+     *
+     * @return The expected number of nodes, or {@link #UNKNOWN_NODE_COUNT}.
+     *
+     * @see #setExpectedNodes(int)
+     */
+    public synchronized int getExpectedNodes() {
+        return expectedNodes;
+    }
+
+    /**
+     * Returns whether a discovery started by this object is running.
+     *
+     * @return {@code true} if a discovery is running, {@code false}
+     *         otherwise.
+     */
+    public synchronized boolean isRunning() {
+        return current != null;
+    }
+
+    /**
+     * Discovers the nodes of the network.
+     *
+     * <p>The future fails if there is another discovery running.
+     * Cancelling the future stops the discovery.</p>
+     *
+     * @return The future with the nodes that answered.
+     *
+     * @throws InterfaceNotOpenException if the device is not open.
+     *
+     * @see #setExpectedNodes(int)
+     * @see #setQuietWindow(long)
+     */
+    public ConnectionFuture<List<RemoteXBeeDevice>> discover() {
+        return start(null, null);
+    }
+
+    /**
+     * Looks up the nodes with the given node identifiers.
+     *
+     * <p>The discovery finishes as soon as all of them have answered. The
+     * nodes that did not answer are not included in the result.</p>
+     *
+     * @param nodeIDs The node identifiers to look up.
+     *
+     * @return The future with the nodes found.
+     *
+     * @throws IllegalArgumentException if {@code nodeIDs} is empty.
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws NullPointerException if {@code nodeIDs == null}.
+     *
+     * @see #discoverDevicesByAddress(Collection)
+     */
+    public ConnectionFuture<List<RemoteXBeeDevice>> discoverDevices(Collection<String> nodeIDs) {
+        if (nodeIDs == null)
+            throw new NullPointerException("Node identifiers cannot be null.");
+        if (nodeIDs.isEmpty())
+            throw new IllegalArgumentException("Node identifiers cannot be empty.");
+
+        return start(new HashSet<String>(nodeIDs), null);
+    }
+
+    /**
+     * Looks up the nodes with the given 64-bit addresses.
+     *
+     * <p>The discovery finishes as soon as all of them have answered. The
+     * nodes that did not answer are not included in the result.</p>
+     *
+     * @param addresses The 64-bit addresses to look up.
+     *
+     * @return The future with the nodes found.
+     *
+     * @throws IllegalArgumentException if {@code addresses} is empty.
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws NullPointerException if {@code addresses == null}.
+     *
+     * @see #discoverDevices(Collection)
+     */
+    public ConnectionFuture<List<RemoteXBeeDevice>> discoverDevicesByAddress(Collection<XBee64BitAddress> addresses) {
+        if (addresses == null)
+            throw new NullPointerException("Addresses cannot be null.");
+        if (addresses.isEmpty())
+            throw new IllegalArgumentException("Addresses cannot be empty.");
+
+        return start(null, new HashSet<XBee64BitAddress>(addresses));
+    }
+
+    /**
+     * Starts a discovery with the given targets.
+     *
+     * @param nodeIDs The node identifiers to look up, {@code null} for
+     *                none.
+     * @param addresses The addresses to look up, {@code null} for none.
+     *
+     * @return The future of the discovery.
+     *
+     * @throws InterfaceNotOpenException if the device is not open.
+     */
+    private ConnectionFuture<List<RemoteXBeeDevice>> start(Set<String> nodeIDs, Set<XBee64BitAddress> addresses) {
+        XBeeNetwork network = device.getNetwork();
+        ConnectionFuture<List<RemoteXBeeDevice>> future = new ConnectionFuture<List<RemoteXBeeDevice>>();
+
+        final Run run;
+        synchronized (this) {
+            if (current != null || network.isDiscoveryRunning()) {
+                future.fail(new XBeeException("There is a discovery already running."));
+                return future;
+            }
+            run = new Run(network, future, nodeIDs, addresses, expectedNodes, quietWindow);
+            current = run;
+        }
+
+        future.setCancelHandler(new Runnable() {
+            @Override
+            public void run() {
+                run.stop("cancelled");
+            }
+        });
+        network.addDiscoveryListener(run);
+        try {
+            network.startDiscoveryProcess();
+        } catch (RuntimeException e) {
+            network.removeDiscoveryListener(run);
+            finished(run);
+            throw e;
+        }
+        run.restartQuietWindow();
+        return future;
+    }
+
+    /**
+     * Returns whether the running discovery of the given network was
+     * stopped by a {@code NetworkDiscovery} before the node discovery time
+     * expired.
+     *
+     * <p>The network reports such a discovery as successfully finished,
+     * but the nodes that did not answer yet may still be there. The flag
+     * is cleared once the network no longer reports the discovery as
+     * running.</p>
+     *
+     * @param network The network to check.
+     *
+     * @return {@code true} if the discovery was stopped early,
+     *         {@code false} otherwise.
+     */
+    static boolean isStoppedEarly(XBeeNetwork network) {
+        synchronized (stoppedEarly) {
+            return stoppedEarly.contains(network);
+        }
+    }
+
+    /**
+     * Clears the running discovery.
+     *
+     * @param run The finished discovery.
+     */
+    private synchronized void finished(Run run) {
+        if (current == run)
+            current = null;
+    }
+
+    /**
+     * This class holds the state of a discovery and listens to its
+     * events.
+     */
+    private class Run implements IDiscoveryListener {
+
+        // Variables.
+        private final XBeeNetwork network;
+
+        private final ConnectionFuture<List<RemoteXBeeDevice>> future;
+
+        private final Set<String> pendingNodeIDs;
+        private final Set<XBee64BitAddress> pendingAddresses;
+
+        private final Map<XBee64BitAddress, RemoteXBeeDevice> found = new LinkedHashMap<XBee64BitAddress, RemoteXBeeDevice>();
+
+        private final int expectedNodes;
+
+        private final long quietWindow;
+
+        private ScheduledFuture<?> quietTimer;
+
+        private boolean stopping = false;
+
+        private final long startTime = System.currentTimeMillis();
+
+        Run(XBeeNetwork network, ConnectionFuture<List<RemoteXBeeDevice>> future, Set<String> nodeIDs,
+                Set<XBee64BitAddress> addresses, int expectedNodes, long quietWindow) {
+            this.network = network;
+            this.future = future;
+            this.pendingNodeIDs = nodeIDs;
+            this.pendingAddresses = addresses;
+            this.expectedNodes = expectedNodes;
+            this.quietWindow = quietWindow;
+        }
+
+        @Override
+        public void deviceDiscovered(RemoteXBeeDevice discoveredDevice) {
+            synchronized (this) {
+                if (stopping)
+                    return;
+                if (!isTargeted()) {
+                    found.put(discoveredDevice.get64BitAddress(), discoveredDevice);
+                    if (expectedNodes != UNKNOWN_NODE_COUNT && found.size() >= expectedNodes) {
+                        stop("all the expected nodes answered");
+                        return;
+                    }
+                } else if ((pendingNodeIDs != null && pendingNodeIDs.remove(discoveredDevice.getNodeID()))
+                        || (pendingAddresses != null && pendingAddresses.remove(discoveredDevice.get64BitAddress()))) {
+                    found.put(discoveredDevice.get64BitAddress(), discoveredDevice);
+                    if ((pendingNodeIDs != null && pendingNodeIDs.isEmpty())
+                            || (pendingAddresses != null && pendingAddresses.isEmpty())) {
+                        stop("all the nodes looked up answered");
+                        return;
+                    }
+                }
+            }
+            restartQuietWindow();
+        }
+
+        @Override
+        public void discoveryError(String error) {
+            logger.debug("Discovery error: " + error);
+        }
+
+        @Override
+        public void discoveryFinished(String error) {
+            List<RemoteXBeeDevice> result;
+            synchronized (this) {
+                stopping = true;
+                if (quietTimer != null)
+                    quietTimer.cancel(false);
+                result = new ArrayList<RemoteXBeeDevice>(found.values());
+            }
+
+            logger.debug("Discovery finished after " + (System.currentTimeMillis() - startTime)
+                    + " ms with " + result.size() + " nodes.");
+            // The network is still iterating its listeners, this one is
+            // removed from the scheduler thread.
+            scheduleCompletion(result, error);
+        }
+
+        /**
+         * Checks again in {@link #IDLE_CHECK_PERIOD} ms whether the future
+         * can be completed.
+         *
+         * @param result The discovered nodes.
+         * @param error The discovery error, {@code null} if none.
+         */
+        private void scheduleCompletion(final List<RemoteXBeeDevice> result, final String error) {
+            XBeeAsyncDevice.getScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    completeWhenIdle(result, error);
+                }
+            }, IDLE_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Completes the future once the network no longer reports the
+         * discovery as running, so a new one can be started right away.
+         * The network notifies the end of the discovery before clearing
+         * its running flag.
+         *
+         * <p>Runs on the scheduler thread, never inside a discovery
+         * callback, so the listener can be removed safely.</p>
+         *
+         * @param result The discovered nodes.
+         * @param error The discovery error, {@code null} if none.
+         */
+        private void completeWhenIdle(List<RemoteXBeeDevice> result, String error) {
+            if (network.isDiscoveryRunning()) {
+                scheduleCompletion(result, error);
+                return;
+            }
+            network.removeDiscoveryListener(this);
+            synchronized (stoppedEarly) {
+                stoppedEarly.remove(network);
+            }
+            finished(this);
+            if (error != null && result.isEmpty())
+                future.fail(new XBeeException(error));
+            else
+                future.complete(result);
+        }
+
+        /**
+         * Returns whether this discovery looks up specific nodes.
+         *
+         * @return {@code true} if it looks up specific nodes, {@code false}
+         *         otherwise.
+         */
+        private boolean isTargeted() {
+            return pendingNodeIDs != null || pendingAddresses != null;
+        }
+
+        /**
+         * Restarts the quiet window timer.
+         */
+        private synchronized void restartQuietWindow() {
+            if (stopping || quietWindow == NO_QUIET_WINDOW)
+                return;
+            if (quietTimer != null)
+                quietTimer.cancel(false);
+            quietTimer = XBeeAsyncDevice.getScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    stop("no new nodes answered in " + quietWindow + " ms");
+                }
+            }, quietWindow, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stops the discovery before the node discovery time expires. The
+         * future is completed when the network reports the end of the
+         * discovery.
+         *
+         * @param reason The reason to stop, for the log.
+         */
+        private synchronized void stop(String reason) {
+            if (stopping)
+                return;
+            stopping = true;
+            if (quietTimer != null)
+                quietTimer.cancel(false);
+            logger.debug("Stopping the discovery early: " + reason + ".");
+            synchronized (stoppedEarly) {
+                stoppedEarly.add(network);
+            }
+            network.stopDiscoveryProcess();
+        }
+    }
+}
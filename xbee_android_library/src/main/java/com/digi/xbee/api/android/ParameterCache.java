@@ -0,0 +1,535 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.listeners.IModemStatusReceiveListener;
+import com.digi.xbee.api.models.ModemStatusEvent;
+
+/**
+ * This class caches the AT parameters read from a local XBee device, so
+ * values that rarely change, such as {@code DH}, {@code DL} or {@code NT},
+ * are read from the module only once.
+ *
+ * <p>The cache is opt-in: read the parameters through
+ * {@link #getParameter(String)} instead of the device. Configuration
+ * changes must also go through this class
+ * ({@link #setParameter(String, byte[])}, {@link #applyChanges()},
+ * {@link #writeChanges()}, {@link #reset()}...) so the affected values are
+ * invalidated. Modem status events that imply a configuration change,
+ * such as a reset or joining a network, invalidate the whole cache.</p>
+ *
+ * <p>The classes of the library that change the configuration of the
+ * device by themselves, such as {@link BaudRateNegotiator} with
+ * {@code BD}, invalidate the affected values in the open caches of the
+ * device. Other direct changes on the device are not seen by the
+ * cache.</p>
+ *
+ * <p>Volatile parameters expire after a time to live. By default
+ * {@code DB}, {@code %V}, {@code TP} and {@code AI} live
+ * {@link #DEFAULT_VOLATILE_TIME_TO_LIVE} milliseconds, the rest never
+ * expire. Use {@link #setTimeToLive(String, long)} to change it.</p>
+ */
+public class ParameterCache {
+
+    // Constants.
+    /**
+     * Time to live value of the parameters that never expire.
+     */
+    public static final long NO_EXPIRATION = -1;
+
+    /**
+     * Default time to live of the volatile parameters, in milliseconds.
+     */
+    public static final long DEFAULT_VOLATILE_TIME_TO_LIVE = 1000;
+
+    private static final String[] VOLATILE_PARAMETERS = {"DB", "%V", "TP", "AI"};
+
+    private static final EnumSet<ModemStatusEvent> CONFIGURATION_EVENTS = EnumSet.of(
+            ModemStatusEvent.STATUS_HARDWARE_RESET,
+            ModemStatusEvent.STATUS_WATCHDOG_TIMER_RESET,
+            ModemStatusEvent.STATUS_LOW_VCC_RESET,
+            ModemStatusEvent.STATUS_FIB_BOOTLOADER_RESET,
+            ModemStatusEvent.STATUS_JOINED_NETWORK,
+            ModemStatusEvent.STATUS_DISASSOCIATED,
+            ModemStatusEvent.STATUS_COORDINATOR_STARTED,
+            ModemStatusEvent.STATUS_COORDINATOR_REALIGNMENT,
+            ModemStatusEvent.STATUS_NETWORK_SECURITY_KEY_UPDATED,
+            ModemStatusEvent.STATUS_MODEM_CONFIG_CHANGED_WHILE_JOINING);
+
+    // Open caches, to invalidate the parameters changed by other classes.
+    private static final Set<ParameterCache> openCaches = Collections.newSetFromMap(
+            new WeakHashMap<ParameterCache, Boolean>());
+
+    // Variables.
+    private final com.digi.xbee.api.XBeeDevice device;
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private final Map<String, Long> timesToLive = new HashMap<String, Long>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private long generation = 0;
+
+    private boolean deviceInfoRead = false;
+
+    private final IModemStatusReceiveListener modemStatusListener = new IModemStatusReceiveListener() {
+        @Override
+        public void modemStatusEventReceived(ModemStatusEvent modemStatusEvent) {
+            if (CONFIGURATION_EVENTS.contains(modemStatusEvent))
+                invalidateAll();
+        }
+    };
+
+    /**
+     * Class constructor. Instantiates a new {@code ParameterCache} object
+     * for the given local XBee device.
+     *
+     * <p>The cache listens to the modem status events of the device until
+     * {@link #close()} is called.</p>
+     *
+     * @param device The local XBee device.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     */
+    public ParameterCache(com.digi.xbee.api.XBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+
+        this.device = device;
+        for (String parameter : VOLATILE_PARAMETERS)
+            timesToLive.put(parameter, DEFAULT_VOLATILE_TIME_TO_LIVE);
+        device.addModemStatusListener(modemStatusListener);
+        synchronized (openCaches) {
+            openCaches.add(this);
+        }
+    }
+
+    /**
+     * Returns the XBee device whose parameters are cached.
+     *
+     * @return The XBee device.
+     */
+    public com.digi.xbee.api.XBeeDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Returns the value of the given AT parameter, reading it from the
+     * device only if it is not cached or has expired.
+     *
+     * @param parameter The AT command of the parameter.
+     *
+     * @return A copy of the parameter value.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error reading the value.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#getParameter(String)
+     */
+    public byte[] getParameter(String parameter) throws TimeoutException, XBeeException {
+        String key = toKey(parameter);
+        long readGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && !isExpired(key, entry)) {
+                hits.incrementAndGet();
+                return entry.value.clone();
+            }
+            readGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        byte[] value = device.getParameter(key);
+        if (value == null)
+            return null;
+        synchronized (this) {
+            // Do not store a value read before an invalidation.
+            if (readGeneration == generation)
+                entries.put(key, new Entry(value.clone(), System.nanoTime()));
+        }
+        return value;
+    }
+
+    /**
+     * Returns the values of the given AT parameters, reading the ones that
+     * are not cached or have expired in a single pipelined batch.
+     *
+     * @param parameters The AT commands of the parameters.
+     *
+     * @return A map with a copy of the value of every parameter, keyed by
+     *         the upper case AT command and in the given order.
+     *
+     * @throws NullPointerException if {@code parameters == null} or
+     *                              if any parameter is {@code null}.
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error reading a value.
+     *
+     * @see #getParameter(String)
+     * @see ATCommandBatch
+     */
+    public Map<String, byte[]> getParameters(String... parameters) throws TimeoutException, XBeeException {
+        if (parameters == null)
+            throw new NullPointerException("Parameters cannot be null.");
+
+        Map<String, byte[]> values = new LinkedHashMap<String, byte[]>();
+        ATCommandBatch batch = new ATCommandBatch(device);
+        long readGeneration;
+        synchronized (this) {
+            for (String parameter : parameters) {
+                String key = toKey(parameter);
+                if (values.containsKey(key))
+                    continue;
+                Entry entry = entries.get(key);
+                if (entry != null && !isExpired(key, entry)) {
+                    hits.incrementAndGet();
+                    values.put(key, entry.value.clone());
+                } else {
+                    batch.add(key);
+                    values.put(key, null);
+                }
+            }
+            readGeneration = generation;
+        }
+        if (batch.size() == 0)
+            return values;
+        misses.addAndGet(batch.size());
+
+        ATCommandBatchResult result = batch.execute();
+        synchronized (this) {
+            // Do not store values read before an invalidation.
+            if (readGeneration == generation) {
+                for (String key : result.getSuccessfulCommands())
+                    entries.put(key, new Entry(result.getValue(key), System.nanoTime()));
+            }
+        }
+        for (Map.Entry<String, byte[]> value : values.entrySet()) {
+            if (value.getValue() == null)
+                value.setValue(result.getValue(value.getKey()));
+        }
+        return values;
+    }
+
+    /**
+     * Sets the value of the given AT parameter and invalidates the cached
+     * values.
+     *
+     * <p>The whole cache is invalidated because a parameter can change the
+     * value of others, for instance {@code ID} changes {@code OP}.</p>
+     *
+     * @param parameter The AT command of the parameter.
+     * @param value The new value.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error setting the value.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#setParameter(String, byte[])
+     */
+    public void setParameter(String parameter, byte[] value) throws TimeoutException, XBeeException {
+        try {
+            device.setParameter(toKey(parameter), value);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Executes the given AT command and invalidates the cached values.
+     *
+     * @param parameter The AT command to execute.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error executing it.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#executeParameter(String)
+     */
+    public void executeParameter(String parameter) throws TimeoutException, XBeeException {
+        try {
+            device.executeParameter(toKey(parameter));
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Applies the pending configuration changes and invalidates the cached
+     * values.
+     *
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error applying them.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#applyChanges()
+     */
+    public void applyChanges() throws TimeoutException, XBeeException {
+        try {
+            device.applyChanges();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Writes the configuration to the device flash and invalidates the
+     * cached values.
+     *
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error writing them.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#writeChanges()
+     */
+    public void writeChanges() throws TimeoutException, XBeeException {
+        try {
+            device.writeChanges();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Resets the device and invalidates the cached values.
+     *
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error resetting it.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#reset()
+     */
+    public void reset() throws TimeoutException, XBeeException {
+        try {
+            device.reset();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Reads the device information, such as the node identifier or the
+     * firmware version, unless it was already read after the last
+     * invalidation.
+     *
+     * @throws TimeoutException if the device does not answer.
+     * @throws XBeeException if there is any other error reading it.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#readDeviceInfo()
+     */
+    public void readDeviceInfo() throws TimeoutException, XBeeException {
+        long readGeneration;
+        synchronized (this) {
+            if (deviceInfoRead) {
+                hits.incrementAndGet();
+                return;
+            }
+            readGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        device.readDeviceInfo();
+        synchronized (this) {
+            if (readGeneration == generation)
+                deviceInfoRead = true;
+        }
+    }
+
+    /**
+     * Removes the given parameter from the cache.
+     *
+     * @param parameter The AT command of the parameter.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     *
+     * @see #invalidateAll()
+     */
+    public synchronized void invalidate(String parameter) {
+        entries.remove(toKey(parameter));
+    }
+
+    /**
+     * Removes all the parameters and the device information from the
+     * cache.
+     *
+     * @see #invalidate(String)
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        deviceInfoRead = false;
+        generation++;
+    }
+
+    /**
+     * Sets the time a parameter stays in the cache.
+     *
+     * @param parameter The AT command of the parameter.
+     * @param timeToLive The time to live in milliseconds, or
+     *                   {@link #NO_EXPIRATION}.
+     *
+     * @throws IllegalArgumentException if {@code timeToLive < 0} and it is
+     *                                  not {@code NO_EXPIRATION}.
+     * @throws NullPointerException if {@code parameter == null}.
+     *
+     * @see #getTimeToLive(String)
+     */
+    public synchronized void setTimeToLive(String parameter, long timeToLive) {
+        if (timeToLive < 0 && timeToLive != NO_EXPIRATION)
+            throw new IllegalArgumentException("Time to live cannot be negative.");
+
+        if (timeToLive == NO_EXPIRATION)
+            timesToLive.remove(toKey(parameter));
+        else
+            timesToLive.put(toKey(parameter), timeToLive);
+    }
+
+    /**
+     * Returns the time a parameter stays in the cache.
+     *
+     * @param parameter The AT command of the parameter.
+     *
+     * @return The time to live in milliseconds, or {@link #NO_EXPIRATION}.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     *
+     * @see #setTimeToLive(String, long)
+     */
+    public synchronized long getTimeToLive(String parameter) {
+        Long timeToLive = timesToLive.get(toKey(parameter));
+        return timeToLive == null ? NO_EXPIRATION : timeToLive;
+    }
+
+    /**
+     * Returns the number of reads answered from the cache.
+     *
+     * @return The number of cache hits.
+     *
+     * @see #getMissCount()
+     * @see #resetStatistics()
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of reads that had to query the device.
+     *
+     * @return The number of cache misses.
+     *
+     * @see #getHitCount()
+     * @see #resetStatistics()
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Stops listening to the device modem status events and clears the
+     * cache.
+     */
+    public void close() {
+        device.removeModemStatusListener(modemStatusListener);
+        synchronized (openCaches) {
+            openCaches.remove(this);
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Removes the given parameter from all the open caches of the given
+     * device. Used by the classes that change the parameter on the device
+     * directly.
+     *
+     * @param device The local XBee device.
+     * @param parameter The AT command of the parameter.
+     */
+    static void invalidate(com.digi.xbee.api.XBeeDevice device, String parameter) {
+        List<ParameterCache> caches;
+        synchronized (openCaches) {
+            caches = new ArrayList<ParameterCache>(openCaches);
+        }
+        for (ParameterCache cache : caches) {
+            if (cache.device == device)
+                cache.invalidate(parameter);
+        }
+    }
+
+    /**
+     * Returns whether the given cached entry has expired.
+     *
+     * @param key The cache key of the parameter.
+     * @param entry The cached entry.
+     *
+     * @return {@code true} if the entry has expired, {@code false}
+     *         otherwise.
+     */
+    private boolean isExpired(String key, Entry entry) {
+        Long timeToLive = timesToLive.get(key);
+        if (timeToLive == null)
+            return false;
+        return System.nanoTime() - entry.time >= TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    }
+
+    /**
+     * Returns the cache key of the given parameter.
+     *
+     * @param parameter The AT command of the parameter.
+     *
+     * @return The cache key.
+     *
+     * @throws NullPointerException if {@code parameter == null}.
+     */
+    private static String toKey(String parameter) {
+        if (parameter == null)
+            throw new NullPointerException("Parameter cannot be null.");
+        return parameter.toUpperCase(Locale.US);
+    }
+
+    /**
+     * A cached parameter value.
+     */
+    private static class Entry {
+
+        // Variables.
+        final byte[] value;
+        final long time;
+
+        Entry(byte[] value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
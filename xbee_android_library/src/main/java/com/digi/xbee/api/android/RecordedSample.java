@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.io.IOLine;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+/**
+ * This class represents a row read back from a {@link SampleRecorder}: the
+ * value of an IO line or the payload of a data frame received from a remote
+ * XBee device.
+ *
+ * @see SampleRecorder#query(long, long, XBee64BitAddress)
+ */
+public class RecordedSample {
+
+    /**
+     * Kind of recorded row.
+     */
+    public enum Type {
+        /**
+         * Value of an IO line of an IO sample. Digital values are recorded
+         * as {@code 1} (high) or {@code 0} (low).
+         */
+        IO_VALUE,
+        /**
+         * Payload of a data frame.
+         */
+        DATA
+    }
+
+    // Variables.
+    private final Type type;
+    private final long timestamp;
+    private final XBee64BitAddress address;
+    private final IOLine ioLine;
+    private final int value;
+    private final byte[] data;
+
+    /**
+     * Class constructor. Instantiates a new {@code RecordedSample} object
+     * with the given values.
+     *
+     * @param type Kind of row.
+     * @param timestamp Reception time in milliseconds.
+     * @param address 64-bit address of the remote device.
+     * @param ioLine IO line, {@code null} for data rows.
+     * @param value IO line value, {@code 0} for data rows.
+     * @param data Data payload, {@code null} for IO rows.
+     */
+    RecordedSample(Type type, long timestamp, XBee64BitAddress address, IOLine ioLine, int value, byte[] data) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.address = address;
+        this.ioLine = ioLine;
+        this.value = value;
+        this.data = data;
+    }
+
+    /**
+     * Returns the kind of row.
+     *
+     * @return The kind of row.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the time at which the sample or frame was received.
+     *
+     * @return The reception time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the address of the remote device that sent the sample or
+     * frame.
+     *
+     * @return The 64-bit address of the remote device.
+     */
+    public XBee64BitAddress get64BitAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the IO line of an {@link Type#IO_VALUE} row.
+     *
+     * @return The IO line, {@code null} for {@link Type#DATA} rows.
+     */
+    public IOLine getIOLine() {
+        return ioLine;
+    }
+
+    /**
+     * Returns the value of an {@link Type#IO_VALUE} row.
+     *
+     * @return The IO line value, {@code 0} for {@link Type#DATA} rows.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the payload of a {@link Type#DATA} row.
+     *
+     * @return The data payload, {@code null} for {@link Type#IO_VALUE}
+     *         rows.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.DATA)
+            return timestamp + " " + address + " DATA (" + data.length + " bytes)";
+        return timestamp + " " + address + " " + ioLine + "=" + value;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.android.connection.LatencyHistogram;
+
+/**
+ * This class represents a snapshot of the statistics of a
+ * {@link SampleRecorder}.
+ *
+ * <p>Instances are immutable and can be read from any thread.</p>
+ *
+ * @see SampleRecorder#getStatistics()
+ */
+public class RecorderStatistics {
+
+    // Variables.
+    private final long recordedRows;
+    private final long writtenBlocks;
+    private final long writtenBytes;
+    private final long droppedEvents;
+    private final long writeErrors;
+
+    private final int queuedEvents;
+    private final int pendingRows;
+
+    private final LatencyHistogram flushLatency;
+    private final LatencyHistogram flushDuration;
+
+    private final long timestamp;
+
+    /**
+     * Class constructor. Instantiates a new {@code RecorderStatistics}
+     * object with the given values.
+     *
+     * @param recordedRows Number of rows written to disk.
+     * @param writtenBlocks Number of blocks written to disk.
+     * @param writtenBytes Number of bytes written to disk.
+     * @param droppedEvents Number of samples and frames dropped because the
+     *                      queue was full.
+     * @param writeErrors Number of blocks that could not be written.
+     * @param queuedEvents Number of samples and frames waiting in the queue.
+     * @param pendingRows Number of rows waiting to be written.
+     * @param flushLatency Histogram to copy the flush latencies from.
+     * @param flushDuration Histogram to copy the flush durations from.
+     */
+    RecorderStatistics(long recordedRows, long writtenBlocks, long writtenBytes, long droppedEvents,
+            long writeErrors, int queuedEvents, int pendingRows, LatencyHistogram flushLatency,
+            LatencyHistogram flushDuration) {
+        this.recordedRows = recordedRows;
+        this.writtenBlocks = writtenBlocks;
+        this.writtenBytes = writtenBytes;
+        this.droppedEvents = droppedEvents;
+        this.writeErrors = writeErrors;
+        this.queuedEvents = queuedEvents;
+        this.pendingRows = pendingRows;
+        this.flushLatency = flushLatency.copy();
+        this.flushDuration = flushDuration.copy();
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the number of rows written to disk.
+     *
+     * @return The number of recorded rows.
+     */
+    public long getRecordedRows() {
+        return recordedRows;
+    }
+
+    /**
+     * Returns the number of compressed blocks written to disk.
+     *
+     * @return The number of written blocks.
+     */
+    public long getWrittenBlocks() {
+        return writtenBlocks;
+    }
+
+    /**
+     * Returns the number of bytes written to disk, after compression.
+     *
+     * @return The number of written bytes.
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Returns the number of IO samples and data frames dropped because the
+     * recorder queue was full.
+     *
+     * @return The number of dropped samples and frames.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Returns the number of blocks that could not be written to disk.
+     *
+     * @return The number of write errors.
+     */
+    public long getWriteErrors() {
+        return writeErrors;
+    }
+
+    /**
+     * Returns the number of IO samples and data frames received but not yet
+     * processed by the writer thread.
+     *
+     * @return The number of queued samples and frames.
+     */
+    public int getQueuedEvents() {
+        return queuedEvents;
+    }
+
+    /**
+     * Returns the number of rows processed by the writer thread and waiting
+     * for the next flush.
+     *
+     * @return The number of pending rows.
+     */
+    public int getPendingRows() {
+        return pendingRows;
+    }
+
+    /**
+     * Returns the histogram of the time between the reception of the oldest
+     * sample or frame of a block and the block being written.
+     *
+     * @return The flush latency histogram.
+     */
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    /**
+     * Returns the histogram of the time spent compressing and writing each
+     * block.
+     *
+     * @return The flush duration histogram.
+     */
+    public LatencyHistogram getFlushDuration() {
+        return flushDuration;
+    }
+
+    /**
+     * Returns the time at which this snapshot was taken.
+     *
+     * @return The snapshot time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("recorded: %d rows, %d blocks, %d bytes; dropped: %d; errors: %d; "
+                + "backlog: %d queued, %d pending rows; flush latency: [%s]; flush duration: [%s]",
+                recordedRows, writtenBlocks, writtenBytes, droppedEvents, writeErrors,
+                queuedEvents, pendingRows, flushLatency, flushDuration);
+    }
+}
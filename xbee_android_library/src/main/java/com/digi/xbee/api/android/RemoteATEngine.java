@@ -0,0 +1,476 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.exceptions.ATCommandException;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.TransmitException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+/**
+ * This class runs an AT operation against many remote devices at the same
+ * time, for instance to read or set a parameter in every node of a
+ * network.
+ *
+ * <p>The number of operations in flight adapts to the network: it grows
+ * by one every round of successful operations and is halved when an
+ * operation times out, fails to be transmitted or takes much longer than
+ * the fastest one seen. That way the engine speeds up on a healthy
+ * network without flooding a congested mesh. It never exceeds the
+ * maximum concurrency given to the constructor, even when several
+ * operations are executed at the same time.</p>
+ *
+ * <p>Timeouts and transmission failures are retried. The result of every
+ * device is delivered to a {@link RemoteATListener} as soon as it is
+ * known, and the engine keeps the timing and success rate of every node
+ * across operations.</p>
+ *
+ * @see RemoteATResult
+ * @see RemoteNodeStatistics
+ */
+public class RemoteATEngine {
+
+    // Constants.
+    /**
+     * Default maximum number of operations in flight.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    /**
+     * Default number of retries of an operation that times out or fails to
+     * be transmitted.
+     */
+    public static final int DEFAULT_RETRIES = 2;
+
+    private static final int INITIAL_CONCURRENCY = 2;
+
+    private static final int LATENCY_FACTOR = 3;
+    private static final long LATENCY_MARGIN = 100;
+
+    private static final long WORKER_KEEP_ALIVE = 30000;
+
+    // Variables.
+    private final int maxConcurrency;
+    private final int retries;
+
+    private final Object lock = new Object();
+
+    private final ThreadPoolExecutor workers;
+
+    private final Map<XBee64BitAddress, NodeStatistics> nodeStatistics = new HashMap<XBee64BitAddress, NodeStatistics>();
+
+    private double concurrency = INITIAL_CONCURRENCY;
+
+    private long minLatency = Long.MAX_VALUE;
+
+    private int inFlight = 0;
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteATEngine} object
+     * with the default maximum concurrency and retries.
+     *
+     * @see #RemoteATEngine(int, int)
+     */
+    public RemoteATEngine() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_RETRIES);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteATEngine} object
+     * with the given maximum concurrency and retries.
+     *
+     * @param maxConcurrency Maximum number of operations in flight.
+     * @param retries Number of retries of an operation that times out or
+     *                fails to be transmitted.
+     *
+     * @throws IllegalArgumentException if {@code maxConcurrency < 1} or
+     *                                  if {@code retries < 0}.
+     *
+     * @see #RemoteATEngine()
+     */
+    public RemoteATEngine(int maxConcurrency, int retries) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Maximum concurrency must be greater than 0.");
+        if (retries < 0)
+            throw new IllegalArgumentException("Retries cannot be negative.");
+
+        this.maxConcurrency = maxConcurrency;
+        this.retries = retries;
+        this.concurrency = Math.min(INITIAL_CONCURRENCY, maxConcurrency);
+
+        // Idle workers die, so an unused engine does not keep threads alive.
+        workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, WORKER_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "RemoteATEngine worker " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reads the given parameter from all the given remote devices.
+     *
+     * @param remoteDevices The remote devices.
+     * @param parameter The AT command of the parameter.
+     * @param listener The listener to receive each result as soon as it is
+     *                 known, {@code null} if not needed.
+     *
+     * @return The results, in the order of the devices.
+     *
+     * @throws NullPointerException if {@code remoteDevices == null} or
+     *                              if {@code parameter == null}.
+     * @throws XBeeException if the thread is interrupted while waiting.
+     *
+     * @see #execute(List, RemoteATOperation, RemoteATListener)
+     */
+    public List<RemoteATResult> getParameter(List<RemoteXBeeDevice> remoteDevices, final String parameter,
+            RemoteATListener listener) throws XBeeException {
+        if (parameter == null)
+            throw new NullPointerException("Parameter cannot be null.");
+
+        return execute(remoteDevices, new RemoteATOperation() {
+            @Override
+            public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException {
+                return remoteDevice.getParameter(parameter);
+            }
+        }, listener);
+    }
+
+    /**
+     * Sets the given parameter in all the given remote devices.
+     *
+     * @param remoteDevices The remote devices.
+     * @param parameter The AT command of the parameter.
+     * @param value The new value.
+     * @param listener The listener to receive each result as soon as it is
+     *                 known, {@code null} if not needed.
+     *
+     * @return The results, in the order of the devices.
+     *
+     * @throws NullPointerException if {@code remoteDevices == null} or
+     *                              if {@code parameter == null} or
+     *                              if {@code value == null}.
+     * @throws XBeeException if the thread is interrupted while waiting.
+     *
+     * @see #execute(List, RemoteATOperation, RemoteATListener)
+     */
+    public List<RemoteATResult> setParameter(List<RemoteXBeeDevice> remoteDevices, final String parameter,
+            byte[] value, RemoteATListener listener) throws XBeeException {
+        if (parameter == null)
+            throw new NullPointerException("Parameter cannot be null.");
+        if (value == null)
+            throw new NullPointerException("Value cannot be null.");
+
+        final byte[] valueCopy = value.clone();
+        return execute(remoteDevices, new RemoteATOperation() {
+            @Override
+            public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException {
+                remoteDevice.setParameter(parameter, valueCopy);
+                return null;
+            }
+        }, listener);
+    }
+
+    /**
+     * Executes the given operation against all the given remote devices and
+     * waits until all of them finish.
+     *
+     * @param remoteDevices The remote devices.
+     * @param operation The operation to execute.
+     * @param listener The listener to receive each result as soon as it is
+     *                 known, {@code null} if not needed.
+     *
+     * @return The results, in the order of the devices.
+     *
+     * @throws NullPointerException if {@code remoteDevices == null} or
+     *                              if {@code operation == null} or
+     *                              if any device is {@code null}.
+     * @throws XBeeException if the thread is interrupted while waiting.
+     */
+    public List<RemoteATResult> execute(List<RemoteXBeeDevice> remoteDevices, final RemoteATOperation operation,
+            final RemoteATListener listener) throws XBeeException {
+        if (remoteDevices == null)
+            throw new NullPointerException("Remote devices cannot be null.");
+        if (operation == null)
+            throw new NullPointerException("Operation cannot be null.");
+        for (RemoteXBeeDevice remoteDevice : remoteDevices) {
+            if (remoteDevice == null)
+                throw new NullPointerException("Remote devices cannot contain null values.");
+        }
+
+        final Run run = new Run(remoteDevices);
+        try {
+            synchronized (lock) {
+                while (run.remaining > 0) {
+                    // The limit is shared by all the runs of the engine.
+                    while (inFlight < getConcurrency() && !run.pending.isEmpty()) {
+                        final Task task = run.pending.poll();
+                        inFlight++;
+                        workers.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                RemoteATResult result = attempt(task, operation, run);
+                                if (result == null)
+                                    return;
+                                try {
+                                    if (listener != null)
+                                        listener.resultReceived(result);
+                                } finally {
+                                    // Count it only after the listener, so it gets all results before execute returns.
+                                    synchronized (lock) {
+                                        run.results[task.index] = result;
+                                        run.remaining--;
+                                        lock.notifyAll();
+                                    }
+                                }
+                            }
+                        });
+                    }
+                    lock.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XBeeException("Interrupted while executing the remote AT operation.", e);
+        }
+        return new ArrayList<RemoteATResult>(Arrays.asList(run.results));
+    }
+
+    /**
+     * Returns the current number of operations in flight allowed.
+     *
+     * @return The current concurrency.
+     */
+    public int getConcurrency() {
+        synchronized (lock) {
+            return (int) concurrency;
+        }
+    }
+
+    /**
+     * Returns the number of operations in flight, counting all the
+     * executions running in the engine.
+     *
+     * @return The operations in flight.
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * Returns the maximum number of operations in flight.
+     *
+     * @return The maximum concurrency.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the statistics of the node with the given address.
+     *
+     * @param address The 64-bit address of the node.
+     *
+     * @return The node statistics, {@code null} if the engine never
+     *         contacted the node.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     *
+     * @see #getNodeStatistics()
+     */
+    public RemoteNodeStatistics getNodeStatistics(XBee64BitAddress address) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+
+        synchronized (lock) {
+            NodeStatistics statistics = nodeStatistics.get(address);
+            return statistics == null ? null : statistics.snapshot(address);
+        }
+    }
+
+    /**
+     * Returns the statistics of all the nodes the engine has contacted.
+     *
+     * @return The node statistics.
+     *
+     * @see #getNodeStatistics(XBee64BitAddress)
+     */
+    public List<RemoteNodeStatistics> getNodeStatistics() {
+        synchronized (lock) {
+            List<RemoteNodeStatistics> snapshots = new ArrayList<RemoteNodeStatistics>(nodeStatistics.size());
+            for (Map.Entry<XBee64BitAddress, NodeStatistics> entry : nodeStatistics.entrySet())
+                snapshots.add(entry.getValue().snapshot(entry.getKey()));
+            return snapshots;
+        }
+    }
+
+    /**
+     * Executes one attempt of the given task and updates the concurrency
+     * and the node statistics.
+     *
+     * @param task The task to attempt.
+     * @param operation The operation to execute.
+     * @param run The run the task belongs to.
+     *
+     * @return The final result of the task, {@code null} if it is retried.
+     */
+    private RemoteATResult attempt(Task task, RemoteATOperation operation, Run run) {
+        task.attempts++;
+        long start = System.nanoTime();
+        byte[] value = null;
+        XBeeException error = null;
+        try {
+            value = operation.execute(task.remoteDevice);
+        } catch (XBeeException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new XBeeException("Error executing the remote AT operation.", e);
+        }
+        long latency = (System.nanoTime() - start) / 1000000L;
+
+        boolean retry = error != null && isTransient(error) && task.attempts <= retries;
+        synchronized (lock) {
+            XBee64BitAddress address = task.remoteDevice.get64BitAddress();
+            NodeStatistics statistics = nodeStatistics.get(address);
+            if (statistics == null) {
+                statistics = new NodeStatistics();
+                nodeStatistics.put(address, statistics);
+            }
+            statistics.attempts++;
+            if (error == null) {
+                statistics.addSuccess(latency);
+                minLatency = Math.min(minLatency, latency);
+            }
+
+            if (error == null && latency <= minLatency * LATENCY_FACTOR + LATENCY_MARGIN) {
+                // Additive increase: one more operation per round.
+                concurrency = Math.min(maxConcurrency, concurrency + 1 / concurrency);
+            } else if (error == null || isTransient(error)) {
+                // Multiplicative decrease on congestion.
+                concurrency = Math.max(1, concurrency / 2);
+            }
+
+            inFlight--;
+            lock.notifyAll();
+            if (retry) {
+                run.pending.add(task);
+                return null;
+            }
+        }
+        return new RemoteATResult(task.remoteDevice, value, error, task.attempts, latency);
+    }
+
+    /**
+     * Returns whether the given error is a sign of congestion that may go
+     * away when retried.
+     *
+     * @param error The error of an attempt.
+     *
+     * @return {@code true} if the error is transient, {@code false}
+     *         otherwise.
+     */
+    private static boolean isTransient(XBeeException error) {
+        if (error instanceof TimeoutException || error instanceof TransmitException)
+            return true;
+        return error instanceof ATCommandException
+                && ((ATCommandException) error).getCommandStatus() == ATCommandStatus.TX_FAILURE;
+    }
+
+    /**
+     * The state of an {@link #execute(List, RemoteATOperation, RemoteATListener)}
+     * call, guarded by the engine lock.
+     */
+    private static class Run {
+
+        // Variables.
+        final RemoteATResult[] results;
+        final Deque<Task> pending = new ArrayDeque<Task>();
+
+        int remaining;
+
+        Run(List<RemoteXBeeDevice> remoteDevices) {
+            results = new RemoteATResult[remoteDevices.size()];
+            remaining = remoteDevices.size();
+            for (int i = 0; i < remoteDevices.size(); i++)
+                pending.add(new Task(i, remoteDevices.get(i)));
+        }
+    }
+
+    /**
+     * An operation against a remote device.
+     */
+    private static class Task {
+
+        // Variables.
+        final int index;
+        final RemoteXBeeDevice remoteDevice;
+
+        int attempts = 0;
+
+        Task(int index, RemoteXBeeDevice remoteDevice) {
+            this.index = index;
+            this.remoteDevice = remoteDevice;
+        }
+    }
+
+    /**
+     * Accumulated statistics of a node.
+     */
+    private static class NodeStatistics {
+
+        // Variables.
+        long attempts;
+        long successes;
+        long totalLatency;
+        long minLatency;
+        long maxLatency;
+
+        void addSuccess(long latency) {
+            minLatency = successes == 0 ? latency : Math.min(minLatency, latency);
+            maxLatency = Math.max(maxLatency, latency);
+            totalLatency += latency;
+            successes++;
+        }
+
+        RemoteNodeStatistics snapshot(XBee64BitAddress address) {
+            return new RemoteNodeStatistics(address, attempts, successes, totalLatency, minLatency, maxLatency);
+        }
+    }
+}
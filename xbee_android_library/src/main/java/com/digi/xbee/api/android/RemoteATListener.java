@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+/**
+ * This interface is used as a listener to receive the result of every
+ * remote device as soon as {@link RemoteATEngine} finishes with it.
+ *
+ * @see RemoteATEngine
+ */
+public interface RemoteATListener {
+
+    /**
+     * This method is called when the operation against a remote device
+     * succeeds or fails for the last time.
+     *
+     * <p>It is called from the engine worker threads, so it must be
+     * thread safe and must not block.</p>
+     *
+     * @param result The result of the remote device.
+     */
+    public void resultReceived(RemoteATResult result);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This interface represents an AT operation that {@link RemoteATEngine}
+ * executes against every remote device of a list.
+ *
+ * @see RemoteATEngine#execute(java.util.List, RemoteATOperation, RemoteATListener)
+ */
+public interface RemoteATOperation {
+
+    /**
+     * Executes the operation against the given remote device.
+     *
+     * @param remoteDevice The remote device.
+     *
+     * @return The value returned by the device, {@code null} if the
+     *         operation does not return any value.
+     *
+     * @throws XBeeException if the operation fails.
+     */
+    public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException;
+}
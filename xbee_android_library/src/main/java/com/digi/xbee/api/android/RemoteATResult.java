@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This class contains the result of a {@link RemoteATEngine} operation
+ * against a single remote device.
+ *
+ * @see RemoteATEngine
+ */
+public class RemoteATResult {
+
+    // Variables.
+    private final RemoteXBeeDevice remoteDevice;
+
+    private final byte[] value;
+
+    private final XBeeException error;
+
+    private final int attempts;
+
+    private final long latency;
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteATResult} object
+     * with the given parameters.
+     *
+     * @param remoteDevice The remote device.
+     * @param value The returned value, {@code null} if none.
+     * @param error The error of the last attempt, {@code null} if it
+     *              succeeded.
+     * @param attempts The number of attempts.
+     * @param latency The duration of the last attempt in milliseconds.
+     */
+    RemoteATResult(RemoteXBeeDevice remoteDevice, byte[] value, XBeeException error, int attempts, long latency) {
+        this.remoteDevice = remoteDevice;
+        this.value = value;
+        this.error = error;
+        this.attempts = attempts;
+        this.latency = latency;
+    }
+
+    /**
+     * Returns the remote device.
+     *
+     * @return The remote device.
+     */
+    public RemoteXBeeDevice getRemoteDevice() {
+        return remoteDevice;
+    }
+
+    /**
+     * Returns whether the operation succeeded.
+     *
+     * @return {@code true} if the operation succeeded, {@code false}
+     *         otherwise.
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * Returns the value returned by the remote device.
+     *
+     * @return A copy of the value, {@code null} if the operation failed or
+     *         does not return any value.
+     */
+    public byte[] getValue() {
+        return value == null ? null : value.clone();
+    }
+
+    /**
+     * Returns the error of the last attempt.
+     *
+     * @return The error, {@code null} if the operation succeeded.
+     */
+    public XBeeException getError() {
+        return error;
+    }
+
+    /**
+     * Returns the number of attempts, including the retries.
+     *
+     * @return The number of attempts.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the duration of the last attempt.
+     *
+     * @return The latency in milliseconds.
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return remoteDevice + (error == null ? " OK" : " " + error.getMessage())
+                + " (" + attempts + " attempts, " + latency + " ms)";
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.utils.ByteUtils;
+
+/**
+ * This class is a bounded registry of remote XBee devices indexed by their
+ * 64-bit address, stored as a primitive {@code long}, with secondary
+ * lookups by 16-bit address and node identifier.
+ *
+ * <p>All the lookups and insertions take constant time, so the device of
+ * every received packet can be found without scanning a list. When the
+ * registry is full, the least recently used devices are evicted with a
+ * second chance (clock) policy: a lookup only marks the device as used, so
+ * any number of threads can look up devices concurrently while another
+ * thread adds them. Override {@link #onEvicted(RemoteXBeeDevice)} to be
+ * notified about the evicted devices.</p>
+ *
+ * <p>The 16-bit address and node identifier indexes keep the last device
+ * registered with each value, unknown 16-bit addresses are not
+ * indexed.</p>
+ */
+public class RemoteDeviceRegistry {
+
+    // Constants.
+    /**
+     * Default maximum number of devices.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int NO_16_BIT_ADDRESS = -1;
+
+    private static final int UNKNOWN_16_BIT_ADDRESS = toInt(XBee16BitAddress.UNKNOWN_ADDRESS);
+
+    // Variables.
+    private final int capacity;
+
+    private final Entry[] table64;
+    private final Entry[] table16;
+    private final Map<String, Entry> nodeIDs = new HashMap<String, Entry>();
+
+    // Clock of the eviction policy, the first 'size' slots are in use.
+    private final Entry[] clock;
+    private int size = 0;
+    private int hand = 0;
+
+    private long evictions = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteDeviceRegistry}
+     * object with the {@link #DEFAULT_CAPACITY}.
+     *
+     * @see #RemoteDeviceRegistry(int)
+     */
+    public RemoteDeviceRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteDeviceRegistry}
+     * object with the given capacity.
+     *
+     * @param capacity The maximum number of devices.
+     *
+     * @throws IllegalArgumentException if {@code capacity < 1}.
+     *
+     * @see #RemoteDeviceRegistry()
+     */
+    public RemoteDeviceRegistry(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be greater than 0.");
+
+        this.capacity = capacity;
+        // Power of two of at least twice the capacity, short chains.
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+        this.table64 = new Entry[tableSize];
+        this.table16 = new Entry[tableSize];
+        this.clock = new Entry[capacity];
+    }
+
+    /**
+     * Returns the given 64-bit address as a {@code long}.
+     *
+     * @param address The 64-bit address.
+     *
+     * @return The address value.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     */
+    public static long toLong(XBee64BitAddress address) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+
+        return ByteUtils.byteArrayToLong(address.getValue());
+    }
+
+    /**
+     * Adds the given device to the registry, or replaces the device
+     * registered with the same 64-bit address and updates its 16-bit
+     * address and node identifier.
+     *
+     * <p>If the registry is full, a device not used recently is
+     * evicted.</p>
+     *
+     * @param device The remote device.
+     *
+     * @return The device previously registered with the same 64-bit
+     *         address, {@code null} if there was none.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     */
+    public RemoteXBeeDevice put(RemoteXBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("Remote device cannot be null.");
+
+        long address64 = toLong(device.get64BitAddress());
+        int address16 = device.get16BitAddress() == null ? NO_16_BIT_ADDRESS : toInt(device.get16BitAddress());
+        if (address16 == UNKNOWN_16_BIT_ADDRESS)
+            address16 = NO_16_BIT_ADDRESS;
+        String nodeID = device.getNodeID();
+
+        RemoteXBeeDevice evicted = null;
+        RemoteXBeeDevice previous = null;
+        lock.writeLock().lock();
+        try {
+            Entry entry = find64(address64);
+            if (entry != null) {
+                previous = entry.device;
+                entry.device = device;
+                entry.referenced = true;
+            } else {
+                entry = new Entry(address64, device);
+                if (size == capacity)
+                    evicted = evict();
+                entry.slot = size;
+                clock[size++] = entry;
+                int index = index(address64);
+                entry.next64 = table64[index];
+                table64[index] = entry;
+            }
+            index16(entry, address16);
+            indexNodeID(entry, nodeID);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (evicted != null)
+            onEvicted(evicted);
+        return previous;
+    }
+
+    /**
+     * Returns the device with the given 64-bit address.
+     *
+     * @param address64 The 64-bit address, see {@link #toLong(XBee64BitAddress)}.
+     *
+     * @return The device, {@code null} if it is not registered.
+     */
+    public RemoteXBeeDevice get(long address64) {
+        lock.readLock().lock();
+        try {
+            return use(find64(address64));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the device with the given 64-bit address.
+     *
+     * @param address64 The 64-bit address.
+     *
+     * @return The device, {@code null} if it is not registered.
+     *
+     * @throws NullPointerException if {@code address64 == null}.
+     */
+    public RemoteXBeeDevice get(XBee64BitAddress address64) {
+        return get(toLong(address64));
+    }
+
+    /**
+     * Returns the last device registered with the given 16-bit address.
+     *
+     * @param address16 The 16-bit address.
+     *
+     * @return The device, {@code null} if there is none.
+     *
+     * @throws NullPointerException if {@code address16 == null}.
+     */
+    public RemoteXBeeDevice getBy16BitAddress(XBee16BitAddress address16) {
+        if (address16 == null)
+            throw new NullPointerException("Address cannot be null.");
+
+        int value = toInt(address16);
+        lock.readLock().lock();
+        try {
+            Entry entry = table16[index(value)];
+            while (entry != null && entry.address16 != value)
+                entry = entry.next16;
+            return use(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the last device registered with the given node identifier.
+     *
+     * @param nodeID The node identifier.
+     *
+     * @return The device, {@code null} if there is none.
+     *
+     * @throws NullPointerException if {@code nodeID == null}.
+     */
+    public RemoteXBeeDevice getByNodeID(String nodeID) {
+        if (nodeID == null)
+            throw new NullPointerException("Node identifier cannot be null.");
+
+        lock.readLock().lock();
+        try {
+            return use(nodeIDs.get(nodeID));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the device with the given 64-bit address.
+     *
+     * @param address64 The 64-bit address, see {@link #toLong(XBee64BitAddress)}.
+     *
+     * @return The removed device, {@code null} if it was not registered.
+     */
+    public RemoteXBeeDevice remove(long address64) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = find64(address64);
+            if (entry == null)
+                return null;
+            unlink(entry);
+            return entry.device;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the device with the given 64-bit address.
+     *
+     * @param address64 The 64-bit address.
+     *
+     * @return The removed device, {@code null} if it was not registered.
+     *
+     * @throws NullPointerException if {@code address64 == null}.
+     */
+    public RemoteXBeeDevice remove(XBee64BitAddress address64) {
+        return remove(toLong(address64));
+    }
+
+    /**
+     * Removes all the devices.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < table64.length; i++) {
+                table64[i] = null;
+                table16[i] = null;
+            }
+            for (int i = 0; i < size; i++)
+                clock[i] = null;
+            nodeIDs.clear();
+            size = 0;
+            hand = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the registered devices.
+     *
+     * @return A copy of the registered devices, in no particular order.
+     */
+    public List<RemoteXBeeDevice> getDevices() {
+        lock.readLock().lock();
+        try {
+            List<RemoteXBeeDevice> devices = new ArrayList<RemoteXBeeDevice>(size);
+            for (int i = 0; i < size; i++)
+                devices.add(clock[i].device);
+            return devices;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of registered devices.
+     *
+     * @return The number of devices.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum number of devices.
+     *
+     * @return The capacity of the registry.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of devices evicted to make room for new ones.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        lock.readLock().lock();
+        try {
+            return evictions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Called after a device is evicted to make room for a new one, in the
+     * thread that added the new device.
+     *
+     * <p>The default implementation does nothing.</p>
+     *
+     * @param device The evicted device.
+     */
+    protected void onEvicted(RemoteXBeeDevice device) {
+        // Nothing to do by default.
+    }
+
+    /**
+     * Marks the given entry as used.
+     *
+     * @param entry The entry, may be {@code null}.
+     *
+     * @return The device of the entry, {@code null} if there is no entry.
+     */
+    private static RemoteXBeeDevice use(Entry entry) {
+        if (entry == null)
+            return null;
+        if (!entry.referenced)
+            entry.referenced = true;
+        return entry.device;
+    }
+
+    /**
+     * Finds the entry with the given 64-bit address.
+     *
+     * @param address64 The 64-bit address.
+     *
+     * @return The entry, {@code null} if there is none.
+     */
+    private Entry find64(long address64) {
+        Entry entry = table64[index(address64)];
+        while (entry != null && entry.address64 != address64)
+            entry = entry.next64;
+        return entry;
+    }
+
+    /**
+     * Evicts the first entry of the clock that has not been used since the
+     * hand last passed over it. The write lock must be held.
+     *
+     * @return The evicted device.
+     */
+    private RemoteXBeeDevice evict() {
+        while (true) {
+            if (hand >= size)
+                hand = 0;
+            Entry entry = clock[hand];
+            if (entry.referenced) {
+                entry.referenced = false;
+                hand++;
+                continue;
+            }
+            unlink(entry);
+            evictions++;
+            return entry.device;
+        }
+    }
+
+    /**
+     * Removes the given entry from all the indexes and the clock. The
+     * write lock must be held.
+     *
+     * @param entry The entry to remove.
+     */
+    private void unlink(Entry entry) {
+        int index = index(entry.address64);
+        if (table64[index] == entry) {
+            table64[index] = entry.next64;
+        } else {
+            Entry current = table64[index];
+            while (current.next64 != entry)
+                current = current.next64;
+            current.next64 = entry.next64;
+        }
+        index16(entry, NO_16_BIT_ADDRESS);
+        indexNodeID(entry, null);
+
+        // Fill the hole with the last entry of the clock.
+        Entry last = clock[--size];
+        clock[entry.slot] = last;
+        last.slot = entry.slot;
+        clock[size] = null;
+    }
+
+    /**
+     * Moves the given entry to its new 16-bit address in the index. The
+     * write lock must be held.
+     *
+     * @param entry The entry.
+     * @param address16 The new 16-bit address, or {@code NO_16_BIT_ADDRESS}.
+     */
+    private void index16(Entry entry, int address16) {
+        if (entry.address16 == address16)
+            return;
+
+        if (entry.address16 != NO_16_BIT_ADDRESS) {
+            int index = index(entry.address16);
+            if (table16[index] == entry) {
+                table16[index] = entry.next16;
+            } else {
+                Entry current = table16[index];
+                while (current.next16 != entry)
+                    current = current.next16;
+                current.next16 = entry.next16;
+            }
+            entry.next16 = null;
+        }
+        entry.address16 = NO_16_BIT_ADDRESS;
+        if (address16 == NO_16_BIT_ADDRESS)
+            return;
+
+        // The address may have been reassigned from another device.
+        int index = index(address16);
+        Entry current = table16[index];
+        while (current != null && current.address16 != address16)
+            current = current.next16;
+        if (current != null)
+            index16(current, NO_16_BIT_ADDRESS);
+
+        entry.address16 = address16;
+        entry.next16 = table16[index];
+        table16[index] = entry;
+    }
+
+    /**
+     * Moves the given entry to its new node identifier in the index. The
+     * write lock must be held.
+     *
+     * @param entry The entry.
+     * @param nodeID The new node identifier, may be {@code null}.
+     */
+    private void indexNodeID(Entry entry, String nodeID) {
+        if (entry.nodeID == null ? nodeID == null : entry.nodeID.equals(nodeID))
+            return;
+
+        if (entry.nodeID != null && nodeIDs.get(entry.nodeID) == entry)
+            nodeIDs.remove(entry.nodeID);
+        entry.nodeID = nodeID;
+        if (nodeID != null) {
+            Entry previous = nodeIDs.put(nodeID, entry);
+            if (previous != null)
+                previous.nodeID = null;
+        }
+    }
+
+    /**
+     * Returns the bucket of the given key.
+     *
+     * @param key The key.
+     *
+     * @return The index in the tables.
+     */
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (table64.length - 1);
+    }
+
+    /**
+     * Returns the given 16-bit address as an {@code int}.
+     *
+     * @param address The 16-bit address.
+     *
+     * @return The address value.
+     */
+    private static int toInt(XBee16BitAddress address) {
+        return ByteUtils.byteArrayToInt(address.getValue()) & 0xFFFF;
+    }
+
+    /**
+     * This class is a registered device with its index links.
+     */
+    private static final class Entry {
+
+        // Variables.
+        private final long address64;
+
+        private RemoteXBeeDevice device;
+
+        private int address16 = NO_16_BIT_ADDRESS;
+
+        private String nodeID;
+
+        private int slot;
+
+        private Entry next64;
+        private Entry next16;
+
+        // Written by concurrent readers, hence volatile.
+        private volatile boolean referenced = false;
+
+        Entry(long address64, RemoteXBeeDevice device) {
+            this.address64 = address64;
+            this.device = device;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.Locale;
+
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+/**
+ * This class is a snapshot of the statistics that {@link RemoteATEngine}
+ * keeps for a remote node across all its operations.
+ *
+ * @see RemoteATEngine#getNodeStatistics(XBee64BitAddress)
+ */
+public class RemoteNodeStatistics {
+
+    // Variables.
+    private final XBee64BitAddress address;
+
+    private final long attempts;
+    private final long successes;
+    private final long totalLatency;
+    private final long minLatency;
+    private final long maxLatency;
+
+    /**
+     * Class constructor. Instantiates a new {@code RemoteNodeStatistics}
+     * object with the given values.
+     *
+     * @param address The 64-bit address of the node.
+     * @param attempts The number of attempts.
+     * @param successes The number of successful attempts.
+     * @param totalLatency The sum of the successful attempt latencies.
+     * @param minLatency The minimum successful attempt latency.
+     * @param maxLatency The maximum successful attempt latency.
+     */
+    RemoteNodeStatistics(XBee64BitAddress address, long attempts, long successes,
+            long totalLatency, long minLatency, long maxLatency) {
+        this.address = address;
+        this.attempts = attempts;
+        this.successes = successes;
+        this.totalLatency = totalLatency;
+        this.minLatency = minLatency;
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Returns the 64-bit address of the node.
+     *
+     * @return The 64-bit address.
+     */
+    public XBee64BitAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the number of attempts against the node, including retries.
+     *
+     * @return The number of attempts.
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the number of successful attempts.
+     *
+     * @return The number of successful attempts.
+     */
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * Returns the ratio of successful attempts.
+     *
+     * @return The success rate between {@code 0} and {@code 1}, {@code 0}
+     *         if there are no attempts.
+     */
+    public double getSuccessRate() {
+        return attempts == 0 ? 0 : (double) successes / attempts;
+    }
+
+    /**
+     * Returns the average latency of the successful attempts.
+     *
+     * @return The average latency in milliseconds, {@code 0} if there are
+     *         no successful attempts.
+     */
+    public double getAverageLatency() {
+        return successes == 0 ? 0 : (double) totalLatency / successes;
+    }
+
+    /**
+     * Returns the minimum latency of the successful attempts.
+     *
+     * @return The minimum latency in milliseconds, {@code 0} if there are
+     *         no successful attempts.
+     */
+    public long getMinLatency() {
+        return minLatency;
+    }
+
+    /**
+     * Returns the maximum latency of the successful attempts.
+     *
+     * @return The maximum latency in milliseconds, {@code 0} if there are
+     *         no successful attempts.
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d/%d OK, avg %.1f ms", address, successes, attempts, getAverageLatency());
+    }
+}
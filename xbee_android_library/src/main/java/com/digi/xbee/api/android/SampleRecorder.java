@@ -0,0 +1,1025 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.connection.LatencyHistogram;
+import com.digi.xbee.api.io.IOLine;
+import com.digi.xbee.api.io.IOSample;
+import com.digi.xbee.api.io.IOValue;
+import com.digi.xbee.api.listeners.IDataReceiveListener;
+import com.digi.xbee.api.listeners.IIOSampleReceiveListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeMessage;
+import com.digi.xbee.api.utils.ByteUtils;
+
+/**
+ * This class records the IO samples and data frames received from remote
+ * XBee devices in compressed, append-only segment files.
+ *
+ * <p>Register the recorder as listener of the local device with
+ * {@link #attach(com.digi.xbee.api.XBeeDevice)}. The listener methods only
+ * queue the sample or frame: if the queue is full it is dropped and
+ * counted, so recording never blocks the dispatch of frames. A background
+ * thread groups the queued rows in blocks and writes a block when it has
+ * {@link #DEFAULT_BATCH_SIZE} rows or when its oldest row is older than the
+ * flush interval.</p>
+ *
+ * <p>Every block stores its rows by columns, each one compressed with the
+ * others using deflate:</p>
+ * <ul>
+ *   <li>Timestamps, as variable length deltas.</li>
+ *   <li>Source addresses, as indexes to the node table of the block.</li>
+ *   <li>IO lines, {@code 0xFF} for data frames.</li>
+ *   <li>IO line values, as variable length integers.</li>
+ *   <li>Payload lengths, followed by the payloads of the data frames.</li>
+ * </ul>
+ *
+ * <p>Segments are named {@code <name>-<index>.xbr} and have the following
+ * format (big endian):</p>
+ * <ul>
+ *   <li>Header: magic {@code "XBRC"} (4 bytes), version (1 byte) and
+ *   reserved (3 bytes).</li>
+ *   <li>Blocks: magic {@code "XBRB"} (4 bytes), number of rows (4 bytes),
+ *   minimum and maximum timestamps (8 bytes each), number of nodes
+ *   (4 bytes), 64-bit address of every node (8 bytes each), compressed and
+ *   uncompressed length of the columns (4 bytes each) and compressed
+ *   columns.</li>
+ * </ul>
+ *
+ * <p>The time range and nodes of every block are kept in memory, so
+ * {@link #query(long, long, XBee64BitAddress)} only reads and decompresses
+ * the blocks that may contain matching rows. When the total size of the
+ * segments exceeds the configured maximum, the oldest segments are
+ * deleted.</p>
+ *
+ * @see RecordedSample
+ * @see RecorderStatistics
+ */
+public class SampleRecorder implements IIOSampleReceiveListener, IDataReceiveListener, Closeable {
+
+    // Constants.
+    /**
+     * Default size of each segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * Default maximum size of the recording in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+    /**
+     * Default maximum number of samples and frames waiting to be written.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /**
+     * Number of rows that triggers writing a block.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Default maximum time in milliseconds a row waits to be written.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+    /**
+     * Maximum time in milliseconds {@link #flush()} and {@link #close()}
+     * wait for the writer thread.
+     */
+    public static final long REQUEST_TIMEOUT = 5000;
+
+    static final int MAGIC = 0x58425243; // "XBRC"
+    static final int BLOCK_MAGIC = 0x58425242; // "XBRB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final String EXTENSION = ".xbr";
+
+    private static final int DATA_KIND = 0xFF;
+
+    private static final IOLine[] LINES = IOLine.values();
+
+    private static final Logger logger = LoggerFactory.getLogger(SampleRecorder.class);
+
+    // Variables.
+    private final File directory;
+    private final String name;
+    private final int segmentSize;
+    private final long maxSize;
+
+    private final BlockingQueue<Object> queue;
+
+    // Written blocks, from the oldest to the newest. Also guards the files.
+    private final List<Block> blocks = new ArrayList<Block>();
+    private final List<File> segmentFiles = new ArrayList<File>();
+    private long totalSize = 0;
+    private int nextIndex = 0;
+
+    // Current segment, only used by the writer thread.
+    private FileOutputStream output;
+    private File outputFile;
+    private long outputSize;
+
+    private final Batch batch = new Batch();
+    private final Deflater deflater = new Deflater();
+
+    private final Thread writer;
+
+    private volatile long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private volatile boolean closed = false;
+
+    private final AtomicLong recordedRows = new AtomicLong();
+    private final AtomicLong writtenBlocks = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private volatile int pendingRows = 0;
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final LatencyHistogram flushDuration = new LatencyHistogram();
+
+    /**
+     * Class constructor. Instantiates a new {@code SampleRecorder} with
+     * segments of {@link #DEFAULT_SEGMENT_SIZE} bytes, a maximum size of
+     * {@link #DEFAULT_MAX_SIZE} bytes and a queue of
+     * {@link #DEFAULT_QUEUE_CAPACITY} samples and frames.
+     *
+     * @param directory Directory to store the segments in.
+     * @param name Name of the recording.
+     *
+     * @throws IOException if the directory cannot be created or the existing
+     *                     segments cannot be read.
+     * @throws NullPointerException if {@code directory == null} or
+     *                              if {@code name == null}.
+     *
+     * @see #SampleRecorder(File, String, int, long, int)
+     */
+    public SampleRecorder(File directory, String name) throws IOException {
+        this(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code SampleRecorder} with the
+     * given parameters.
+     *
+     * <p>If the directory already contains segments of a recording with the
+     * same name, they are indexed so they can be queried, and the new rows
+     * are written to new segments numbered after them.</p>
+     *
+     * @param directory Directory to store the segments in.
+     * @param name Name of the recording.
+     * @param segmentSize Size in bytes after which a new segment is started.
+     * @param maxSize Maximum size of all the segments in bytes.
+     * @param queueCapacity Maximum number of samples and frames waiting to
+     *                      be written.
+     *
+     * @throws IllegalArgumentException if {@code segmentSize < 1} or
+     *                                  if {@code maxSize < segmentSize} or
+     *                                  if {@code queueCapacity < 1}.
+     * @throws IOException if the directory cannot be created or the existing
+     *                     segments cannot be read.
+     * @throws NullPointerException if {@code directory == null} or
+     *                              if {@code name == null}.
+     *
+     * @see #SampleRecorder(File, String)
+     */
+    public SampleRecorder(File directory, String name, int segmentSize, long maxSize, int queueCapacity)
+            throws IOException {
+        if (directory == null)
+            throw new NullPointerException("Directory cannot be null.");
+        if (name == null)
+            throw new NullPointerException("Name cannot be null.");
+        if (segmentSize < 1)
+            throw new IllegalArgumentException("Segment size must be greater than 0.");
+        if (maxSize < segmentSize)
+            throw new IllegalArgumentException("Maximum size must be at least one segment.");
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Queue capacity must be greater than 0.");
+
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.queue = new ArrayBlockingQueue<Object>(queueCapacity);
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create directory " + directory);
+
+        // Index the segments of a previous recording.
+        for (File file : listSegments()) {
+            indexSegment(file);
+            segmentFiles.add(file);
+            totalSize += file.length();
+            nextIndex = getIndex(file) + 1;
+        }
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWriter();
+            }
+        }, "SampleRecorder-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Registers this recorder as IO sample and data listener of the given
+     * device.
+     *
+     * @param device The local XBee device.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     *
+     * @see #detach(com.digi.xbee.api.XBeeDevice)
+     */
+    public void attach(com.digi.xbee.api.XBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("Device cannot be null.");
+
+        device.addIOSampleListener(this);
+        device.addDataListener(this);
+    }
+
+    /**
+     * Stops recording the IO samples and data frames of the given device.
+     *
+     * @param device The local XBee device.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     *
+     * @see #attach(com.digi.xbee.api.XBeeDevice)
+     */
+    public void detach(com.digi.xbee.api.XBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("Device cannot be null.");
+
+        device.removeIOSampleListener(this);
+        device.removeDataListener(this);
+    }
+
+    @Override
+    public void ioSampleReceived(RemoteXBeeDevice remoteDevice, IOSample ioSample) {
+        record(remoteDevice.get64BitAddress(), System.currentTimeMillis(), ioSample);
+    }
+
+    @Override
+    public void dataReceived(XBeeMessage xbeeMessage) {
+        record(xbeeMessage.getDevice().get64BitAddress(), System.currentTimeMillis(), xbeeMessage.getData());
+    }
+
+    /**
+     * Queues the values of the given IO sample to be recorded.
+     *
+     * <p>This method does not block, the sample is dropped if the queue is
+     * full.</p>
+     *
+     * @param address 64-bit address of the remote device.
+     * @param time Reception time in milliseconds.
+     * @param ioSample The IO sample.
+     *
+     * @return {@code true} if the sample was queued, {@code false} if it was
+     *         dropped.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code ioSample == null}.
+     */
+    public boolean record(XBee64BitAddress address, long time, IOSample ioSample) {
+        if (ioSample == null)
+            throw new NullPointerException("IO sample cannot be null.");
+
+        return enqueue(new Event(RemoteDeviceRegistry.toLong(address), time, ioSample, null));
+    }
+
+    /**
+     * Queues the given data payload to be recorded.
+     *
+     * <p>This method does not block, the payload is dropped if the queue is
+     * full.</p>
+     *
+     * @param address 64-bit address of the remote device.
+     * @param time Reception time in milliseconds.
+     * @param data The data payload.
+     *
+     * @return {@code true} if the payload was queued, {@code false} if it was
+     *         dropped.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code data == null}.
+     */
+    public boolean record(XBee64BitAddress address, long time, byte[] data) {
+        if (data == null)
+            throw new NullPointerException("Data cannot be null.");
+
+        return enqueue(new Event(RemoteDeviceRegistry.toLong(address), time, null, data));
+    }
+
+    /**
+     * Sets the maximum time a row waits to be written.
+     *
+     * @param flushInterval The flush interval in milliseconds.
+     *
+     * @throws IllegalArgumentException if {@code flushInterval < 1}.
+     *
+     * @see #getFlushInterval()
+     */
+    public void setFlushInterval(long flushInterval) {
+        if (flushInterval < 1)
+            throw new IllegalArgumentException("Flush interval must be greater than 0.");
+
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Returns the maximum time a row waits to be written.
+     *
+     * @return The flush interval in milliseconds.
+     *
+     * @see #setFlushInterval(long)
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Writes the samples and frames queued so far and waits until they are
+     * on disk, at most {@link #REQUEST_TIMEOUT} milliseconds.
+     *
+     * @return {@code true} if they were written, {@code false} if the
+     *         recorder is closed or the timeout expired.
+     *
+     * @see #flushAsync()
+     */
+    public boolean flush() {
+        if (closed)
+            return false;
+        return request(new FlushRequest(false));
+    }
+
+    /**
+     * Asks the writer thread to write the samples and frames queued so far
+     * without waiting for it, so it can be called from the main thread.
+     *
+     * @see #flush()
+     */
+    public void flushAsync() {
+        if (closed)
+            return;
+        // A full queue is written right away anyway.
+        queue.offer(new FlushRequest(false));
+    }
+
+    /**
+     * Returns the rows recorded between the given times, in the order they
+     * were recorded.
+     *
+     * <p>Rows still waiting to be written are not returned, call
+     * {@link #flush()} first to include them. The writer thread waits while
+     * the query reads the segments, new samples and frames are queued in
+     * the meantime.</p>
+     *
+     * @param from Start of the range in milliseconds, inclusive.
+     * @param to End of the range in milliseconds, exclusive.
+     * @param address 64-bit address of the remote device, {@code null} to
+     *                return the rows of all the devices.
+     *
+     * @return The recorded rows.
+     *
+     * @throws IllegalArgumentException if {@code to <= from}.
+     * @throws IOException if a segment cannot be read.
+     */
+    public List<RecordedSample> query(long from, long to, XBee64BitAddress address) throws IOException {
+        if (to <= from)
+            throw new IllegalArgumentException("End of the range must be after its start.");
+
+        boolean allNodes = address == null;
+        long node = allNodes ? 0 : RemoteDeviceRegistry.toLong(address);
+        List<RecordedSample> result = new ArrayList<RecordedSample>();
+        synchronized (blocks) {
+            Inflater inflater = new Inflater();
+            try {
+                for (Block block : blocks) {
+                    if (block.maxTime < from || block.minTime >= to)
+                        continue;
+                    if (!allNodes && block.indexOf(node) < 0)
+                        continue;
+                    readBlock(block, inflater, from, to, allNodes ? -1 : block.indexOf(node), result);
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this recorder.
+     *
+     * @return The recorder statistics.
+     */
+    public RecorderStatistics getStatistics() {
+        return new RecorderStatistics(recordedRows.get(), writtenBlocks.get(), writtenBytes.get(),
+                droppedEvents.get(), writeErrors.get(), queue.size(), pendingRows,
+                flushLatency, flushDuration);
+    }
+
+    /**
+     * Returns the segment files of this recording that are still on disk.
+     *
+     * @return The segment files, from the oldest to the newest.
+     */
+    public List<File> getSegmentFiles() {
+        synchronized (blocks) {
+            return new ArrayList<File>(segmentFiles);
+        }
+    }
+
+    /**
+     * Writes the queued samples and frames and stops the writer thread,
+     * waiting at most {@link #REQUEST_TIMEOUT} milliseconds. Samples and
+     * frames received afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        if (!request(new FlushRequest(true)))
+            return;
+        try {
+            writer.join(REQUEST_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the given event without blocking.
+     */
+    private boolean enqueue(Event event) {
+        if (closed)
+            return false;
+        if (queue.offer(event))
+            return true;
+        droppedEvents.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queues the given request, waiting for room if needed, and waits until
+     * the writer thread handles it. The whole wait is limited to
+     * {@link #REQUEST_TIMEOUT} milliseconds.
+     *
+     * @return {@code true} if the request was handled, {@code false} if the
+     *         timeout expired.
+     */
+    private boolean request(FlushRequest request) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REQUEST_TIMEOUT);
+        try {
+            if (queue.offer(request, REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
+                    && request.done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                return true;
+            logger.warn("The recorder writer did not answer in " + REQUEST_TIMEOUT + " ms.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Body of the writer thread.
+     */
+    private void runWriter() {
+        List<Object> drained = new ArrayList<Object>();
+        boolean running = true;
+        while (running) {
+            long wait = batch.rows == 0 ? flushInterval
+                    : flushInterval - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.firstNanos);
+            Object first = null;
+            if (wait > 0) {
+                try {
+                    first = queue.poll(wait, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // Keep running until a close request is received.
+                }
+            }
+            if (first != null) {
+                drained.add(first);
+                queue.drainTo(drained, DEFAULT_BATCH_SIZE);
+            }
+            for (Object item : drained) {
+                if (item instanceof Event) {
+                    batch.add((Event) item);
+                    if (batch.rows >= DEFAULT_BATCH_SIZE)
+                        writeBatch();
+                } else {
+                    FlushRequest request = (FlushRequest) item;
+                    writeBatch();
+                    if (request.close) {
+                        closeOutput();
+                        running = false;
+                    }
+                    request.done.countDown();
+                }
+            }
+            drained.clear();
+            pendingRows = batch.rows;
+            if (batch.rows > 0
+                    && System.nanoTime() - batch.firstNanos >= TimeUnit.MILLISECONDS.toNanos(flushInterval))
+                writeBatch();
+        }
+        deflater.end();
+    }
+
+    /**
+     * Compresses the rows of the current batch and appends them as a block
+     * to the current segment.
+     */
+    private void writeBatch() {
+        if (batch.rows == 0)
+            return;
+
+        long start = System.nanoTime();
+        try {
+            Block block = batch.toBlock();
+            byte[] bytes = encodeBlock(block);
+            synchronized (blocks) {
+                if (output == null || outputSize >= segmentSize)
+                    openSegment();
+                output.write(bytes);
+                block.file = outputFile;
+                block.offset = outputSize + bytes.length - block.compressedLength;
+                outputSize += bytes.length;
+                totalSize += bytes.length;
+                blocks.add(block);
+                enforceMaxSize();
+            }
+            long end = System.nanoTime();
+            recordedRows.addAndGet(block.rows);
+            writtenBlocks.incrementAndGet();
+            writtenBytes.addAndGet(bytes.length);
+            flushDuration.record(end - start);
+            flushLatency.record(end - batch.firstNanos);
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            logger.error("Could not write recorder block: " + e.getMessage(), e);
+            // Continue in a new segment.
+            closeOutput();
+        } finally {
+            batch.clear();
+            pendingRows = 0;
+        }
+    }
+
+    /**
+     * Encodes the given block, compressing its columns.
+     */
+    private byte[] encodeBlock(Block block) throws IOException {
+        ByteArrayOutputStream columns = new ByteArrayOutputStream(block.rows * 8);
+        long previous = block.minTime;
+        for (int i = 0; i < block.rows; i++) {
+            writeVarLong(columns, zigZag(batch.times[i] - previous));
+            previous = batch.times[i];
+        }
+        for (int i = 0; i < block.rows; i++)
+            writeVarLong(columns, block.indexOf(batch.nodes[i]));
+        columns.write(batch.kinds, 0, block.rows);
+        for (int i = 0; i < block.rows; i++)
+            writeVarLong(columns, zigZag(batch.values[i]));
+        for (int i = 0; i < block.rows; i++)
+            writeVarLong(columns, batch.payloads[i] == null ? 0 : batch.payloads[i].length);
+        for (int i = 0; i < block.rows; i++) {
+            if (batch.payloads[i] != null)
+                columns.write(batch.payloads[i]);
+        }
+        byte[] raw = columns.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        block.compressedLength = compressed.size();
+        block.rawLength = raw.length;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(block.compressedLength + 40 + block.nodes.length * 8);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(BLOCK_MAGIC);
+        data.writeInt(block.rows);
+        data.writeLong(block.minTime);
+        data.writeLong(block.maxTime);
+        data.writeInt(block.nodes.length);
+        for (long node : block.nodes)
+            data.writeLong(node);
+        data.writeInt(block.compressedLength);
+        data.writeInt(block.rawLength);
+        compressed.writeTo(data);
+        data.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the rows of the given block that match the given range and node.
+     *
+     * @param nodeIndex Index of the node in the block, {@code -1} for all.
+     */
+    private void readBlock(Block block, Inflater inflater, long from, long to, int nodeIndex,
+            List<RecordedSample> result) throws IOException {
+        byte[] compressed = new byte[block.compressedLength];
+        RandomAccessFile file = new RandomAccessFile(block.file, "r");
+        try {
+            file.seek(block.offset);
+            file.readFully(compressed);
+        } finally {
+            file.close();
+        }
+
+        byte[] raw = new byte[block.rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            if (inflater.inflate(raw) != raw.length)
+                throw new IOException("Corrupted recorder block in " + block.file);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted recorder block in " + block.file, e);
+        }
+
+        // Decode the columns.
+        int rows = block.rows;
+        ByteArrayInputStream in = new ByteArrayInputStream(raw);
+        long[] times = new long[rows];
+        long time = block.minTime;
+        for (int i = 0; i < rows; i++) {
+            time += unZigZag(readVarLong(in));
+            times[i] = time;
+        }
+        int[] nodes = new int[rows];
+        for (int i = 0; i < rows; i++)
+            nodes[i] = (int) readVarLong(in);
+        byte[] kinds = new byte[rows];
+        if (in.read(kinds, 0, rows) != rows)
+            throw new EOFException("Truncated recorder block in " + block.file);
+        int[] values = new int[rows];
+        for (int i = 0; i < rows; i++)
+            values[i] = (int) unZigZag(readVarLong(in));
+        int[] lengths = new int[rows];
+        for (int i = 0; i < rows; i++)
+            lengths[i] = (int) readVarLong(in);
+
+        XBee64BitAddress[] addresses = new XBee64BitAddress[block.nodes.length];
+        for (int i = 0; i < rows; i++) {
+            byte[] payload = null;
+            if (lengths[i] > 0) {
+                payload = new byte[lengths[i]];
+                if (in.read(payload, 0, payload.length) != payload.length)
+                    throw new EOFException("Truncated recorder block in " + block.file);
+            }
+            if (times[i] < from || times[i] >= to || (nodeIndex >= 0 && nodes[i] != nodeIndex))
+                continue;
+            if (addresses[nodes[i]] == null)
+                addresses[nodes[i]] = new XBee64BitAddress(ByteUtils.longToByteArray(block.nodes[nodes[i]]));
+            int kind = kinds[i] & 0xFF;
+            if (kind == DATA_KIND)
+                result.add(new RecordedSample(RecordedSample.Type.DATA, times[i], addresses[nodes[i]], null, 0,
+                        payload == null ? new byte[0] : payload));
+            else
+                result.add(new RecordedSample(RecordedSample.Type.IO_VALUE, times[i], addresses[nodes[i]],
+                        LINES[kind], values[i], null));
+        }
+    }
+
+    /**
+     * Reads the block headers of the given segment file. A truncated block
+     * ends the segment.
+     */
+    private void indexSegment(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long length = in.length();
+            if (length < HEADER_SIZE || in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                logger.warn("Ignoring invalid recorder segment " + file);
+                return;
+            }
+            long position = HEADER_SIZE;
+            while (position < length) {
+                in.seek(position);
+                try {
+                    if (in.readInt() != BLOCK_MAGIC)
+                        break;
+                    Block block = new Block();
+                    block.rows = in.readInt();
+                    block.minTime = in.readLong();
+                    block.maxTime = in.readLong();
+                    block.nodes = new long[in.readInt()];
+                    for (int i = 0; i < block.nodes.length; i++)
+                        block.nodes[i] = in.readLong();
+                    block.compressedLength = in.readInt();
+                    block.rawLength = in.readInt();
+                    block.file = file;
+                    block.offset = in.getFilePointer();
+                    position = block.offset + block.compressedLength;
+                    if (position > length)
+                        break;
+                    blocks.add(block);
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Starts a new segment file.
+     */
+    private void openSegment() throws IOException {
+        closeOutput();
+        File file = new File(directory, String.format("%s-%06d%s", name, nextIndex++, EXTENSION));
+        FileOutputStream stream = new FileOutputStream(file);
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = (byte) (MAGIC >>> 24);
+        header[1] = (byte) (MAGIC >>> 16);
+        header[2] = (byte) (MAGIC >>> 8);
+        header[3] = (byte) MAGIC;
+        header[4] = (byte) VERSION;
+        try {
+            stream.write(header);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        output = stream;
+        outputFile = file;
+        outputSize = HEADER_SIZE;
+        segmentFiles.add(file);
+        totalSize += HEADER_SIZE;
+    }
+
+    /**
+     * Closes the current segment file, if any.
+     */
+    private void closeOutput() {
+        if (output == null)
+            return;
+        try {
+            output.close();
+        } catch (IOException e) {
+            logger.error("Could not close recorder segment " + outputFile + ": " + e.getMessage(), e);
+        }
+        output = null;
+        outputFile = null;
+    }
+
+    /**
+     * Deletes the oldest segments, except the current one, while the
+     * recording is larger than the maximum size.
+     */
+    private void enforceMaxSize() {
+        while (totalSize > maxSize && segmentFiles.size() > 1) {
+            File oldest = segmentFiles.remove(0);
+            totalSize -= oldest.length();
+            while (!blocks.isEmpty() && blocks.get(0).file.equals(oldest))
+                blocks.remove(0);
+            if (!oldest.delete())
+                logger.warn("Could not delete recorder segment " + oldest);
+        }
+    }
+
+    /**
+     * Returns the segment files of this recording, sorted by index.
+     */
+    private List<File> listSegments() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String fileName) {
+                return getIndex(new File(dir, fileName)) >= 0;
+            }
+        });
+        if (files == null)
+            return new ArrayList<File>();
+        Arrays.sort(files);
+        return new ArrayList<File>(Arrays.asList(files));
+    }
+
+    /**
+     * Returns the index of the given segment file, {@code -1} if it is not a
+     * segment of this recording.
+     */
+    private int getIndex(File file) {
+        String fileName = file.getName();
+        if (!fileName.startsWith(name + "-") || !fileName.endsWith(EXTENSION))
+            return -1;
+        try {
+            return Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteArrayInputStream in) throws EOFException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException("Truncated recorder block.");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new EOFException("Invalid variable length value.");
+    }
+
+    /**
+     * An IO sample or data frame waiting to be recorded.
+     */
+    private static final class Event {
+        final long address;
+        final long time;
+        final long nanos = System.nanoTime();
+        final IOSample ioSample;
+        final byte[] data;
+
+        Event(long address, long time, IOSample ioSample, byte[] data) {
+            this.address = address;
+            this.time = time;
+            this.ioSample = ioSample;
+            this.data = data;
+        }
+    }
+
+    /**
+     * A request to write the pending rows, and optionally stop the writer.
+     */
+    private static final class FlushRequest {
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean close;
+
+        FlushRequest(boolean close) {
+            this.close = close;
+        }
+    }
+
+    /**
+     * Location, time range and nodes of a written block.
+     */
+    private static final class Block {
+        File file;
+        long offset;
+        int rows;
+        long minTime;
+        long maxTime;
+        long[] nodes;
+        int compressedLength;
+        int rawLength;
+
+        int indexOf(long node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] == node)
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Columns of the rows waiting to be written, only used by the writer
+     * thread.
+     */
+    private static final class Batch {
+        long[] times = new long[DEFAULT_BATCH_SIZE];
+        long[] nodes = new long[DEFAULT_BATCH_SIZE];
+        byte[] kinds = new byte[DEFAULT_BATCH_SIZE];
+        int[] values = new int[DEFAULT_BATCH_SIZE];
+        byte[][] payloads = new byte[DEFAULT_BATCH_SIZE][];
+        int rows = 0;
+        long firstNanos;
+
+        private final Map<Long, Integer> nodeIndexes = new LinkedHashMap<Long, Integer>();
+
+        void add(Event event) {
+            if (rows == 0)
+                firstNanos = event.nanos;
+            if (event.data != null) {
+                addRow(event, DATA_KIND, 0, event.data);
+                return;
+            }
+            IOSample ioSample = event.ioSample;
+            boolean analog = ioSample.hasAnalogValues();
+            boolean digital = ioSample.hasDigitalValues();
+            for (IOLine line : LINES) {
+                if (analog && ioSample.hasAnalogValue(line))
+                    addRow(event, line.ordinal(), ioSample.getAnalogValue(line), null);
+                else if (digital && ioSample.hasDigitalValue(line))
+                    addRow(event, line.ordinal(), ioSample.getDigitalValue(line) == IOValue.HIGH ? 1 : 0, null);
+            }
+        }
+
+        private void addRow(Event event, int kind, int value, byte[] payload) {
+            if (rows == times.length) {
+                int capacity = rows * 2;
+                times = Arrays.copyOf(times, capacity);
+                nodes = Arrays.copyOf(nodes, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                values = Arrays.copyOf(values, capacity);
+                payloads = Arrays.copyOf(payloads, capacity);
+            }
+            times[rows] = event.time;
+            nodes[rows] = event.address;
+            kinds[rows] = (byte) kind;
+            values[rows] = value;
+            payloads[rows] = payload;
+            rows++;
+            if (!nodeIndexes.containsKey(event.address))
+                nodeIndexes.put(event.address, nodeIndexes.size());
+        }
+
+        /**
+         * Returns the description of a block with the rows of this batch.
+         */
+        Block toBlock() {
+            Block block = new Block();
+            block.rows = rows;
+            block.minTime = Long.MAX_VALUE;
+            block.maxTime = Long.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                block.minTime = Math.min(block.minTime, times[i]);
+                block.maxTime = Math.max(block.maxTime, times[i]);
+            }
+            block.nodes = new long[nodeIndexes.size()];
+            int i = 0;
+            for (Long node : nodeIndexes.keySet())
+                block.nodes[i++] = node;
+            return block;
+        }
+
+        void clear() {
+            for (int i = 0; i < rows; i++)
+                payloads[i] = null;
+            rows = 0;
+            nodeIndexes.clear();
+        }
+    }
+}
@@ -0,0 +1,655 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.XBeeNetwork;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.listeners.IDiscoveryListener;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeProtocol;
+
+/**
+ * This class keeps a persistent copy of the network topology of a local
+ * XBee device, so the remote nodes found in previous sessions are
+ * available as soon as the application starts instead of after a full
+ * discovery.
+ *
+ * <p>{@link #load()} reads the stored nodes and adds them to the
+ * {@link XBeeNetwork} of the device. From then on, every discovery of the
+ * network, started with {@link #startDiscovery()} or by any other means,
+ * is reconciled with the cache: new nodes are added, known nodes are
+ * refreshed and nodes that are not found during
+ * {@link #getMaxMissedDiscoveries()} consecutive discoveries, or that have
+ * not been seen for {@link #getMaxAge()} milliseconds, are removed from the
+ * cache and from the network. The cache is saved after every
+ * discovery.</p>
+ *
+ * <p>Only the discoveries that run for the whole node discovery time of the
+ * module count as missed for the nodes that did not answer. Failed
+ * discoveries and the ones stopped early by a {@link NetworkDiscovery}
+ * only refresh the nodes that answered. A discovery stopped directly with
+ * {@link XBeeNetwork#stopDiscoveryProcess()} cannot be told apart from a
+ * full one.</p>
+ *
+ * <p>The discovery process of the module does not report the role nor the
+ * signal strength of the nodes, use {@link #setRole(XBee64BitAddress,
+ * TopologyNode.Role)} and {@link #setSignalStrength(XBee64BitAddress, int)}
+ * to store them when they are known.</p>
+ *
+ * @see TopologyListener
+ * @see TopologyNode
+ */
+public class TopologyCache {
+
+    // Constants.
+    /**
+     * Maximum age value of the nodes that never age out.
+     */
+    public static final long NO_MAX_AGE = -1;
+
+    /**
+     * Default maximum time a node is kept without being seen, in
+     * milliseconds.
+     */
+    public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * Default number of consecutive discoveries a node can miss before it
+     * is removed.
+     */
+    public static final int DEFAULT_MAX_MISSED_DISCOVERIES = 3;
+
+    private static final int FILE_MAGIC = 0x58425443; // "XBTC"
+    private static final int FILE_VERSION = 1;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Variables.
+    private final com.digi.xbee.api.XBeeDevice device;
+
+    private final XBeeNetwork network;
+
+    private final File file;
+
+    private final Map<XBee64BitAddress, TopologyNode> nodes = new LinkedHashMap<XBee64BitAddress, TopologyNode>();
+    private final Set<XBee64BitAddress> seen = new HashSet<XBee64BitAddress>();
+
+    private final List<TopologyListener> listeners = new ArrayList<TopologyListener>();
+
+    private long maxAge = DEFAULT_MAX_AGE;
+
+    private int maxMissedDiscoveries = DEFAULT_MAX_MISSED_DISCOVERIES;
+
+    private final IDiscoveryListener discoveryListener = new IDiscoveryListener() {
+        @Override
+        public void deviceDiscovered(RemoteXBeeDevice discoveredDevice) {
+            nodeDiscovered(discoveredDevice, System.currentTimeMillis());
+        }
+
+        @Override
+        public void discoveryError(String error) {
+            logger.debug("Discovery error: " + error);
+        }
+
+        @Override
+        public void discoveryFinished(String error) {
+            discoveryCompleted(error == null && !NetworkDiscovery.isStoppedEarly(network),
+                    System.currentTimeMillis());
+            try {
+                save();
+            } catch (IOException e) {
+                logger.warn("Could not save the topology cache: " + e.getMessage());
+            }
+        }
+    };
+
+    private static final Logger logger = LoggerFactory.getLogger(TopologyCache.class);
+
+    /**
+     * Class constructor. Instantiates a new {@code TopologyCache} object
+     * for the given local XBee device stored in the given file.
+     *
+     * <p>The cache is empty until {@link #load()} is called. It listens to
+     * the discoveries of the device network until {@link #close()} is
+     * called.</p>
+     *
+     * @param device The local XBee device.
+     * @param file The file to store the nodes in, for example a file of
+     *             {@code Context.getFilesDir()}.
+     *
+     * @throws InterfaceNotOpenException if the device is not open.
+     * @throws NullPointerException if {@code device == null} or
+     *                              if {@code file == null}.
+     */
+    public TopologyCache(com.digi.xbee.api.XBeeDevice device, File file) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+        if (file == null)
+            throw new NullPointerException("File cannot be null.");
+
+        this.device = device;
+        this.file = file;
+        this.network = device.getNetwork();
+        network.addDiscoveryListener(discoveryListener);
+    }
+
+    /**
+     * Returns the XBee device whose network is cached.
+     *
+     * @return The XBee device.
+     */
+    public com.digi.xbee.api.XBeeDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Returns the file the nodes are stored in.
+     *
+     * @return The cache file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the stored nodes and adds them to the network of the device.
+     *
+     * <p>Nodes older than {@link #getMaxAge()} are discarded. Registered
+     * listeners are notified about every node not cached yet. A missing
+     * file is not an error, it just loads no nodes.</p>
+     *
+     * <p>This method reads the file, so it should not be called from the
+     * Android main thread.</p>
+     *
+     * @return The number of loaded nodes.
+     *
+     * @throws IOException if the file cannot be read or is not a topology
+     *                     cache file.
+     *
+     * @see #save()
+     */
+    public int load() throws IOException {
+        List<TopologyNode> stored = read();
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+
+        synchronized (this) {
+            for (TopologyNode node : stored) {
+                if (isExpired(node, now) || nodes.containsKey(node.get64BitAddress()))
+                    continue;
+                nodes.put(node.get64BitAddress(), node);
+                network.addRemoteDevice(new RemoteXBeeDevice(device, node.get64BitAddress(),
+                        node.get16BitAddress(), node.getNodeID()));
+                loaded++;
+                for (TopologyListener listener : listeners)
+                    listener.nodeAdded(node);
+            }
+        }
+        logger.debug("Loaded " + loaded + " nodes from " + file + ".");
+        return loaded;
+    }
+
+    /**
+     * Writes the cached nodes to the file.
+     *
+     * <p>The nodes are written to a temporary file first, so an
+     * interrupted save does not corrupt the previous copy.</p>
+     *
+     * @throws IOException if the file cannot be written.
+     *
+     * @see #load()
+     */
+    public void save() throws IOException {
+        List<TopologyNode> snapshot = getNodes();
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(snapshot.size());
+            for (TopologyNode node : snapshot) {
+                out.writeUTF(node.get64BitAddress().toString());
+                writeOptionalString(out, node.get16BitAddress() == null ? null : node.get16BitAddress().toString());
+                writeOptionalString(out, node.getNodeID());
+                out.writeUTF(node.getRole().name());
+                out.writeLong(node.getLastSeen());
+                out.writeInt(node.getSignalStrength());
+                out.writeInt(node.getMissedDiscoveries());
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file)))
+            throw new IOException("Could not replace " + file + ".");
+    }
+
+    /**
+     * Starts a discovery of the network to reconcile the cache, if there is
+     * not one running already.
+     *
+     * <p>This method does not block, listeners are notified as the nodes
+     * are found and when the discovery finishes.</p>
+     *
+     * @see XBeeNetwork#startDiscoveryProcess()
+     */
+    public void startDiscovery() {
+        if (!network.isDiscoveryRunning())
+            network.startDiscoveryProcess();
+    }
+
+    /**
+     * Returns the cached nodes.
+     *
+     * @return A copy of the cached nodes, in discovery order.
+     */
+    public synchronized List<TopologyNode> getNodes() {
+        return new ArrayList<TopologyNode>(nodes.values());
+    }
+
+    /**
+     * Returns the cached node with the given 64-bit address.
+     *
+     * @param address The 64-bit address of the node.
+     *
+     * @return The cached node, {@code null} if it is not cached.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     */
+    public synchronized TopologyNode getNode(XBee64BitAddress address) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+
+        return nodes.get(address);
+    }
+
+    /**
+     * Stores the role of a cached node.
+     *
+     * @param address The 64-bit address of the node.
+     * @param role The role of the node.
+     *
+     * @return {@code true} if the node is cached, {@code false} otherwise.
+     *
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code role == null}.
+     */
+    public synchronized boolean setRole(XBee64BitAddress address, TopologyNode.Role role) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+        if (role == null)
+            throw new NullPointerException("Role cannot be null.");
+
+        TopologyNode node = nodes.get(address);
+        if (node == null)
+            return false;
+        if (node.getRole() != role)
+            update(new TopologyNode(address, node.get16BitAddress(), node.getNodeID(), role,
+                    node.getLastSeen(), node.getSignalStrength(), node.getMissedDiscoveries()));
+        return true;
+    }
+
+    /**
+     * Stores the last signal strength measured for a cached node, for
+     * example the {@code DB} value read after communicating with it.
+     *
+     * @param address The 64-bit address of the node.
+     * @param rssi The signal strength in dBm.
+     *
+     * @return {@code true} if the node is cached, {@code false} otherwise.
+     *
+     * @throws NullPointerException if {@code address == null}.
+     */
+    public synchronized boolean setSignalStrength(XBee64BitAddress address, int rssi) {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+
+        TopologyNode node = nodes.get(address);
+        if (node == null)
+            return false;
+        if (node.getSignalStrength() != rssi)
+            update(new TopologyNode(address, node.get16BitAddress(), node.getNodeID(), node.getRole(),
+                    node.getLastSeen(), rssi, node.getMissedDiscoveries()));
+        return true;
+    }
+
+    /**
+     * Removes all the nodes from the cache and from the network of the
+     * device.
+     *
+     * <p>The file is not modified until the next {@link #save()}.</p>
+     */
+    public synchronized void clear() {
+        Iterator<TopologyNode> iterator = nodes.values().iterator();
+        while (iterator.hasNext()) {
+            TopologyNode node = iterator.next();
+            iterator.remove();
+            remove(node);
+        }
+        seen.clear();
+    }
+
+    /**
+     * Registers the given listener.
+     *
+     * <p>The listener immediately receives the cached nodes through
+     * {@link TopologyListener#topologyLoaded(List)}, and then the changes.
+     * Listeners are called with the cache locked, so they must not
+     * block.</p>
+     *
+     * @param listener The listener to register.
+     *
+     * @throws NullPointerException if {@code listener == null}.
+     *
+     * @see #removeTopologyListener(TopologyListener)
+     */
+    public synchronized void addTopologyListener(TopologyListener listener) {
+        if (listener == null)
+            throw new NullPointerException("Listener cannot be null.");
+
+        if (listeners.contains(listener))
+            return;
+        listeners.add(listener);
+        listener.topologyLoaded(getNodes());
+    }
+
+    /**
+     * Unregisters the given listener.
+     *
+     * @param listener The listener to unregister.
+     *
+     * @see #addTopologyListener(TopologyListener)
+     */
+    public synchronized void removeTopologyListener(TopologyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the maximum time a node is kept without being seen.
+     *
+     * @param maxAge The maximum age in milliseconds, or
+     *               {@link #NO_MAX_AGE} to only age out nodes by missed
+     *               discoveries.
+     *
+     * @throws IllegalArgumentException if {@code maxAge < 0} and
+     *                                  {@code maxAge != NO_MAX_AGE}.
+     *
+     * @see #getMaxAge()
+     */
+    public synchronized void setMaxAge(long maxAge) {
+        if (maxAge < 0 && maxAge != NO_MAX_AGE)
+            throw new IllegalArgumentException("Maximum age must be greater than or equal to 0.");
+
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the maximum time a node is kept without being seen.
+     *
+     * @return The maximum age in milliseconds, or {@link #NO_MAX_AGE}.
+     *
+     * @see #setMaxAge(long)
+     */
+    public synchronized long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the number of consecutive discoveries a node can miss before it
+     * is removed.
+     *
+     * @param maxMissedDiscoveries The maximum number of missed discoveries.
+     *
+     * @throws IllegalArgumentException if {@code maxMissedDiscoveries < 1}.
+     *
+     * @see #getMaxMissedDiscoveries()
+     */
+    public synchronized void setMaxMissedDiscoveries(int maxMissedDiscoveries) {
+        if (maxMissedDiscoveries < 1)
+            throw new IllegalArgumentException("Maximum missed discoveries must be greater than 0.");
+
+        this.maxMissedDiscoveries = maxMissedDiscoveries;
+    }
+
+    /**
+     * Returns the number of consecutive discoveries a node can miss before
+     * it is removed.
+     *
+     * @return The maximum number of missed discoveries.
+     *
+     * @see #setMaxMissedDiscoveries(int)
+     */
+    public synchronized int getMaxMissedDiscoveries() {
+        return maxMissedDiscoveries;
+    }
+
+    /**
+     * Stops listening to the discoveries of the device network. The cached
+     * nodes are kept.
+     */
+    public void close() {
+        network.removeDiscoveryListener(discoveryListener);
+    }
+
+    /**
+     * Refreshes or adds the given discovered device.
+     *
+     * @param remoteDevice The discovered device.
+     * @param now The current time in milliseconds.
+     */
+    private synchronized void nodeDiscovered(RemoteXBeeDevice remoteDevice, long now) {
+        XBee64BitAddress address = remoteDevice.get64BitAddress();
+        XBee16BitAddress address16 = remoteDevice.get16BitAddress();
+        String nodeID = remoteDevice.getNodeID();
+        TopologyNode old = nodes.get(address);
+
+        TopologyNode.Role role = old == null ? TopologyNode.Role.UNKNOWN : old.getRole();
+        if (device.getXBeeProtocol() == XBeeProtocol.ZIGBEE && XBee16BitAddress.COORDINATOR_ADDRESS.equals(address16))
+            role = TopologyNode.Role.COORDINATOR;
+        int rssi = old == null ? TopologyNode.UNKNOWN_SIGNAL_STRENGTH : old.getSignalStrength();
+
+        TopologyNode node = new TopologyNode(address, address16, nodeID, role, now, rssi, 0);
+        seen.add(address);
+        if (old == null) {
+            nodes.put(address, node);
+            for (TopologyListener listener : listeners)
+                listener.nodeAdded(node);
+        } else if (!equals(old.get16BitAddress(), address16) || !equals(old.getNodeID(), nodeID)
+                || old.getRole() != role) {
+            update(node);
+        } else {
+            // Only the last seen time changes, nothing to notify.
+            nodes.put(address, node);
+        }
+    }
+
+    /**
+     * Ages out the nodes that were not found during the finished discovery.
+     *
+     * @param successful {@code true} if the discovery finished without
+     *                   errors and ran for the whole node discovery time,
+     *                   {@code false} otherwise.
+     * @param now The current time in milliseconds.
+     */
+    private synchronized void discoveryCompleted(boolean successful, long now) {
+        // A failed or partial discovery says nothing about the nodes it did
+        // not find.
+        if (!successful) {
+            seen.clear();
+            return;
+        }
+
+        Iterator<TopologyNode> iterator = nodes.values().iterator();
+        List<TopologyNode> missed = new ArrayList<TopologyNode>();
+        while (iterator.hasNext()) {
+            TopologyNode node = iterator.next();
+            if (seen.contains(node.get64BitAddress()))
+                continue;
+            TopologyNode aged = new TopologyNode(node.get64BitAddress(), node.get16BitAddress(),
+                    node.getNodeID(), node.getRole(), node.getLastSeen(), node.getSignalStrength(),
+                    node.getMissedDiscoveries() + 1);
+            if (aged.getMissedDiscoveries() >= maxMissedDiscoveries || isExpired(aged, now)) {
+                iterator.remove();
+                remove(aged);
+            } else {
+                missed.add(aged);
+            }
+        }
+        for (TopologyNode node : missed)
+            nodes.put(node.get64BitAddress(), node);
+        seen.clear();
+    }
+
+    /**
+     * Replaces a cached node and notifies the listeners.
+     *
+     * @param node The new node values.
+     */
+    private void update(TopologyNode node) {
+        nodes.put(node.get64BitAddress(), node);
+        for (TopologyListener listener : listeners)
+            listener.nodeUpdated(node);
+    }
+
+    /**
+     * Removes a node already removed from the cache from the network and
+     * notifies the listeners.
+     *
+     * @param node The removed node.
+     */
+    private void remove(TopologyNode node) {
+        RemoteXBeeDevice remoteDevice = network.getDevice(node.get64BitAddress());
+        if (remoteDevice != null)
+            network.removeRemoteDevice(remoteDevice);
+        for (TopologyListener listener : listeners)
+            listener.nodeRemoved(node);
+    }
+
+    /**
+     * Returns whether the given node has not been seen for longer than the
+     * maximum age.
+     *
+     * @param node The node to check.
+     * @param now The current time in milliseconds.
+     *
+     * @return {@code true} if the node has expired, {@code false}
+     *         otherwise.
+     */
+    private boolean isExpired(TopologyNode node, long now) {
+        return maxAge != NO_MAX_AGE && now - node.getLastSeen() > maxAge;
+    }
+
+    /**
+     * Reads the nodes stored in the cache file.
+     *
+     * @return The stored nodes, empty if the file does not exist.
+     *
+     * @throws IOException if the file cannot be read or is not valid.
+     */
+    private List<TopologyNode> read() throws IOException {
+        List<TopologyNode> stored = new ArrayList<TopologyNode>();
+        if (!file.exists())
+            return stored;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != FILE_MAGIC)
+                throw new IOException(file + " is not a topology cache file.");
+            int version = in.readInt();
+            if (version != FILE_VERSION)
+                throw new IOException("Unsupported topology cache version " + version + ".");
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                XBee64BitAddress address = new XBee64BitAddress(in.readUTF());
+                String address16 = readOptionalString(in);
+                String nodeID = readOptionalString(in);
+                TopologyNode.Role role = TopologyNode.Role.valueOf(in.readUTF());
+                stored.add(new TopologyNode(address,
+                        address16 == null ? null : new XBee16BitAddress(address16),
+                        nodeID, role, in.readLong(), in.readInt(), in.readInt()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid topology cache entry: " + e.getMessage());
+        } finally {
+            in.close();
+        }
+        return stored;
+    }
+
+    /**
+     * Writes a string that may be {@code null}.
+     *
+     * @param out The stream to write to.
+     * @param value The string to write.
+     *
+     * @throws IOException if the string cannot be written.
+     */
+    private static void writeOptionalString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    /**
+     * Reads a string written by
+     * {@link #writeOptionalString(DataOutputStream, String)}.
+     *
+     * @param in The stream to read from.
+     *
+     * @return The read string, may be {@code null}.
+     *
+     * @throws IOException if the string cannot be read.
+     */
+    private static String readOptionalString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Returns whether two objects that may be {@code null} are equal.
+     *
+     * @param a The first object.
+     * @param b The second object.
+     *
+     * @return {@code true} if both objects are equal, {@code false}
+     *         otherwise.
+     */
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.List;
+
+/**
+ * This interface is used as a listener to be notified about the changes of
+ * the nodes stored in a {@link TopologyCache}.
+ *
+ * <p>A listener first receives the whole cached set through
+ * {@link #topologyLoaded(List)} and then only the differences found by the
+ * following discoveries.</p>
+ *
+ * @see TopologyCache
+ */
+public interface TopologyListener {
+
+    /**
+     * This method is called once when the listener is registered, with the
+     * nodes known at that moment.
+     *
+     * @param nodes The cached nodes.
+     */
+    public void topologyLoaded(List<TopologyNode> nodes);
+
+    /**
+     * This method is called when a discovery finds a node that was not
+     * cached.
+     *
+     * @param node The new node.
+     */
+    public void nodeAdded(TopologyNode node);
+
+    /**
+     * This method is called when the addresses, node identifier, role or
+     * signal strength of a cached node change.
+     *
+     * @param node The updated node.
+     */
+    public void nodeUpdated(TopologyNode node);
+
+    /**
+     * This method is called when a node ages out of the cache.
+     *
+     * @param node The removed node.
+     */
+    public void nodeRemoved(TopologyNode node);
+}
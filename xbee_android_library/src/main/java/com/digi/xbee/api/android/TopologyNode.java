@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import java.util.Locale;
+
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+/**
+ * This class is a snapshot of a remote node stored in a
+ * {@link TopologyCache}.
+ *
+ * @see TopologyCache
+ * @see TopologyListener
+ */
+public class TopologyNode {
+
+    // Constants.
+    /**
+     * Signal strength value of the nodes whose RSSI is unknown.
+     */
+    public static final int UNKNOWN_SIGNAL_STRENGTH = Integer.MIN_VALUE;
+
+    /**
+     * Enumerates the roles of a node in the network.
+     */
+    public enum Role {
+        COORDINATOR,
+        ROUTER,
+        END_DEVICE,
+        UNKNOWN
+    }
+
+    // Variables.
+    private final XBee64BitAddress address64;
+    private final XBee16BitAddress address16;
+
+    private final String nodeID;
+
+    private final Role role;
+
+    private final long lastSeen;
+
+    private final int signalStrength;
+    private final int missedDiscoveries;
+
+    /**
+     * Class constructor. Instantiates a new {@code TopologyNode} object
+     * with the given values.
+     *
+     * @param address64 The 64-bit address of the node.
+     * @param address16 The 16-bit address of the node, may be {@code null}.
+     * @param nodeID The node identifier, may be {@code null}.
+     * @param role The role of the node.
+     * @param lastSeen The last time the node was seen, in milliseconds
+     *                 since the epoch.
+     * @param signalStrength The last RSSI of the node in dBm, or
+     *                       {@link #UNKNOWN_SIGNAL_STRENGTH}.
+     * @param missedDiscoveries The number of consecutive discoveries that
+     *                          did not find the node.
+     */
+    TopologyNode(XBee64BitAddress address64, XBee16BitAddress address16, String nodeID,
+            Role role, long lastSeen, int signalStrength, int missedDiscoveries) {
+        this.address64 = address64;
+        this.address16 = address16;
+        this.nodeID = nodeID;
+        this.role = role;
+        this.lastSeen = lastSeen;
+        this.signalStrength = signalStrength;
+        this.missedDiscoveries = missedDiscoveries;
+    }
+
+    /**
+     * Returns the 64-bit address of the node.
+     *
+     * @return The 64-bit address.
+     */
+    public XBee64BitAddress get64BitAddress() {
+        return address64;
+    }
+
+    /**
+     * Returns the 16-bit address of the node.
+     *
+     * @return The 16-bit address, {@code null} if it is unknown.
+     */
+    public XBee16BitAddress get16BitAddress() {
+        return address16;
+    }
+
+    /**
+     * Returns the node identifier.
+     *
+     * @return The node identifier, {@code null} if it is unknown.
+     */
+    public String getNodeID() {
+        return nodeID;
+    }
+
+    /**
+     * Returns the role of the node in the network.
+     *
+     * @return The role of the node.
+     */
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * Returns the last time the node was discovered.
+     *
+     * @return The last time the node was seen, in milliseconds since the
+     *         epoch.
+     */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Returns the last known signal strength of the node.
+     *
+     * @return The RSSI in dBm, {@link #UNKNOWN_SIGNAL_STRENGTH} if it is
+     *         unknown.
+     */
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+
+    /**
+     * Returns the number of consecutive discoveries that did not find the
+     * node.
+     *
+     * @return The number of missed discoveries.
+     */
+    public int getMissedDiscoveries() {
+        return missedDiscoveries;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s - %s (%s)", address64, nodeID == null ? "" : nodeID, role);
+    }
+}
@@ -19,6 +19,13 @@ import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.hardware.usb.UsbDevice;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.ConnectionFutureListener;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
 import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
 import com.digi.xbee.api.android.connection.usb.AndroidUSBPermissionListener;
 import com.digi.xbee.api.android.connection.bluetooth.AndroidBluetoothInterface;
@@ -26,6 +33,7 @@ import com.digi.xbee.api.android.connection.serial.SerialPortDigiAndroid;
 import com.digi.xbee.api.connection.IConnectionInterface;
 import com.digi.xbee.api.connection.bluetooth.AbstractBluetoothInterface;
 import com.digi.xbee.api.connection.serial.SerialPortParameters;
+import com.digi.xbee.api.exceptions.XBeeException;
 
 public class XBee {
     /**
@@ -213,4 +221,113 @@ public class XBee {
     public static AbstractBluetoothInterface createConnectionInterface(Context context, String deviceAddress) {
         return new AndroidBluetoothInterface(context, deviceAddress);
     }
+
+    /**
+     * Returns a snapshot of the traffic statistics of the given connection
+     * interface.
+     *
+     * @param connectionInterface The connection interface.
+     *
+     * @return The traffic statistics, {@code null} if the connection
+     *         interface does not report statistics.
+     *
+     * @see com.digi.xbee.api.android.connection.TransportStatistics
+     * @see com.digi.xbee.api.android.connection.TransportStatisticsProvider
+     */
+    public static TransportStatistics getTransportStatistics(IConnectionInterface connectionInterface) {
+        if (connectionInterface instanceof TransportStatisticsProvider)
+            return ((TransportStatisticsProvider) connectionInterface).getTransportStatistics();
+        return null;
+    }
+
+    /**
+     * Opens the connection with the given local XBee device without blocking
+     * the calling thread.
+     *
+     * <p>If the device uses the Android USB host interface and the user has
+     * to grant the USB permissions, no thread waits for the answer. Once
+     * they are granted, the device is opened in a background thread and the
+     * returned future completes when it is ready to use.</p>
+     *
+     * <p>The future fails with the {@code XBeeException} that prevented the
+     * device from opening. Cancelling the future withdraws the pending open,
+     * closing the device if it was already open. The same happens when the
+     * {@linkplain AndroidUSBInterface#setOpenTimeout(long) open timeout} of
+     * the USB interface expires, the future then fails with a
+     * {@code TimeoutException}.</p>
+     *
+     * @param device The local XBee device to open.
+     *
+     * @return The future of the open operation, whose result is the given
+     *         device.
+     *
+     * @throws NullPointerException if {@code device == null}.
+     *
+     * @see com.digi.xbee.api.android.connection.ConnectionFuture
+     * @see com.digi.xbee.api.android.connection.usb.AndroidUSBInterface#requestPermissionAsync()
+     */
+    public static <T extends com.digi.xbee.api.XBeeDevice> ConnectionFuture<T> openAsync(final T device) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+
+        final ConnectionFuture<T> future = new ConnectionFuture<T>();
+        IConnectionInterface connectionInterface = device.getConnectionInterface();
+        if (!(connectionInterface instanceof AndroidUSBInterface)) {
+            openInBackground(device, future);
+            return future;
+        }
+        // Wait for the USB permissions without blocking any thread.
+        AndroidUSBInterface usbInterface = (AndroidUSBInterface) connectionInterface;
+        final ConnectionFuture<UsbDevice> permission = usbInterface.requestPermissionAsync();
+        future.setCancelHandler(new Runnable() {
+            @Override
+            public void run() {
+                permission.cancel(false);
+            }
+        });
+        if (usbInterface.getOpenTimeout() > 0)
+            future.setTimeout(usbInterface.getOpenTimeout(), TimeUnit.MILLISECONDS);
+        permission.addListener(new ConnectionFutureListener<UsbDevice>() {
+            @Override
+            public void operationCompleted(ConnectionFuture<UsbDevice> permissionResult) {
+                if (permissionResult.isCancelled())
+                    future.cancel(false);
+                else if (permissionResult.getException() != null)
+                    future.fail(permissionResult.getException());
+                else
+                    openInBackground(device, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Opens the given device in the shared pool of {@link XBeeAsyncDevice}
+     * and completes the given future with the result.
+     *
+     * @param device The local XBee device to open.
+     * @param future The future of the open operation.
+     */
+    private static <T extends com.digi.xbee.api.XBeeDevice> void openInBackground(final T device, final ConnectionFuture<T> future) {
+        if (future.isDone())
+            return;
+        try {
+            XBeeAsyncDevice.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        device.open();
+                    } catch (XBeeException e) {
+                        future.fail(e);
+                        return;
+                    }
+                    // The open may have been cancelled meanwhile.
+                    if (!future.complete(device))
+                        device.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.fail(new XBeeException("Too many pending operations.", e));
+        }
+    }
 }
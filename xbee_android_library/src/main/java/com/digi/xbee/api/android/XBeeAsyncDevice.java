@@ -0,0 +1,527 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.digi.xbee.api.AbstractXBeeDevice;
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.ConnectionFutureListener;
+import com.digi.xbee.api.exceptions.OperationNotSupportedException;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.models.XBeeLocalInterface;
+
+/**
+ * This class offers the blocking operations of a local XBee device as
+ * asynchronous operations that return a {@link ConnectionFuture}.
+ *
+ * <p>It can wrap any local device, such as {@link XBeeDevice}, its
+ * protocol subclasses or {@link XBeeBLEDevice}. The operations of all the
+ * instances are executed in a shared pool of at most {@link #MAX_THREADS}
+ * threads, so no thread is created per call. Up to
+ * {@link #MAX_PENDING_OPERATIONS} operations can wait for a free thread,
+ * further operations fail right away.</p>
+ *
+ * <p>Every operation can be cancelled through its future, which interrupts
+ * the worker thread if {@code mayInterruptIfRunning} is {@code true}, and
+ * expires after the timeout configured with
+ * {@link #setTimeout(long)}. The results can be delivered in a given
+ * {@link Looper}, for instance the Android main thread, with
+ * {@link #setCallbackLooper(Looper)}.</p>
+ *
+ * @see ConnectionFuture
+ * @see XBeeOperation
+ */
+public class XBeeAsyncDevice {
+
+    // Constants.
+    /**
+     * Maximum number of threads executing operations.
+     */
+    public static final int MAX_THREADS = 4;
+
+    /**
+     * Maximum number of operations waiting for a free thread.
+     */
+    public static final int MAX_PENDING_OPERATIONS = 64;
+
+    private static final long KEEP_ALIVE_TIME = 30000;
+
+    private static final ThreadPoolExecutor WORKERS;
+    private static final ScheduledThreadPoolExecutor DEADLINES;
+
+    private static final Executor SHARED_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            WORKERS.execute(command);
+        }
+    };
+
+    static {
+        final AtomicInteger threadCount = new AtomicInteger();
+        WORKERS = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_PENDING_OPERATIONS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "XBee worker " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        WORKERS.allowCoreThreadTimeOut(true);
+
+        DEADLINES = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "XBee deadlines");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    // Variables.
+    private final AbstractXBeeDevice device;
+
+    private volatile long timeout = 0;
+
+    private volatile Executor callbackExecutor;
+
+    /**
+     * Class constructor. Instantiates a new {@code XBeeAsyncDevice} object
+     * for the given local XBee device.
+     *
+     * @param device The local XBee device.
+     *
+     * @throws IllegalArgumentException if the device is remote.
+     * @throws NullPointerException if {@code device == null}.
+     */
+    public XBeeAsyncDevice(AbstractXBeeDevice device) {
+        if (device == null)
+            throw new NullPointerException("XBee device cannot be null.");
+        if (device.isRemote())
+            throw new IllegalArgumentException("XBee device must be local.");
+
+        this.device = device;
+    }
+
+    /**
+     * Returns the shared executor that runs the operations.
+     *
+     * <p>It can be used to chain blocking steps with
+     * {@link ConnectionFuture#then(com.digi.xbee.api.android.connection.ConnectionFutureFunction, Executor)}.
+     * It rejects the tasks when {@link #MAX_PENDING_OPERATIONS} are already
+     * waiting.</p>
+     *
+     * @return The shared executor.
+     */
+    public static Executor getExecutor() {
+        return SHARED_EXECUTOR;
+    }
+
+    /**
+     * Returns the shared single thread scheduler used for the operation
+     * deadlines. Scheduled tasks must be short and must not block.
+     *
+     * @return The shared scheduler.
+     */
+    static ScheduledExecutorService getScheduler() {
+        return DEADLINES;
+    }
+
+    /**
+     * Returns the wrapped XBee device.
+     *
+     * @return The XBee device.
+     */
+    public AbstractXBeeDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Sets the maximum time operations can take.
+     *
+     * <p>When the timeout expires, the future of the operation fails with a
+     * {@code TimeoutException} and the worker thread is interrupted. The
+     * timeout counts from the moment the operation is submitted, so it
+     * includes the time waiting for a free thread.</p>
+     *
+     * @param timeout The timeout in milliseconds, {@code 0} for no timeout.
+     *
+     * @throws IllegalArgumentException if {@code timeout < 0}.
+     *
+     * @see #getTimeout()
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("Timeout cannot be less than 0.");
+
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the maximum time operations can take.
+     *
+     * @return The timeout in milliseconds, {@code 0} for no timeout.
+     *
+     * @see #setTimeout(long)
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the looper the operation results are delivered in.
+     *
+     * <p>The futures of the next operations are completed, and their
+     * listeners notified, in the given looper. Do not wait for those
+     * futures from the looper thread, the result could never arrive.</p>
+     *
+     * @param looper The looper, {@code null} to deliver the results in the
+     *               worker threads.
+     *
+     * @see #setCallbackExecutor(Executor)
+     */
+    public void setCallbackLooper(Looper looper) {
+        if (looper == null) {
+            callbackExecutor = null;
+            return;
+        }
+        final Handler handler = new Handler(looper);
+        callbackExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    /**
+     * Sets the executor the operation results are delivered in.
+     *
+     * @param executor The executor, {@code null} to deliver the results in
+     *                 the worker threads.
+     *
+     * @see #setCallbackLooper(Looper)
+     */
+    public void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * Opens the connection with the XBee device.
+     *
+     * <p>The future fails with an {@code OperationNotSupportedException} if
+     * the wrapped device is neither a {@code com.digi.xbee.api.XBeeDevice}
+     * nor an {@link XBeeBLEDevice}.</p>
+     *
+     * @return The future of the operation.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#open()
+     * @see XBeeBLEDevice#open()
+     */
+    public ConnectionFuture<Void> open() {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                if (device instanceof XBeeBLEDevice)
+                    ((XBeeBLEDevice) device).open();
+                else
+                    getXBeeDevice().open();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Reads the value of the given AT parameter.
+     *
+     * @param parameter The AT command of the parameter.
+     *
+     * @return The future of the parameter value.
+     *
+     * @see AbstractXBeeDevice#getParameter(String)
+     */
+    public ConnectionFuture<byte[]> getParameter(final String parameter) {
+        return submit(new XBeeOperation<byte[]>() {
+            @Override
+            public byte[] execute() throws XBeeException {
+                return device.getParameter(parameter);
+            }
+        });
+    }
+
+    /**
+     * Sets the value of the given AT parameter.
+     *
+     * @param parameter The AT command of the parameter.
+     * @param value The new value.
+     *
+     * @return The future of the operation.
+     *
+     * @see AbstractXBeeDevice#setParameter(String, byte[])
+     */
+    public ConnectionFuture<Void> setParameter(final String parameter, final byte[] value) {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                device.setParameter(parameter, value);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Executes the given AT command.
+     *
+     * @param parameter The AT command to execute.
+     *
+     * @return The future of the operation.
+     *
+     * @see AbstractXBeeDevice#executeParameter(String)
+     */
+    public ConnectionFuture<Void> executeParameter(final String parameter) {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                device.executeParameter(parameter);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Reads the device information of the XBee device.
+     *
+     * <p>The future result is the wrapped device, with the information
+     * already read.</p>
+     *
+     * @return The future of the operation.
+     *
+     * @see AbstractXBeeDevice#readDeviceInfo()
+     */
+    public ConnectionFuture<AbstractXBeeDevice> readDeviceInfo() {
+        return submit(new XBeeOperation<AbstractXBeeDevice>() {
+            @Override
+            public AbstractXBeeDevice execute() throws XBeeException {
+                device.readDeviceInfo();
+                return device;
+            }
+        });
+    }
+
+    /**
+     * Sends the given data to the given remote device and waits for the
+     * transmit status.
+     *
+     * <p>The future fails with an {@code OperationNotSupportedException} if
+     * the wrapped device is not a {@code com.digi.xbee.api.XBeeDevice}.</p>
+     *
+     * @param remoteDevice The remote device to send data to.
+     * @param data The data to send.
+     *
+     * @return The future of the operation.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#sendData(RemoteXBeeDevice, byte[])
+     */
+    public ConnectionFuture<Void> sendData(final RemoteXBeeDevice remoteDevice, final byte[] data) {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                getXBeeDevice().sendData(remoteDevice, data);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Sends the given data to all the devices of the network.
+     *
+     * <p>The future fails with an {@code OperationNotSupportedException} if
+     * the wrapped device is not a {@code com.digi.xbee.api.XBeeDevice}.</p>
+     *
+     * @param data The data to send.
+     *
+     * @return The future of the operation.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#sendBroadcastData(byte[])
+     */
+    public ConnectionFuture<Void> sendBroadcastData(final byte[] data) {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                getXBeeDevice().sendBroadcastData(data);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Sends the given data to the given XBee local interface.
+     *
+     * @param destInterface The destination interface.
+     * @param data The data to send.
+     *
+     * @return The future of the operation.
+     *
+     * @see com.digi.xbee.api.XBeeDevice#sendUserDataRelay(XBeeLocalInterface, byte[])
+     * @see XBeeBLEDevice#sendUserDataRelay(XBeeLocalInterface, byte[])
+     */
+    public ConnectionFuture<Void> sendUserDataRelay(final XBeeLocalInterface destInterface, final byte[] data) {
+        return submit(new XBeeOperation<Void>() {
+            @Override
+            public Void execute() throws XBeeException {
+                if (device instanceof XBeeBLEDevice)
+                    ((XBeeBLEDevice) device).sendUserDataRelay(destInterface, data);
+                else
+                    getXBeeDevice().sendUserDataRelay(destInterface, data);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Executes the given operation in the shared pool of threads.
+     *
+     * @param operation The operation to execute.
+     *
+     * @return The future of the operation.
+     *
+     * @throws NullPointerException if {@code operation == null}.
+     *
+     * @see XBeeOperation
+     */
+    public <V> ConnectionFuture<V> submit(final XBeeOperation<V> operation) {
+        if (operation == null)
+            throw new NullPointerException("Operation cannot be null.");
+
+        final ConnectionFuture<V> future = new ConnectionFuture<V>();
+        final Executor callbacks = callbackExecutor;
+        final Future<?> task;
+        try {
+            task = WORKERS.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone())
+                        return;
+                    try {
+                        deliver(future, operation.execute(), null, callbacks);
+                    } catch (XBeeException e) {
+                        deliver(future, null, e, callbacks);
+                    } catch (RuntimeException e) {
+                        deliver(future, null, new XBeeException("Error executing the operation.", e), callbacks);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            deliver(future, null, new XBeeException("Too many pending operations.", e), callbacks);
+            return future;
+        }
+
+        final ScheduledFuture<?> deadline;
+        final long operationTimeout = timeout;
+        if (operationTimeout > 0) {
+            deadline = DEADLINES.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // Fail before interrupting, so the interrupted operation cannot win.
+                    deliver(future, null, new TimeoutException("Operation not completed in " + operationTimeout + " ms."), callbacks);
+                    task.cancel(true);
+                }
+            }, operationTimeout, TimeUnit.MILLISECONDS);
+        } else {
+            deadline = null;
+        }
+
+        future.setCancelHandler(new Runnable() {
+            @Override
+            public void run() {
+                task.cancel(future.isInterruptRequested());
+            }
+        });
+        if (deadline != null) {
+            future.addListener(new ConnectionFutureListener<V>() {
+                @Override
+                public void operationCompleted(ConnectionFuture<V> finished) {
+                    deadline.cancel(false);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Returns the wrapped device as a {@code com.digi.xbee.api.XBeeDevice}.
+     *
+     * @return The wrapped device.
+     *
+     * @throws OperationNotSupportedException if the wrapped device is not a
+     *                                        {@code XBeeDevice}.
+     */
+    private com.digi.xbee.api.XBeeDevice getXBeeDevice() throws OperationNotSupportedException {
+        if (!(device instanceof com.digi.xbee.api.XBeeDevice))
+            throw new OperationNotSupportedException("Operation not supported by " + device.getClass().getSimpleName() + ".");
+        return (com.digi.xbee.api.XBeeDevice) device;
+    }
+
+    /**
+     * Completes the given future with the given result or error, in the
+     * given executor if any.
+     *
+     * @param future The future to complete.
+     * @param result The operation result.
+     * @param exception The operation error, {@code null} if it succeeded.
+     * @param callbacks The executor to complete the future in, {@code null}
+     *                  to complete it in the calling thread.
+     */
+    private static <V> void deliver(final ConnectionFuture<V> future, final V result,
+            final XBeeException exception, Executor callbacks) {
+        Runnable completion = new Runnable() {
+            @Override
+            public void run() {
+                if (exception != null)
+                    future.fail(exception);
+                else
+                    future.complete(result);
+            }
+        };
+        if (callbacks == null) {
+            completion.run();
+            return;
+        }
+        try {
+            callbacks.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+}
@@ -19,6 +19,7 @@ import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 
 import com.digi.xbee.api.AbstractXBeeDevice;
+import com.digi.xbee.api.android.connection.TransportStatistics;
 import com.digi.xbee.api.exceptions.TimeoutException;
 import com.digi.xbee.api.exceptions.XBeeException;
 import com.digi.xbee.api.listeners.IPacketReceiveListener;
@@ -200,6 +201,19 @@ public class XBeeBLEDevice extends AbstractXBeeDevice {
         super.setBluetoothPassword(password);
     }
 
+    /**
+     * Returns a snapshot of the traffic statistics of this device
+     * connection interface.
+     *
+     * @return The traffic statistics, {@code null} if the connection
+     *         interface does not report statistics.
+     *
+     * @see TransportStatistics
+     */
+    public TransportStatistics getTransportStatistics() {
+        return XBee.getTransportStatistics(getConnectionInterface());
+    }
+
     @Override
     public String toString() {
         return super.toString();
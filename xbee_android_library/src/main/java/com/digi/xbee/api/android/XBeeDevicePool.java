@@ -0,0 +1,603 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import android.content.Context;
+import android.hardware.usb.UsbDevice;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.XBeeDevice;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.listeners.IDataReceiveListener;
+import com.digi.xbee.api.listeners.IPacketReceiveListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeMessage;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.utils.HexUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents a pool of local XBee devices attached to the same
+ * Android device and joined to the same network.
+ *
+ * <p>The pool opens one XBee device per USB dongle, or per port in
+ * multi-port bridges, and spreads the transmissions among them, so the
+ * aggregate throughput grows with the number of radios. The data and
+ * packets received by any of the devices are delivered to the listeners
+ * registered in the pool.</p>
+ *
+ * <p>A broadcast reaches every device of the pool, so the data listeners
+ * receive it once: the copies received by other devices within
+ * {@link #BROADCAST_DUPLICATE_WINDOW} milliseconds, with the same source
+ * and data, are dropped. The packet listeners receive every packet of
+ * every device, copies included.</p>
+ *
+ * <p>Methods of this class that open devices or send data must be called
+ * from a thread different than the UI.</p>
+ */
+public class XBeeDevicePool {
+
+    /**
+     * Policies used to choose the device that sends each transmission.
+     */
+    public enum BalancingPolicy {
+        /** The devices are used in turns. */
+        ROUND_ROBIN,
+        /** The device with the fewest pending transmissions is used. */
+        QUEUE_DEPTH
+    }
+
+    // Constants.
+    /**
+     * Time during which a broadcast received by a device of the pool is
+     * considered a copy of the same broadcast received by another device,
+     * in milliseconds.
+     */
+    public static final long BROADCAST_DUPLICATE_WINDOW = 250;
+
+    // Variables.
+    private final Context context;
+    private final int baudRate;
+
+    private final List<XBeeDevice> devices = new ArrayList<>();
+    private final List<XBeeDevice> openDevices = new CopyOnWriteArrayList<>();
+
+    private final Map<XBeeDevice, AtomicInteger> pendingTransmissions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextDevice = new AtomicInteger();
+
+    private final List<IDataReceiveListener> dataListeners = new CopyOnWriteArrayList<>();
+    private final List<IPacketReceiveListener> packetListeners = new CopyOnWriteArrayList<>();
+
+    private volatile BalancingPolicy balancingPolicy = BalancingPolicy.QUEUE_DEPTH;
+
+    private final Map<XBeeDevice, IDataReceiveListener> dataForwarders = new ConcurrentHashMap<>();
+    private final Map<String, RecentBroadcast> recentBroadcasts = new LinkedHashMap<>();
+
+    private final IPacketReceiveListener packetForwarder = new IPacketReceiveListener() {
+        @Override
+        public void packetReceived(XBeePacket receivedPacket) {
+            for (IPacketReceiveListener listener : packetListeners)
+                listener.packetReceived(receivedPacket);
+        }
+    };
+
+    private Logger logger;
+
+    /**
+     * Class constructor. Instantiates a new {@code XBeeDevicePool} object
+     * that uses every compatible USB device attached when it is opened.
+     *
+     * @param context The Android context.
+     * @param baudRate The USB connection baud rate.
+     *
+     * @throws IllegalArgumentException if {@code baudRate < 1}.
+     * @throws NullPointerException if {@code context == null}.
+     *
+     * @see #XBeeDevicePool(Context, int, List)
+     * @see #XBeeDevicePool(List)
+     * @see AndroidUSBInterface#findDevices(Context)
+     */
+    public XBeeDevicePool(Context context, int baudRate) {
+        this(context, baudRate, null);
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code XBeeDevicePool} object
+     * that uses the given USB devices.
+     *
+     * @param context The Android context.
+     * @param baudRate The USB connection baud rate.
+     * @param usbDevices The USB devices to use, {@code null} to use every
+     *                   compatible USB device attached when the pool is
+     *                   opened.
+     *
+     * @throws IllegalArgumentException if {@code baudRate < 1}.
+     * @throws NullPointerException if {@code context == null}.
+     *
+     * @see #XBeeDevicePool(Context, int)
+     * @see #XBeeDevicePool(List)
+     */
+    public XBeeDevicePool(Context context, int baudRate, List<UsbDevice> usbDevices) {
+        if (context == null)
+            throw new NullPointerException("Android context cannot be null.");
+        if (baudRate < 1)
+            throw new IllegalArgumentException("Baud rate must be greater than 0.");
+
+        this.context = context;
+        this.baudRate = baudRate;
+        this.logger = LoggerFactory.getLogger(XBeeDevicePool.class);
+        if (usbDevices != null) {
+            for (UsbDevice usbDevice : usbDevices)
+                addUSBDevice(usbDevice);
+        }
+    }
+
+    /**
+     * Class constructor. Instantiates a new {@code XBeeDevicePool} object
+     * with the given local XBee devices.
+     *
+     * @param devices The local XBee devices of the pool.
+     *
+     * @throws IllegalArgumentException if {@code devices} is empty.
+     * @throws NullPointerException if {@code devices == null} or
+     *                              if any of the devices is {@code null}.
+     *
+     * @see #XBeeDevicePool(Context, int)
+     * @see #XBeeDevicePool(Context, int, List)
+     */
+    public XBeeDevicePool(List<? extends XBeeDevice> devices) {
+        if (devices == null)
+            throw new NullPointerException("Devices cannot be null.");
+        if (devices.isEmpty())
+            throw new IllegalArgumentException("Devices cannot be empty.");
+        for (XBeeDevice device : devices) {
+            if (device == null)
+                throw new NullPointerException("Devices cannot contain null elements.");
+        }
+
+        this.context = null;
+        this.baudRate = 0;
+        this.logger = LoggerFactory.getLogger(XBeeDevicePool.class);
+        this.devices.addAll(devices);
+    }
+
+    /**
+     * Opens the devices of the pool.
+     *
+     * <p>Devices that cannot be opened are skipped, the pool works with the
+     * rest of them.</p>
+     *
+     * @throws XBeeException if none of the devices could be opened.
+     *
+     * @see #close()
+     * @see #getDevices()
+     */
+    public synchronized void open() throws XBeeException {
+        if (devices.isEmpty() && context != null) {
+            for (UsbDevice usbDevice : AndroidUSBInterface.findDevices(context))
+                addUSBDevice(usbDevice);
+        }
+
+        XBeeException lastError = null;
+        for (XBeeDevice device : devices) {
+            if (openDevices.contains(device))
+                continue;
+            try {
+                if (!device.isOpen())
+                    device.open();
+            } catch (XBeeException e) {
+                logger.warn("Could not open " + device + ": " + e.getMessage());
+                lastError = e;
+                continue;
+            }
+            pendingTransmissions.put(device, new AtomicInteger());
+            IDataReceiveListener dataForwarder = new DataForwarder(device);
+            dataForwarders.put(device, dataForwarder);
+            device.addDataListener(dataForwarder);
+            device.addPacketListener(packetForwarder);
+            openDevices.add(device);
+        }
+
+        if (openDevices.isEmpty()) {
+            if (lastError != null)
+                throw new XBeeException("None of the XBee devices of the pool could be opened.", lastError);
+            throw new XBeeException("No XBee USB device found.");
+        }
+    }
+
+    /**
+     * Closes all the devices of the pool.
+     *
+     * @see #open()
+     */
+    public synchronized void close() {
+        for (XBeeDevice device : openDevices) {
+            IDataReceiveListener dataForwarder = dataForwarders.remove(device);
+            if (dataForwarder != null)
+                device.removeDataListener(dataForwarder);
+            device.removePacketListener(packetForwarder);
+            device.close();
+        }
+        openDevices.clear();
+        pendingTransmissions.clear();
+        synchronized (recentBroadcasts) {
+            recentBroadcasts.clear();
+        }
+    }
+
+    /**
+     * Returns whether any device of the pool is open.
+     *
+     * @return {@code true} if at least one device is open, {@code false}
+     *         otherwise.
+     */
+    public boolean isOpen() {
+        for (XBeeDevice device : openDevices) {
+            if (device.isOpen())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the open devices of the pool.
+     *
+     * @return Unmodifiable list with the open devices.
+     */
+    public List<XBeeDevice> getDevices() {
+        return Collections.unmodifiableList(new ArrayList<>(openDevices));
+    }
+
+    /**
+     * Sets the policy used to choose the device that sends each
+     * transmission. The default policy is
+     * {@link BalancingPolicy#QUEUE_DEPTH}.
+     *
+     * @param balancingPolicy The balancing policy.
+     *
+     * @throws NullPointerException if {@code balancingPolicy == null}.
+     *
+     * @see #getBalancingPolicy()
+     */
+    public void setBalancingPolicy(BalancingPolicy balancingPolicy) {
+        if (balancingPolicy == null)
+            throw new NullPointerException("Balancing policy cannot be null.");
+
+        this.balancingPolicy = balancingPolicy;
+    }
+
+    /**
+     * Returns the policy used to choose the device that sends each
+     * transmission.
+     *
+     * @return The balancing policy.
+     *
+     * @see #setBalancingPolicy(BalancingPolicy)
+     */
+    public BalancingPolicy getBalancingPolicy() {
+        return balancingPolicy;
+    }
+
+    /**
+     * Sends the given data to the remote XBee device with the given 64-bit
+     * address using one of the devices of the pool, and waits for the
+     * transmit status.
+     *
+     * @param address The 64-bit address of the remote XBee device.
+     * @param data Data to send.
+     *
+     * @return The device that sent the data.
+     *
+     * @throws InterfaceNotOpenException if no device of the pool is open.
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code data == null}.
+     * @throws XBeeException if there is any error sending the data.
+     *
+     * @see #sendDataAsync(XBee64BitAddress, byte[])
+     * @see #sendBroadcastData(byte[])
+     */
+    public XBeeDevice sendData(XBee64BitAddress address, byte[] data) throws XBeeException {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+        if (data == null)
+            throw new NullPointerException("Data cannot be null.");
+
+        XBeeDevice device = selectDevice();
+        AtomicInteger pending = getPendingTransmissions(device);
+        pending.incrementAndGet();
+        try {
+            device.sendData(new RemoteXBeeDevice(device, address), data);
+        } finally {
+            pending.decrementAndGet();
+        }
+        return device;
+    }
+
+    /**
+     * Sends the given data to the remote XBee device with the given 64-bit
+     * address using one of the devices of the pool, without waiting for the
+     * transmit status.
+     *
+     * @param address The 64-bit address of the remote XBee device.
+     * @param data Data to send.
+     *
+     * @return The device that sent the data.
+     *
+     * @throws InterfaceNotOpenException if no device of the pool is open.
+     * @throws NullPointerException if {@code address == null} or
+     *                              if {@code data == null}.
+     * @throws XBeeException if there is any error sending the data.
+     *
+     * @see #sendData(XBee64BitAddress, byte[])
+     */
+    public XBeeDevice sendDataAsync(XBee64BitAddress address, byte[] data) throws XBeeException {
+        if (address == null)
+            throw new NullPointerException("Address cannot be null.");
+        if (data == null)
+            throw new NullPointerException("Data cannot be null.");
+
+        XBeeDevice device = selectDevice();
+        device.sendDataAsync(new RemoteXBeeDevice(device, address), data);
+        return device;
+    }
+
+    /**
+     * Broadcasts the given data to all the devices of the network using one
+     * of the devices of the pool.
+     *
+     * @param data Data to send.
+     *
+     * @return The device that sent the data.
+     *
+     * @throws InterfaceNotOpenException if no device of the pool is open.
+     * @throws NullPointerException if {@code data == null}.
+     * @throws XBeeException if there is any error sending the data.
+     *
+     * @see #sendData(XBee64BitAddress, byte[])
+     */
+    public XBeeDevice sendBroadcastData(byte[] data) throws XBeeException {
+        if (data == null)
+            throw new NullPointerException("Data cannot be null.");
+
+        XBeeDevice device = selectDevice();
+        AtomicInteger pending = getPendingTransmissions(device);
+        pending.incrementAndGet();
+        try {
+            device.sendBroadcastData(data);
+        } finally {
+            pending.decrementAndGet();
+        }
+        return device;
+    }
+
+    /**
+     * Adds the provided listener to the list of listeners to be notified
+     * when any device of the pool receives data.
+     *
+     * @param listener Listener to be notified.
+     *
+     * @throws NullPointerException if {@code listener == null}.
+     *
+     * @see #removeDataListener(IDataReceiveListener)
+     */
+    public void addDataListener(IDataReceiveListener listener) {
+        if (listener == null)
+            throw new NullPointerException("Listener cannot be null.");
+
+        if (!dataListeners.contains(listener))
+            dataListeners.add(listener);
+    }
+
+    /**
+     * Removes the provided listener from the list of data listeners.
+     *
+     * @param listener Listener to be removed.
+     *
+     * @see #addDataListener(IDataReceiveListener)
+     */
+    public void removeDataListener(IDataReceiveListener listener) {
+        dataListeners.remove(listener);
+    }
+
+    /**
+     * Adds the provided listener to the list of listeners to be notified
+     * when any device of the pool receives a packet.
+     *
+     * @param listener Listener to be notified.
+     *
+     * @throws NullPointerException if {@code listener == null}.
+     *
+     * @see #removePacketListener(IPacketReceiveListener)
+     */
+    public void addPacketListener(IPacketReceiveListener listener) {
+        if (listener == null)
+            throw new NullPointerException("Listener cannot be null.");
+
+        if (!packetListeners.contains(listener))
+            packetListeners.add(listener);
+    }
+
+    /**
+     * Removes the provided listener from the list of packet listeners.
+     *
+     * @param listener Listener to be removed.
+     *
+     * @see #addPacketListener(IPacketReceiveListener)
+     */
+    public void removePacketListener(IPacketReceiveListener listener) {
+        packetListeners.remove(listener);
+    }
+
+    /**
+     * Adds one XBee device for each port of the given USB device.
+     *
+     * @param usbDevice The USB device.
+     */
+    private void addUSBDevice(UsbDevice usbDevice) {
+        for (int port = 0; port < AndroidUSBInterface.getPortCount(usbDevice); port++)
+            devices.add(new com.digi.xbee.api.android.XBeeDevice(
+                    new AndroidUSBInterface(context, baudRate, usbDevice, port)));
+    }
+
+    /**
+     * Returns the device that has to send the next transmission according
+     * to the balancing policy.
+     *
+     * @return The selected device.
+     *
+     * @throws InterfaceNotOpenException if no device of the pool is open.
+     */
+    private XBeeDevice selectDevice() {
+        List<XBeeDevice> candidates = new ArrayList<>(openDevices.size());
+        for (XBeeDevice device : openDevices) {
+            if (device.isOpen())
+                candidates.add(device);
+        }
+        if (candidates.isEmpty())
+            throw new InterfaceNotOpenException();
+
+        // Start at a different device each time so ties are spread.
+        int start = (nextDevice.getAndIncrement() & Integer.MAX_VALUE) % candidates.size();
+        if (balancingPolicy == BalancingPolicy.ROUND_ROBIN)
+            return candidates.get(start);
+
+        XBeeDevice selected = null;
+        int minDepth = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            XBeeDevice device = candidates.get((start + i) % candidates.size());
+            int depth = getQueueDepth(device);
+            if (depth < minDepth) {
+                minDepth = depth;
+                selected = device;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the counter of transmissions waiting for a transmit status in
+     * the given device.
+     *
+     * @param device The selected device.
+     *
+     * @return The counter of pending transmissions.
+     *
+     * @throws InterfaceNotOpenException if the pool was closed after the
+     *                                   device was selected.
+     */
+    private AtomicInteger getPendingTransmissions(XBeeDevice device) {
+        AtomicInteger pending = pendingTransmissions.get(device);
+        if (pending == null)
+            throw new InterfaceNotOpenException();
+        return pending;
+    }
+
+    /**
+     * Returns the number of transmissions pending in the given device: the
+     * ones waiting for a transmit status and the writes queued in its
+     * connection interface.
+     */
+    private int getQueueDepth(XBeeDevice device) {
+        AtomicInteger pending = pendingTransmissions.get(device);
+        int depth = pending != null ? pending.get() : 0;
+        TransportStatistics statistics = XBee.getTransportStatistics(device.getConnectionInterface());
+        if (statistics != null)
+            depth += statistics.getWriteQueueDepth();
+        return depth;
+    }
+
+    /**
+     * Returns whether the given broadcast received by the given device is a
+     * copy of a broadcast already received by another device of the pool.
+     *
+     * <p>A broadcast received again by the same device is a new one, not a
+     * copy.</p>
+     */
+    private boolean isBroadcastCopy(XBeeDevice device, XBeeMessage message) {
+        String key = message.getDevice().get64BitAddress() + " "
+                + HexUtils.byteArrayToHexString(message.getData());
+        long now = System.nanoTime();
+        long window = TimeUnit.MILLISECONDS.toNanos(BROADCAST_DUPLICATE_WINDOW);
+        synchronized (recentBroadcasts) {
+            // The entries are kept in arrival order, so the expired ones come first.
+            Iterator<RecentBroadcast> it = recentBroadcasts.values().iterator();
+            while (it.hasNext() && now - it.next().time > window)
+                it.remove();
+
+            RecentBroadcast recent = recentBroadcasts.get(key);
+            if (recent != null && recent.devices.add(device))
+                return true;
+            recentBroadcasts.remove(key);
+            recentBroadcasts.put(key, new RecentBroadcast(device, now));
+            return false;
+        }
+    }
+
+    /**
+     * Forwards the data received by a device of the pool to the pool
+     * listeners.
+     */
+    private class DataForwarder implements IDataReceiveListener {
+
+        // Variables.
+        private final XBeeDevice device;
+
+        DataForwarder(XBeeDevice device) {
+            this.device = device;
+        }
+
+        @Override
+        public void dataReceived(XBeeMessage xbeeMessage) {
+            if (xbeeMessage.isBroadcast() && isBroadcastCopy(device, xbeeMessage))
+                return;
+            for (IDataReceiveListener listener : dataListeners)
+                listener.dataReceived(xbeeMessage);
+        }
+    }
+
+    /**
+     * A broadcast recently delivered to the pool listeners.
+     */
+    private static class RecentBroadcast {
+
+        // Variables.
+        final long time;
+        final Set<XBeeDevice> devices = new HashSet<>();
+
+        RecentBroadcast(XBeeDevice device, long time) {
+            this.time = time;
+            devices.add(device);
+        }
+    }
+}
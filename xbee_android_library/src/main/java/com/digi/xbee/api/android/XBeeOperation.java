@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android;
+
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This interface represents a blocking operation with an XBee device that
+ * can be executed in the background by {@link XBeeAsyncDevice}.
+ *
+ * @param <V> The type of the operation result.
+ *
+ * @see XBeeAsyncDevice#submit(XBeeOperation)
+ */
+public interface XBeeOperation<V> {
+
+    /**
+     * Executes the operation.
+     *
+     * <p>The operation is executed in a worker thread that is interrupted
+     * if the operation is cancelled or its deadline expires.</p>
+     *
+     * @return The operation result.
+     *
+     * @throws XBeeException if the operation fails.
+     */
+    public V execute() throws XBeeException;
+}
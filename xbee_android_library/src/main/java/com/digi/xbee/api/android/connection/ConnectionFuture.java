@@ -0,0 +1,472 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This class represents the pending result of an asynchronous connection
+ * operation, such as opening a connection interface that is waiting for
+ * the user to grant the USB permissions.
+ *
+ * <p>The result can be waited for with {@link #get(long, TimeUnit)} from a
+ * worker thread, or received without blocking with
+ * {@link #addListener(ConnectionFutureListener)}. Failures are reported as
+ * an {@code ExecutionException} whose cause is the {@code XBeeException}
+ * of the operation.</p>
+ *
+ * <p>Operations can be chained with {@link #then(ConnectionFutureFunction)}
+ * without waiting for the intermediate results, and bounded in time with
+ * {@link #setTimeout(long, TimeUnit)}.</p>
+ *
+ * @param <V> The type of the operation result.
+ *
+ * @see ConnectionFutureFunction
+ * @see ConnectionFutureListener
+ */
+public class ConnectionFuture<V> implements Future<V> {
+
+	// Variables.
+	private static ScheduledExecutorService timeoutScheduler;
+
+	private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+	private final List<ConnectionFutureListener<V>> listeners = new CopyOnWriteArrayList<ConnectionFutureListener<V>>();
+
+	private boolean done = false;
+	private boolean cancelled = false;
+	private boolean interruptRequested = false;
+
+	private V result;
+
+	private XBeeException exception;
+
+	private Runnable cancelHandler;
+
+	private ScheduledFuture<?> timeoutTask;
+
+	/**
+	 * Completes the operation with the given result.
+	 *
+	 * <p>Used by the implementations of the asynchronous operations.</p>
+	 *
+	 * @param result The operation result.
+	 *
+	 * @return {@code true} if the operation has been completed,
+	 *         {@code false} if it was already done or cancelled.
+	 *
+	 * @see #fail(XBeeException)
+	 */
+	public boolean complete(V result) {
+		synchronized (this) {
+			if (done)
+				return false;
+			this.result = result;
+			done = true;
+		}
+		finish();
+		return true;
+	}
+
+	/**
+	 * Completes the operation with the given error.
+	 *
+	 * <p>Used by the implementations of the asynchronous operations.</p>
+	 *
+	 * @param exception The error of the operation.
+	 *
+	 * @return {@code true} if the operation has been completed,
+	 *         {@code false} if it was already done or cancelled.
+	 *
+	 * @throws NullPointerException if {@code exception == null}.
+	 *
+	 * @see #complete(Object)
+	 */
+	public boolean fail(XBeeException exception) {
+		if (exception == null)
+			throw new NullPointerException("Exception cannot be null.");
+
+		synchronized (this) {
+			if (done)
+				return false;
+			this.exception = exception;
+			done = true;
+		}
+		finish();
+		return true;
+	}
+
+	/**
+	 * Sets the action to execute when the operation is cancelled, for
+	 * instance to withdraw a pending USB permission request.
+	 *
+	 * <p>Used by the implementations of the asynchronous operations. If the
+	 * operation is already cancelled, the action is executed right away.</p>
+	 *
+	 * @param cancelHandler The cancel action, {@code null} to remove it.
+	 */
+	public void setCancelHandler(Runnable cancelHandler) {
+		synchronized (this) {
+			if (!cancelled) {
+				this.cancelHandler = cancelHandler;
+				return;
+			}
+		}
+		if (cancelHandler != null)
+			cancelHandler.run();
+	}
+
+	/**
+	 * Fails the operation with a
+	 * {@link com.digi.xbee.api.exceptions.TimeoutException} if it is not
+	 * done after the given time.
+	 *
+	 * <p>Used by the implementations of the asynchronous operations. When
+	 * the timeout expires, the cancel action is executed to withdraw the
+	 * pending work, as if the operation was cancelled.</p>
+	 *
+	 * @param timeout Maximum time to wait for the operation.
+	 * @param unit The unit of the timeout.
+	 *
+	 * @throws IllegalArgumentException if {@code timeout < 1}.
+	 * @throws NullPointerException if {@code unit == null}.
+	 *
+	 * @see #setCancelHandler(Runnable)
+	 */
+	public void setTimeout(final long timeout, final TimeUnit unit) {
+		if (timeout < 1)
+			throw new IllegalArgumentException("Timeout must be greater than 0.");
+		if (unit == null)
+			throw new NullPointerException("Unit cannot be null.");
+
+		synchronized (this) {
+			if (done)
+				return;
+			if (timeoutTask != null)
+				timeoutTask.cancel(false);
+			timeoutTask = getTimeoutScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					expire(timeout, unit);
+				}
+			}, timeout, unit);
+		}
+	}
+
+	/**
+	 * Adds the given listener to be notified when the operation finishes.
+	 *
+	 * <p>If the operation is already done, the listener is notified right
+	 * away from the calling thread.</p>
+	 *
+	 * @param listener The listener to add.
+	 *
+	 * @throws NullPointerException if {@code listener == null}.
+	 *
+	 * @see ConnectionFutureListener
+	 */
+	public void addListener(ConnectionFutureListener<V> listener) {
+		if (listener == null)
+			throw new NullPointerException("Listener cannot be null.");
+
+		synchronized (this) {
+			if (!done) {
+				listeners.add(listener);
+				return;
+			}
+		}
+		listener.operationCompleted(this);
+	}
+
+	/**
+	 * Returns a new future with the result of applying the given function to
+	 * the result of this operation.
+	 *
+	 * <p>The function is executed in the thread that completes this
+	 * operation, so it must not block. If this operation fails or is
+	 * cancelled, the returned future does the same without executing the
+	 * function. Cancelling the returned future cancels this operation.</p>
+	 *
+	 * @param function The function to apply to the result.
+	 *
+	 * @return The future of the chained operation.
+	 *
+	 * @throws NullPointerException if {@code function == null}.
+	 *
+	 * @see #then(ConnectionFutureFunction, Executor)
+	 */
+	public <R> ConnectionFuture<R> then(ConnectionFutureFunction<? super V, ? extends R> function) {
+		return then(function, null);
+	}
+
+	/**
+	 * Returns a new future with the result of applying the given function to
+	 * the result of this operation.
+	 *
+	 * <p>The function is executed in the given executor, so it can perform
+	 * blocking operations such as reading a parameter of the device. If this
+	 * operation fails or is cancelled, the returned future does the same
+	 * without executing the function. Cancelling the returned future
+	 * cancels this operation.</p>
+	 *
+	 * @param function The function to apply to the result.
+	 * @param executor The executor to run the function in, {@code null} to
+	 *                 run it in the thread that completes this operation.
+	 *
+	 * @return The future of the chained operation.
+	 *
+	 * @throws NullPointerException if {@code function == null}.
+	 *
+	 * @see #then(ConnectionFutureFunction)
+	 */
+	public <R> ConnectionFuture<R> then(final ConnectionFutureFunction<? super V, ? extends R> function, final Executor executor) {
+		if (function == null)
+			throw new NullPointerException("Function cannot be null.");
+
+		final ConnectionFuture<R> next = new ConnectionFuture<R>();
+		next.setCancelHandler(new Runnable() {
+			@Override
+			public void run() {
+				cancel(next.isInterruptRequested());
+			}
+		});
+		addListener(new ConnectionFutureListener<V>() {
+			@Override
+			public void operationCompleted(final ConnectionFuture<V> future) {
+				if (future.isCancelled()) {
+					next.cancel(false);
+					return;
+				}
+				if (future.getException() != null) {
+					next.fail(future.getException());
+					return;
+				}
+				Runnable step = new Runnable() {
+					@Override
+					public void run() {
+						if (next.isDone())
+							return;
+						try {
+							next.complete(function.apply(future.getCompletedResult()));
+						} catch (XBeeException e) {
+							next.fail(e);
+						}
+					}
+				};
+				if (executor == null) {
+					step.run();
+					return;
+				}
+				try {
+					executor.execute(step);
+				} catch (RejectedExecutionException e) {
+					next.fail(new XBeeException("Could not schedule the chained operation.", e));
+				}
+			}
+		});
+		return next;
+	}
+
+	/**
+	 * Returns the error of the operation.
+	 *
+	 * @return The error of the operation, {@code null} if it is not done,
+	 *         it succeeded or it was cancelled.
+	 */
+	public synchronized XBeeException getException() {
+		return exception;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.Future#cancel(boolean)
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		Runnable handler;
+		synchronized (this) {
+			if (done)
+				return false;
+			cancelled = true;
+			interruptRequested = mayInterruptIfRunning;
+			done = true;
+			handler = cancelHandler;
+			cancelHandler = null;
+		}
+		if (handler != null)
+			handler.run();
+		finish();
+		return true;
+	}
+
+	/**
+	 * Returns whether the operation was cancelled allowing to interrupt the
+	 * thread that executes it.
+	 *
+	 * <p>Used by the cancel actions to honor the {@code mayInterruptIfRunning}
+	 * argument of {@link #cancel(boolean)}. An expired timeout does not
+	 * request the interruption.</p>
+	 *
+	 * @return {@code true} if the operation was cancelled with
+	 *         {@code mayInterruptIfRunning}, {@code false} otherwise.
+	 *
+	 * @see #cancel(boolean)
+	 */
+	public synchronized boolean isInterruptRequested() {
+		return interruptRequested;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.Future#isCancelled()
+	 */
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.Future#isDone()
+	 */
+	@Override
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.Future#get()
+	 */
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		doneLatch.await();
+		return getResult();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public V get(long timeout, TimeUnit unit) throws InterruptedException,
+			ExecutionException, TimeoutException {
+		if (!doneLatch.await(timeout, unit))
+			throw new TimeoutException("Operation not completed in " + timeout + " " + unit.toString().toLowerCase() + ".");
+		return getResult();
+	}
+
+	/**
+	 * Returns the result of the finished operation.
+	 *
+	 * @return The operation result.
+	 *
+	 * @throws CancellationException if the operation was cancelled.
+	 * @throws ExecutionException if the operation failed.
+	 */
+	private synchronized V getResult() throws ExecutionException {
+		if (cancelled)
+			throw new CancellationException("Operation cancelled.");
+		if (exception != null)
+			throw new ExecutionException(exception.getMessage(), exception);
+		return result;
+	}
+
+	/**
+	 * Returns the result of the operation once it has successfully
+	 * completed.
+	 *
+	 * @return The operation result.
+	 */
+	private synchronized V getCompletedResult() {
+		return result;
+	}
+
+	/**
+	 * Fails the operation because its timeout expired and executes the
+	 * cancel action.
+	 *
+	 * @param timeout The expired timeout.
+	 * @param unit The unit of the timeout.
+	 */
+	private void expire(long timeout, TimeUnit unit) {
+		Runnable handler;
+		synchronized (this) {
+			if (done)
+				return;
+			exception = new com.digi.xbee.api.exceptions.TimeoutException(
+					"Operation not completed in " + timeout + " " + unit.toString().toLowerCase() + ".");
+			done = true;
+			handler = cancelHandler;
+			cancelHandler = null;
+		}
+		if (handler != null)
+			handler.run();
+		finish();
+	}
+
+	/**
+	 * Returns the shared scheduler of the operation timeouts, creating it
+	 * the first time.
+	 *
+	 * @return The timeout scheduler.
+	 */
+	private static synchronized ScheduledExecutorService getTimeoutScheduler() {
+		if (timeoutScheduler == null) {
+			timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ConnectionFuture timeout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return timeoutScheduler;
+	}
+
+	/**
+	 * Releases the waiting threads and notifies the listeners.
+	 */
+	private void finish() {
+		ScheduledFuture<?> task;
+		synchronized (this) {
+			task = timeoutTask;
+			timeoutTask = null;
+		}
+		if (task != null)
+			task.cancel(false);
+		doneLatch.countDown();
+		for (ConnectionFutureListener<V> listener : listeners)
+			listener.operationCompleted(this);
+		listeners.clear();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import com.digi.xbee.api.exceptions.XBeeException;
+
+/**
+ * This interface represents a step that transforms the result of an
+ * asynchronous operation into the result of the next one.
+ *
+ * @param <V> The type of the input result.
+ * @param <R> The type of the output result.
+ *
+ * @see ConnectionFuture#then(ConnectionFutureFunction)
+ * @see ConnectionFuture#then(ConnectionFutureFunction, java.util.concurrent.Executor)
+ */
+public interface ConnectionFutureFunction<V, R> {
+
+	/**
+	 * Computes the result of the next step from the result of the previous
+	 * operation.
+	 *
+	 * @param result The result of the previous operation.
+	 *
+	 * @return The result of this step.
+	 *
+	 * @throws XBeeException if the step fails.
+	 */
+	public R apply(V result) throws XBeeException;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+/**
+ * This interface is used as a listener to be notified when an asynchronous
+ * connection operation finishes.
+ *
+ * @param <V> The type of the operation result.
+ *
+ * @see ConnectionFuture#addListener(ConnectionFutureListener)
+ */
+public interface ConnectionFutureListener<V> {
+
+	/**
+	 * This method is called when the operation succeeds, fails or is
+	 * cancelled.
+	 *
+	 * <p>It is called from the thread that finishes the operation, which may
+	 * be the Android main thread, so it must not block.</p>
+	 *
+	 * @param future The finished operation.
+	 */
+	public void operationCompleted(ConnectionFuture<V> future);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper class used to split a byte stream in API frames.
+ *
+ * <p>Frames are returned as they appear in the stream, including the start
+ * delimiter, the length, the checksum and, in escaped mode, the escape
+ * characters. Bytes outside frames are discarded.</p>
+ */
+public class FrameSplitter {
+
+	// Constants.
+	private static final int FRAME_DELIMITER = 0x7E;
+	private static final int ESCAPE = 0x7D;
+	private static final int ESCAPE_XOR = 0x20;
+
+	// Variables.
+	private final boolean escaped;
+
+	private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+
+	private boolean inFrame = false;
+	private boolean escapeNext = false;
+	private int headerBytes = 0;
+	private int length = 0;
+	private int remaining = 0;
+
+	/**
+	 * Class constructor. Instantiates a new {@code FrameSplitter}.
+	 *
+	 * @param escaped {@code true} if the stream uses API escaped mode,
+	 *                {@code false} otherwise.
+	 */
+	public FrameSplitter(boolean escaped) {
+		this.escaped = escaped;
+	}
+
+	/**
+	 * Processes the given bytes.
+	 *
+	 * @param data Buffer containing the bytes.
+	 * @param offset Offset of the bytes inside the buffer.
+	 * @param count Number of bytes.
+	 *
+	 * @return The frames completed with these bytes, empty if none.
+	 */
+	public List<byte[]> feed(byte[] data, int offset, int count) {
+		List<byte[]> frames = new ArrayList<>(1);
+		for (int i = offset; i < offset + count; i++) {
+			int b = data[i] & 0xFF;
+			// A delimiter always starts a new frame in escaped mode.
+			if (!inFrame || (escaped && b == FRAME_DELIMITER)) {
+				if (b == FRAME_DELIMITER)
+					startFrame();
+				continue;
+			}
+			frame.write(b);
+			if (escaped && b == ESCAPE) {
+				escapeNext = true;
+				continue;
+			}
+			if (escapeNext) {
+				b ^= ESCAPE_XOR;
+				escapeNext = false;
+			}
+			if (headerBytes < 2) {
+				length = (length << 8) | b;
+				if (++headerBytes == 2)
+					remaining = length + 1;
+				continue;
+			}
+			if (--remaining == 0) {
+				frames.add(frame.toByteArray());
+				inFrame = false;
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Returns whether the processed bytes end at a frame boundary.
+	 *
+	 * @return {@code true} if no frame is partially processed,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isAtBoundary() {
+		return !inFrame;
+	}
+
+	/**
+	 * Starts a new frame.
+	 */
+	private void startFrame() {
+		frame.reset();
+		frame.write(FRAME_DELIMITER);
+		inFrame = true;
+		escapeNext = false;
+		headerBytes = 0;
+		length = 0;
+		remaining = 0;
+	}
+}
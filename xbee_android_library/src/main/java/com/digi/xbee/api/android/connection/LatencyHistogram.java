@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Helper class used to keep a histogram of latencies.
+ *
+ * <p>Latencies are stored in buckets with power of two bounds in
+ * microseconds: the first bucket holds latencies under 1 µs, the second
+ * under 2 µs, the third under 4 µs and so on. The last bucket holds every
+ * latency that does not fit in the previous ones.</p>
+ *
+ * <p>Recording a latency does not block and may be done from any thread.</p>
+ */
+public class LatencyHistogram {
+
+	// Constants.
+	/**
+	 * Number of buckets of the histogram.
+	 */
+	public static final int BUCKETS = 24;
+
+	// Variables.
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalTime = new AtomicLong();
+	private final AtomicLong maxTime = new AtomicLong();
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param nanos Latency in nanoseconds. Negative values are ignored.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			return;
+
+		buckets.incrementAndGet(getBucket(nanos));
+		count.incrementAndGet();
+		totalTime.addAndGet(nanos);
+		long max = maxTime.get();
+		while (nanos > max && !maxTime.compareAndSet(max, nanos))
+			max = maxTime.get();
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 *
+	 * @return The number of recorded latencies.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of all the recorded latencies.
+	 *
+	 * @return The sum of the recorded latencies in nanoseconds.
+	 */
+	public long getTotalTime() {
+		return totalTime.get();
+	}
+
+	/**
+	 * Returns the highest recorded latency.
+	 *
+	 * @return The highest recorded latency in nanoseconds.
+	 */
+	public long getMaxTime() {
+		return maxTime.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies.
+	 *
+	 * @return The mean latency in nanoseconds, {@code 0} if nothing has been
+	 *         recorded.
+	 */
+	public long getMeanTime() {
+		long n = count.get();
+		return n == 0 ? 0 : totalTime.get() / n;
+	}
+
+	/**
+	 * Returns the number of latencies recorded in the given bucket.
+	 *
+	 * @param bucket Bucket index.
+	 *
+	 * @return The number of latencies in the bucket.
+	 *
+	 * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+	 *                                   if {@code bucket >= BUCKETS}.
+	 *
+	 * @see #getBucketUpperBound(int)
+	 */
+	public long getBucketCount(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Returns the exclusive upper bound of the given bucket.
+	 *
+	 * @param bucket Bucket index.
+	 *
+	 * @return The upper bound of the bucket in microseconds,
+	 *         {@code Long.MAX_VALUE} for the last bucket.
+	 *
+	 * @throws IndexOutOfBoundsException if {@code bucket < 0} or
+	 *                                   if {@code bucket >= BUCKETS}.
+	 *
+	 * @see #getBucketCount(int)
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		if (bucket < 0 || bucket >= BUCKETS)
+			throw new IndexOutOfBoundsException("Bucket must be between 0 and " + (BUCKETS - 1) + ".");
+		return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+	}
+
+	/**
+	 * Returns an estimation of the given percentile of the recorded
+	 * latencies.
+	 *
+	 * @param percentile Percentile to calculate, between 0 and 100.
+	 *
+	 * @return The upper bound in microseconds of the bucket that holds the
+	 *         percentile, {@code 0} if nothing has been recorded.
+	 *
+	 * @throws IllegalArgumentException if {@code percentile < 0} or
+	 *                                  if {@code percentile > 100}.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+
+		long total = 0;
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0)
+			return 0;
+
+		long target = (long) Math.ceil(total * percentile / 100);
+		long accumulated = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			accumulated += counts[i];
+			if (accumulated >= target && accumulated > 0)
+				return getBucketUpperBound(i);
+		}
+		return getBucketUpperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Clears all the recorded latencies.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		count.set(0);
+		totalTime.set(0);
+		maxTime.set(0);
+	}
+
+	/**
+	 * Returns a copy of this histogram.
+	 *
+	 * @return A new histogram with the values recorded so far.
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		for (int i = 0; i < BUCKETS; i++)
+			copy.buckets.set(i, buckets.get(i));
+		copy.count.set(count.get());
+		copy.totalTime.set(totalTime.get());
+		copy.maxTime.set(maxTime.get());
+		return copy;
+	}
+
+	/**
+	 * Returns the bucket for the given latency.
+	 *
+	 * @param nanos Latency in nanoseconds.
+	 *
+	 * @return The bucket index.
+	 */
+	private static int getBucket(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%dus, p50=%dus, p99=%dus, max=%dus", getCount(),
+				getMeanTime() / 1000, getPercentile(50), getPercentile(99), getMaxTime() / 1000);
+	}
+}
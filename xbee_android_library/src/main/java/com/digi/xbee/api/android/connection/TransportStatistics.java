@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+/**
+ * This class represents a snapshot of the traffic statistics of a
+ * connection interface.
+ *
+ * <p>Instances are immutable and can be read from any thread.</p>
+ *
+ * @see TransportStatisticsCollector
+ * @see TransportStatisticsProvider
+ */
+public class TransportStatistics {
+
+	// Variables.
+	private final long bytesReceived;
+	private final long bytesSent;
+	private final long framesReceived;
+	private final long framesSent;
+	private final long droppedBytes;
+	private final long resyncs;
+	private final long transferErrors;
+
+	private final int writeQueueDepth;
+	private final int receiveBufferUsed;
+	private final int receiveBufferSize;
+
+	private final LatencyHistogram writeLatency;
+	private final LatencyHistogram readWaitLatency;
+
+	private final long timestamp;
+
+	/**
+	 * Class constructor. Instantiates a new {@code TransportStatistics}
+	 * object with the given values.
+	 *
+	 * @param collector Collector to take the counters from.
+	 * @param writeQueueDepth Number of writes waiting to be transferred.
+	 * @param receiveBufferUsed Number of received bytes waiting to be read.
+	 * @param receiveBufferSize Size of the receive buffer in bytes.
+	 *
+	 * @throws NullPointerException if {@code collector == null}.
+	 */
+	TransportStatistics(TransportStatisticsCollector collector, int writeQueueDepth,
+			int receiveBufferUsed, int receiveBufferSize) {
+		if (collector == null)
+			throw new NullPointerException("Collector cannot be null.");
+
+		this.bytesReceived = collector.bytesReceived.get();
+		this.bytesSent = collector.bytesSent.get();
+		this.framesReceived = collector.framesReceived.get();
+		this.framesSent = collector.framesSent.get();
+		this.droppedBytes = collector.droppedBytes.get();
+		this.resyncs = collector.resyncs.get();
+		this.transferErrors = collector.transferErrors.get();
+		this.writeQueueDepth = Math.max(writeQueueDepth, (int) collector.pendingWrites.get());
+		this.receiveBufferUsed = receiveBufferUsed;
+		this.receiveBufferSize = receiveBufferSize;
+		this.writeLatency = collector.writeLatency.copy();
+		this.readWaitLatency = collector.readWaitLatency.copy();
+		this.timestamp = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the number of bytes received from the device.
+	 *
+	 * @return The number of received bytes.
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * Returns the number of bytes sent to the device.
+	 *
+	 * @return The number of sent bytes.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of API frames received from the device.
+	 *
+	 * <p>Frames are counted when their last byte is received, following
+	 * the length of each frame, so payload bytes with the value of the
+	 * frame delimiter do not count as frames.</p>
+	 *
+	 * @return The number of received frames.
+	 */
+	public long getFramesReceived() {
+		return framesReceived;
+	}
+
+	/**
+	 * Returns the number of API frames sent to the device.
+	 *
+	 * @return The number of sent frames.
+	 *
+	 * @see #getFramesReceived()
+	 */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/**
+	 * Returns the number of received bytes discarded because the receive
+	 * buffer was full.
+	 *
+	 * @return The number of dropped bytes.
+	 */
+	public long getDroppedBytes() {
+		return droppedBytes;
+	}
+
+	/**
+	 * Returns the number of times the received data had bytes outside a
+	 * frame, or a frame was cut by the next delimiter, and the frame parser
+	 * had to resynchronize with the next frame delimiter.
+	 *
+	 * <p>This is counted on the data received from the device, independently
+	 * of the bytes dropped later because the receive buffer was full.</p>
+	 *
+	 * @return The number of resynchronizations.
+	 */
+	public long getResyncs() {
+		return resyncs;
+	}
+
+	/**
+	 * Returns the number of failed transfers.
+	 *
+	 * @return The number of transfer errors.
+	 */
+	public long getTransferErrors() {
+		return transferErrors;
+	}
+
+	/**
+	 * Returns the number of writes waiting to be transferred to the device.
+	 *
+	 * @return The write queue depth.
+	 */
+	public int getWriteQueueDepth() {
+		return writeQueueDepth;
+	}
+
+	/**
+	 * Returns the number of received bytes waiting to be read.
+	 *
+	 * @return The number of bytes in the receive buffer.
+	 *
+	 * @see #getReceiveBufferSize()
+	 * @see #getReceiveBufferFillLevel()
+	 */
+	public int getReceiveBufferUsed() {
+		return receiveBufferUsed;
+	}
+
+	/**
+	 * Returns the size of the receive buffer.
+	 *
+	 * @return The receive buffer size in bytes.
+	 *
+	 * @see #getReceiveBufferUsed()
+	 * @see #getReceiveBufferFillLevel()
+	 */
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	/**
+	 * Returns the fill level of the receive buffer.
+	 *
+	 * @return The fill level, from {@code 0} (empty) to {@code 1} (full).
+	 *
+	 * @see #getReceiveBufferUsed()
+	 * @see #getReceiveBufferSize()
+	 */
+	public float getReceiveBufferFillLevel() {
+		if (receiveBufferSize <= 0)
+			return 0;
+		return (float) receiveBufferUsed / receiveBufferSize;
+	}
+
+	/**
+	 * Returns the histogram of the time written data waits until it is
+	 * handed to the hardware.
+	 *
+	 * @return The write hand-off latency histogram.
+	 */
+	public LatencyHistogram getWriteLatency() {
+		return writeLatency;
+	}
+
+	/**
+	 * Returns the histogram of the time read calls wait for data.
+	 *
+	 * @return The read wait latency histogram.
+	 */
+	public LatencyHistogram getReadWaitLatency() {
+		return readWaitLatency;
+	}
+
+	/**
+	 * Returns the time this snapshot was taken.
+	 *
+	 * @return The snapshot time in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RX: %d bytes, %d frames; TX: %d bytes, %d frames; dropped: %d bytes, "
+				+ "resyncs: %d, errors: %d; write queue: %d; receive buffer: %d/%d; "
+				+ "write latency: [%s]; read wait: [%s]",
+				bytesReceived, framesReceived, bytesSent, framesSent, droppedBytes, resyncs,
+				transferErrors, writeQueueDepth, receiveBufferUsed, receiveBufferSize,
+				writeLatency, readWaitLatency);
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helper class used by the connection interfaces to collect traffic
+ * statistics.
+ *
+ * <p>All the methods may be called from any thread. Frames are counted by
+ * following their length, see {@link #setEscaped(boolean)}.</p>
+ *
+ * @see TransportStatistics
+ * @see TransportStatisticsProvider
+ */
+public class TransportStatisticsCollector {
+
+	// Constants.
+	private static final int FRAME_DELIMITER = 0x7E;
+	private static final int ESCAPE = 0x7D;
+	private static final int ESCAPE_XOR = 0x20;
+
+	// Variables.
+	final AtomicLong bytesReceived = new AtomicLong();
+	final AtomicLong bytesSent = new AtomicLong();
+	final AtomicLong framesReceived = new AtomicLong();
+	final AtomicLong framesSent = new AtomicLong();
+	final AtomicLong droppedBytes = new AtomicLong();
+	final AtomicLong resyncs = new AtomicLong();
+	final AtomicLong transferErrors = new AtomicLong();
+	final AtomicLong pendingWrites = new AtomicLong();
+
+	final LatencyHistogram writeLatency = new LatencyHistogram();
+	final LatencyHistogram readWaitLatency = new LatencyHistogram();
+
+	private final FrameCounter receivedFrames = new FrameCounter(framesReceived, resyncs);
+	private final FrameCounter sentFrames = new FrameCounter(framesSent, null);
+
+	/**
+	 * Sets whether the traffic uses API escaped mode. The default is
+	 * {@code false}.
+	 *
+	 * <p>The connection interfaces that do not know the operating mode keep
+	 * the default. Escaped traffic counted as non escaped is still counted
+	 * right, except a frame with escaped length bytes, which may be merged
+	 * with the next one.</p>
+	 *
+	 * @param escaped {@code true} if the traffic uses API escaped mode,
+	 *                {@code false} otherwise.
+	 */
+	public void setEscaped(boolean escaped) {
+		receivedFrames.setEscaped(escaped);
+		sentFrames.setEscaped(escaped);
+	}
+
+	/**
+	 * Counts the given bytes as received from the device.
+	 *
+	 * @param data Received data.
+	 * @param offset Offset of the received bytes inside data.
+	 * @param length Number of received bytes.
+	 *
+	 * @see #addSent(byte[], int, int)
+	 */
+	public void addReceived(byte[] data, int offset, int length) {
+		bytesReceived.addAndGet(length);
+		receivedFrames.feed(data, offset, length);
+	}
+
+	/**
+	 * Counts the given bytes as sent to the device.
+	 *
+	 * @param data Sent data.
+	 * @param offset Offset of the sent bytes inside data.
+	 * @param length Number of sent bytes.
+	 *
+	 * @see #addReceived(byte[], int, int)
+	 */
+	public void addSent(byte[] data, int offset, int length) {
+		bytesSent.addAndGet(length);
+		sentFrames.feed(data, offset, length);
+	}
+
+	/**
+	 * Counts the given number of received bytes as discarded.
+	 *
+	 * @param length Number of discarded bytes.
+	 */
+	public void addDropped(int length) {
+		if (length <= 0)
+			return;
+		droppedBytes.addAndGet(length);
+	}
+
+	/**
+	 * Counts a failed transfer.
+	 */
+	public void addTransferError() {
+		transferErrors.incrementAndGet();
+	}
+
+	/**
+	 * Notifies that a write has been queued.
+	 *
+	 * @return The time the write was queued, to be passed to
+	 *         {@link #writeDone(long)}.
+	 *
+	 * @see #writeDone(long)
+	 */
+	public long writeQueued() {
+		pendingWrites.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Notifies that a queued write has been handed to the hardware.
+	 *
+	 * @param queuedTime Value returned by {@link #writeQueued()}.
+	 *
+	 * @see #writeQueued()
+	 */
+	public void writeDone(long queuedTime) {
+		pendingWrites.decrementAndGet();
+		writeLatency.record(System.nanoTime() - queuedTime);
+	}
+
+	/**
+	 * Records the time a read call waited for data.
+	 *
+	 * @param nanos Wait time in nanoseconds.
+	 */
+	public void addReadWait(long nanos) {
+		readWaitLatency.record(nanos);
+	}
+
+	/**
+	 * Returns a snapshot of the collected statistics.
+	 *
+	 * @param writeQueueDepth Number of writes waiting to be transferred, if
+	 *                        the interface tracks it by itself.
+	 * @param receiveBufferUsed Number of received bytes waiting to be read.
+	 * @param receiveBufferSize Size of the receive buffer in bytes.
+	 *
+	 * @return The statistics snapshot.
+	 */
+	public TransportStatistics snapshot(int writeQueueDepth, int receiveBufferUsed, int receiveBufferSize) {
+		return new TransportStatistics(this, writeQueueDepth, receiveBufferUsed, receiveBufferSize);
+	}
+
+	/**
+	 * Clears all the counters and histograms.
+	 *
+	 * <p>The number of pending writes is not cleared, as those writes are
+	 * still in progress.</p>
+	 */
+	public void reset() {
+		bytesReceived.set(0);
+		bytesSent.set(0);
+		framesReceived.set(0);
+		framesSent.set(0);
+		droppedBytes.set(0);
+		resyncs.set(0);
+		transferErrors.set(0);
+		writeLatency.reset();
+		readWaitLatency.reset();
+	}
+
+	/**
+	 * Counts the API frames of a byte stream. The length of every frame is
+	 * followed, so payload bytes with the value of the frame delimiter are
+	 * not taken as the start of a new frame.
+	 */
+	private static class FrameCounter {
+
+		// Variables.
+		private final AtomicLong frames;
+		private final AtomicLong resyncs;
+
+		private boolean escaped = false;
+		private boolean inFrame = false;
+		private boolean outOfSync = false;
+		private boolean escapeNext = false;
+		private int headerBytes = 0;
+		private int remaining = 0;
+
+		/**
+		 * Class constructor. Instantiates a new {@code FrameCounter}.
+		 *
+		 * @param frames Counter of the completed frames.
+		 * @param resyncs Counter of the resynchronizations, {@code null}
+		 *                not to count them.
+		 */
+		FrameCounter(AtomicLong frames, AtomicLong resyncs) {
+			this.frames = frames;
+			this.resyncs = resyncs;
+		}
+
+		/**
+		 * Sets whether the stream uses API escaped mode.
+		 */
+		synchronized void setEscaped(boolean escaped) {
+			this.escaped = escaped;
+		}
+
+		/**
+		 * Processes the given bytes of the stream.
+		 */
+		synchronized void feed(byte[] data, int offset, int length) {
+			for (int i = offset; i < offset + length; i++) {
+				int b = data[i] & 0xFF;
+				// A delimiter always starts a new frame in escaped mode.
+				if (!inFrame || (escaped && b == FRAME_DELIMITER)) {
+					if (b == FRAME_DELIMITER) {
+						if (inFrame)
+							resync();
+						startFrame();
+					} else if (!outOfSync) {
+						resync();
+					}
+					continue;
+				}
+				if (escaped && b == ESCAPE) {
+					escapeNext = true;
+					continue;
+				}
+				if (escapeNext) {
+					b ^= ESCAPE_XOR;
+					escapeNext = false;
+				}
+				if (headerBytes < 2) {
+					remaining = (remaining << 8) | b;
+					// Payload and checksum.
+					if (++headerBytes == 2)
+						remaining++;
+					continue;
+				}
+				if (--remaining == 0) {
+					frames.incrementAndGet();
+					inFrame = false;
+				}
+			}
+		}
+
+		/**
+		 * Starts a new frame.
+		 */
+		private void startFrame() {
+			inFrame = true;
+			outOfSync = false;
+			escapeNext = false;
+			headerBytes = 0;
+			remaining = 0;
+		}
+
+		/**
+		 * Counts a resynchronization, bytes outside frames or a frame cut by
+		 * the next delimiter, until the next frame starts.
+		 */
+		private void resync() {
+			inFrame = false;
+			outOfSync = true;
+			if (resyncs != null)
+				resyncs.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class keeps track of the threads owned by a connection interface, so
+ * they can be stopped and joined when the interface is closed.
+ *
+ * <p>The owner asks its threads to finish, for instance clearing their
+ * running flag, and then calls {@link #stopAll(long)}, which interrupts
+ * them and waits for them to end. Threads that are still alive when the
+ * timeout expires are logged and reported by
+ * {@link #getLingeringThreads()} until they finish.</p>
+ */
+public class TransportThreads {
+
+	// Constants.
+	/**
+	 * Default time to wait for the threads of an interface to finish, in
+	 * milliseconds.
+	 */
+	public static final long DEFAULT_JOIN_TIMEOUT = 1000;
+
+	// Variables.
+	private static final Map<Thread, String> lingeringThreads = Collections.synchronizedMap(new WeakHashMap<Thread, String>());
+
+	private final String owner;
+
+	private final List<Thread> threads = new ArrayList<Thread>();
+
+	private final Logger logger = LoggerFactory.getLogger(TransportThreads.class);
+
+	/**
+	 * Class constructor. Instantiates a new {@code TransportThreads} object
+	 * with the given parameters.
+	 *
+	 * @param owner Name of the connection interface that owns the threads,
+	 *              used in the log messages.
+	 *
+	 * @throws NullPointerException if {@code owner == null}.
+	 */
+	public TransportThreads(String owner) {
+		if (owner == null)
+			throw new NullPointerException("Owner cannot be null.");
+
+		this.owner = owner;
+	}
+
+	/**
+	 * Adds the given thread to the tracked threads.
+	 *
+	 * @param thread The thread to track, {@code null} is ignored.
+	 *
+	 * @see #stopAll(long)
+	 */
+	public synchronized void register(Thread thread) {
+		if (thread == null || threads.contains(thread))
+			return;
+		// Forget the threads that already finished.
+		Iterator<Thread> it = threads.iterator();
+		while (it.hasNext()) {
+			if (!it.next().isAlive())
+				it.remove();
+		}
+		threads.add(thread);
+	}
+
+	/**
+	 * Returns the number of tracked threads that are still alive.
+	 *
+	 * @return The number of alive threads.
+	 */
+	public synchronized int getAliveCount() {
+		int count = 0;
+		for (Thread thread : threads) {
+			if (thread.isAlive())
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Interrupts the tracked threads and waits for them to finish.
+	 *
+	 * <p>The timeout is shared by all the threads. The calling thread is
+	 * never joined, even if it is tracked. Threads that do not finish in
+	 * time are reported by {@link #getLingeringThreads()}.</p>
+	 *
+	 * @param timeout Maximum time to wait in milliseconds.
+	 *
+	 * @return {@code true} if all the threads finished, {@code false}
+	 *         otherwise.
+	 *
+	 * @throws IllegalArgumentException if {@code timeout < 0}.
+	 *
+	 * @see #DEFAULT_JOIN_TIMEOUT
+	 */
+	public boolean stopAll(long timeout) {
+		if (timeout < 0)
+			throw new IllegalArgumentException("Timeout cannot be negative.");
+
+		List<Thread> toStop;
+		synchronized (this) {
+			toStop = new ArrayList<Thread>(threads);
+			threads.clear();
+		}
+		Thread current = Thread.currentThread();
+		for (Thread thread : toStop) {
+			if (thread != current)
+				thread.interrupt();
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		boolean interrupted = false;
+		boolean allStopped = true;
+		for (Thread thread : toStop) {
+			if (thread == current)
+				continue;
+			long remaining = deadline - System.currentTimeMillis();
+			try {
+				if (remaining > 0 && !interrupted)
+					thread.join(remaining);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+			if (thread.isAlive()) {
+				allStopped = false;
+				lingeringThreads.put(thread, owner);
+				logger.warn(owner + ": thread '" + thread.getName() + "' did not finish in " + timeout + " ms.");
+			}
+		}
+		if (interrupted)
+			current.interrupt();
+		return allStopped;
+	}
+
+	/**
+	 * Returns the threads of any connection interface that did not finish
+	 * in time when their interface was closed and are still alive.
+	 *
+	 * @return The lingering threads, empty if there are none.
+	 */
+	public static List<Thread> getLingeringThreads() {
+		List<Thread> alive = new ArrayList<Thread>();
+		synchronized (lingeringThreads) {
+			Iterator<Thread> it = lingeringThreads.keySet().iterator();
+			while (it.hasNext()) {
+				Thread thread = it.next();
+				if (thread.isAlive())
+					alive.add(thread);
+				else
+					it.remove();
+			}
+		}
+		return alive;
+	}
+}
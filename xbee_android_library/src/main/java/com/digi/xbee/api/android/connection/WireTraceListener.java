@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+/**
+ * Interface defining the method to be notified of every chunk of data
+ * recorded by a {@link WireTracer}.
+ *
+ * @see WireTracer#addListener(WireTraceListener)
+ */
+public interface WireTraceListener {
+
+	/**
+	 * Called when a chunk of data has been sent or received.
+	 *
+	 * <p>The buffer is reused by the caller, so the data must be copied if
+	 * it is needed after this method returns.</p>
+	 *
+	 * @param direction Direction of the data.
+	 * @param timestamp Time the data was traced, from {@link System#nanoTime()}.
+	 * @param buffer Buffer containing the data.
+	 * @param offset Offset of the data inside the buffer.
+	 * @param length Number of bytes of the data.
+	 */
+	public void dataTraced(WireTracer.Direction direction, long timestamp, byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import com.digi.xbee.api.utils.HexUtils;
+
+/**
+ * This class represents a chunk of data captured by a {@link WireTracer}.
+ */
+public class WireTraceRecord {
+
+	// Variables.
+	private final long sequence;
+	private final WireTracer.Direction direction;
+	private final long timestamp;
+	private final int length;
+	private final byte[] data;
+
+	/**
+	 * Class constructor. Instantiates a new {@code WireTraceRecord} with the
+	 * given parameters.
+	 *
+	 * @param sequence Sequence number of the record.
+	 * @param direction Direction of the data.
+	 * @param timestamp Time the data was recorded, from {@link System#nanoTime()}.
+	 * @param length Original length of the data.
+	 * @param data Captured data, may be shorter than {@code length}.
+	 */
+	WireTraceRecord(long sequence, WireTracer.Direction direction, long timestamp, int length, byte[] data) {
+		this.sequence = sequence;
+		this.direction = direction;
+		this.timestamp = timestamp;
+		this.length = length;
+		this.data = data;
+	}
+
+	/**
+	 * Returns the sequence number of the record.
+	 *
+	 * @return The sequence number.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the direction of the data.
+	 *
+	 * @return The data direction.
+	 */
+	public WireTracer.Direction getDirection() {
+		return direction;
+	}
+
+	/**
+	 * Returns the time the data was recorded.
+	 *
+	 * @return The timestamp in nanoseconds, as returned by
+	 *         {@link System#nanoTime()}.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the original length of the data.
+	 *
+	 * @return The data length in bytes.
+	 *
+	 * @see #isTruncated()
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the captured data.
+	 *
+	 * @return The captured data.
+	 *
+	 * @see #isTruncated()
+	 */
+	public byte[] getData() {
+		return data.clone();
+	}
+
+	/**
+	 * Returns whether the captured data is shorter than the original data.
+	 *
+	 * @return {@code true} if the data was truncated, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isTruncated() {
+		return data.length < length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("#%d %d %s %d: %s%s", sequence, timestamp, direction, length,
+				HexUtils.byteArrayToHexString(data), isTruncated() ? "..." : "");
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+/**
+ * Interface implemented by the connection interfaces that can copy the
+ * traffic to a {@link WireTracer}.
+ *
+ * @see WireTracer
+ */
+public interface WireTraceable {
+
+	/**
+	 * Sets the wire tracer that receives a copy of all the data sent and
+	 * received by this connection interface.
+	 *
+	 * @param tracer The wire tracer, {@code null} to disable tracing.
+	 *
+	 * @see #getWireTracer()
+	 */
+	public void setWireTracer(WireTracer tracer);
+
+	/**
+	 * Returns the wire tracer of this connection interface.
+	 *
+	 * @return The wire tracer, {@code null} if tracing is disabled.
+	 *
+	 * @see #setWireTracer(WireTracer)
+	 */
+	public WireTracer getWireTracer();
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class keeps a copy of the last bytes sent to and received from a
+ * device in a fixed size ring.
+ *
+ * <p>Every chunk of data handed to the tracer is stored in one slot of the
+ * ring together with its direction and a nanosecond timestamp. Once the
+ * ring is full, the oldest chunks are overwritten. Chunks bigger than the
+ * slot size are truncated.</p>
+ *
+ * <p>Recording does not block nor allocate memory, so it can be done from
+ * the transfer threads. If a slot is being written by another thread when
+ * the ring wraps around, the new chunk is discarded and counted as lost.</p>
+ *
+ * <p>The contents of the ring can be retrieved at any time with
+ * {@link #getRecords()} or written to the log with {@link #dump(String)}.
+ * If {@link #setDumpOnError(boolean)} is enabled, the ring is also dumped
+ * every time the connection interface reports an error.</p>
+ *
+ * <p>Registered {@link WireTraceListener}s receive every chunk as it is
+ * recorded, for example to persist it.</p>
+ *
+ * @see WireTraceable
+ * @see WireTraceRecord
+ */
+public class WireTracer {
+
+	// Constants.
+	/**
+	 * Default number of slots of the ring.
+	 */
+	public static final int DEFAULT_SLOTS = 256;
+
+	/**
+	 * Default maximum number of bytes kept per chunk.
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 128;
+
+	private static final long EMPTY = -1;
+
+	private static final WireTraceListener[] NO_LISTENERS = new WireTraceListener[0];
+
+	/**
+	 * Direction of the traced data.
+	 */
+	public enum Direction {
+		/** Data received from the device. */
+		RX,
+		/** Data sent to the device. */
+		TX
+	}
+
+	// Variables.
+	private final int slots;
+	private final int slotSize;
+
+	private final byte[] data;
+	private final int[] lengths;
+	private final long[] timestamps;
+	private final Direction[] directions;
+
+	// Sequence of the record stored in each slot, EMPTY if none, or the
+	// negated sequence plus one while the slot is being written.
+	private final AtomicLongArray states;
+
+	private final AtomicLong nextSequence = new AtomicLong();
+	private final AtomicLong lostRecords = new AtomicLong();
+
+	private volatile boolean dumpOnError = false;
+
+	private volatile WireTraceListener[] listeners = NO_LISTENERS;
+
+	private Logger logger;
+
+	/**
+	 * Class constructor. Instantiates a new {@code WireTracer} with
+	 * {@link #DEFAULT_SLOTS} slots of {@link #DEFAULT_SLOT_SIZE} bytes.
+	 *
+	 * @see #WireTracer(int, int)
+	 */
+	public WireTracer() {
+		this(DEFAULT_SLOTS, DEFAULT_SLOT_SIZE);
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code WireTracer} with the
+	 * given parameters.
+	 *
+	 * @param slots Number of chunks kept by the ring.
+	 * @param slotSize Maximum number of bytes kept per chunk.
+	 *
+	 * @throws IllegalArgumentException if {@code slots < 1} or
+	 *                                  if {@code slotSize < 1}.
+	 *
+	 * @see #WireTracer()
+	 */
+	public WireTracer(int slots, int slotSize) {
+		if (slots < 1)
+			throw new IllegalArgumentException("Number of slots must be greater than 0.");
+		if (slotSize < 1)
+			throw new IllegalArgumentException("Slot size must be greater than 0.");
+
+		this.slots = slots;
+		this.slotSize = slotSize;
+		this.data = new byte[slots * slotSize];
+		this.lengths = new int[slots];
+		this.timestamps = new long[slots];
+		this.directions = new Direction[slots];
+		this.states = new AtomicLongArray(slots);
+		for (int i = 0; i < slots; i++)
+			states.set(i, EMPTY);
+		this.logger = LoggerFactory.getLogger(WireTracer.class);
+	}
+
+	/**
+	 * Stores a copy of the given chunk of data in the ring.
+	 *
+	 * @param direction Direction of the data.
+	 * @param buffer Buffer containing the data.
+	 * @param offset Offset of the data inside the buffer.
+	 * @param length Number of bytes of the data.
+	 */
+	public void record(Direction direction, byte[] buffer, int offset, int length) {
+		long timestamp = System.nanoTime();
+		store(direction, timestamp, buffer, offset, length);
+
+		for (WireTraceListener listener : listeners)
+			listener.dataTraced(direction, timestamp, buffer, offset, length);
+	}
+
+	/**
+	 * Stores a copy of the given chunk of data in the next slot of the ring.
+	 */
+	private void store(Direction direction, long timestamp, byte[] buffer, int offset, int length) {
+		long sequence = nextSequence.getAndIncrement();
+		int slot = (int) (sequence % slots);
+
+		// Claim the slot, give up if another thread is still writing it.
+		long state = states.get(slot);
+		if (state < EMPTY || !states.compareAndSet(slot, state, -sequence - 2)) {
+			lostRecords.incrementAndGet();
+			return;
+		}
+
+		int copied = Math.min(length, slotSize);
+		System.arraycopy(buffer, offset, data, slot * slotSize, copied);
+		lengths[slot] = length;
+		timestamps[slot] = timestamp;
+		directions[slot] = direction;
+
+		// Publish the record.
+		states.set(slot, sequence);
+	}
+
+	/**
+	 * Adds a listener to be notified of every recorded chunk.
+	 *
+	 * <p>Listeners are called from the transfer threads, so they must
+	 * return quickly.</p>
+	 *
+	 * @param listener The listener to add.
+	 *
+	 * @throws NullPointerException if {@code listener == null}.
+	 *
+	 * @see #removeListener(WireTraceListener)
+	 */
+	public synchronized void addListener(WireTraceListener listener) {
+		if (listener == null)
+			throw new NullPointerException("Listener cannot be null.");
+
+		WireTraceListener[] newListeners = new WireTraceListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+		newListeners[listeners.length] = listener;
+		listeners = newListeners;
+	}
+
+	/**
+	 * Removes the given listener.
+	 *
+	 * @param listener The listener to remove.
+	 *
+	 * @see #addListener(WireTraceListener)
+	 */
+	public synchronized void removeListener(WireTraceListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				WireTraceListener[] newListeners = new WireTraceListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, newListeners, 0, i);
+				System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+				listeners = newListeners.length == 0 ? NO_LISTENERS : newListeners;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the records currently stored in the ring, from the oldest to
+	 * the newest.
+	 *
+	 * @return The list of records.
+	 */
+	public List<WireTraceRecord> getRecords() {
+		long last = nextSequence.get();
+		long first = Math.max(0, last - slots);
+		List<WireTraceRecord> records = new ArrayList<>((int) (last - first));
+		for (long sequence = first; sequence < last; sequence++) {
+			int slot = (int) (sequence % slots);
+			if (states.get(slot) != sequence)
+				continue;
+			int length = lengths[slot];
+			long timestamp = timestamps[slot];
+			Direction direction = directions[slot];
+			byte[] copy = new byte[Math.min(length, slotSize)];
+			System.arraycopy(data, slot * slotSize, copy, 0, copy.length);
+			// Discard the record if it was overwritten while copying it.
+			if (states.get(slot) != sequence)
+				continue;
+			records.add(new WireTraceRecord(sequence, direction, timestamp, length, copy));
+		}
+		return records;
+	}
+
+	/**
+	 * Writes the records currently stored in the ring to the log.
+	 *
+	 * @param reason Reason of the dump, included in the log.
+	 *
+	 * @see #getRecords()
+	 */
+	public void dump(String reason) {
+		List<WireTraceRecord> records = getRecords();
+		StringBuilder sb = new StringBuilder();
+		sb.append("Wire trace (").append(reason).append("), ").append(records.size())
+				.append(" records, ").append(lostRecords.get()).append(" lost:");
+		for (WireTraceRecord record : records)
+			sb.append('\n').append(record);
+		logger.warn(sb.toString());
+	}
+
+	/**
+	 * Notifies the tracer that the connection interface found an error. If
+	 * dump on error is enabled the ring is written to the log.
+	 *
+	 * @param reason Description of the error.
+	 *
+	 * @see #setDumpOnError(boolean)
+	 */
+	public void error(String reason) {
+		if (dumpOnError)
+			dump(reason);
+	}
+
+	/**
+	 * Sets whether the ring must be written to the log every time the
+	 * connection interface reports an error.
+	 *
+	 * @param dumpOnError {@code true} to dump the ring on errors,
+	 *                    {@code false} otherwise.
+	 *
+	 * @see #isDumpOnError()
+	 */
+	public void setDumpOnError(boolean dumpOnError) {
+		this.dumpOnError = dumpOnError;
+	}
+
+	/**
+	 * Returns whether the ring is written to the log on errors.
+	 *
+	 * @return {@code true} if the ring is dumped on errors, {@code false}
+	 *         otherwise.
+	 *
+	 * @see #setDumpOnError(boolean)
+	 */
+	public boolean isDumpOnError() {
+		return dumpOnError;
+	}
+
+	/**
+	 * Returns the total number of chunks recorded so far, including the
+	 * ones already overwritten.
+	 *
+	 * @return The number of recorded chunks.
+	 */
+	public long getRecordCount() {
+		return nextSequence.get();
+	}
+
+	/**
+	 * Returns the number of chunks discarded because their slot was busy.
+	 *
+	 * @return The number of lost chunks.
+	 */
+	public long getLostRecords() {
+		return lostRecords.get();
+	}
+
+	/**
+	 * Returns the number of chunks kept by the ring.
+	 *
+	 * @return The number of slots.
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Returns the maximum number of bytes kept per chunk.
+	 *
+	 * @return The slot size in bytes.
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+}
@@ -26,6 +26,12 @@ import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
+import com.digi.xbee.api.android.connection.TransportThreads;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
 import com.digi.xbee.api.connection.bluetooth.AbstractBluetoothInterface;
 import com.digi.xbee.api.exceptions.InvalidInterfaceException;
 import org.slf4j.Logger;
@@ -41,7 +47,8 @@ import java.util.UUID;
  * This class represents a communication interface with XBee devices over
  * Bluetooth Low Energy.
  */
-public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
+public class AndroidBluetoothInterface extends AbstractBluetoothInterface implements TransportStatisticsProvider,
+		WireTraceable {
 
 	// Constants.
 	private static final int CHAR_PROP_INDICATE = 32;
@@ -53,6 +60,9 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 
 	private static final int RETRIES_CONNECT = 3;
 
+	private static final int DEFAULT_RECEIVE_BUFFER_SIZE = 1024;
+	private static final int DEFAULT_RECEIVE_BUFFER_MAX_SIZE = 64 * 1024;
+
 	// Variables.
 	private Context context;
 
@@ -64,8 +74,13 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 	private BlCircularByteBuffer inputByteBuffer;
 	private BlCircularByteBuffer outputByteBuffer;
 
+	private InputStream inputStream;
+
+	private int receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
+	private int receiveBufferMaxSize = DEFAULT_RECEIVE_BUFFER_MAX_SIZE;
+
 	private boolean isOpen = false;
-	private boolean writeTaskRunning = false;
+	private volatile boolean writeTaskRunning = false;
 	private boolean dataWritten = false;
 
 	private WriteTask writeTask;
@@ -78,6 +93,12 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 
 	private BLEGattCallback bleGattCallback;
 
+	private final TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+
+	private final TransportThreads threads = new TransportThreads("AndroidBluetoothInterface");
+
+	private volatile WireTracer wireTracer;
+
 	private Logger logger;
 
 	/**
@@ -190,13 +211,18 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 			}
 		}
 
-		// Initialize the input and output streams.
-		inputByteBuffer = new BlCircularByteBuffer();
+		// Initialize the input and output streams. The input buffer is
+		// filled from the Bluetooth callback thread, so let it grow up to
+		// its limit and never block there.
+		inputByteBuffer = new BlCircularByteBuffer(receiveBufferSize, receiveBufferMaxSize, false);
+		inputByteBuffer.setShrinkOnDrain(true);
+		inputStream = new ReceiveInputStream(inputByteBuffer.getInputStream());
 		outputByteBuffer = new BlCircularByteBuffer();
 
 		writeTask = new WriteTask(this, outputByteBuffer.getInputStream());
 		writeTaskRunning = true;
 		writeTask.start();
+		threads.register(writeTask);
 
 		encrypt = false;
 	}
@@ -219,11 +245,14 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 			}
 		}
 
-		// Close the streams.
+		// Stop the write task and wait for it before closing the streams.
 		if (writeTask != null) {
 			writeTaskRunning = false;
+			threads.stopAll(TransportThreads.DEFAULT_JOIN_TIMEOUT);
 			writeTask = null;
 		}
+
+		// Close the streams.
 		if (inputByteBuffer != null) {
 			try {
 				inputByteBuffer.getOutputStream().close();
@@ -232,6 +261,7 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 				inputByteBuffer.getInputStream().close();
 			} catch (IOException ignore) {}
 			inputByteBuffer = null;
+			inputStream = null;
 		}
 		if (outputByteBuffer != null) {
 			try {
@@ -259,11 +289,75 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 		return isOpen;
 	}
 
+	/**
+	 * Configures the size of the buffer that holds the data received from
+	 * the Bluetooth device until it is read.
+	 *
+	 * <p>The buffer starts with {@code initialSize} bytes and doubles its
+	 * capacity as needed up to {@code maxSize} bytes. Once the buffer has
+	 * been drained it goes back to its initial size. If the buffer is full,
+	 * new received data is discarded.</p>
+	 *
+	 * <p>The new sizes take effect the next time the interface is opened.</p>
+	 *
+	 * @param initialSize Initial size of the receive buffer in bytes.
+	 * @param maxSize Maximum size of the receive buffer in bytes.
+	 *
+	 * @throws IllegalArgumentException if {@code initialSize < 2} or
+	 *                                  if {@code maxSize < initialSize}.
+	 *
+	 * @see #getReceiveBuffer()
+	 */
+	public void setReceiveBufferSize(int initialSize, int maxSize) {
+		if (initialSize < 2)
+			throw new IllegalArgumentException("Initial size must be greater than 1.");
+		if (maxSize < initialSize)
+			throw new IllegalArgumentException("Maximum size cannot be smaller than the initial size.");
+
+		this.receiveBufferSize = initialSize;
+		this.receiveBufferMaxSize = maxSize;
+	}
+
+	/**
+	 * Returns the buffer that holds the received data until it is read.
+	 *
+	 * <p>Use it to check the current and peak size, the number of resizes
+	 * and the time spent blocked in write.</p>
+	 *
+	 * @return The receive buffer, {@code null} if the interface is not open.
+	 *
+	 * @see #setReceiveBufferSize(int, int)
+	 * @see BlCircularByteBuffer
+	 */
+	public BlCircularByteBuffer getReceiveBuffer() {
+		return inputByteBuffer;
+	}
+
+	@Override
+	public TransportStatistics getTransportStatistics() {
+		BlCircularByteBuffer buffer = inputByteBuffer;
+		return statistics.snapshot(0, buffer == null ? 0 : buffer.getAvailable(),
+				buffer == null ? receiveBufferSize : buffer.getSize());
+	}
+
+	@Override
+	public void resetTransportStatistics() {
+		statistics.reset();
+	}
+
+	@Override
+	public void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+
+	@Override
+	public WireTracer getWireTracer() {
+		return wireTracer;
+	}
+
 	@Override
 	public InputStream getInputStream() {
-		if (inputByteBuffer != null)
-			return inputByteBuffer.getInputStream();
-		return null;
+		return inputStream;
 	}
 
 	@Override
@@ -279,8 +373,26 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 	}
 
 	@Override
-	public synchronized void writeData(byte[] data, int offset, int length) {
+	public void writeData(byte[] data, int offset, int length) {
+		long queuedTime = statistics.writeQueued();
+		try {
+			writeCharacteristic(data, offset, length);
+		} finally {
+			statistics.writeDone(queuedTime);
+		}
+	}
+
+	/**
+	 * Writes the given data in the TX characteristic and waits until the
+	 * write operation finishes.
+	 *
+	 * @param data Data to write.
+	 * @param offset Offset of the data to write.
+	 * @param length Number of bytes to write.
+	 */
+	private synchronized void writeCharacteristic(byte[] data, int offset, int length) {
 		byte[] dataToWrite = new byte[length];
+		WireTracer tracer = wireTracer;
 
 		// Write the data in the TX characteristic.
 		dataWritten = false;
@@ -291,7 +403,12 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 				System.arraycopy(data, offset, dataToWrite, 0, length);
 
 			txCharacteristic.setValue(dataToWrite);
-			bluetoothGatt.writeCharacteristic(txCharacteristic);
+			if (!bluetoothGatt.writeCharacteristic(txCharacteristic)) {
+				statistics.addTransferError();
+				if (tracer != null)
+					tracer.error("Bluetooth write could not be started");
+				return;
+			}
 
 			if (!dataWritten) {
 				// Wait until the data is written.
@@ -299,7 +416,19 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 					writeCharLock.wait(WRITE_TIMEOUT);
 				}
 			}
+			if (dataWritten) {
+				statistics.addSent(data, offset, length);
+				if (tracer != null)
+					tracer.record(WireTracer.Direction.TX, data, offset, length);
+			} else {
+				statistics.addTransferError();
+				if (tracer != null)
+					tracer.error("Bluetooth write of " + length + " bytes failed");
+			}
 		} catch (InterruptedException | ShortBufferException e) {
+			statistics.addTransferError();
+			if (tracer != null)
+				tracer.error("Bluetooth write failed: " + e.getMessage());
 			logger.error(e.getMessage(), e);
 		}
 	}
@@ -330,6 +459,7 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 		private final InputStream input;
 
 		WriteTask(AndroidBluetoothInterface iface, InputStream input) {
+			super("AndroidBluetoothInterface");
 			this.iface = iface;
 			this.input = input;
 		}
@@ -347,12 +477,66 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 						Thread.sleep(50);
 					}
 				}
+			} catch (InterruptedException e) {
+				// The task is interrupted when the interface is closed.
 			} catch (Exception e) {
 				logger.error(e.getMessage(), e);
 			}
 		}
 	}
 
+	/**
+	 * Class used to read the received data and measure the time readers
+	 * wait for it.
+	 */
+	class ReceiveInputStream extends InputStream {
+		private final InputStream input;
+
+		ReceiveInputStream(InputStream input) {
+			this.input = input;
+		}
+
+		@Override
+		public int read() throws IOException {
+			// Only report the wait if the read has to block.
+			if (input.available() > 0)
+				return input.read();
+			long start = System.nanoTime();
+			try {
+				return input.read();
+			} finally {
+				statistics.addReadWait(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (input.available() > 0)
+				return input.read(buffer, offset, length);
+			long start = System.nanoTime();
+			try {
+				return input.read(buffer, offset, length);
+			} finally {
+				statistics.addReadWait(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			return input.available();
+		}
+
+		@Override
+		public long skip(long byteCount) throws IOException {
+			return input.skip(byteCount);
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
 	/**
 	 * Class used to handle the bluetooth interface events.
 	 */
@@ -408,10 +592,19 @@ public class AndroidBluetoothInterface extends AbstractBluetoothInterface {
 			if (inputByteBuffer == null)
 				return;
 
+			WireTracer tracer = wireTracer;
+			if (tracer != null)
+				tracer.record(WireTracer.Direction.RX, value, 0, value.length);
+
 			try {
 				inputByteBuffer.getOutputStream().write(value);
 				inputByteBuffer.getOutputStream().flush();
+				statistics.addReceived(value, 0, value.length);
 			} catch (IOException e) {
+				// The receive buffer is full, the data is discarded.
+				statistics.addDropped(value.length);
+				if (tracer != null)
+					tracer.error("Bluetooth receive buffer overflow, " + value.length + " bytes dropped");
 				logger.error(e.getMessage(), e);
 			}
 
@@ -105,6 +105,35 @@ public class BlCircularByteBuffer {
      * @since ostermillerutils 1.00.00
      */
     protected volatile boolean infinite = false;
+    /**
+     * Maximum capacity a growing buffer may reach, or INFINITE_SIZE
+     * if the buffer grows without bound. Once a bounded buffer reaches
+     * this size, it blocks or throws exceptions like a fixed size buffer.
+     */
+    protected volatile int maxSize = INFINITE_SIZE;
+    /**
+     * Capacity the buffer was created with. A growing buffer goes back to
+     * this size after being drained if shrinkOnDrain is set.
+     */
+    protected int initialSize;
+    /**
+     * True if a growing buffer should go back to its initial size once
+     * all the bytes it holds have been read.
+     */
+    protected volatile boolean shrinkOnDrain = false;
+    /**
+     * Largest capacity this buffer has had.
+     */
+    protected volatile int peakSize;
+    /**
+     * Number of times the buffer has been grown or shrunk.
+     */
+    protected volatile int resizeCount = 0;
+    /**
+     * Total time, in nanoseconds, that writers have spent waiting for
+     * space in a full buffer.
+     */
+    protected volatile long blockedWriteNanos = 0;
     /**
      * True if a write to a full buffer should block until the buffer
      * has room, false if the write method should throw an IOException
@@ -244,12 +273,75 @@ public class BlCircularByteBuffer {
     }
 
     /**
-     * double the size of the buffer
+     * Get the largest capacity this buffer has reached since it was
+     * created.
+     *
+     * @return the peak size in bytes of this buffer
+     */
+    public int getPeakSize(){
+        return peakSize;
+    }
+
+    /**
+     * Get the maximum capacity this buffer may grow to.
+     *
+     * @return the maximum size in bytes of this buffer, or INFINITE_SIZE
+     *     if a growing buffer has no limit.
+     */
+    public int getMaxSize(){
+        if (!infinite) return buffer.length;
+        return maxSize;
+    }
+
+    /**
+     * Get the number of times the buffer has been grown or shrunk.
+     *
+     * @return the number of resize operations
+     */
+    public int getResizeCount(){
+        return resizeCount;
+    }
+
+    /**
+     * Get the total time writers have spent blocked waiting for free space
+     * in this buffer.
+     *
+     * @return the time blocked in write, in nanoseconds
+     */
+    public long getBlockedWriteTime(){
+        return blockedWriteNanos;
+    }
+
+    /**
+     * Set whether a growing buffer should go back to its initial capacity
+     * once all the bytes it holds have been read.
+     * <p>
+     * This has no effect on fixed size buffers.
+     *
+     * @param shrinkOnDrain true to release the grown memory after draining.
+     */
+    public void setShrinkOnDrain(boolean shrinkOnDrain){
+        this.shrinkOnDrain = shrinkOnDrain;
+    }
+
+    /**
+     * If this buffer may grow further.
+     */
+    private boolean canGrow(){
+        return infinite && (maxSize == INFINITE_SIZE || buffer.length < maxSize);
+    }
+
+    /**
+     * double the size of the buffer, without going over maxSize
      *
      * @since ostermillerutils 1.00.00
      */
     private void resize(){
-        byte[] newBuffer = new byte[buffer.length * 2];
+        int newSize = buffer.length * 2;
+        if (maxSize != INFINITE_SIZE && newSize > maxSize){
+            newSize = maxSize;
+        }
+        byte[] newBuffer = new byte[newSize];
         int marked = marked();
         int available = available();
         if (markPosition <= writePosition){
@@ -268,6 +360,25 @@ public class BlCircularByteBuffer {
         markPosition = 0;
         readPosition = marked;
         writePosition = marked + available;
+        resizeCount++;
+        if (newSize > peakSize){
+            peakSize = newSize;
+        }
+    }
+
+    /**
+     * Go back to the initial size if the buffer has been grown and
+     * there is nothing left in it, neither to read nor marked.
+     */
+    private void shrinkIfDrained(){
+        if (shrinkOnDrain && buffer.length > initialSize && markPosition == writePosition){
+            buffer = new byte[initialSize];
+            readPosition = 0;
+            writePosition = 0;
+            markPosition = 0;
+            markSize = 0;
+            resizeCount++;
+        }
     }
 
     /**
@@ -331,6 +442,15 @@ public class BlCircularByteBuffer {
         }
     }
 
+    /**
+     * Account time spent by a writer waiting for free space.
+     */
+    private void addBlockedWriteTime(long nanos){
+        synchronized (this){
+            blockedWriteNanos += nanos;
+        }
+    }
+
     /**
      * Create a new buffer with a default capacity.
      * Writing to a full buffer will block until space
@@ -404,6 +524,41 @@ public class BlCircularByteBuffer {
             buffer = new byte[size];
             infinite = false;
         }
+        initialSize = buffer.length;
+        peakSize = buffer.length;
+        this.blockingWrite = blockingWrite;
+    }
+
+    /**
+     * Create a new buffer that starts with the given capacity and
+     * doubles it as needed up to the given maximum.
+     * <p>
+     * Once the buffer has grown to maxSize, writing to a full buffer
+     * blocks or throws an exception depending on blockingWrite.
+     * <p>
+     * Note that the buffer may reserve some bytes for
+     * special purposes and capacity number of bytes may
+     * not be able to be written to the buffer.
+     *
+     * @param initialSize initial capacity of the buffer in bytes.
+     * @param maxSize maximum capacity of the buffer in bytes or INFINITE_SIZE.
+     * @param blockingWrite true writing to a full buffer should block
+     *        until space is available, false if an exception should
+     *        be thrown instead.
+     *
+     * @throws IllegalArgumentException if initialSize is less than 2 or
+     *         maxSize is smaller than initialSize.
+     */
+    public BlCircularByteBuffer(int initialSize, int maxSize, boolean blockingWrite){
+        if (initialSize < 2)
+            throw new IllegalArgumentException("Initial size must be greater than 1.");
+        if (maxSize != INFINITE_SIZE && maxSize < initialSize)
+            throw new IllegalArgumentException("Maximum size cannot be smaller than the initial size.");
+        buffer = new byte[initialSize];
+        infinite = true;
+        this.maxSize = maxSize;
+        this.initialSize = initialSize;
+        this.peakSize = initialSize;
         this.blockingWrite = blockingWrite;
     }
 
@@ -503,6 +658,7 @@ public class BlCircularByteBuffer {
                             readPosition = 0;
                         }
                         ensureMark();
+                        shrinkIfDrained();
                         return result;
                     } else if (outputStreamClosed){
                         return -1;
@@ -566,6 +722,7 @@ public class BlCircularByteBuffer {
                             readPosition = 0;
                         }
                         ensureMark();
+                        shrinkIfDrained();
                         return length;
                     } else if (outputStreamClosed){
                         return -1;
@@ -626,6 +783,7 @@ public class BlCircularByteBuffer {
                             readPosition = 0;
                         }
                         ensureMark();
+                        shrinkIfDrained();
                         return length;
                     } else if (outputStreamClosed){
                         return 0;
@@ -718,7 +876,7 @@ public class BlCircularByteBuffer {
                     if (outputStreamClosed) throw new IOException("OutputStream has been closed; cannot write to a closed OutputStream.");
                     if (inputStreamClosed) throw new IOException("Buffer closed by InputStream; cannot write to a closed buffer.");
                     int spaceLeft = spaceLeft();
-                    while (infinite && spaceLeft < len){
+                    while (spaceLeft < len && canGrow()){
                         resize();
                         spaceLeft = spaceLeft();
                     }
@@ -743,10 +901,13 @@ public class BlCircularByteBuffer {
                     len -= written;
                 }
                 if (len > 0){
+                    long start = System.nanoTime();
                     try {
                         Thread.sleep(100);
                     } catch(Exception x){
                         throw new IOException("Waiting for available space in buffer interrupted.");
+                    } finally {
+                        addBlockedWriteTime(System.nanoTime() - start);
                     }
                 }
             }
@@ -771,7 +932,7 @@ public class BlCircularByteBuffer {
                     if (outputStreamClosed) throw new IOException("OutputStream has been closed; cannot write to a closed OutputStream.");
                     if (inputStreamClosed) throw new IOException("Buffer closed by InputStream; cannot write to a closed buffer.");
                     int spaceLeft = spaceLeft();
-                    while (infinite && spaceLeft < 1){
+                    while (spaceLeft < 1 && canGrow()){
                         resize();
                         spaceLeft = spaceLeft();
                     }
@@ -786,10 +947,13 @@ public class BlCircularByteBuffer {
                     }
                 }
                 if (!written){
+                    long start = System.nanoTime();
                     try {
                         Thread.sleep(100);
                     } catch(Exception x){
                         throw new IOException("Waiting for available space in buffer interrupted.");
+                    } finally {
+                        addBlockedWriteTime(System.nanoTime() - start);
                     }
                 }
             }
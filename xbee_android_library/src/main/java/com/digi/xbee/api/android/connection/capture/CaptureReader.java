@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads the records of a capture written by a
+ * {@link CaptureWriter}.
+ *
+ * <p>Segments are read sequentially through a small buffer, so captures
+ * of any size can be processed without loading them in memory.</p>
+ *
+ * @see CaptureRecord
+ * @see CaptureWriter
+ */
+public class CaptureReader implements Closeable {
+
+	// Constants.
+	private static final int BUFFER_SIZE = 8192;
+
+	// Variables.
+	private final List<File> segments;
+
+	private int nextSegment = 0;
+
+	private DataInputStream input;
+
+	private long segmentStartTime;
+	private long segmentStartNanos;
+
+	// Bytes of the current segment after the last record read.
+	private long segmentRemaining;
+
+	/**
+	 * Class constructor. Instantiates a new {@code CaptureReader} for the
+	 * capture with the given name.
+	 *
+	 * @param directory Directory containing the segments.
+	 * @param name Name of the capture.
+	 *
+	 * @throws NullPointerException if {@code directory == null} or
+	 *                              if {@code name == null}.
+	 *
+	 * @see #CaptureReader(List)
+	 */
+	public CaptureReader(File directory, String name) {
+		this(CaptureWriter.listSegments(checkNotNull(directory, "Directory"), checkNotNull(name, "Name")));
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code CaptureReader} for the
+	 * given segment files.
+	 *
+	 * @param segments Segment files to read, in order.
+	 *
+	 * @throws NullPointerException if {@code segments == null}.
+	 *
+	 * @see #CaptureReader(File, String)
+	 */
+	public CaptureReader(List<File> segments) {
+		if (segments == null)
+			throw new NullPointerException("Segments cannot be null.");
+
+		this.segments = new ArrayList<>(segments);
+	}
+
+	/**
+	 * Reads the next record of the capture.
+	 *
+	 * @return The next record, {@code null} if there are no more records.
+	 *
+	 * @throws IOException if a segment cannot be read or is not a valid
+	 *                     capture segment.
+	 *
+	 * @see #readFrame()
+	 */
+	public CaptureRecord read() throws IOException {
+		while (true) {
+			if (input == null && !openNextSegment())
+				return null;
+			CaptureRecord record = readRecord();
+			if (record != null)
+				return record;
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Reads the next API frame of the capture, skipping the raw chunks.
+	 *
+	 * @return The next frame record, {@code null} if there are no more
+	 *         frames.
+	 *
+	 * @throws IOException if a segment cannot be read or is not a valid
+	 *                     capture segment.
+	 *
+	 * @see #read()
+	 */
+	public CaptureRecord readFrame() throws IOException {
+		CaptureRecord record;
+		while ((record = read()) != null) {
+			if (record.getType() == CaptureRecord.Type.RX_FRAME
+					|| record.getType() == CaptureRecord.Type.TX_FRAME)
+				return record;
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeSegment();
+		nextSegment = segments.size();
+	}
+
+	/**
+	 * Opens the next segment and reads its header.
+	 *
+	 * @return {@code true} if a segment was opened, {@code false} if there
+	 *         are no more segments.
+	 */
+	private boolean openNextSegment() throws IOException {
+		if (nextSegment >= segments.size())
+			return false;
+
+		File file = segments.get(nextSegment++);
+		input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		try {
+			if (input.readInt() != CaptureWriter.MAGIC)
+				throw new IOException(file + " is not a capture segment.");
+			int version = input.readUnsignedByte();
+			if (version != CaptureWriter.VERSION)
+				throw new IOException("Unsupported capture version " + version + " in " + file + ".");
+			input.skipBytes(3);
+			input.readInt();
+			segmentStartTime = input.readLong();
+			segmentStartNanos = input.readLong();
+			segmentRemaining = file.length() - CaptureWriter.HEADER_SIZE;
+		} catch (EOFException e) {
+			closeSegment();
+			throw new IOException(file + " is not a capture segment.", e);
+		} catch (IOException e) {
+			closeSegment();
+			throw e;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the next record of the current segment.
+	 *
+	 * @return The record, {@code null} at the end of the segment.
+	 */
+	private CaptureRecord readRecord() throws IOException {
+		try {
+			CaptureRecord.Type type = CaptureRecord.Type.get(input.readUnsignedByte());
+			if (type == null)
+				return null;
+			long delta = input.readLong();
+			int length = input.readInt();
+			// A corrupt or truncated record ends the segment.
+			if (length < 0 || length > segmentRemaining - CaptureWriter.RECORD_HEADER_SIZE)
+				return null;
+			byte[] data = new byte[length];
+			input.readFully(data);
+			segmentRemaining -= CaptureWriter.RECORD_HEADER_SIZE + length;
+			return new CaptureRecord(type, segmentStartTime + delta / 1000000,
+					segmentStartNanos + delta, data);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Closes the current segment.
+	 */
+	private void closeSegment() throws IOException {
+		if (input != null) {
+			input.close();
+			input = null;
+		}
+	}
+
+	private static <T> T checkNotNull(T value, String name) {
+		if (value == null)
+			throw new NullPointerException(name + " cannot be null.");
+		return value;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.capture;
+
+import java.util.HashMap;
+
+import com.digi.xbee.api.utils.HexUtils;
+
+/**
+ * This class represents a record of a capture file.
+ *
+ * @see CaptureReader
+ * @see CaptureWriter
+ */
+public class CaptureRecord {
+
+	/**
+	 * Type of the captured data.
+	 */
+	public enum Type {
+		/** Raw chunk of data received from the transport. */
+		RX_CHUNK(1),
+		/** Raw chunk of data written to the transport. */
+		TX_CHUNK(2),
+		/** Complete API frame received from the device. */
+		RX_FRAME(3),
+		/** Complete API frame sent to the device. */
+		TX_FRAME(4);
+
+		// Variables.
+		private static HashMap<Integer, Type> lookupTable = new HashMap<>();
+
+		static {
+			for (Type type : values())
+				lookupTable.put(type.getId(), type);
+		}
+
+		private final int id;
+
+		Type(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Returns the identifier of the type, as stored in the file.
+		 *
+		 * @return The type identifier.
+		 */
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the type for the given identifier.
+		 *
+		 * @param id Type identifier.
+		 *
+		 * @return The type, {@code null} if the identifier is unknown.
+		 */
+		public static Type get(int id) {
+			return lookupTable.get(id);
+		}
+	}
+
+	// Variables.
+	private final Type type;
+	private final long time;
+	private final long nanoTime;
+	private final byte[] data;
+
+	/**
+	 * Class constructor. Instantiates a new {@code CaptureRecord} with the
+	 * given parameters.
+	 *
+	 * @param type Type of the record.
+	 * @param time Wall clock time of the record in milliseconds.
+	 * @param nanoTime Monotonic time of the record in nanoseconds.
+	 * @param data Captured data.
+	 */
+	CaptureRecord(Type type, long time, long nanoTime, byte[] data) {
+		this.type = type;
+		this.time = time;
+		this.nanoTime = nanoTime;
+		this.data = data;
+	}
+
+	/**
+	 * Returns the type of the record.
+	 *
+	 * @return The record type.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the wall clock time the data was captured.
+	 *
+	 * @return The capture time in milliseconds since the epoch.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the monotonic time the data was captured, as returned by
+	 * {@link System#nanoTime()} on the capturing device.
+	 *
+	 * <p>Use it to measure precise intervals between records of the same
+	 * capture.</p>
+	 *
+	 * @return The capture time in nanoseconds.
+	 */
+	public long getNanoTime() {
+		return nanoTime;
+	}
+
+	/**
+	 * Returns the captured data.
+	 *
+	 * @return The captured data.
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d %s: %s", time, type, HexUtils.byteArrayToHexString(data));
+	}
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.android.connection.WireTraceListener;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
+import com.digi.xbee.api.connection.IConnectionInterface;
+import com.digi.xbee.api.listeners.IPacketReceiveListener;
+import com.digi.xbee.api.packet.XBeePacket;
+
+/**
+ * This class writes the traffic of a connection interface to capture files.
+ *
+ * <p>The capture is split in segments of a fixed size. Each segment is a
+ * memory mapped file, so appending a record is a memory copy and does not
+ * block the transfer threads on disk I/O. The next segment is created and
+ * mapped in the background while the current one is being filled. When
+ * the total size of the segments exceeds the configured maximum, the
+ * oldest segments are deleted.</p>
+ *
+ * <p>Segments are named {@code <name>-<index>.xbc} and have the following
+ * format (big endian):</p>
+ * <ul>
+ *   <li>Header: magic {@code "XBCP"} (4 bytes), version (1 byte), reserved
+ *   (3 bytes), segment index (4 bytes), start time in milliseconds since
+ *   the epoch (8 bytes) and start time from {@link System#nanoTime()}
+ *   (8 bytes).</li>
+ *   <li>Records: type (1 byte), nanoseconds since the segment start
+ *   (8 bytes), data length (4 bytes) and data.</li>
+ * </ul>
+ * <p>A record type of {@code 0} marks the end of the segment.</p>
+ *
+ * <p>Raw chunks are received through a {@link WireTracer} (see
+ * {@link #attach(IConnectionInterface)}). Received API frames are captured
+ * by registering the writer as packet listener of the device, and sent
+ * frames with {@link #writeFrame(WireTracer.Direction, XBeePacket)}.</p>
+ *
+ * @see CaptureReader
+ * @see CaptureRecord
+ */
+public class CaptureWriter implements WireTraceListener, IPacketReceiveListener, Closeable {
+
+	// Constants.
+	/**
+	 * Default size of each segment in bytes.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Default maximum size of the capture in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+	static final int MAGIC = 0x58424350; // "XBCP"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 28;
+	static final int RECORD_HEADER_SIZE = 13;
+	static final String EXTENSION = ".xbc";
+
+	private static final int MIN_SEGMENT_SIZE = 1024;
+
+	private static final long CLOSE_TIMEOUT = 5000;
+
+	// Variables.
+	private final File directory;
+	private final String name;
+	private final int segmentSize;
+	private final int maxSegments;
+
+	private final ArrayDeque<File> segmentFiles = new ArrayDeque<>();
+
+	private final ExecutorService executor;
+
+	private Segment segment;
+	private Future<Segment> nextSegment;
+	private int nextIndex;
+
+	private long lostRecords = 0;
+
+	private boolean closed = false;
+
+	private Logger logger;
+
+	/**
+	 * Class constructor. Instantiates a new {@code CaptureWriter} with
+	 * segments of {@link #DEFAULT_SEGMENT_SIZE} bytes and a maximum size of
+	 * {@link #DEFAULT_MAX_SIZE} bytes.
+	 *
+	 * @param directory Directory to store the segments in.
+	 * @param name Name of the capture.
+	 *
+	 * @throws IOException if the first segment cannot be created.
+	 * @throws NullPointerException if {@code directory == null} or
+	 *                              if {@code name == null}.
+	 *
+	 * @see #CaptureWriter(File, String, int, long)
+	 */
+	public CaptureWriter(File directory, String name) throws IOException {
+		this(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code CaptureWriter} with the
+	 * given parameters.
+	 *
+	 * <p>If the directory already contains segments of a capture with the
+	 * same name, the new segments are numbered after them and they count
+	 * towards the maximum size.</p>
+	 *
+	 * @param directory Directory to store the segments in.
+	 * @param name Name of the capture.
+	 * @param segmentSize Size of each segment in bytes.
+	 * @param maxSize Maximum size of all the segments in bytes, including the
+	 *                one created in advance.
+	 *
+	 * @throws IllegalArgumentException if {@code segmentSize < 1024} or
+	 *                                  if {@code maxSize < 2 * segmentSize}.
+	 * @throws IOException if the first segment cannot be created.
+	 * @throws NullPointerException if {@code directory == null} or
+	 *                              if {@code name == null}.
+	 *
+	 * @see #CaptureWriter(File, String)
+	 */
+	public CaptureWriter(File directory, String name, int segmentSize, long maxSize) throws IOException {
+		if (directory == null)
+			throw new NullPointerException("Directory cannot be null.");
+		if (name == null)
+			throw new NullPointerException("Name cannot be null.");
+		if (segmentSize < MIN_SEGMENT_SIZE)
+			throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes.");
+		if (maxSize < 2L * segmentSize)
+			throw new IllegalArgumentException("Maximum size must be at least two segments.");
+
+		this.directory = directory;
+		this.name = name;
+		this.segmentSize = segmentSize;
+		this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxSize / segmentSize) - 1;
+		this.logger = LoggerFactory.getLogger(CaptureWriter.class);
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory " + directory);
+
+		// Continue the numbering of an existing capture.
+		List<File> existing = listSegments(directory, name);
+		segmentFiles.addAll(existing);
+		if (!existing.isEmpty())
+			nextIndex = getIndex(existing.get(existing.size() - 1), name) + 1;
+
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "CaptureWriter-" + CaptureWriter.this.name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		activate(createSegment(nextIndex++));
+		prepareNextSegment();
+	}
+
+	/**
+	 * Registers this writer to capture the raw traffic of the given
+	 * connection interface.
+	 *
+	 * <p>If the interface has no wire tracer, a new one is set.</p>
+	 *
+	 * @param connectionInterface The connection interface to capture.
+	 *
+	 * @throws IllegalArgumentException if the connection interface does not
+	 *                                  support wire tracing.
+	 * @throws NullPointerException if {@code connectionInterface == null}.
+	 *
+	 * @see #detach(IConnectionInterface)
+	 */
+	public void attach(IConnectionInterface connectionInterface) {
+		WireTraceable traceable = getTraceable(connectionInterface);
+		synchronized (traceable) {
+			WireTracer tracer = traceable.getWireTracer();
+			if (tracer == null) {
+				tracer = new WireTracer();
+				traceable.setWireTracer(tracer);
+			}
+			tracer.addListener(this);
+		}
+	}
+
+	/**
+	 * Stops capturing the raw traffic of the given connection interface.
+	 *
+	 * @param connectionInterface The connection interface.
+	 *
+	 * @throws IllegalArgumentException if the connection interface does not
+	 *                                  support wire tracing.
+	 * @throws NullPointerException if {@code connectionInterface == null}.
+	 *
+	 * @see #attach(IConnectionInterface)
+	 */
+	public void detach(IConnectionInterface connectionInterface) {
+		WireTracer tracer = getTraceable(connectionInterface).getWireTracer();
+		if (tracer != null)
+			tracer.removeListener(this);
+	}
+
+	@Override
+	public void dataTraced(WireTracer.Direction direction, long timestamp, byte[] buffer, int offset, int length) {
+		write(direction == WireTracer.Direction.RX ? CaptureRecord.Type.RX_CHUNK : CaptureRecord.Type.TX_CHUNK,
+				timestamp, buffer, offset, length);
+	}
+
+	@Override
+	public void packetReceived(XBeePacket receivedPacket) {
+		writeFrame(WireTracer.Direction.RX, receivedPacket);
+	}
+
+	/**
+	 * Writes the given API frame to the capture.
+	 *
+	 * @param direction Direction of the frame.
+	 * @param packet The API frame.
+	 *
+	 * @throws NullPointerException if {@code direction == null} or
+	 *                              if {@code packet == null}.
+	 */
+	public void writeFrame(WireTracer.Direction direction, XBeePacket packet) {
+		if (direction == null)
+			throw new NullPointerException("Direction cannot be null.");
+		if (packet == null)
+			throw new NullPointerException("Packet cannot be null.");
+
+		byte[] data = packet.generateByteArray();
+		write(direction == WireTracer.Direction.RX ? CaptureRecord.Type.RX_FRAME : CaptureRecord.Type.TX_FRAME,
+				System.nanoTime(), data, 0, data.length);
+	}
+
+	/**
+	 * Appends a record to the capture.
+	 *
+	 * <p>Records that do not fit in a segment are discarded, as are the
+	 * records that need a new segment while it is still being created.
+	 * This method never waits for the disk.</p>
+	 *
+	 * @param type Type of the record.
+	 * @param nanoTime Time of the record, from {@link System#nanoTime()}.
+	 * @param data Buffer containing the data.
+	 * @param offset Offset of the data inside the buffer.
+	 * @param length Number of bytes of the data.
+	 *
+	 * @throws NullPointerException if {@code type == null} or
+	 *                              if {@code data == null}.
+	 *
+	 * @see #getLostRecords()
+	 */
+	public synchronized void write(CaptureRecord.Type type, long nanoTime, byte[] data, int offset, int length) {
+		if (type == null)
+			throw new NullPointerException("Type cannot be null.");
+		if (data == null)
+			throw new NullPointerException("Data cannot be null.");
+		if (closed)
+			return;
+
+		int recordSize = RECORD_HEADER_SIZE + length;
+		if (recordSize > segmentSize - HEADER_SIZE) {
+			lostRecords++;
+			return;
+		}
+		if (segment == null || segment.buffer.remaining() < recordSize) {
+			rotate();
+			if (segment == null || segment.buffer.remaining() < recordSize) {
+				lostRecords++;
+				return;
+			}
+		}
+
+		// The type is written last, so a partial record reads as the end of
+		// the segment.
+		MappedByteBuffer buffer = segment.buffer;
+		int position = buffer.position();
+		buffer.position(position + 1);
+		buffer.putLong(nanoTime - segment.startNanos);
+		buffer.putInt(length);
+		buffer.put(data, offset, length);
+		buffer.put(position, (byte) type.getId());
+	}
+
+	/**
+	 * Forces the data written so far to be stored on disk.
+	 */
+	public synchronized void flush() {
+		if (segment != null)
+			segment.buffer.force();
+	}
+
+	/**
+	 * Returns the number of records discarded because they did not fit in
+	 * a segment or a segment could not be created.
+	 *
+	 * @return The number of lost records.
+	 */
+	public synchronized long getLostRecords() {
+		return lostRecords;
+	}
+
+	/**
+	 * Returns the segment files of this capture that are still on disk.
+	 *
+	 * @return The segment files, from the oldest to the newest.
+	 */
+	public synchronized List<File> getSegmentFiles() {
+		return new ArrayList<>(segmentFiles);
+	}
+
+	/**
+	 * Closes the capture. The unused space of the last segment is released
+	 * and the segment created in advance is deleted.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+
+		finish(segment);
+		segment = null;
+		try {
+			Segment unused = nextSegment.get();
+			unused.close();
+			if (!unused.file.delete())
+				logger.warn("Could not delete unused segment " + unused.file);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | IOException e) {
+			// Nothing to clean up.
+		}
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS))
+				logger.warn("Capture segments were not finished in " + CLOSE_TIMEOUT + " ms.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Continues with the segment created in advance and finishes the current
+	 * one in the background. Nothing is done if the next segment is not
+	 * ready yet, so the caller never waits for the disk.
+	 */
+	private void rotate() {
+		if (!nextSegment.isDone())
+			return;
+		finishLater(segment);
+		segment = null;
+		try {
+			activate(nextSegment.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.error("Could not create capture segment: " + e.getCause().getMessage(), e.getCause());
+		}
+		prepareNextSegment();
+	}
+
+	/**
+	 * Creates the next segment in the background.
+	 */
+	private void prepareNextSegment() {
+		final int index = nextIndex++;
+		nextSegment = executor.submit(new Callable<Segment>() {
+			@Override
+			public Segment call() throws IOException {
+				return createSegment(index);
+			}
+		});
+	}
+
+	/**
+	 * Creates and maps the segment file with the given index.
+	 */
+	private Segment createSegment(int index) throws IOException {
+		File file = new File(directory, String.format("%s-%06d%s", name, index, EXTENSION));
+		return new Segment(file, index, segmentSize);
+	}
+
+	/**
+	 * Writes the header of the given segment and makes it the current one.
+	 */
+	private void activate(Segment newSegment) {
+		newSegment.startNanos = System.nanoTime();
+		MappedByteBuffer buffer = newSegment.buffer;
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.put(new byte[3]);
+		buffer.putInt(newSegment.index);
+		buffer.putLong(System.currentTimeMillis());
+		buffer.putLong(newSegment.startNanos);
+		segment = newSegment;
+
+		// Enforce the size cap.
+		segmentFiles.add(newSegment.file);
+		while (segmentFiles.size() > maxSegments) {
+			final File oldest = segmentFiles.poll();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (!oldest.delete())
+						logger.warn("Could not delete capture segment " + oldest);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Finishes the given segment in the background.
+	 */
+	private void finishLater(final Segment oldSegment) {
+		if (oldSegment == null)
+			return;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				finish(oldSegment);
+			}
+		});
+	}
+
+	/**
+	 * Flushes the given segment and releases its unused space.
+	 */
+	private void finish(Segment oldSegment) {
+		if (oldSegment == null)
+			return;
+		try {
+			oldSegment.buffer.force();
+			oldSegment.channel.truncate(oldSegment.buffer.position());
+			oldSegment.close();
+		} catch (IOException e) {
+			logger.error("Could not close capture segment " + oldSegment.file + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the connection interface as a traceable interface.
+	 */
+	private static WireTraceable getTraceable(IConnectionInterface connectionInterface) {
+		if (connectionInterface == null)
+			throw new NullPointerException("Connection interface cannot be null.");
+		if (!(connectionInterface instanceof WireTraceable))
+			throw new IllegalArgumentException("Connection interface does not support wire tracing.");
+		return (WireTraceable) connectionInterface;
+	}
+
+	/**
+	 * Returns the segment files of the capture with the given name, sorted by
+	 * index.
+	 *
+	 * @param directory Directory containing the segments.
+	 * @param name Name of the capture.
+	 *
+	 * @return The segment files.
+	 */
+	static List<File> listSegments(File directory, final String name) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String fileName) {
+				return fileName.startsWith(name + "-") && fileName.endsWith(EXTENSION)
+						&& getIndex(new File(dir, fileName), name) >= 0;
+			}
+		});
+		if (files == null)
+			return new ArrayList<>();
+		Arrays.sort(files);
+		return new ArrayList<>(Arrays.asList(files));
+	}
+
+	/**
+	 * Returns the index of the given segment file, {@code -1} if the file
+	 * name is not valid.
+	 */
+	private static int getIndex(File file, String name) {
+		String fileName = file.getName();
+		try {
+			return Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - EXTENSION.length()));
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * A memory mapped segment file.
+	 */
+	private static class Segment {
+		private final File file;
+		private final int index;
+		private final RandomAccessFile randomAccessFile;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private long startNanos;
+
+		Segment(File file, int index, int size) throws IOException {
+			this.file = file;
+			this.index = index;
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			this.channel = randomAccessFile.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		void close() throws IOException {
+			channel.close();
+			randomAccessFile.close();
+		}
+	}
+}
@@ -0,0 +1,885 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.android.connection.FrameSplitter;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
+import com.digi.xbee.api.android.connection.TransportThreads;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
+import com.digi.xbee.api.android.connection.capture.CaptureReader;
+import com.digi.xbee.api.android.connection.capture.CaptureRecord;
+import com.digi.xbee.api.android.connection.usb.CircularByteBuffer;
+import com.digi.xbee.api.connection.ConnectionType;
+import com.digi.xbee.api.connection.IConnectionInterface;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.exceptions.InvalidInterfaceException;
+import com.digi.xbee.api.exceptions.InvalidPacketException;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.models.OperatingMode;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.common.ATCommandPacket;
+import com.digi.xbee.api.packet.common.ATCommandQueuePacket;
+import com.digi.xbee.api.packet.common.ATCommandResponsePacket;
+
+/**
+ * This class represents a connection interface that replays recorded
+ * traffic instead of talking to a real XBee device.
+ *
+ * <p>The received side of a capture written by a
+ * {@link com.digi.xbee.api.android.connection.capture.CaptureWriter}, or a
+ * plain byte stream, is delivered to the device as if it came from the
+ * hardware. The last {@link #DEFAULT_MAX_RECORDED_WRITES} writes of the
+ * device are recorded and can be retrieved with {@link #getWrites()}.</p>
+ *
+ * <p>Captured records are delivered following their original timing
+ * divided by the replay speed: {@link #REAL_TIME}, any accelerated factor
+ * or {@link #AS_FAST_AS_POSSIBLE}. Plain byte streams have no timing and are
+ * always delivered as fast as possible.</p>
+ *
+ * <p>So that the device can be opened, local AT commands written by the
+ * device are answered with the response recorded in the capture for the
+ * same command. Replaying the recorded traffic starts when
+ * {@link #startReplay()} is called, typically once the device is open.</p>
+ *
+ * <p>This interface works on any JVM, so it can be used to measure the
+ * throughput of the frame parser and listeners without hardware.</p>
+ */
+public class ReplayConnectionInterface implements IConnectionInterface, TransportStatisticsProvider, WireTraceable {
+
+	// Constants.
+	/**
+	 * Replay speed that keeps the original timing.
+	 */
+	public static final double REAL_TIME = 1;
+
+	/**
+	 * Replay speed that delivers the data without waiting.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Default number of writes of the device that are recorded.
+	 */
+	public static final int DEFAULT_MAX_RECORDED_WRITES = 1000;
+
+	private static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+	private static final int READ_TIMEOUT = 100;
+
+	// Variables.
+	private final File directory;
+	private final String name;
+	private final CaptureRecord.Type type;
+
+	private final byte[] data;
+	private final int chunkSize;
+
+	private double speed = REAL_TIME;
+	private int loops = 1;
+	private OperatingMode operatingMode = OperatingMode.API;
+
+	private final Map<String, ATCommandResponsePacket> atResponses = new HashMap<>();
+
+	private final CircularByteBuffer receiveBuffer = new CircularByteBuffer(RECEIVE_BUFFER_SIZE);
+	private final Object receiveLock = new Object();
+
+	private final List<byte[]> pendingResponses = new ArrayList<>();
+	private final ArrayDeque<byte[]> writes = new ArrayDeque<>();
+	private int maxRecordedWrites = DEFAULT_MAX_RECORDED_WRITES;
+
+	private FrameSplitter writeSplitter;
+	private FrameSplitter replaySplitter;
+
+	private final InputStream inputStream = new ReceiveInputStream();
+	private final OutputStream outputStream = new SendOutputStream();
+
+	private volatile boolean open = false;
+	private volatile boolean replayRunning = false;
+	private volatile boolean replayFinished = false;
+
+	// A chunk is being written in the receive buffer, guarded by receiveLock.
+	private boolean delivering = false;
+
+	private Thread replayThread;
+
+	private final AtomicLong replayedRecords = new AtomicLong();
+	private final AtomicLong replayedBytes = new AtomicLong();
+
+	private final TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+
+	private final TransportThreads threads = new TransportThreads("ReplayConnectionInterface");
+
+	private volatile WireTracer wireTracer;
+
+	private Logger logger;
+
+	/**
+	 * Class constructor. Instantiates a new {@code ReplayConnectionInterface}
+	 * that replays the given capture.
+	 *
+	 * @param directory Directory containing the capture segments.
+	 * @param name Name of the capture.
+	 * @param type Type of the records to replay, {@code RX_CHUNK} to replay
+	 *             the raw received data or {@code RX_FRAME} to replay the
+	 *             received frames.
+	 *
+	 * @throws IllegalArgumentException if {@code type} is not
+	 *                                  {@code RX_CHUNK} or {@code RX_FRAME}.
+	 * @throws NullPointerException if {@code directory == null} or
+	 *                              if {@code name == null} or
+	 *                              if {@code type == null}.
+	 *
+	 * @see #ReplayConnectionInterface(byte[], int)
+	 */
+	public ReplayConnectionInterface(File directory, String name, CaptureRecord.Type type) {
+		if (directory == null)
+			throw new NullPointerException("Directory cannot be null.");
+		if (name == null)
+			throw new NullPointerException("Name cannot be null.");
+		if (type == null)
+			throw new NullPointerException("Type cannot be null.");
+		if (type != CaptureRecord.Type.RX_CHUNK && type != CaptureRecord.Type.RX_FRAME)
+			throw new IllegalArgumentException("Only received records can be replayed.");
+
+		this.directory = directory;
+		this.name = name;
+		this.type = type;
+		this.data = null;
+		this.chunkSize = 0;
+		this.logger = LoggerFactory.getLogger(ReplayConnectionInterface.class);
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code ReplayConnectionInterface}
+	 * that replays the given byte stream.
+	 *
+	 * @param data The byte stream to replay.
+	 * @param chunkSize Number of bytes delivered at once.
+	 *
+	 * @throws IllegalArgumentException if {@code chunkSize < 1}.
+	 * @throws NullPointerException if {@code data == null}.
+	 *
+	 * @see #ReplayConnectionInterface(File, String, CaptureRecord.Type)
+	 */
+	public ReplayConnectionInterface(byte[] data, int chunkSize) {
+		if (data == null)
+			throw new NullPointerException("Data cannot be null.");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be greater than 0.");
+
+		this.directory = null;
+		this.name = null;
+		this.type = null;
+		this.data = data.clone();
+		this.chunkSize = chunkSize;
+		this.logger = LoggerFactory.getLogger(ReplayConnectionInterface.class);
+	}
+
+	/**
+	 * Sets the replay speed.
+	 *
+	 * @param speed Replay speed: {@link #REAL_TIME}, a factor to accelerate
+	 *              or slow down the original timing, or
+	 *              {@link #AS_FAST_AS_POSSIBLE}.
+	 *
+	 * @throws IllegalArgumentException if {@code speed <= 0} or
+	 *                                  if {@code speed} is not a number.
+	 *
+	 * @see #getSpeed()
+	 */
+	public void setSpeed(double speed) {
+		if (Double.isNaN(speed) || speed <= 0)
+			throw new IllegalArgumentException("Speed must be greater than 0.");
+
+		this.speed = speed;
+	}
+
+	/**
+	 * Returns the replay speed.
+	 *
+	 * @return The replay speed.
+	 *
+	 * @see #setSpeed(double)
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Sets the number of times the recorded traffic is replayed.
+	 *
+	 * @param loops Number of replays.
+	 *
+	 * @throws IllegalArgumentException if {@code loops < 1}.
+	 */
+	public void setLoops(int loops) {
+		if (loops < 1)
+			throw new IllegalArgumentException("Loops must be greater than 0.");
+
+		this.loops = loops;
+	}
+
+	/**
+	 * Sets the number of writes of the device that are recorded. Only the
+	 * most recent ones are kept. The default is
+	 * {@link #DEFAULT_MAX_RECORDED_WRITES}.
+	 *
+	 * @param maxRecordedWrites Number of writes to keep, {@code 0} to
+	 *                          disable the recording.
+	 *
+	 * @throws IllegalArgumentException if {@code maxRecordedWrites < 0}.
+	 *
+	 * @see #getWrites()
+	 */
+	public void setMaxRecordedWrites(int maxRecordedWrites) {
+		if (maxRecordedWrites < 0)
+			throw new IllegalArgumentException("Maximum recorded writes cannot be negative.");
+
+		synchronized (writes) {
+			this.maxRecordedWrites = maxRecordedWrites;
+			while (writes.size() > maxRecordedWrites)
+				writes.poll();
+		}
+	}
+
+	/**
+	 * Sets the operating mode of the recorded traffic, used to split it in
+	 * frames. The default is {@link OperatingMode#API}.
+	 *
+	 * @param operatingMode The operating mode, {@code API} or
+	 *                      {@code API_ESCAPE}.
+	 *
+	 * @throws IllegalArgumentException if {@code operatingMode} is not
+	 *                                  {@code API} or {@code API_ESCAPE}.
+	 * @throws NullPointerException if {@code operatingMode == null}.
+	 */
+	public void setOperatingMode(OperatingMode operatingMode) {
+		if (operatingMode == null)
+			throw new NullPointerException("Operating mode cannot be null.");
+		if (operatingMode != OperatingMode.API && operatingMode != OperatingMode.API_ESCAPE)
+			throw new IllegalArgumentException("Operating mode must be API or API escaped.");
+
+		this.operatingMode = operatingMode;
+	}
+
+	@Override
+	public void open() throws InvalidInterfaceException {
+		if (open)
+			return;
+
+		atResponses.clear();
+		try {
+			collectATResponses();
+		} catch (IOException e) {
+			throw new InvalidInterfaceException("Could not read capture " + name + ": " + e.getMessage(), e);
+		}
+		synchronized (receiveLock) {
+			receiveBuffer.clearBuffer();
+			pendingResponses.clear();
+		}
+		boolean escaped = operatingMode == OperatingMode.API_ESCAPE;
+		writeSplitter = new FrameSplitter(escaped);
+		replaySplitter = new FrameSplitter(escaped);
+		statistics.setEscaped(escaped);
+		replayFinished = false;
+		open = true;
+
+		Thread watchdogThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watchReader();
+			}
+		}, "ReplayConnectionInterface reader watchdog");
+		watchdogThread.setDaemon(true);
+		watchdogThread.start();
+		threads.register(watchdogThread);
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		threads.stopAll(TransportThreads.DEFAULT_JOIN_TIMEOUT);
+		replayThread = null;
+		synchronized (receiveLock) {
+			receiveLock.notifyAll();
+		}
+		synchronized (this) {
+			notify();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Starts replaying the recorded traffic.
+	 *
+	 * @throws InterfaceNotOpenException if the interface is not open.
+	 *
+	 * @see #waitForReplay(long)
+	 */
+	public synchronized void startReplay() {
+		if (!open)
+			throw new InterfaceNotOpenException();
+		if (replayRunning)
+			return;
+
+		replayRunning = true;
+		replayFinished = false;
+		replayThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				replay();
+			}
+		}, "ReplayConnectionInterface");
+		replayThread.start();
+		threads.register(replayThread);
+	}
+
+	/**
+	 * Waits until all the recorded traffic has been replayed and read.
+	 *
+	 * @param timeout Maximum time to wait in milliseconds.
+	 *
+	 * @return {@code true} if the replay finished, {@code false} if the
+	 *         timeout expired.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while
+	 *                              waiting.
+	 *
+	 * @see #startReplay()
+	 */
+	public boolean waitForReplay(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (receiveLock) {
+			while (!replayFinished || receiveBuffer.availableToRead() > 0) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0 || !open)
+					return false;
+				receiveLock.wait(remaining);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether all the recorded traffic has been delivered.
+	 *
+	 * @return {@code true} if the replay finished, {@code false} otherwise.
+	 */
+	public boolean isReplayFinished() {
+		return replayFinished;
+	}
+
+	/**
+	 * Returns the number of records delivered so far.
+	 *
+	 * @return The number of replayed records.
+	 */
+	public long getReplayedRecords() {
+		return replayedRecords.get();
+	}
+
+	/**
+	 * Returns the number of bytes delivered so far.
+	 *
+	 * @return The number of replayed bytes.
+	 */
+	public long getReplayedBytes() {
+		return replayedBytes.get();
+	}
+
+	/**
+	 * Returns the most recent data written by the device, one entry per
+	 * write.
+	 *
+	 * @return The written data, from the oldest to the newest.
+	 *
+	 * @see #clearWrites()
+	 */
+	public List<byte[]> getWrites() {
+		synchronized (writes) {
+			return new ArrayList<>(writes);
+		}
+	}
+
+	/**
+	 * Clears the data written by the device.
+	 *
+	 * @see #getWrites()
+	 */
+	public void clearWrites() {
+		synchronized (writes) {
+			writes.clear();
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	@Override
+	public void writeData(byte[] data) throws IOException {
+		writeData(data, 0, data.length);
+	}
+
+	@Override
+	public void writeData(byte[] data, int offset, int length) throws IOException {
+		if (data == null)
+			throw new NullPointerException("Data to be sent cannot be null.");
+
+		outputStream.write(data, offset, length);
+	}
+
+	@Override
+	public int readData(byte[] data) throws IOException {
+		return readData(data, 0, data.length);
+	}
+
+	@Override
+	public int readData(byte[] data, int offset, int length) throws IOException {
+		if (data == null)
+			throw new NullPointerException("Buffer cannot be null.");
+
+		return inputStream.read(data, offset, length);
+	}
+
+	@Override
+	public ConnectionType getConnectionType() {
+		return ConnectionType.SERIAL;
+	}
+
+	@Override
+	public TransportStatistics getTransportStatistics() {
+		synchronized (receiveLock) {
+			return statistics.snapshot(0, receiveBuffer.availableToRead(), receiveBuffer.getCapacity());
+		}
+	}
+
+	@Override
+	public void resetTransportStatistics() {
+		statistics.reset();
+	}
+
+	@Override
+	public void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+
+	@Override
+	public WireTracer getWireTracer() {
+		return wireTracer;
+	}
+
+	@Override
+	public String toString() {
+		return "[Replay " + (name != null ? name : data.length + " bytes") + "] ";
+	}
+
+	/**
+	 * Reads the recorded traffic looking for the responses to local AT
+	 * commands.
+	 */
+	private void collectATResponses() throws IOException {
+		FrameSplitter splitter = new FrameSplitter(operatingMode == OperatingMode.API_ESCAPE);
+		if (data != null) {
+			for (byte[] frame : splitter.feed(data, 0, data.length))
+				addATResponse(frame);
+			return;
+		}
+
+		CaptureReader reader = new CaptureReader(directory, name);
+		try {
+			CaptureRecord record;
+			while ((record = reader.read()) != null) {
+				if (record.getType() != type)
+					continue;
+				for (byte[] frame : splitter.feed(record.getData(), 0, record.getData().length))
+					addATResponse(frame);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Keeps the given frame if it is the first response to a local AT
+	 * command.
+	 */
+	private void addATResponse(byte[] frame) {
+		XBeePacket packet = parseFrame(frame);
+		if (!(packet instanceof ATCommandResponsePacket))
+			return;
+		ATCommandResponsePacket response = (ATCommandResponsePacket) packet;
+		if (!atResponses.containsKey(response.getCommand()))
+			atResponses.put(response.getCommand(), response);
+	}
+
+	/**
+	 * Parses the given frame.
+	 *
+	 * @return The parsed packet, {@code null} if the frame is not valid.
+	 */
+	private XBeePacket parseFrame(byte[] frame) {
+		try {
+			return XBeePacket.parsePacket(frame, operatingMode);
+		} catch (InvalidPacketException e) {
+			logger.debug("Ignoring invalid frame: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Handles the data written by the device.
+	 */
+	private void handleWrite(byte[] buffer, int offset, int length) {
+		synchronized (writes) {
+			if (maxRecordedWrites > 0) {
+				if (writes.size() == maxRecordedWrites)
+					writes.poll();
+				byte[] copy = new byte[length];
+				System.arraycopy(buffer, offset, copy, 0, length);
+				writes.add(copy);
+			}
+		}
+		statistics.addSent(buffer, offset, length);
+		WireTracer tracer = wireTracer;
+		if (tracer != null)
+			tracer.record(WireTracer.Direction.TX, buffer, offset, length);
+
+		List<byte[]> frames;
+		synchronized (writeSplitter) {
+			frames = writeSplitter.feed(buffer, offset, length);
+		}
+		for (byte[] frame : frames) {
+			byte[] response = createATResponse(parseFrame(frame));
+			if (response != null)
+				deliver(response, false);
+		}
+	}
+
+	/**
+	 * Creates the response to the given packet if it is a local AT command
+	 * with a recorded response.
+	 *
+	 * @return The response frame, {@code null} if there is no response.
+	 */
+	private byte[] createATResponse(XBeePacket packet) {
+		String command;
+		int frameID;
+		byte[] parameter;
+		if (packet instanceof ATCommandPacket) {
+			command = ((ATCommandPacket) packet).getCommand();
+			frameID = ((ATCommandPacket) packet).getFrameID();
+			parameter = ((ATCommandPacket) packet).getParameter();
+		} else if (packet instanceof ATCommandQueuePacket) {
+			command = ((ATCommandQueuePacket) packet).getCommand();
+			frameID = ((ATCommandQueuePacket) packet).getFrameID();
+			parameter = ((ATCommandQueuePacket) packet).getParameter();
+		} else {
+			return null;
+		}
+
+		ATCommandResponsePacket recorded = atResponses.get(command);
+		if (frameID == 0 || recorded == null)
+			return null;
+
+		// Setting a parameter returns no value.
+		boolean set = parameter != null && parameter.length > 0;
+		ATCommandResponsePacket response = new ATCommandResponsePacket(frameID,
+				set ? ATCommandStatus.OK : recorded.getStatus(), command,
+				set ? null : recorded.getCommandValue());
+		return operatingMode == OperatingMode.API_ESCAPE ?
+				response.generateByteArrayEscaped() : response.generateByteArray();
+	}
+
+	/**
+	 * Replays the recorded traffic.
+	 */
+	private void replay() {
+		try {
+			for (int loop = 0; loop < loops && open; loop++) {
+				if (data != null)
+					replayData();
+				else
+					replayCapture();
+			}
+		} catch (InterruptedException e) {
+			// The interface has been closed.
+		} catch (IOException e) {
+			logger.error("Error replaying capture " + name + ": " + e.getMessage(), e);
+		} finally {
+			synchronized (receiveLock) {
+				replayRunning = false;
+				replayFinished = true;
+			}
+			flushPendingResponses();
+			synchronized (receiveLock) {
+				receiveLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Replays the byte stream in chunks.
+	 */
+	private void replayData() throws InterruptedException {
+		for (int offset = 0; offset < data.length && open; offset += chunkSize) {
+			int length = Math.min(chunkSize, data.length - offset);
+			byte[] chunk = new byte[length];
+			System.arraycopy(data, offset, chunk, 0, length);
+			deliver(chunk, true);
+		}
+	}
+
+	/**
+	 * Replays the records of the capture following their timing.
+	 */
+	private void replayCapture() throws IOException, InterruptedException {
+		CaptureReader reader = new CaptureReader(directory, name);
+		try {
+			long firstRecordTime = 0;
+			long startTime = System.nanoTime();
+			boolean first = true;
+			CaptureRecord record;
+			while (open && (record = reader.read()) != null) {
+				if (record.getType() != type)
+					continue;
+				if (first) {
+					firstRecordTime = record.getNanoTime();
+					first = false;
+				}
+				if (!Double.isInfinite(speed)) {
+					long target = startTime + (long) ((record.getNanoTime() - firstRecordTime) / speed);
+					long wait = target - System.nanoTime();
+					if (wait > 0)
+						TimeUnit.NANOSECONDS.sleep(wait);
+				}
+				deliver(record.getData(), true);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes the given data in the receive buffer, waiting for free space,
+	 * and wakes up the readers.
+	 *
+	 * <p>Chunks are never interleaved. A response is queued instead if a
+	 * replayed chunk is being written or the replayed stream is in the
+	 * middle of a frame, and delivered by {@link #flushPendingResponses()}
+	 * once the frame is complete.</p>
+	 *
+	 * @param chunk Data to deliver.
+	 * @param replayed {@code true} if the data comes from the recorded
+	 *                 traffic, {@code false} if it is a generated response.
+	 */
+	private void deliver(byte[] chunk, boolean replayed) {
+		int offset = 0;
+		try {
+			synchronized (receiveLock) {
+				if (!replayed && replayRunning && (delivering || !replaySplitter.isAtBoundary())) {
+					pendingResponses.add(chunk);
+					return;
+				}
+				while (delivering && open)
+					receiveLock.wait(READ_TIMEOUT);
+				delivering = true;
+				try {
+					while (offset < chunk.length && open) {
+						int free = receiveBuffer.getCapacity() - receiveBuffer.availableToRead();
+						if (free == 0) {
+							receiveLock.wait(READ_TIMEOUT);
+							continue;
+						}
+						int length = Math.min(free, chunk.length - offset);
+						receiveBuffer.write(chunk, offset, length);
+						if (replayed)
+							replaySplitter.feed(chunk, offset, length);
+						offset += length;
+						receiveLock.notifyAll();
+					}
+				} finally {
+					delivering = false;
+					receiveLock.notifyAll();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (offset > 0) {
+			statistics.addReceived(chunk, 0, offset);
+			WireTracer tracer = wireTracer;
+			if (tracer != null)
+				tracer.record(WireTracer.Direction.RX, chunk, 0, offset);
+			if (replayed) {
+				replayedRecords.incrementAndGet();
+				replayedBytes.addAndGet(offset);
+			}
+			// Notify the data reader of the device.
+			synchronized (this) {
+				notify();
+			}
+		}
+		if (replayed && replaySplitter.isAtBoundary())
+			flushPendingResponses();
+	}
+
+	/**
+	 * Notifies the data reader of the device while unread data is pending.
+	 *
+	 * <p>The data reader checks the available bytes and then waits on this
+	 * interface without a timeout, so a notification arriving in between
+	 * is lost. Notifying again every read timeout makes sure the data is
+	 * eventually read.</p>
+	 */
+	private void watchReader() {
+		try {
+			while (open) {
+				Thread.sleep(READ_TIMEOUT);
+				boolean pending;
+				synchronized (receiveLock) {
+					pending = receiveBuffer.availableToRead() > 0;
+				}
+				if (pending) {
+					synchronized (this) {
+						notify();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// The interface has been closed.
+		}
+	}
+
+	/**
+	 * Delivers the responses waiting for a frame boundary.
+	 */
+	private void flushPendingResponses() {
+		List<byte[]> responses;
+		synchronized (receiveLock) {
+			if (pendingResponses.isEmpty())
+				return;
+			responses = new ArrayList<>(pendingResponses);
+			pendingResponses.clear();
+		}
+		for (byte[] response : responses)
+			deliver(response, false);
+	}
+
+	/**
+	 * Input stream that reads the replayed data.
+	 */
+	private class ReceiveInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			byte[] buffer = new byte[1];
+			if (read(buffer, 0, 1) < 1)
+				return -1;
+			return buffer[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+
+			long start = System.nanoTime();
+			long deadline = System.currentTimeMillis() + READ_TIMEOUT;
+			boolean blocked = false;
+			try {
+				synchronized (receiveLock) {
+					while (receiveBuffer.availableToRead() == 0) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0 || !open)
+							return -1;
+						blocked = true;
+						try {
+							receiveLock.wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return -1;
+						}
+					}
+					int readBytes = receiveBuffer.read(buffer, offset, length);
+					// Wake up the replay thread if it is waiting for space.
+					receiveLock.notifyAll();
+					return readBytes;
+				}
+			} finally {
+				// Only the reads that found the buffer empty waited.
+				if (blocked)
+					statistics.addReadWait(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			synchronized (receiveLock) {
+				return receiveBuffer.availableToRead();
+			}
+		}
+	}
+
+	/**
+	 * Output stream that records the data written by the device.
+	 */
+	private class SendOutputStream extends OutputStream {
+
+		@Override
+		public void write(int oneByte) throws IOException {
+			write(new byte[] {(byte)oneByte}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			if (!open)
+				throw new IOException("Replay interface is closed.");
+
+			long start = statistics.writeQueued();
+			handleWrite(buffer, offset, length);
+			statistics.writeDone(start);
+		}
+	}
+}
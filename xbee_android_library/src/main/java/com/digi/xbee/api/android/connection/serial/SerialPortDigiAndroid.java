@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.TooManyListenersException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,12 @@ import com.digi.android.serial.SerialPort;
 import com.digi.android.serial.SerialPortEvent;
 import com.digi.android.serial.SerialPortManager;
 import com.digi.android.serial.UnsupportedCommOperationException;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
+import com.digi.xbee.api.android.connection.usb.CircularByteBuffer;
 import com.digi.xbee.api.connection.serial.AbstractSerialPort;
 import com.digi.xbee.api.connection.serial.SerialPortParameters;
 import com.digi.xbee.api.exceptions.ConnectionException;
@@ -44,15 +51,36 @@ import com.digi.xbee.api.exceptions.PermissionDeniedException;
  * This class represents a serial port interface making use of the Digi Android
  * Serial Port library based on the RxTx implementation.
  */
-public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerialPortEventListener {
+public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerialPortEventListener,
+		TransportStatisticsProvider, WireTraceable {
+	
+	// Constants.
+	private static final int RECEIVE_BUFFER_SIZE = 8192;
+	private static final int DRAIN_CHUNK_SIZE = 1024;
 	
 	// Variables.
 	private SerialPort serialPort;
 	
+	private InputStream portInputStream;
+	
 	private InputStream inputStream;
 	
+	private OutputStream portOutputStream;
+	
 	private OutputStream outputStream;
 	
+	private CircularByteBuffer receiveBuffer;
+	
+	private byte[] drainBuffer;
+	
+	private final Object receiveLock = new Object();
+	
+	private final TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+	
+	private volatile WireTracer wireTracer;
+	
+	private final CopyOnWriteArrayList<SerialPortDisconnectListener> disconnectListeners = new CopyOnWriteArrayList<>();
+	
 	private Thread breakThread;
 	
 	private boolean breakEnabled = false;
@@ -184,9 +212,18 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 				parameters = new SerialPortParameters(baudRate, DEFAULT_DATA_BITS, DEFAULT_STOP_BITS, DEFAULT_PARITY, DEFAULT_FLOW_CONTROL);
 			serialPort.setPortParameters(baudRate, parameters.dataBits, parameters.stopBits, parameters.parity, parameters.flowControl);
 			serialPort.enableReceiveTimeout(receiveTimeout);
+			// Initialize the receive ring, it is kept between connections.
+			if (receiveBuffer == null) {
+				receiveBuffer = new CircularByteBuffer(RECEIVE_BUFFER_SIZE);
+				drainBuffer = new byte[DRAIN_CHUNK_SIZE];
+			} else {
+				receiveBuffer.clearBuffer();
+			}
 			// Initialize input and output streams before setting the listener.
-			inputStream = serialPort.getInputStream();
-			outputStream = serialPort.getOutputStream();
+			portInputStream = serialPort.getInputStream();
+			inputStream = new ReceiveInputStream();
+			portOutputStream = serialPort.getOutputStream();
+			outputStream = new SendOutputStream();
 			// Activate data received event.
 			serialPort.notifyOnDataAvailable(true);
 			// Register serial port event listener to be notified when data is available.
@@ -207,13 +244,15 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 	@Override
 	public void close() {
 		try {
-			if (inputStream != null) {
-				inputStream.close();
-				inputStream = null;
+			inputStream = null;
+			if (portInputStream != null) {
+				portInputStream.close();
+				portInputStream = null;
 			}
-			if (outputStream != null) {
-				outputStream.close();
-				outputStream = null;
+			outputStream = null;
+			if (portOutputStream != null) {
+				portOutputStream.close();
+				portOutputStream = null;
 			}
 		} catch (IOException e) {
 			logger.error(e.getMessage(), e);
@@ -229,6 +268,10 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 				}
 			} catch (Exception e) { }
 		}
+		// Wake up anyone waiting for received data.
+		synchronized (receiveLock) {
+			receiveLock.notifyAll();
+		}
 	}
 	
 	@Override
@@ -236,35 +279,151 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 		// Listen only to data available event.
 		switch (event.getEventType()) {
 		case DATA_AVAILABLE:
-			// Check if serial device has been disconnected or not.
-			try {
-				getInputStream().available();
-			} catch (Exception e) {
-				// Serial device has been disconnected.
-				close();
-				synchronized (this) {
-					//System.out.println("notify");
-					this.notify();
+			drainReceivedData();
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Reads all the bytes available in the serial port into the receive
+	 * buffer and wakes up the readers once.
+	 * 
+	 * <p>If the serial device has been disconnected, the port is closed and
+	 * the registered {@link SerialPortDisconnectListener}s are notified.</p>
+	 */
+	private void drainReceivedData() {
+		InputStream portStream = portInputStream;
+		if (portStream == null)
+			return;
+		
+		WireTracer tracer = wireTracer;
+		int drainedBytes = 0;
+		try {
+			int available = portStream.available();
+			while (available > 0) {
+				int readBytes = portStream.read(drainBuffer, 0, Math.min(available, drainBuffer.length));
+				if (readBytes < 0)
+					throw new IOException("End of stream reached.");
+				if (readBytes == 0)
+					break;
+				if (tracer != null)
+					tracer.record(WireTracer.Direction.RX, drainBuffer, 0, readBytes);
+				statistics.addReceived(drainBuffer, 0, readBytes);
+				int droppedBytes;
+				synchronized (receiveBuffer) {
+					// When the buffer is full, the oldest data is discarded
+					// to make room for the new one.
+					droppedBytes = readBytes - (receiveBuffer.getCapacity() - receiveBuffer.availableToRead());
+					if (droppedBytes > 0)
+						receiveBuffer.skip(droppedBytes);
+					receiveBuffer.write(drainBuffer, 0, readBytes);
+				}
+				if (droppedBytes > 0) {
+					statistics.addDropped(droppedBytes);
+					logger.warn("Serial receive buffer overflow on port " + port + ", " + droppedBytes
+							+ " bytes dropped.");
+					if (tracer != null)
+						tracer.error("Serial receive buffer overflow, " + droppedBytes + " bytes dropped");
 				}
-				break;
+				drainedBytes += readBytes;
+				available = portStream.available();
 			}
-			// Notify data is available by waking up the read thread.
+		} catch (IOException e) {
+			// Serial device has been disconnected.
+			statistics.addTransferError();
+			if (tracer != null)
+				tracer.error("Serial read failed: " + e.getMessage());
+			close();
+			notifyDisconnected(e);
+			synchronized (this) {
+				this.notify();
+			}
+			return;
+		}
+		
+		if (drainedBytes == 0)
+			return;
+		
+		// Notify data is available by waking up the read threads.
+		synchronized (receiveLock) {
+			receiveLock.notifyAll();
+		}
+		synchronized (this) {
+			this.notify();
+		}
+	}
+	
+	/**
+	 * Notifies the registered listeners that the serial device has been
+	 * disconnected.
+	 * 
+	 * @param cause The exception that revealed the disconnection.
+	 */
+	private void notifyDisconnected(Exception cause) {
+		logger.info("Serial device on port " + port + " disconnected.");
+		for (SerialPortDisconnectListener listener : disconnectListeners) {
 			try {
-				if (getInputStream().available() > 0) {
-					synchronized (this) {
-						//System.out.println("notify");
-						this.notify();
-					}
-				}
+				listener.serialPortDisconnected(port, cause);
 			} catch (Exception e) {
 				logger.error(e.getMessage(), e);
 			}
-			break;
-		default:
-			break;
 		}
 	}
 	
+	/**
+	 * Adds the given listener to the list of listeners that will be notified
+	 * when the serial device is disconnected.
+	 * 
+	 * @param listener Listener to add.
+	 * 
+	 * @throws NullPointerException if {@code listener == null}.
+	 * 
+	 * @see #removeDisconnectListener(SerialPortDisconnectListener)
+	 * @see SerialPortDisconnectListener
+	 */
+	public void addDisconnectListener(SerialPortDisconnectListener listener) {
+		if (listener == null)
+			throw new NullPointerException("Listener cannot be null.");
+		
+		disconnectListeners.addIfAbsent(listener);
+	}
+	
+	/**
+	 * Removes the given listener from the list of disconnection listeners.
+	 * 
+	 * @param listener Listener to remove.
+	 * 
+	 * @see #addDisconnectListener(SerialPortDisconnectListener)
+	 * @see SerialPortDisconnectListener
+	 */
+	public void removeDisconnectListener(SerialPortDisconnectListener listener) {
+		disconnectListeners.remove(listener);
+	}
+	
+	@Override
+	public TransportStatistics getTransportStatistics() {
+		CircularByteBuffer buffer = receiveBuffer;
+		return statistics.snapshot(0, buffer == null ? 0 : buffer.availableToRead(),
+				buffer == null ? RECEIVE_BUFFER_SIZE : buffer.getCapacity());
+	}
+	
+	@Override
+	public void resetTransportStatistics() {
+		statistics.reset();
+	}
+	
+	@Override
+	public void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+	
+	@Override
+	public WireTracer getWireTracer() {
+		return wireTracer;
+	}
+	
 	@Override
 	public String toString() {
 		return super.toString();
@@ -303,6 +462,7 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 	
 	@Override
 	public void setReadTimeout(int timeout) {
+		receiveTimeout = timeout;
 		serialPort.disableReceiveTimeout();
 		try {
 			serialPort.enableReceiveTimeout(timeout);
@@ -329,6 +489,7 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 	@Override
 	public void setPortParameters(int baudRate, int dataBits, int stopBits,
 			int parity, int flowControl) throws InvalidConfigurationException, ConnectionException {
+		this.baudRate = baudRate;
 		parameters = new SerialPortParameters(baudRate, dataBits, stopBits, parity, flowControl);
 		
 		if (serialPort != null) {
@@ -360,4 +521,117 @@ public class SerialPortDigiAndroid extends AbstractSerialPort implements ISerial
 	public boolean isCD() {
 		return serialPort.isCD();
 	}
+	
+	/**
+	 * Input stream that reads the data drained from the serial port into the
+	 * receive buffer.
+	 */
+	private class ReceiveInputStream extends InputStream {
+		
+		@Override
+		public int read() throws IOException {
+			if (!waitForData())
+				return -1;
+			return receiveBuffer.read();
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (!waitForData())
+				return -1;
+			return receiveBuffer.read(buffer, offset, length);
+		}
+		
+		/**
+		 * Waits until there is data to read, the read timeout expires or the
+		 * port is closed. The wait is only reported to the statistics if the
+		 * buffer was empty.
+		 * 
+		 * @return {@code true} if there is data to read, {@code false}
+		 *         otherwise.
+		 */
+		private boolean waitForData() {
+			if (receiveBuffer.availableToRead() > 0)
+				return true;
+			
+			long start = System.nanoTime();
+			long deadline = System.currentTimeMillis() + receiveTimeout;
+			try {
+				synchronized (receiveLock) {
+					while (receiveBuffer.availableToRead() == 0) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0 || !connectionOpen)
+							return false;
+						try {
+							receiveLock.wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return false;
+						}
+					}
+				}
+			} finally {
+				statistics.addReadWait(System.nanoTime() - start);
+			}
+			return true;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			if (!connectionOpen)
+				throw new IOException("Serial port " + port + " is closed.");
+			return receiveBuffer.availableToRead();
+		}
+		
+		@Override
+		public long skip(long byteCount) throws IOException {
+			if (byteCount < 1)
+				return 0;
+			return receiveBuffer.skip((int)Math.min(byteCount, Integer.MAX_VALUE));
+		}
+	}
+	
+	/**
+	 * Output stream that writes to the serial port and reports the sent data
+	 * to the statistics.
+	 */
+	private class SendOutputStream extends OutputStream {
+		
+		@Override
+		public void write(int oneByte) throws IOException {
+			write(new byte[] {(byte)oneByte}, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			OutputStream portStream = portOutputStream;
+			if (portStream == null)
+				throw new IOException("Serial port " + port + " is closed.");
+			
+			WireTracer tracer = wireTracer;
+			long start = statistics.writeQueued();
+			try {
+				portStream.write(buffer, offset, length);
+			} catch (IOException e) {
+				statistics.addTransferError();
+				if (tracer != null)
+					tracer.error("Serial write failed: " + e.getMessage());
+				throw e;
+			} finally {
+				statistics.writeDone(start);
+			}
+			statistics.addSent(buffer, offset, length);
+			if (tracer != null)
+				tracer.record(WireTracer.Direction.TX, buffer, offset, length);
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			OutputStream portStream = portOutputStream;
+			if (portStream != null)
+				portStream.flush();
+		}
+	}
 }
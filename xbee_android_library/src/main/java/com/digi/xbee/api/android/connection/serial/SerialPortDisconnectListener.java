@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.serial;
+
+/**
+ * This interface is used as a listener to be notified when the serial device
+ * behind a {@link SerialPortDigiAndroid} is disconnected.
+ *
+ * <p>The disconnection is detected while handling serial port events. By the
+ * time this listener is notified, the port has already been closed.</p>
+ */
+public interface SerialPortDisconnectListener {
+
+	/**
+	 * This method is called when the serial device attached to the given
+	 * port is disconnected.
+	 * 
+	 * @param port Name of the serial port that was disconnected.
+	 * @param cause The exception that revealed the disconnection, may be
+	 *              {@code null}.
+	 */
+	public void serialPortDisconnected(String port, Exception cause);
+}
@@ -0,0 +1,1289 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.digi.xbee.api.android.connection.FrameSplitter;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
+import com.digi.xbee.api.android.connection.TransportThreads;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
+import com.digi.xbee.api.android.connection.usb.CircularByteBuffer;
+import com.digi.xbee.api.connection.ConnectionType;
+import com.digi.xbee.api.connection.IConnectionInterface;
+import com.digi.xbee.api.exceptions.InvalidInterfaceException;
+import com.digi.xbee.api.exceptions.InvalidPacketException;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.models.ModemStatusEvent;
+import com.digi.xbee.api.models.OperatingMode;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeDiscoveryStatus;
+import com.digi.xbee.api.models.XBeeTransmitStatus;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.common.ATCommandPacket;
+import com.digi.xbee.api.packet.common.ATCommandQueuePacket;
+import com.digi.xbee.api.packet.common.ATCommandResponsePacket;
+import com.digi.xbee.api.packet.common.ExplicitAddressingPacket;
+import com.digi.xbee.api.packet.common.IODataSampleRxIndicatorPacket;
+import com.digi.xbee.api.packet.common.ModemStatusPacket;
+import com.digi.xbee.api.packet.common.ReceivePacket;
+import com.digi.xbee.api.packet.common.RemoteATCommandPacket;
+import com.digi.xbee.api.packet.common.RemoteATCommandResponsePacket;
+import com.digi.xbee.api.packet.common.TransmitPacket;
+import com.digi.xbee.api.packet.common.TransmitStatusPacket;
+import com.digi.xbee.api.packet.raw.TX16Packet;
+import com.digi.xbee.api.packet.raw.TX64Packet;
+import com.digi.xbee.api.packet.raw.TXStatusPacket;
+import com.digi.xbee.api.utils.ByteUtils;
+
+/**
+ * This class represents a connection interface to a simulated XBee module
+ * running in the same process.
+ *
+ * <p>The simulator behaves like a Zigbee module in API mode: it answers
+ * local AT commands from its parameter table, acknowledges transmit
+ * requests with a transmit status and answers remote AT commands with a
+ * transmission failure. It can also generate inbound receive, IO sample
+ * and modem status frames at a given rate, see
+ * {@link #setTrafficRate(Traffic, double)}, and answer node discoveries
+ * with the nodes added with
+ * {@link #addDiscoverableNode(XBee64BitAddress, XBee16BitAddress, String, long)}.</p>
+ *
+ * <p>Data in both directions is paced according to the baud rate
+ * configured with the {@code BD} parameter, as a real UART would do. Use
+ * {@link #setUARTLimited(boolean)} to disable the pacing. Like a real module,
+ * the simulator answers a {@code BD} change at the old baud rate and then
+ * switches. The baud rate of the host side can be set apart, see
+ * {@link #setHostBaudRate(int)}, to simulate a UART whose two ends do not
+ * match.</p>
+ *
+ * <p>Since it does not need any hardware, this interface can be used to
+ * benchmark and soak test the XBee device classes on any JVM:</p>
+ *
+ * <pre>
+ * XBeeSimulator simulator = new XBeeSimulator();
+ * ZigBeeDevice device = new ZigBeeDevice(simulator);
+ * device.open();
+ * simulator.setTrafficRate(XBeeSimulator.Traffic.RECEIVE, 100);
+ * </pre>
+ */
+public class XBeeSimulator implements IConnectionInterface, TransportStatisticsProvider, WireTraceable {
+
+	/**
+	 * Types of inbound traffic the simulator can generate.
+	 */
+	public enum Traffic {
+		/** Receive packets (0x90) from the remote device. */
+		RECEIVE,
+		/** IO data sample packets (0x92) from the remote device. */
+		IO_SAMPLE,
+		/** Modem status packets (0x8A). */
+		MODEM_STATUS
+	}
+
+	// Constants.
+	/**
+	 * Default 64-bit address of the simulated remote device.
+	 */
+	public static final XBee64BitAddress DEFAULT_REMOTE_64_BIT_ADDRESS = new XBee64BitAddress("0013A20040000001");
+
+	/**
+	 * Default 16-bit address of the simulated remote device.
+	 */
+	public static final XBee16BitAddress DEFAULT_REMOTE_16_BIT_ADDRESS = new XBee16BitAddress("1234");
+
+	/**
+	 * Host baud rate value to always use the baud rate of the module.
+	 */
+	public static final int MODULE_BAUD_RATE = 0;
+
+	private static final int[] BAUD_RATES = {1200, 2400, 4800, 9600, 19200, 38400,
+			57600, 115200, 230400, 460800, 921600};
+
+	// Start bit, 8 data bits and stop bit.
+	private static final int BITS_PER_BYTE = 10;
+
+	private static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+	private static final int TRANSMIT_QUEUE_SIZE = 256;
+	private static final int READ_TIMEOUT = 100;
+	private static final int DEFAULT_PAYLOAD_SIZE = 16;
+
+	private static final int RECEIVE_OPTIONS = 0x01;
+
+	// One sample with DIO2 and DIO3 enabled (DIO3 high) and AD0 enabled.
+	private static final byte[] IO_SAMPLE_DATA = new byte[] {0x01, 0x00, 0x0C, 0x01, 0x00, 0x08, 0x02, 0x1A};
+
+	private static final String[] EXECUTION_COMMANDS = {"AC", "WR", "FR", "RE", "ND", "CN"};
+
+	private static final String COMMAND_ND = "ND";
+
+	// Parent address, router device type, status, Digi profile and manufacturer.
+	private static final byte[] DISCOVERY_TRAILER = new byte[] {(byte)0xFF, (byte)0xFE, 0x01, 0x00,
+			(byte)0xC1, 0x05, 0x10, 0x1E};
+
+	private static final String PARAMETER_AP = "AP";
+	private static final String PARAMETER_BD = "BD";
+
+	// Variables.
+	private final Map<String, byte[]> parameters = new HashMap<>();
+
+	private final double[] trafficRates = new double[Traffic.values().length];
+	private final Object trafficLock = new Object();
+
+	private final List<DiscoverableNode> discoverableNodes = new ArrayList<>();
+	private final List<PendingResponse> pendingResponses = new ArrayList<>();
+
+	private volatile int payloadSize = DEFAULT_PAYLOAD_SIZE;
+	private volatile XBee64BitAddress remote64BitAddress = DEFAULT_REMOTE_64_BIT_ADDRESS;
+	private volatile XBee16BitAddress remote16BitAddress = DEFAULT_REMOTE_16_BIT_ADDRESS;
+	private volatile XBeeTransmitStatus transmitStatus = XBeeTransmitStatus.SUCCESS;
+	private volatile ModemStatusEvent modemStatusEvent = ModemStatusEvent.STATUS_JOINED_NETWORK;
+	private volatile boolean uartLimited = true;
+	private volatile int hostBaudRate = MODULE_BAUD_RATE;
+	private volatile int maxBaudRate = BAUD_RATES[BAUD_RATES.length - 1];
+	private volatile int maxHostReceiveBaudRate = Integer.MAX_VALUE;
+
+	private final Map<String, Integer> droppedResponses = new HashMap<>();
+
+	private byte[] pendingBaudRate;
+
+	private final CircularByteBuffer receiveBuffer = new CircularByteBuffer(RECEIVE_BUFFER_SIZE);
+	private final Object receiveLock = new Object();
+
+	private final BlockingQueue<byte[]> transmitQueue = new LinkedBlockingQueue<>(TRANSMIT_QUEUE_SIZE);
+
+	private final InputStream inputStream = new ReceiveInputStream();
+	private final OutputStream outputStream = new SendOutputStream();
+
+	private FrameSplitter frameSplitter;
+
+	private volatile boolean open = false;
+
+	private Thread uartThread;
+	private Thread trafficThread;
+
+	private final AtomicLong receivedFrames = new AtomicLong();
+	private final AtomicLong generatedFrames = new AtomicLong();
+	private final AtomicLong droppedFrames = new AtomicLong();
+
+	private final TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+
+	private final TransportThreads threads = new TransportThreads("XBeeSimulator");
+
+	private volatile WireTracer wireTracer;
+
+	private Logger logger;
+
+	/**
+	 * Class constructor. Instantiates a new {@code XBeeSimulator} with the
+	 * default parameters: a Zigbee coordinator in API mode at 9600 bauds.
+	 */
+	public XBeeSimulator() {
+		this.logger = LoggerFactory.getLogger(XBeeSimulator.class);
+		restoreDefaults();
+	}
+
+	/**
+	 * Sets the value of the given parameter, as the module would do when
+	 * receiving the AT command.
+	 *
+	 * @param parameter The 2 characters parameter name.
+	 * @param value The parameter value.
+	 *
+	 * @throws IllegalArgumentException if {@code parameter} does not have 2
+	 *                                  characters.
+	 * @throws NullPointerException if {@code parameter == null} or
+	 *                              if {@code value == null}.
+	 *
+	 * @see #getParameter(String)
+	 */
+	public void setParameter(String parameter, byte[] value) {
+		if (parameter == null)
+			throw new NullPointerException("Parameter cannot be null.");
+		if (value == null)
+			throw new NullPointerException("Value cannot be null.");
+		if (parameter.length() != 2)
+			throw new IllegalArgumentException("Parameter must have 2 characters.");
+
+		synchronized (parameters) {
+			parameters.put(parameter.toUpperCase(), value.clone());
+		}
+	}
+
+	/**
+	 * Returns the value of the given parameter.
+	 *
+	 * @param parameter The 2 characters parameter name.
+	 *
+	 * @return The parameter value, {@code null} if the simulator does not
+	 *         support it.
+	 *
+	 * @throws NullPointerException if {@code parameter == null}.
+	 *
+	 * @see #setParameter(String, byte[])
+	 */
+	public byte[] getParameter(String parameter) {
+		if (parameter == null)
+			throw new NullPointerException("Parameter cannot be null.");
+
+		synchronized (parameters) {
+			byte[] value = parameters.get(parameter.toUpperCase());
+			return value != null ? value.clone() : null;
+		}
+	}
+
+	/**
+	 * Sets the rate at which the given type of inbound traffic is
+	 * generated while the interface is open.
+	 *
+	 * @param traffic The type of traffic.
+	 * @param framesPerSecond Frames generated per second, {@code 0} to stop
+	 *                        generating them.
+	 *
+	 * @throws IllegalArgumentException if {@code framesPerSecond < 0} or
+	 *                                  if {@code framesPerSecond} is not a
+	 *                                  number.
+	 * @throws NullPointerException if {@code traffic == null}.
+	 *
+	 * @see #getTrafficRate(Traffic)
+	 */
+	public void setTrafficRate(Traffic traffic, double framesPerSecond) {
+		if (traffic == null)
+			throw new NullPointerException("Traffic cannot be null.");
+		if (Double.isNaN(framesPerSecond) || framesPerSecond < 0)
+			throw new IllegalArgumentException("Rate cannot be negative.");
+
+		synchronized (trafficLock) {
+			trafficRates[traffic.ordinal()] = framesPerSecond;
+			trafficLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the rate at which the given type of inbound traffic is
+	 * generated.
+	 *
+	 * @param traffic The type of traffic.
+	 *
+	 * @return Frames generated per second.
+	 *
+	 * @throws NullPointerException if {@code traffic == null}.
+	 *
+	 * @see #setTrafficRate(Traffic, double)
+	 */
+	public double getTrafficRate(Traffic traffic) {
+		if (traffic == null)
+			throw new NullPointerException("Traffic cannot be null.");
+
+		synchronized (trafficLock) {
+			return trafficRates[traffic.ordinal()];
+		}
+	}
+
+	/**
+	 * Sets the size of the data in the generated receive packets.
+	 *
+	 * @param payloadSize Number of data bytes.
+	 *
+	 * @throws IllegalArgumentException if {@code payloadSize < 1}.
+	 */
+	public void setPayloadSize(int payloadSize) {
+		if (payloadSize < 1)
+			throw new IllegalArgumentException("Payload size must be greater than 0.");
+
+		this.payloadSize = payloadSize;
+	}
+
+	/**
+	 * Sets the addresses of the remote device the generated traffic comes
+	 * from.
+	 *
+	 * @param address64 The 64-bit address of the remote device.
+	 * @param address16 The 16-bit address of the remote device.
+	 *
+	 * @throws NullPointerException if {@code address64 == null} or
+	 *                              if {@code address16 == null}.
+	 */
+	public void setRemoteAddress(XBee64BitAddress address64, XBee16BitAddress address16) {
+		if (address64 == null)
+			throw new NullPointerException("64-bit address cannot be null.");
+		if (address16 == null)
+			throw new NullPointerException("16-bit address cannot be null.");
+
+		this.remote64BitAddress = address64;
+		this.remote16BitAddress = address16;
+	}
+
+	/**
+	 * Adds a remote node that answers the node discoveries ({@code ND})
+	 * after the given delay.
+	 *
+	 * <p>While there are no discoverable nodes, {@code ND} is answered with
+	 * an empty response right away. A discovery with a node identifier
+	 * parameter is only answered by the node with that identifier.</p>
+	 *
+	 * @param address64 The 64-bit address of the node.
+	 * @param address16 The 16-bit address of the node.
+	 * @param nodeID The node identifier.
+	 * @param responseDelay The time the node takes to answer, in
+	 *                      milliseconds.
+	 *
+	 * @throws IllegalArgumentException if {@code responseDelay < 0}.
+	 * @throws NullPointerException if {@code address64 == null} or
+	 *                              if {@code address16 == null} or
+	 *                              if {@code nodeID == null}.
+	 *
+	 * @see #clearDiscoverableNodes()
+	 */
+	public void addDiscoverableNode(XBee64BitAddress address64, XBee16BitAddress address16,
+			String nodeID, long responseDelay) {
+		if (address64 == null)
+			throw new NullPointerException("64-bit address cannot be null.");
+		if (address16 == null)
+			throw new NullPointerException("16-bit address cannot be null.");
+		if (nodeID == null)
+			throw new NullPointerException("Node identifier cannot be null.");
+		if (responseDelay < 0)
+			throw new IllegalArgumentException("Response delay cannot be negative.");
+
+		synchronized (discoverableNodes) {
+			discoverableNodes.add(new DiscoverableNode(address64, address16, nodeID, responseDelay));
+		}
+	}
+
+	/**
+	 * Removes all the discoverable nodes.
+	 *
+	 * @see #addDiscoverableNode(XBee64BitAddress, XBee16BitAddress, String, long)
+	 */
+	public void clearDiscoverableNodes() {
+		synchronized (discoverableNodes) {
+			discoverableNodes.clear();
+		}
+	}
+
+	/**
+	 * Sets the status reported for the transmit requests.
+	 *
+	 * @param transmitStatus The transmit status.
+	 *
+	 * @throws NullPointerException if {@code transmitStatus == null}.
+	 */
+	public void setTransmitStatus(XBeeTransmitStatus transmitStatus) {
+		if (transmitStatus == null)
+			throw new NullPointerException("Transmit status cannot be null.");
+
+		this.transmitStatus = transmitStatus;
+	}
+
+	/**
+	 * Sets the event reported in the generated modem status packets.
+	 *
+	 * @param modemStatusEvent The modem status event.
+	 *
+	 * @throws NullPointerException if {@code modemStatusEvent == null}.
+	 */
+	public void setModemStatusEvent(ModemStatusEvent modemStatusEvent) {
+		if (modemStatusEvent == null)
+			throw new NullPointerException("Modem status event cannot be null.");
+
+		this.modemStatusEvent = modemStatusEvent;
+	}
+
+	/**
+	 * Sets whether the data is paced according to the configured baud rate.
+	 *
+	 * @param uartLimited {@code true} to pace the data, {@code false} to
+	 *                    transfer it as fast as possible.
+	 *
+	 * @see #isUARTLimited()
+	 * @see #getBaudRate()
+	 */
+	public void setUARTLimited(boolean uartLimited) {
+		this.uartLimited = uartLimited;
+	}
+
+	/**
+	 * Returns whether the data is paced according to the configured baud
+	 * rate.
+	 *
+	 * @return {@code true} if the data is paced, {@code false} otherwise.
+	 *
+	 * @see #setUARTLimited(boolean)
+	 */
+	public boolean isUARTLimited() {
+		return uartLimited;
+	}
+
+	/**
+	 * Sets the baud rate of the host side of the simulated UART.
+	 *
+	 * <p>While it differs from the baud rate of the module, the data in both
+	 * directions is lost, as it would be on a real UART.</p>
+	 *
+	 * @param baudRate The baud rate of the host, or {@link #MODULE_BAUD_RATE}
+	 *                 to always use the one of the module.
+	 *
+	 * @throws IllegalArgumentException if {@code baudRate < 0}.
+	 *
+	 * @see #getHostBaudRate()
+	 * @see #getBaudRate()
+	 */
+	public void setHostBaudRate(int baudRate) {
+		if (baudRate < 0)
+			throw new IllegalArgumentException("Baud rate cannot be negative.");
+
+		this.hostBaudRate = baudRate;
+	}
+
+	/**
+	 * Returns the baud rate of the host side of the simulated UART.
+	 *
+	 * @return The baud rate of the host, or {@link #MODULE_BAUD_RATE}.
+	 *
+	 * @see #setHostBaudRate(int)
+	 */
+	public int getHostBaudRate() {
+		return hostBaudRate;
+	}
+
+	/**
+	 * Sets the maximum baud rate accepted in the {@code BD} parameter.
+	 * Higher values are rejected with an invalid parameter status.
+	 *
+	 * @param maxBaudRate The maximum baud rate.
+	 *
+	 * @throws IllegalArgumentException if {@code maxBaudRate < 1}.
+	 */
+	public void setMaxBaudRate(int maxBaudRate) {
+		if (maxBaudRate < 1)
+			throw new IllegalArgumentException("Maximum baud rate must be greater than 0.");
+
+		this.maxBaudRate = maxBaudRate;
+	}
+
+	/**
+	 * Sets the maximum baud rate at which the host keeps up with the data
+	 * sent by the module. Above it, that data is lost, as with a receive
+	 * overrun. The data written by the host still reaches the module.
+	 *
+	 * @param maxBaudRate The maximum baud rate.
+	 *
+	 * @throws IllegalArgumentException if {@code maxBaudRate < 1}.
+	 */
+	public void setMaxHostReceiveBaudRate(int maxBaudRate) {
+		if (maxBaudRate < 1)
+			throw new IllegalArgumentException("Maximum baud rate must be greater than 0.");
+
+		this.maxHostReceiveBaudRate = maxBaudRate;
+	}
+
+	/**
+	 * Drops the responses to the next changes of the given parameter, as if
+	 * they were lost on the UART. The parameter is still changed and the
+	 * queries are answered as usual.
+	 *
+	 * @param parameter The 2 characters parameter name.
+	 * @param count Number of responses to drop, {@code 0} to drop none.
+	 *
+	 * @throws IllegalArgumentException if {@code parameter} does not have 2
+	 *                                  characters or if {@code count < 0}.
+	 * @throws NullPointerException if {@code parameter == null}.
+	 */
+	public void setDroppedResponses(String parameter, int count) {
+		if (parameter == null)
+			throw new NullPointerException("Parameter cannot be null.");
+		if (parameter.length() != 2)
+			throw new IllegalArgumentException("Parameter must have 2 characters.");
+		if (count < 0)
+			throw new IllegalArgumentException("Count cannot be negative.");
+
+		synchronized (droppedResponses) {
+			droppedResponses.put(parameter.toUpperCase(), count);
+		}
+	}
+
+	/**
+	 * Returns the baud rate configured with the {@code BD} parameter.
+	 *
+	 * @return The baud rate.
+	 */
+	public int getBaudRate() {
+		return toBaudRate(ByteUtils.byteArrayToInt(getParameter(PARAMETER_BD)));
+	}
+
+	/**
+	 * Returns the number of frames received from the host.
+	 *
+	 * @return The number of received frames.
+	 */
+	public long getReceivedFrames() {
+		return receivedFrames.get();
+	}
+
+	/**
+	 * Returns the number of inbound traffic frames generated.
+	 *
+	 * @return The number of generated frames.
+	 *
+	 * @see #setTrafficRate(Traffic, double)
+	 */
+	public long getGeneratedFrames() {
+		return generatedFrames.get();
+	}
+
+	/**
+	 * Returns the number of generated frames dropped because the UART could
+	 * not keep up with the traffic rate.
+	 *
+	 * @return The number of dropped frames.
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
+	@Override
+	public void open() throws InvalidInterfaceException {
+		if (open)
+			return;
+
+		synchronized (receiveLock) {
+			receiveBuffer.clearBuffer();
+		}
+		transmitQueue.clear();
+		synchronized (trafficLock) {
+			pendingResponses.clear();
+		}
+		frameSplitter = new FrameSplitter(getOperatingMode() == OperatingMode.API_ESCAPE);
+		statistics.setEscaped(getOperatingMode() == OperatingMode.API_ESCAPE);
+		open = true;
+
+		uartThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				transmit();
+			}
+		}, "XBeeSimulator UART");
+		uartThread.setDaemon(true);
+		uartThread.start();
+		threads.register(uartThread);
+
+		trafficThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				generateTraffic();
+			}
+		}, "XBeeSimulator traffic");
+		trafficThread.setDaemon(true);
+		trafficThread.start();
+		threads.register(trafficThread);
+	}
+
+	@Override
+	public void close() {
+		if (!open)
+			return;
+
+		open = false;
+		threads.stopAll(TransportThreads.DEFAULT_JOIN_TIMEOUT);
+		uartThread = null;
+		trafficThread = null;
+		synchronized (receiveLock) {
+			receiveLock.notifyAll();
+		}
+		synchronized (this) {
+			notify();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	@Override
+	public void writeData(byte[] data) throws IOException {
+		writeData(data, 0, data.length);
+	}
+
+	@Override
+	public void writeData(byte[] data, int offset, int length) throws IOException {
+		if (data == null)
+			throw new NullPointerException("Data to be sent cannot be null.");
+
+		outputStream.write(data, offset, length);
+	}
+
+	@Override
+	public int readData(byte[] data) throws IOException {
+		return readData(data, 0, data.length);
+	}
+
+	@Override
+	public int readData(byte[] data, int offset, int length) throws IOException {
+		if (data == null)
+			throw new NullPointerException("Buffer cannot be null.");
+
+		return inputStream.read(data, offset, length);
+	}
+
+	@Override
+	public ConnectionType getConnectionType() {
+		return ConnectionType.SERIAL;
+	}
+
+	@Override
+	public TransportStatistics getTransportStatistics() {
+		synchronized (receiveLock) {
+			return statistics.snapshot(transmitQueue.size(), receiveBuffer.availableToRead(),
+					receiveBuffer.getCapacity());
+		}
+	}
+
+	@Override
+	public void resetTransportStatistics() {
+		statistics.reset();
+	}
+
+	@Override
+	public void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+
+	@Override
+	public WireTracer getWireTracer() {
+		return wireTracer;
+	}
+
+	@Override
+	public String toString() {
+		return "[Simulator " + getBaudRate() + "/8/N/1] ";
+	}
+
+	/**
+	 * Restores the default parameters.
+	 */
+	private void restoreDefaults() {
+		synchronized (parameters) {
+			parameters.clear();
+			parameters.put("SH", new byte[] {0x00, 0x13, (byte)0xA2, 0x00});
+			parameters.put("SL", new byte[] {0x40, (byte)0xA1, (byte)0xB2, (byte)0xC3});
+			parameters.put("MY", new byte[] {0x00, 0x00});
+			parameters.put("NI", "SIMULATOR".getBytes());
+			// XB24C hardware with Zigbee firmware.
+			parameters.put("HV", new byte[] {0x22, 0x41});
+			parameters.put("VR", new byte[] {0x40, 0x60});
+			parameters.put(PARAMETER_AP, new byte[] {0x01});
+			parameters.put(PARAMETER_BD, new byte[] {0x03});
+			parameters.put("NT", new byte[] {0x3C});
+			parameters.put("NO", new byte[] {0x00});
+			parameters.put("ID", new byte[8]);
+			parameters.put("OP", new byte[] {0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x12, 0x34});
+			parameters.put("OI", new byte[] {0x56, 0x78});
+			parameters.put("CH", new byte[] {0x0B});
+			parameters.put("CE", new byte[] {0x01});
+			parameters.put("AI", new byte[] {0x00});
+			parameters.put("AO", new byte[] {0x00});
+			parameters.put("NP", new byte[] {0x00, 0x54});
+			parameters.put("PL", new byte[] {0x04});
+			parameters.put("SM", new byte[] {0x00});
+			parameters.put("SP", new byte[] {0x00, 0x20});
+			parameters.put("ST", new byte[] {0x13, (byte)0x88});
+			parameters.put("EE", new byte[] {0x00});
+			parameters.put("DD", new byte[] {0x00, 0x12, 0x00, 0x00});
+			parameters.put("IR", new byte[] {0x00, 0x00});
+			parameters.put("IC", new byte[] {0x00, 0x00});
+			parameters.put("%V", new byte[] {0x0C, (byte)0xE4});
+			for (int i = 0; i < 10; i++)
+				parameters.put("D" + i, new byte[] {0x00});
+			for (int i = 0; i < 3; i++)
+				parameters.put("P" + i, new byte[] {0x00});
+		}
+	}
+
+	/**
+	 * Returns the operating mode configured with the {@code AP} parameter.
+	 */
+	private OperatingMode getOperatingMode() {
+		byte[] value = getParameter(PARAMETER_AP);
+		return value[value.length - 1] == 2 ? OperatingMode.API_ESCAPE : OperatingMode.API;
+	}
+
+	/**
+	 * Processes the data written by the host.
+	 */
+	private void receive(byte[] buffer, int offset, int length) {
+		statistics.addSent(buffer, offset, length);
+		WireTracer tracer = wireTracer;
+		if (tracer != null)
+			tracer.record(WireTracer.Direction.TX, buffer, offset, length);
+		// The module cannot decode data sent at another baud rate.
+		if (getHostSideBaudRate() != getBaudRate())
+			return;
+
+		List<byte[]> frames = frameSplitter.feed(buffer, offset, length);
+		for (byte[] frame : frames) {
+			boolean escaped = getOperatingMode() == OperatingMode.API_ESCAPE;
+			processFrame(frame);
+			// The AP parameter changed, split the next frames in the new mode.
+			if (escaped != (getOperatingMode() == OperatingMode.API_ESCAPE)) {
+				frameSplitter = new FrameSplitter(!escaped);
+				statistics.setEscaped(!escaped);
+			}
+		}
+	}
+
+	/**
+	 * Processes a frame written by the host.
+	 */
+	private void processFrame(byte[] frame) {
+		// Responses use the operating mode in place when the request arrived.
+		OperatingMode mode = getOperatingMode();
+		XBeePacket packet;
+		try {
+			packet = XBeePacket.parsePacket(frame, mode);
+		} catch (InvalidPacketException e) {
+			logger.warn("Simulator discarded an invalid frame: " + e.getMessage());
+			return;
+		}
+		receivedFrames.incrementAndGet();
+
+		XBeePacket response = null;
+		if (packet instanceof ATCommandPacket) {
+			ATCommandPacket atPacket = (ATCommandPacket) packet;
+			response = processATCommand(atPacket.getFrameID(), atPacket.getCommand(), atPacket.getParameter());
+		} else if (packet instanceof ATCommandQueuePacket) {
+			ATCommandQueuePacket atPacket = (ATCommandQueuePacket) packet;
+			response = processATCommand(atPacket.getFrameID(), atPacket.getCommand(), atPacket.getParameter());
+		} else if (packet instanceof TransmitPacket) {
+			TransmitPacket txPacket = (TransmitPacket) packet;
+			if (txPacket.getFrameID() != 0)
+				response = new TransmitStatusPacket(txPacket.getFrameID(), txPacket.get16bitDestinationAddress(), 0,
+						transmitStatus, XBeeDiscoveryStatus.DISCOVERY_STATUS_NO_DISCOVERY_OVERHEAD);
+		} else if (packet instanceof ExplicitAddressingPacket) {
+			ExplicitAddressingPacket txPacket = (ExplicitAddressingPacket) packet;
+			if (txPacket.getFrameID() != 0)
+				response = new TransmitStatusPacket(txPacket.getFrameID(), txPacket.get16BitDestinationAddress(), 0,
+						transmitStatus, XBeeDiscoveryStatus.DISCOVERY_STATUS_NO_DISCOVERY_OVERHEAD);
+		} else if (packet instanceof TX64Packet || packet instanceof TX16Packet) {
+			int frameID = packet instanceof TX64Packet ?
+					((TX64Packet) packet).getFrameID() : ((TX16Packet) packet).getFrameID();
+			if (frameID != 0)
+				response = new TXStatusPacket(frameID, transmitStatus);
+		} else if (packet instanceof RemoteATCommandPacket) {
+			// There is no simulated network, so remote devices never answer.
+			RemoteATCommandPacket atPacket = (RemoteATCommandPacket) packet;
+			if (atPacket.getFrameID() != 0)
+				response = new RemoteATCommandResponsePacket(atPacket.getFrameID(),
+						atPacket.get64bitDestinationAddress(), atPacket.get16bitDestinationAddress(),
+						atPacket.getCommand(), ATCommandStatus.TX_FAILURE, null);
+		}
+
+		if (response != null)
+			enqueue(generateFrame(response, mode), true);
+
+		// The module answers a baud rate change at the old baud rate.
+		if (pendingBaudRate != null) {
+			synchronized (parameters) {
+				parameters.put(PARAMETER_BD, pendingBaudRate);
+			}
+			pendingBaudRate = null;
+		}
+
+		if (packet instanceof ATCommandPacket && "FR".equals(((ATCommandPacket) packet).getCommand()))
+			enqueue(generateFrame(new ModemStatusPacket(ModemStatusEvent.STATUS_WATCHDOG_TIMER_RESET),
+					getOperatingMode()), true);
+	}
+
+	/**
+	 * Processes a local AT command.
+	 *
+	 * @return The response to send, {@code null} if no response is needed.
+	 */
+	private ATCommandResponsePacket processATCommand(int frameID, String command, byte[] parameter) {
+		ATCommandStatus status = ATCommandStatus.OK;
+		byte[] value = null;
+		command = command.toUpperCase();
+
+		if (COMMAND_ND.equals(command) && scheduleDiscoveryResponses(frameID, parameter))
+			return null;
+
+		synchronized (parameters) {
+			if (isExecutionCommand(command)) {
+				if ("RE".equals(command))
+					restoreDefaults();
+			} else if (!parameters.containsKey(command)) {
+				status = ATCommandStatus.INVALID_COMMAND;
+			} else if (parameter != null && parameter.length > 0) {
+				if (!isValidParameter(command, parameter))
+					status = ATCommandStatus.INVALID_PARAMETER;
+				else if (PARAMETER_BD.equals(command))
+					pendingBaudRate = parameter.clone();
+				else
+					parameters.put(command, parameter.clone());
+			} else {
+				value = parameters.get(command).clone();
+			}
+		}
+
+		if (frameID == 0)
+			return null;
+		if (parameter != null && parameter.length > 0 && isResponseDropped(command))
+			return null;
+		return new ATCommandResponsePacket(frameID, status, command, value);
+	}
+
+	/**
+	 * Schedules the answers of the discoverable nodes to a node discovery.
+	 *
+	 * @return {@code true} if there are discoverable nodes, {@code false}
+	 *         otherwise.
+	 */
+	private boolean scheduleDiscoveryResponses(int frameID, byte[] parameter) {
+		String nodeID = parameter == null || parameter.length == 0 ? null : new String(parameter);
+		List<PendingResponse> responses = new ArrayList<>();
+		synchronized (discoverableNodes) {
+			if (discoverableNodes.isEmpty())
+				return false;
+			long now = System.nanoTime();
+			for (DiscoverableNode node : discoverableNodes) {
+				if (nodeID != null && !nodeID.equals(node.nodeID))
+					continue;
+				ByteArrayOutputStream value = new ByteArrayOutputStream();
+				value.write(node.address16.getValue(), 0, 2);
+				value.write(node.address64.getValue(), 0, 8);
+				byte[] id = node.nodeID.getBytes();
+				value.write(id, 0, id.length);
+				value.write(0);
+				value.write(DISCOVERY_TRAILER, 0, DISCOVERY_TRAILER.length);
+				responses.add(new PendingResponse(now + TimeUnit.MILLISECONDS.toNanos(node.responseDelay),
+						new ATCommandResponsePacket(frameID, ATCommandStatus.OK, COMMAND_ND, value.toByteArray())));
+			}
+		}
+		synchronized (trafficLock) {
+			pendingResponses.addAll(responses);
+			trafficLock.notifyAll();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the given command is an execution command.
+	 */
+	private static boolean isExecutionCommand(String command) {
+		for (String executionCommand : EXECUTION_COMMANDS) {
+			if (executionCommand.equals(command))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the given value is valid for the given parameter.
+	 */
+	private boolean isValidParameter(String parameter, byte[] value) {
+		int intValue = value.length <= 4 ? ByteUtils.byteArrayToInt(value) : -1;
+		if (PARAMETER_AP.equals(parameter))
+			return intValue == 1 || intValue == 2;
+		if (PARAMETER_BD.equals(parameter))
+			return intValue >= 0 && (intValue < BAUD_RATES.length || intValue >= BAUD_RATES[0])
+					&& toBaudRate(intValue) <= maxBaudRate;
+		return true;
+	}
+
+	/**
+	 * Returns the baud rate of the given {@code BD} value.
+	 */
+	private static int toBaudRate(int value) {
+		return value < BAUD_RATES.length ? BAUD_RATES[value] : value;
+	}
+
+	/**
+	 * Returns the baud rate the host side of the UART is using.
+	 */
+	private int getHostSideBaudRate() {
+		int baudRate = hostBaudRate;
+		return baudRate == MODULE_BAUD_RATE ? getBaudRate() : baudRate;
+	}
+
+	/**
+	 * Returns whether the host receives the data sent by the module.
+	 */
+	private boolean isHostReceiving() {
+		int baudRate = getBaudRate();
+		return getHostSideBaudRate() == baudRate && baudRate <= maxHostReceiveBaudRate;
+	}
+
+	/**
+	 * Returns whether the response to a change of the given parameter must
+	 * be dropped, see {@link #setDroppedResponses(String, int)}.
+	 */
+	private boolean isResponseDropped(String command) {
+		synchronized (droppedResponses) {
+			Integer count = droppedResponses.get(command);
+			if (count == null || count == 0)
+				return false;
+			droppedResponses.put(command, count - 1);
+			return true;
+		}
+	}
+
+	/**
+	 * Generates the frame of the given packet in the given mode.
+	 */
+	private static byte[] generateFrame(XBeePacket packet, OperatingMode mode) {
+		return mode == OperatingMode.API_ESCAPE ? packet.generateByteArrayEscaped() : packet.generateByteArray();
+	}
+
+	/**
+	 * Queues the given frame to be sent to the host.
+	 *
+	 * @param frame The frame to send.
+	 * @param wait {@code true} to wait for space in the queue, {@code false}
+	 *             to drop the frame if the queue is full.
+	 */
+	private void enqueue(byte[] frame, boolean wait) {
+		// The data the host cannot receive is lost.
+		if (!isHostReceiving())
+			return;
+		if (!wait) {
+			if (!transmitQueue.offer(frame))
+				droppedFrames.incrementAndGet();
+			return;
+		}
+		try {
+			transmitQueue.put(frame);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Sends the queued frames to the host at the UART speed.
+	 */
+	private void transmit() {
+		long clock = 0;
+		try {
+			while (open) {
+				byte[] frame = transmitQueue.poll(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+				if (frame == null) {
+					// The data reader may have missed the last notification.
+					boolean pending;
+					synchronized (receiveLock) {
+						pending = receiveBuffer.availableToRead() > 0;
+					}
+					if (pending) {
+						synchronized (this) {
+							notify();
+						}
+					}
+					continue;
+				}
+				clock = pace(clock, frame.length);
+				deliver(frame);
+			}
+		} catch (InterruptedException e) {
+			// The interface has been closed.
+		}
+	}
+
+	/**
+	 * Waits the time the UART needs to transfer the given number of bytes.
+	 *
+	 * @param clock Time the UART finished the previous transfer.
+	 * @param length Number of bytes to transfer.
+	 *
+	 * @return Time the UART finishes this transfer.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while
+	 *                              waiting.
+	 */
+	private long pace(long clock, int length) throws InterruptedException {
+		long now = System.nanoTime();
+		if (!uartLimited)
+			return now;
+
+		long end = Math.max(now, clock) + TimeUnit.SECONDS.toNanos(length) * BITS_PER_BYTE / getBaudRate();
+		if (end > now)
+			TimeUnit.NANOSECONDS.sleep(end - now);
+		return end;
+	}
+
+	/**
+	 * Writes the given frame in the receive buffer, waiting for free space,
+	 * and wakes up the readers.
+	 */
+	private void deliver(byte[] frame) throws InterruptedException {
+		int offset = 0;
+		synchronized (receiveLock) {
+			while (offset < frame.length && open) {
+				int free = receiveBuffer.getCapacity() - receiveBuffer.availableToRead();
+				if (free == 0) {
+					receiveLock.wait(READ_TIMEOUT);
+					continue;
+				}
+				int length = Math.min(free, frame.length - offset);
+				receiveBuffer.write(frame, offset, length);
+				offset += length;
+				receiveLock.notifyAll();
+			}
+		}
+		if (offset == 0)
+			return;
+
+		statistics.addReceived(frame, 0, offset);
+		WireTracer tracer = wireTracer;
+		if (tracer != null)
+			tracer.record(WireTracer.Direction.RX, frame, 0, offset);
+		// Notify the data reader of the device.
+		synchronized (this) {
+			notify();
+		}
+	}
+
+	/**
+	 * Generates the inbound traffic at the configured rates.
+	 */
+	private void generateTraffic() {
+		Traffic[] types = Traffic.values();
+		long[] due = new long[types.length];
+		int sequence = 0;
+		try {
+			while (open) {
+				long now = System.nanoTime();
+				long wait = TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT);
+				for (int i = 0; i < types.length; i++) {
+					double rate = getTrafficRate(types[i]);
+					if (rate <= 0) {
+						due[i] = 0;
+						continue;
+					}
+					long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+					if (due[i] == 0)
+						due[i] = now;
+					if (now >= due[i]) {
+						// Count the frame first, it may be delivered before enqueue returns.
+						generatedFrames.incrementAndGet();
+						enqueue(generateFrame(createTraffic(types[i], sequence++), getOperatingMode()), false);
+						// Do not try to catch up after long pauses.
+						due[i] = Math.max(due[i] + period, now - TimeUnit.SECONDS.toNanos(1));
+					}
+					wait = Math.min(wait, due[i] - now);
+				}
+				wait = Math.min(wait, deliverPendingResponses(now));
+				if (wait > 0) {
+					synchronized (trafficLock) {
+						TimeUnit.NANOSECONDS.timedWait(trafficLock, wait);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// The interface has been closed.
+		}
+	}
+
+	/**
+	 * Sends the scheduled responses whose time has come.
+	 *
+	 * @return The time until the next scheduled response, in nanoseconds.
+	 */
+	private long deliverPendingResponses(long now) {
+		List<XBeePacket> dueResponses = new ArrayList<>();
+		long next = Long.MAX_VALUE;
+		synchronized (trafficLock) {
+			Iterator<PendingResponse> iterator = pendingResponses.iterator();
+			while (iterator.hasNext()) {
+				PendingResponse response = iterator.next();
+				if (response.due <= now) {
+					dueResponses.add(response.packet);
+					iterator.remove();
+				} else {
+					next = Math.min(next, response.due - now);
+				}
+			}
+		}
+		for (XBeePacket packet : dueResponses)
+			enqueue(generateFrame(packet, getOperatingMode()), true);
+		return next;
+	}
+
+	/**
+	 * Creates a packet of the given type of traffic.
+	 */
+	private XBeePacket createTraffic(Traffic traffic, int sequence) {
+		switch (traffic) {
+			case IO_SAMPLE:
+				return new IODataSampleRxIndicatorPacket(remote64BitAddress, remote16BitAddress,
+						RECEIVE_OPTIONS, IO_SAMPLE_DATA);
+			case MODEM_STATUS:
+				return new ModemStatusPacket(modemStatusEvent);
+			case RECEIVE:
+			default:
+				byte[] data = new byte[payloadSize];
+				for (int i = 0; i < data.length; i++)
+					data[i] = (byte) (sequence + i);
+				return new ReceivePacket(remote64BitAddress, remote16BitAddress, RECEIVE_OPTIONS, data);
+		}
+	}
+
+	/**
+	 * Remote node that answers the node discoveries.
+	 */
+	private static class DiscoverableNode {
+
+		private final XBee64BitAddress address64;
+		private final XBee16BitAddress address16;
+		private final String nodeID;
+		private final long responseDelay;
+
+		DiscoverableNode(XBee64BitAddress address64, XBee16BitAddress address16, String nodeID, long responseDelay) {
+			this.address64 = address64;
+			this.address16 = address16;
+			this.nodeID = nodeID;
+			this.responseDelay = responseDelay;
+		}
+	}
+
+	/**
+	 * Response scheduled to be sent at a given time.
+	 */
+	private static class PendingResponse {
+
+		private final long due;
+		private final XBeePacket packet;
+
+		PendingResponse(long due, XBeePacket packet) {
+			this.due = due;
+			this.packet = packet;
+		}
+	}
+
+	/**
+	 * Input stream that reads the data sent by the simulated module.
+	 */
+	private class ReceiveInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			byte[] buffer = new byte[1];
+			if (read(buffer, 0, 1) < 1)
+				return -1;
+			return buffer[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+
+			long start = System.nanoTime();
+			long deadline = System.currentTimeMillis() + READ_TIMEOUT;
+			boolean blocked = false;
+			try {
+				synchronized (receiveLock) {
+					while (receiveBuffer.availableToRead() == 0) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0 || !open)
+							return -1;
+						blocked = true;
+						try {
+							receiveLock.wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return -1;
+						}
+					}
+					int readBytes = receiveBuffer.read(buffer, offset, length);
+					// Wake up the UART thread if it is waiting for space.
+					receiveLock.notifyAll();
+					return readBytes;
+				}
+			} finally {
+				// Only the reads that found the buffer empty waited.
+				if (blocked)
+					statistics.addReadWait(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			synchronized (receiveLock) {
+				return receiveBuffer.availableToRead();
+			}
+		}
+	}
+
+	/**
+	 * Output stream that sends the data to the simulated module at the UART
+	 * speed.
+	 */
+	private class SendOutputStream extends OutputStream {
+
+		private long clock = 0;
+
+		@Override
+		public void write(int oneByte) throws IOException {
+			write(new byte[] {(byte)oneByte}, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] buffer, int offset, int length) throws IOException {
+			if (!open)
+				throw new IOException("Simulator is closed.");
+
+			long start = statistics.writeQueued();
+			try {
+				clock = pace(clock, length);
+				receive(buffer, offset, length);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				statistics.addTransferError();
+				throw new IOException("Write interrupted.");
+			} finally {
+				statistics.writeDone(start);
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.usb;
+
+/**
+ * This interface is used as a listener to be notified when the USB device
+ * of an {@link AndroidUSBInterface} is detached and attached again while the
+ * interface is open.
+ * 
+ * <p>The interface stays open during the outage. Data written meanwhile is
+ * kept in the write queue and sent once the device is back.</p>
+ * 
+ * @see AndroidUSBInterface#addConnectionListener(AndroidUSBConnectionListener)
+ */
+public interface AndroidUSBConnectionListener {
+
+	/**
+	 * This method is called when the USB device is detached.
+	 */
+	public void connectionLost();
+
+	/**
+	 * This method is called when the USB device has been attached again and
+	 * the connection has been restored.
+	 * 
+	 * @param outageDuration Time in milliseconds the device was detached.
+	 */
+	public void connectionRestored(long outageDuration);
+}
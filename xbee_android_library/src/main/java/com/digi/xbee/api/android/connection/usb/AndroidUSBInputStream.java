@@ -18,10 +18,8 @@ package com.digi.xbee.api.android.connection.usb;
 import java.io.IOException;
 import java.io.InputStream;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.digi.xbee.api.utils.HexUtils;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.WireTracer;
 
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
@@ -44,15 +42,17 @@ public class AndroidUSBInputStream extends InputStream {
 
 	private UsbEndpoint receiveEndPoint;
 
-	private boolean working = false;
+	private volatile boolean working = false;
 
-	private Thread receiveThread;
+	private volatile Thread receiveThread;
 
 	private CircularByteBuffer readBuffer;
 
 	private AndroidUSBInterface androidInterface;
 
-	private Logger logger;
+	private final TransportStatisticsCollector statistics;
+
+	private volatile WireTracer wireTracer;
 	
 	/**
 	 * Class constructor. Instantiates a new {@code AndroidUSBInputStream}
@@ -68,10 +68,35 @@ public class AndroidUSBInputStream extends InputStream {
 	 * @see UsbEndpoint
 	 */
 	public AndroidUSBInputStream(AndroidUSBInterface androidInterface, UsbEndpoint readEndpoint, UsbDeviceConnection connection) {
+		this(androidInterface, readEndpoint, connection, new TransportStatisticsCollector());
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code AndroidUSBInputStream}
+	 * object with the given parameters.
+	 * 
+	 * @param androidInterface The XBee Android interface to which this
+	 *                         {@code AndroidUSBInputStream} belongs to.
+	 * @param readEndpoint The USB end point to use to read data from.
+	 * @param connection The USB connection to use to read data from.
+	 * @param statistics The collector to report the received data to.
+	 * 
+	 * @throws NullPointerException if {@code statistics == null}.
+	 * 
+	 * @see AndroidUSBInterface
+	 * @see UsbDeviceConnection
+	 * @see UsbEndpoint
+	 * @see TransportStatisticsCollector
+	 */
+	public AndroidUSBInputStream(AndroidUSBInterface androidInterface, UsbEndpoint readEndpoint,
+			UsbDeviceConnection connection, TransportStatisticsCollector statistics) {
+		if (statistics == null)
+			throw new NullPointerException("Statistics collector cannot be null.");
+
 		this.usbConnection = connection;
 		this.receiveEndPoint = readEndpoint;
 		this.androidInterface = androidInterface;
-		this.logger = LoggerFactory.getLogger(AndroidUSBInputStream.class);
+		this.statistics = statistics;
 	}
 
 	/*
@@ -103,15 +128,19 @@ public class AndroidUSBInputStream extends InputStream {
 		if (readBuffer == null)
 			throw new IOException(ERROR_THREAD_NOT_INITIALIZED);
 
+		long start = System.nanoTime();
 		long deadLine = System.currentTimeMillis() + READ_TIMEOUT;
 		int readBytes = 0;
-		while (System.currentTimeMillis() < deadLine && readBytes <= 0)
+		int attempts = 0;
+		while (System.currentTimeMillis() < deadLine && readBytes <= 0) {
 			readBytes = readBuffer.read(buffer, offset, length);
+			attempts++;
+		}
+		// Only the reads that found the buffer empty waited.
+		if (attempts > 1)
+			statistics.addReadWait(System.nanoTime() - start);
 		if (readBytes <= 0)
 			return -1;
-		byte[] readData = new byte[readBytes];
-		System.arraycopy(buffer, offset, readData, 0, readBytes);
-		logger.debug("Received a read request of " + length + " bytes, returning " + readData.length + ": " + HexUtils.byteArrayToHexString(readData));
 		return readBytes;
 	}
 
@@ -139,27 +168,96 @@ public class AndroidUSBInputStream extends InputStream {
 		return readBuffer.skip((int)byteCount);
 	}
 
+	/**
+	 * Sets the wire tracer that receives a copy of the read data.
+	 * 
+	 * @param tracer The wire tracer, {@code null} to disable tracing.
+	 */
+	void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+
+	/**
+	 * Returns the number of received bytes waiting to be read.
+	 * 
+	 * @return The number of bytes in the read buffer.
+	 */
+	int getBufferedBytes() {
+		return readBuffer == null ? 0 : readBuffer.availableToRead();
+	}
+
+	/**
+	 * Returns the size of the read buffer.
+	 * 
+	 * @return The read buffer size in bytes.
+	 */
+	int getBufferSize() {
+		return readBuffer == null ? READ_BUFFER_SIZE : readBuffer.getCapacity();
+	}
+
+	/**
+	 * Sets the USB connection and end point to read data from.
+	 * 
+	 * <p>Used when the USB device is attached again after an outage. The
+	 * read thread must be stopped, the data already received is kept.</p>
+	 * 
+	 * @param readEndpoint The USB end point to use to read data from.
+	 * @param connection The USB connection to use to read data from.
+	 * 
+	 * @see #startReadThread()
+	 */
+	void setConnection(UsbEndpoint readEndpoint, UsbDeviceConnection connection) {
+		this.receiveEndPoint = readEndpoint;
+		this.usbConnection = connection;
+	}
+
 	/**
 	 * Starts the USB input stream read thread to start reading data from the
 	 * USB Android connection.
 	 * 
+	 * <p>A new thread is started every time, the read buffer is kept.</p>
+	 * 
 	 * @see #stopReadThread()
 	 */
 	public void startReadThread() {
 		if (!working) {
-			readBuffer = new CircularByteBuffer(READ_BUFFER_SIZE);
-			receiveThread = new Thread() {
+			if (readBuffer == null)
+				readBuffer = new CircularByteBuffer(READ_BUFFER_SIZE);
+			final UsbDeviceConnection connection = usbConnection;
+			final UsbEndpoint endPoint = receiveEndPoint;
+			working = true;
+			receiveThread = new Thread("AndroidUSBInputStream") {
 				@Override
 				public void run() {
-					working = true;
-					while (working) {
-						byte[] buffer = new byte[1024];
-						int receivedBytes = usbConnection.bulkTransfer(receiveEndPoint, buffer, buffer.length, READ_TIMEOUT) - OFFSET;
+					byte[] buffer = new byte[READ_BUFFER_SIZE];
+					// Every USB packet of the transfer starts with the FTDI modem status bytes.
+					int packetSize = endPoint.getMaxPacketSize();
+					// A previous thread may still be finishing its last transfer after a restart.
+					while (working && receiveThread == this) {
+						int transferredBytes = connection.bulkTransfer(endPoint, buffer, buffer.length, READ_TIMEOUT);
+						if (transferredBytes <= OFFSET)
+							continue;
+						int chunkSize = packetSize > OFFSET ? packetSize : transferredBytes;
+						int receivedBytes = 0;
+						for (int start = 0; start < transferredBytes; start += chunkSize) {
+							int dataBytes = Math.min(chunkSize, transferredBytes - start) - OFFSET;
+							if (dataBytes <= 0)
+								continue;
+							WireTracer tracer = wireTracer;
+							if (tracer != null)
+								tracer.record(WireTracer.Direction.RX, buffer, start + OFFSET, dataBytes);
+							// The circular buffer overwrites the oldest data when it is full.
+							int droppedBytes = dataBytes - (readBuffer.getCapacity() - readBuffer.availableToRead());
+							if (droppedBytes > 0) {
+								statistics.addDropped(droppedBytes);
+								if (tracer != null)
+									tracer.error("USB read buffer overflow, " + droppedBytes + " bytes dropped");
+							}
+							statistics.addReceived(buffer, start + OFFSET, dataBytes);
+							readBuffer.write(buffer, start + OFFSET, dataBytes);
+							receivedBytes += dataBytes;
+						}
 						if (receivedBytes > 0) {
-							byte[] data = new byte[receivedBytes];
-							System.arraycopy(buffer, OFFSET, data, 0, receivedBytes);
-							logger.debug("Message received: " + HexUtils.byteArrayToHexString(data));
-							readBuffer.write(buffer, OFFSET, receivedBytes);
 							// Notify interface so that XBee Reader is notified about data available.
 							synchronized (androidInterface) {
 								androidInterface.notify();
@@ -182,4 +280,24 @@ public class AndroidUSBInputStream extends InputStream {
 		if (receiveThread != null)
 			receiveThread.interrupt();
 	}
+
+	/**
+	 * Returns the read thread.
+	 * 
+	 * @return The read thread, {@code null} if it was never started.
+	 */
+	Thread getReadThread() {
+		return receiveThread;
+	}
+
+	/**
+	 * Discards the received data that has not been read yet.
+	 * 
+	 * <p>Used when the stream is reused after the interface is opened again,
+	 * the read buffer is kept.</p>
+	 */
+	void clear() {
+		if (readBuffer != null)
+			readBuffer.clearBuffer();
+	}
 }
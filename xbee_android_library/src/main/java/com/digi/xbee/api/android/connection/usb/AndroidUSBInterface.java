@@ -18,7 +18,17 @@ package com.digi.xbee.api.android.connection.usb;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,24 +44,34 @@ import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
 import android.hardware.usb.UsbInterface;
 import android.hardware.usb.UsbManager;
+import android.os.Build;
 
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.ConnectionFutureListener;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.TransportStatisticsProvider;
+import com.digi.xbee.api.android.connection.TransportThreads;
+import com.digi.xbee.api.android.connection.WireTraceable;
+import com.digi.xbee.api.android.connection.WireTracer;
 import com.digi.xbee.api.connection.ConnectionType;
 import com.digi.xbee.api.connection.IConnectionInterface;
 import com.digi.xbee.api.exceptions.InterfaceInUseException;
 import com.digi.xbee.api.exceptions.InvalidConfigurationException;
 import com.digi.xbee.api.exceptions.InvalidInterfaceException;
 import com.digi.xbee.api.exceptions.PermissionDeniedException;
+import com.digi.xbee.api.exceptions.XBeeException;
 
 /**
  * This class represents a communication interface with XBee devices over USB.
  */
-public class AndroidUSBInterface implements IConnectionInterface {
+public class AndroidUSBInterface implements IConnectionInterface, TransportStatisticsProvider, WireTraceable {
 
 	// Constants.
 	private static final int VID = 0x0403;
 	private static final int[] FTDI_PIDS = {
 			0x6001, // FT232 and FT245
-			//0x6010, // FT2232
+			0x6010, // FT2232
 			0x6011, // FT4232
 			//0x6014, // FT232H
 			0x6015, // FT-X series
@@ -60,10 +80,29 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	
 	private static final int BASE_CLOCK = 48000000;
 
+	/**
+	 * Maximum baud rate supported by the FTDI USB bridges of XBee boards
+	 * that is also a standard XBee baud rate.
+	 */
+	public static final int MAX_BAUD_RATE = 921600;
+
+	/**
+	 * Default latency timer of the FTDI USB bridges in milliseconds.
+	 */
+	public static final int DEFAULT_LATENCY_TIMER = 16;
+
+	private static final int MAX_LATENCY_TIMER = 255;
+
 	private static final String ACTION_USB_PERMISSION = "com.android.example.USB_PERMISSION";
 
 	// Variables.
+	private static final Map<String, SharedConnection> sharedConnections = new HashMap<String, SharedConnection>();
+
+	private final UsbDevice requestedDevice;
 	private UsbDevice usbDevice;
+	private String serialNumber;
+
+	private final int port;
 
 	private UsbDeviceConnection usbConnection;
 
@@ -74,6 +113,9 @@ public class AndroidUSBInterface implements IConnectionInterface {
 
 	private PendingIntent mPermissionIntent;
 
+	// Device whose permission answer is awaited.
+	private UsbDevice permissionDevice;
+
 	private UsbManager usbManager;
 
 	private AndroidUSBInputStream inputStream;
@@ -81,15 +123,40 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	private AndroidUSBOutputStream outputStream;
 
 	private boolean isConnected = false;
-	private boolean permissionsReceived = false;
-	private boolean permissionsGranted = false;
+	private boolean permissionReceiverRegistered = false;
+
+	// Futures of the callers waiting for the permission answer.
+	private final List<ConnectionFuture<UsbDevice>> permissionWaiters = new ArrayList<ConnectionFuture<UsbDevice>>();
+
+	private long openTimeout = 0;
+	private int closeCount = 0;
+
+	private boolean hotPlugRegistered = false;
+	private boolean detached = false;
+	private boolean reattachPending = false;
+
+	private long detachTime;
+	private long lastOutageDuration = 0;
+	private int outageCount = 0;
+
+	private final Object connectionLock = new Object();
+
+	private final List<AndroidUSBConnectionListener> connectionListeners = new CopyOnWriteArrayList<AndroidUSBConnectionListener>();
 
 	private Context context;
 
 	private int baudRate;
+
+	private int latencyTimer = DEFAULT_LATENCY_TIMER;
 	
 	private AndroidUSBPermissionListener permissionListener;
 	
+	private final TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+
+	private final TransportThreads threads;
+	
+	private volatile WireTracer wireTracer;
+	
 	private Logger logger;
 
 	/**
@@ -181,19 +248,102 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 * @see UsbDevice
 	 */
 	public AndroidUSBInterface(Context context, int baudRate, UsbDevice usbDevice, AndroidUSBPermissionListener permissionListener) {
+		this(context, baudRate, usbDevice, 0, permissionListener);
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code AndroidUSBInterface} object
+	 * that uses the given port of a multi-port USB bridge, such as the FT2232
+	 * or FT4232.
+	 * 
+	 * <p>Every port is an independent interface with its own threads and
+	 * statistics, so one interface can be opened per port to use all the
+	 * XBee devices attached to the bridge at the same time.</p>
+	 * 
+	 * @param context The Android context.
+	 * @param baudRate Device baud rate to use.
+	 * @param usbDevice USB device to use.
+	 * @param port Index of the port (USB interface) to use, starting at 0.
+	 * 
+	 * @throws IllegalArgumentException if {@code baudRate < 1} or
+	 *                                  if {@code port < 0}.
+	 * @throws NullPointerException if {@code context == null} or
+	 *                              if {@code usbDevice == null}.
+	 * 
+	 * @see #AndroidUSBInterface(Context, int, UsbDevice)
+	 * @see #AndroidUSBInterface(Context, int, UsbDevice, int, AndroidUSBPermissionListener)
+	 * @see #getPortCount(UsbDevice)
+	 */
+	public AndroidUSBInterface(Context context, int baudRate, UsbDevice usbDevice, int port) {
+		this(context, baudRate, usbDevice, port, null);
+		if (usbDevice == null)
+			throw new NullPointerException("USB device cannot be null.");
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code AndroidUSBInterface} object
+	 * that uses the given port of a multi-port USB bridge.
+	 * 
+	 * @param context The Android context.
+	 * @param baudRate Device baud rate to use.
+	 * @param usbDevice USB device to use, may be {@code null}.
+	 * @param port Index of the port (USB interface) to use, starting at 0.
+	 * @param permissionListener Android USB permission listener to be notified 
+	 *                           when access to USB device is granted, may be 
+	 *                           {@code null}.
+	 * 
+	 * @throws IllegalArgumentException if {@code baudRate < 1} or
+	 *                                  if {@code port < 0}.
+	 * @throws NullPointerException if {@code context == null}.
+	 * 
+	 * @see #AndroidUSBInterface(Context, int, UsbDevice, int)
+	 * @see #getPortCount(UsbDevice)
+	 * @see AndroidUSBPermissionListener
+	 */
+	public AndroidUSBInterface(Context context, int baudRate, UsbDevice usbDevice, int port, AndroidUSBPermissionListener permissionListener) {
 		if (context == null)
 			throw new NullPointerException("Android context cannot be null.");
 		if (baudRate < 1)
 			throw new IllegalArgumentException("Baud rate must be greater than 0.");
+		if (port < 0)
+			throw new IllegalArgumentException("Port cannot be negative.");
 		
 		this.context = context;
 		this.baudRate = baudRate;
 		this.permissionListener = permissionListener;
+		this.requestedDevice = usbDevice;
 		this.usbDevice = usbDevice;
+		this.port = port;
+		this.threads = new TransportThreads("AndroidUSBInterface port " + port);
 		this.usbManager = (UsbManager)context.getSystemService(Context.USB_SERVICE);
 		this.logger = LoggerFactory.getLogger(AndroidUSBInterface.class);
 	}
 
+	/**
+	 * Returns the number of ports of the given USB device.
+	 * 
+	 * @param usbDevice The USB device.
+	 * 
+	 * @return The number of ports, 1 for single port bridges.
+	 * 
+	 * @throws NullPointerException if {@code usbDevice == null}.
+	 */
+	public static int getPortCount(UsbDevice usbDevice) {
+		if (usbDevice == null)
+			throw new NullPointerException("USB device cannot be null.");
+		
+		return Math.max(1, usbDevice.getInterfaceCount());
+	}
+
+	/**
+	 * Returns the index of the port (USB interface) used by this interface.
+	 * 
+	 * @return The port index, starting at 0.
+	 */
+	public int getPort() {
+		return port;
+	}
+
 	/**
 	 * Calculates a valid divisor for the given baud rate and base clock for
 	 * the FT232BM, FT2232C and FT232LR chips.
@@ -217,6 +367,141 @@ public class AndroidUSBInterface implements IConnectionInterface {
 		return divisor;
 	}
 
+	/**
+	 * Returns the baud rate used to communicate with the USB device.
+	 * 
+	 * @return The USB connection baud rate.
+	 * 
+	 * @see #setBaudRate(int)
+	 */
+	public int getBaudRate() {
+		return baudRate;
+	}
+
+	/**
+	 * Sets the baud rate used to communicate with the USB device.
+	 * 
+	 * <p>If the connection is open, the USB bridge is reconfigured right
+	 * away. Otherwise the new baud rate is used the next time the interface
+	 * is opened.</p>
+	 * 
+	 * @param baudRate The new USB connection baud rate.
+	 * 
+	 * @throws IllegalArgumentException if {@code baudRate < 1} or
+	 *                                  if {@code baudRate > MAX_BAUD_RATE}.
+	 * 
+	 * @see #getBaudRate()
+	 * @see #MAX_BAUD_RATE
+	 */
+	public void setBaudRate(int baudRate) {
+		if (baudRate < 1)
+			throw new IllegalArgumentException("Baud rate must be greater than 0.");
+		if (baudRate > MAX_BAUD_RATE)
+			throw new IllegalArgumentException("Baud rate cannot be greater than " + MAX_BAUD_RATE + ".");
+		
+		this.baudRate = baudRate;
+		if (usbConnection != null)
+			configureBaudRate();
+	}
+
+	/**
+	 * Configures the baud rate of the USB bridge.
+	 */
+	private void configureBaudRate() {
+		usbConnection.controlTransfer(0x40, 0x03, calculateBaudRate(baudRate, BASE_CLOCK), getControlIndex(), null, 0, 0);
+	}
+
+	/**
+	 * Returns the latency timer of the USB bridge, that is, the maximum time
+	 * received data waits in the bridge before being sent to Android.
+	 * 
+	 * @return The latency timer in milliseconds.
+	 * 
+	 * @see #setLatencyTimer(int)
+	 */
+	public int getLatencyTimer() {
+		return latencyTimer;
+	}
+
+	/**
+	 * Sets the latency timer of the USB bridge.
+	 * 
+	 * <p>Lower values reduce the response time of small frames at the cost
+	 * of more USB transfers. If the connection is open, the USB bridge is
+	 * reconfigured right away. The value is also restored when the USB device
+	 * is attached again after an outage.</p>
+	 * 
+	 * @param latencyTimer The latency timer in milliseconds.
+	 * 
+	 * @throws IllegalArgumentException if {@code latencyTimer < 1} or
+	 *                                  if {@code latencyTimer > 255}.
+	 * 
+	 * @see #getLatencyTimer()
+	 * @see #DEFAULT_LATENCY_TIMER
+	 */
+	public void setLatencyTimer(int latencyTimer) {
+		if (latencyTimer < 1 || latencyTimer > MAX_LATENCY_TIMER)
+			throw new IllegalArgumentException("Latency timer must be between 1 and " + MAX_LATENCY_TIMER + ".");
+		
+		this.latencyTimer = latencyTimer;
+		if (usbConnection != null)
+			configureLatencyTimer();
+	}
+
+	/**
+	 * Returns the maximum time to wait for the user to grant the USB
+	 * permissions when opening the interface.
+	 * 
+	 * @return The open timeout in milliseconds, 0 to wait forever.
+	 * 
+	 * @see #setOpenTimeout(long)
+	 */
+	public long getOpenTimeout() {
+		return openTimeout;
+	}
+
+	/**
+	 * Sets the maximum time to wait for the user to grant the USB
+	 * permissions when opening the interface.
+	 * 
+	 * <p>When it expires, the permission request is withdrawn and the open
+	 * fails, closing the connection if it was being started. By default
+	 * the open waits forever.</p>
+	 * 
+	 * @param openTimeout The open timeout in milliseconds, 0 to wait
+	 *                    forever.
+	 * 
+	 * @throws IllegalArgumentException if {@code openTimeout < 0}.
+	 * 
+	 * @see #getOpenTimeout()
+	 * @see #open()
+	 * @see #openAsync()
+	 */
+	public void setOpenTimeout(long openTimeout) {
+		if (openTimeout < 0)
+			throw new IllegalArgumentException("Open timeout cannot be negative.");
+		
+		this.openTimeout = openTimeout;
+	}
+
+	/**
+	 * Configures the latency timer of the USB bridge.
+	 */
+	private void configureLatencyTimer() {
+		usbConnection.controlTransfer(0x40, 0x09, latencyTimer, getControlIndex(), null, 0, 0);
+	}
+
+	/**
+	 * Returns the index of the control transfers addressed to the port of
+	 * this interface.
+	 * 
+	 * @return The control transfer index.
+	 */
+	private int getControlIndex() {
+		// Multi-port bridges address the port in the index, starting at 1.
+		return usbDevice.getInterfaceCount() > 1 ? port + 1 : 0;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.digi.xbee.api.connection.IConnectionInterface#open()
@@ -225,38 +510,235 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	public void open() throws InterfaceInUseException,
 			InvalidInterfaceException, InvalidConfigurationException,
 			PermissionDeniedException {
-		// Reset variables.
-		permissionsReceived = false;
-		permissionsGranted = false;
-		// Look for a compatible USB device.
-		if (usbDevice == null)
-			usbDevice = findDevice();
-		if (usbDevice == null)
-			throw new InvalidInterfaceException("XBee USB device not found");
+		int openCloseCount;
+		synchronized (connectionLock) {
+			openCloseCount = closeCount;
+		}
 		// Check USB device permissions.
-		if (!usbManager.hasPermission(usbDevice)) {
-			mPermissionIntent = PendingIntent.getBroadcast(context, 0, new Intent(ACTION_USB_PERMISSION), 0);
-			IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
-			context.registerReceiver(mUsbReceiver, filter);
-			usbManager.requestPermission(usbDevice, mPermissionIntent);
-			if (permissionListener == null) {
-				// This should be called when connecting from a thread different than the UI.
-				while (!permissionsReceived) {
+		ConnectionFuture<UsbDevice> permission = requestPermissionAsync();
+		if (!permission.isDone() && permissionListener != null) {
+			// Main application is waiting now to the permission receiver listener. We have to exit here, main 
+			// application should try to reconnect again when permissions are granted. At this point we do not have
+			// permissions yet.
+			throw new PermissionDeniedException("User didn't grant permissions to access XBee device.");
+		}
+		try {
+			// This should be called when connecting from a thread different than the UI.
+			if (openTimeout > 0)
+				permission.get(openTimeout, TimeUnit.MILLISECONDS);
+			else
+				permission.get();
+		} catch (InterruptedException e) {
+			permission.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new PermissionDeniedException("Interrupted while waiting for permissions to access XBee device.");
+		} catch (TimeoutException e) {
+			permission.cancel(false);
+			throw new PermissionDeniedException("User didn't answer the permissions request in " + openTimeout + " ms.");
+		} catch (CancellationException e) {
+			// The interface was closed while waiting.
+			throw new InvalidInterfaceException("Open of the XBee USB device cancelled.");
+		} catch (ExecutionException e) {
+			if (permission.getException() instanceof InvalidInterfaceException)
+				throw (InvalidInterfaceException)permission.getException();
+			throw new PermissionDeniedException(e.getMessage());
+		}
+		synchronized (connectionLock) {
+			// Do not connect if the interface was closed meanwhile.
+			if (closeCount != openCloseCount)
+				throw new InvalidInterfaceException("Open of the XBee USB device cancelled.");
+			// Start the USB connection.
+			startUSBConnection();
+		}
+	}
+
+	/**
+	 * Opens this interface without blocking the calling thread.
+	 * 
+	 * <p>If the user has to grant the USB permissions, the returned future
+	 * completes once they are granted and the USB connection is started.
+	 * Cancelling the future, closing the interface or reaching the
+	 * {@linkplain #setOpenTimeout(long) open timeout} withdraws the pending
+	 * open, the permission dialog may remain visible though.</p>
+	 * 
+	 * <p>The future fails with a {@code PermissionDeniedException} if the
+	 * user denies the permissions, with an
+	 * {@code InvalidInterfaceException} if no compatible USB device is
+	 * found and with a {@code TimeoutException} if the open timeout
+	 * expires.</p>
+	 * 
+	 * @return The future of the open operation.
+	 * 
+	 * @see #open()
+	 * @see #requestPermissionAsync()
+	 * @see ConnectionFuture
+	 */
+	public ConnectionFuture<AndroidUSBInterface> openAsync() {
+		final ConnectionFuture<AndroidUSBInterface> future = new ConnectionFuture<AndroidUSBInterface>();
+		final int openCloseCount;
+		synchronized (connectionLock) {
+			if (isConnected) {
+				future.complete(this);
+				return future;
+			}
+			openCloseCount = closeCount;
+		}
+		final ConnectionFuture<UsbDevice> permission = requestPermissionAsync();
+		future.setCancelHandler(new Runnable() {
+			@Override
+			public void run() {
+				permission.cancel(false);
+			}
+		});
+		if (openTimeout > 0)
+			future.setTimeout(openTimeout, TimeUnit.MILLISECONDS);
+		permission.addListener(new ConnectionFutureListener<UsbDevice>() {
+			@Override
+			public void operationCompleted(ConnectionFuture<UsbDevice> permissionResult) {
+				if (permissionResult.isCancelled()) {
+					future.cancel(false);
+					return;
+				}
+				if (permissionResult.getException() != null) {
+					future.fail(permissionResult.getException());
+					return;
+				}
+				if (future.isDone())
+					return;
+				synchronized (connectionLock) {
+					// Do not connect if the interface was closed meanwhile.
+					if (closeCount != openCloseCount) {
+						future.cancel(false);
+						return;
+					}
 					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {}
+						if (!isConnected)
+							startUSBConnection();
+					} catch (InterfaceInUseException e) {
+						future.fail(e);
+						return;
+					}
 				}
-				if (!permissionsGranted)
-					throw new PermissionDeniedException("User didn't grant permissions to access XBee device.");
-			} else {
-				// Main application is waiting now to the permission receiver listener. We have to exit here, main 
-				// application should try to reconnect again when permissions are granted. At this point we do not have
-				// permissions yet.
-				throw new PermissionDeniedException("User didn't grant permissions to access XBee device.");
+				// The open may have been cancelled while starting the connection.
+				if (!future.complete(AndroidUSBInterface.this))
+					close();
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Requests the permissions to access the USB device without blocking the
+	 * calling thread.
+	 * 
+	 * <p>The returned future is already complete if Android granted the
+	 * permissions before. Otherwise, it completes when the user answers the
+	 * permission dialog. Concurrent requests share the same dialog, but
+	 * every caller gets its own future: cancelling it does not affect the
+	 * other callers, and the request is only withdrawn when all of them
+	 * are cancelled. Closing the interface cancels them all.</p>
+	 * 
+	 * @return The future of the permission request, whose result is the USB
+	 *         device to use.
+	 * 
+	 * @see #openAsync()
+	 * @see ConnectionFuture
+	 */
+	public ConnectionFuture<UsbDevice> requestPermissionAsync() {
+		final ConnectionFuture<UsbDevice> future;
+		XBeeException error = null;
+		UsbDevice grantedDevice = null;
+		synchronized (connectionLock) {
+			future = new ConnectionFuture<UsbDevice>();
+			// Share the pending request, Android shows a single dialog.
+			if (!permissionWaiters.isEmpty()) {
+				addPermissionWaiter(future);
+				return future;
+			}
+			// Look for a compatible USB device.
+			if (usbDevice == null)
+				usbDevice = findDevice();
+			if (usbDevice == null)
+				error = new InvalidInterfaceException("XBee USB device not found");
+			else if (usbManager.hasPermission(usbDevice))
+				grantedDevice = usbDevice;
+			else {
+				addPermissionWaiter(future);
+				requestUSBPermission(usbDevice);
 			}
 		}
-		// Start the USB connection.
-		startUSBConnection();
+		// Complete outside the lock, listeners may start the connection.
+		if (error != null)
+			future.fail(error);
+		else if (grantedDevice != null)
+			future.complete(grantedDevice);
+		return future;
+	}
+
+	/**
+	 * Adds the given future to the callers waiting for the permission
+	 * answer. Must be called with the connection lock held.
+	 * 
+	 * @param future The future of the caller.
+	 */
+	private void addPermissionWaiter(final ConnectionFuture<UsbDevice> future) {
+		permissionWaiters.add(future);
+		future.setCancelHandler(new Runnable() {
+			@Override
+			public void run() {
+				cancelPermissionRequest(future);
+			}
+		});
+	}
+
+	/**
+	 * Stops the given caller from waiting for the permission answer and
+	 * withdraws the request if nobody else is waiting.
+	 * 
+	 * @param future The future of the caller.
+	 */
+	private void cancelPermissionRequest(ConnectionFuture<UsbDevice> future) {
+		synchronized (connectionLock) {
+			if (!permissionWaiters.remove(future) || !permissionWaiters.isEmpty())
+				return;
+			if (!reattachPending)
+				unregisterPermissionReceiver();
+		}
+	}
+
+	/**
+	 * Asks the user for permissions to access the given USB device. The
+	 * answer is received by the USB permission receiver.
+	 * 
+	 * <p>The pending intent uses the device ID as request code, so the
+	 * requests of interfaces using different devices do not replace each
+	 * other.</p>
+	 * 
+	 * @param device The USB device.
+	 */
+	private void requestUSBPermission(UsbDevice device) {
+		if (!permissionReceiverRegistered) {
+			context.registerReceiver(mUsbReceiver, new IntentFilter(ACTION_USB_PERMISSION));
+			permissionReceiverRegistered = true;
+		}
+		permissionDevice = device;
+		mPermissionIntent = PendingIntent.getBroadcast(context, device.getDeviceId(), new Intent(ACTION_USB_PERMISSION), 0);
+		usbManager.requestPermission(device, mPermissionIntent);
+	}
+
+	/**
+	 * Unregisters the receiver of the USB permission answers.
+	 */
+	private void unregisterPermissionReceiver() {
+		if (!permissionReceiverRegistered)
+			return;
+		permissionReceiverRegistered = false;
+		permissionDevice = null;
+		try {
+			context.unregisterReceiver(mUsbReceiver);
+		} catch (IllegalArgumentException e) {
+			// The receiver was already unregistered.
+		}
 	}
 
 	/*
@@ -265,26 +747,39 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 */
 	@Override
 	public void close() {
-		// Not connected
-		isConnected = false;
-		// Stop the read thread.
-		if (inputStream != null)
-			inputStream.stopReadThread();
-		// Release the streams.
-		inputStream = null;
-		outputStream = null;
-		// Release end points.
-		receiveEndPoint = null;
-		sendEndPoint = null;
-		// Disconnect USB connection
-		if (usbConnection != null) {
-			usbConnection.releaseInterface(usbInterface);
-			usbConnection.close();
+		// Stop listening for attach and detach events.
+		unregisterHotPlugReceiver();
+		List<ConnectionFuture<UsbDevice>> waiters;
+		synchronized (connectionLock) {
+			// Not connected
+			isConnected = false;
+			detached = false;
+			closeCount++;
+			// Drop the pending permission requests.
+			waiters = new ArrayList<ConnectionFuture<UsbDevice>>(permissionWaiters);
+			permissionWaiters.clear();
+			unregisterPermissionReceiver();
+			reattachPending = false;
+			// Stop the read and write threads, the streams are kept to be
+			// reused if the interface is opened again.
+			if (inputStream != null)
+				inputStream.stopReadThread();
+			if (outputStream != null) {
+				try {
+					outputStream.close();
+				} catch (IOException ignore) {}
+			}
+		}
+		// Cancel the pending opens outside the lock, they run listeners.
+		for (ConnectionFuture<UsbDevice> waiter : waiters)
+			waiter.cancel(false);
+		// Wait for the threads before releasing the connection they use.
+		threads.stopAll(TransportThreads.DEFAULT_JOIN_TIMEOUT);
+		synchronized (connectionLock) {
+			// Disconnect USB connection
+			releasePort();
+			usbDevice = requestedDevice;
 		}
-		// Release USB connection and USB interface.
-		usbConnection = null;
-		usbInterface = null;
-		usbDevice = null;
 	}
 
 	/*
@@ -302,7 +797,7 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 */
 	@Override
 	public InputStream getInputStream() {
-		return inputStream;
+		return isConnected ? inputStream : null;
 	}
 
 	/*
@@ -311,7 +806,7 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 */
 	@Override
 	public OutputStream getOutputStream() {
-		return outputStream;
+		return isConnected ? outputStream : null;
 	}
 	
 	/*
@@ -400,6 +895,95 @@ public class AndroidUSBInterface implements IConnectionInterface {
 		return ConnectionType.SERIAL;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see com.digi.xbee.api.android.connection.TransportStatisticsProvider#getTransportStatistics()
+	 */
+	@Override
+	public TransportStatistics getTransportStatistics() {
+		AndroidUSBInputStream in = inputStream;
+		AndroidUSBOutputStream out = outputStream;
+		return statistics.snapshot(out == null ? 0 : out.getQueuedWrites(),
+				in == null ? 0 : in.getBufferedBytes(),
+				in == null ? 0 : in.getBufferSize());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.digi.xbee.api.android.connection.TransportStatisticsProvider#resetTransportStatistics()
+	 */
+	@Override
+	public void resetTransportStatistics() {
+		statistics.reset();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.digi.xbee.api.android.connection.WireTraceable#setWireTracer(com.digi.xbee.api.android.connection.WireTracer)
+	 */
+	@Override
+	public void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+		AndroidUSBInputStream in = inputStream;
+		if (in != null)
+			in.setWireTracer(tracer);
+		AndroidUSBOutputStream out = outputStream;
+		if (out != null)
+			out.setWireTracer(tracer);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.digi.xbee.api.android.connection.WireTraceable#getWireTracer()
+	 */
+	@Override
+	public WireTracer getWireTracer() {
+		return wireTracer;
+	}
+
+	/**
+	 * Returns the USB devices attached to the Android device that are
+	 * compatible with XBee devices.
+	 * 
+	 * @param context The Android context.
+	 * 
+	 * @return The list of compatible USB devices, empty if no compatible
+	 *         device is found.
+	 * 
+	 * @throws NullPointerException if {@code context == null}.
+	 */
+	public static List<UsbDevice> findDevices(Context context) {
+		if (context == null)
+			throw new NullPointerException("Android context cannot be null.");
+		
+		return findDevices((UsbManager)context.getSystemService(Context.USB_SERVICE));
+	}
+
+	/**
+	 * Returns the USB devices known by the given USB manager that are
+	 * compatible with XBee devices.
+	 * 
+	 * @param usbManager The Android USB manager.
+	 * 
+	 * @return The list of compatible USB devices.
+	 */
+	private static List<UsbDevice> findDevices(UsbManager usbManager) {
+		List<UsbDevice> devices = new ArrayList<UsbDevice>();
+		if (usbManager == null)
+			return devices;
+		for (UsbDevice device:usbManager.getDeviceList().values()) {
+			if (device.getVendorId() != VID)
+				continue;
+			for (int pid:FTDI_PIDS) {
+				if (device.getProductId() == pid) {
+					devices.add(device);
+					break;
+				}
+			}
+		}
+		return devices;
+	}
+
 	/**
 	 * Looks for a compatible USB device to use as XBee device.
 	 * 
@@ -407,22 +991,11 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 *         found.
 	 */
 	private UsbDevice findDevice() {
-		UsbDevice usbDevice = null;
-		HashMap<String, UsbDevice> deviceList = usbManager.getDeviceList();
-		for (UsbDevice device:deviceList.values()) {
-			if (device.getVendorId() == VID) {
-				for (int pid:FTDI_PIDS) {
-					if (device.getProductId() == pid) {
-						usbDevice = device;
-						logger.info("USB XBee Android device found: " + usbDevice.getDeviceName());
-						break;
-					}
-				}
-			}
-			if (usbDevice != null) {
-				break;
-			}
-		}
+		List<UsbDevice> devices = findDevices(usbManager);
+		if (devices.isEmpty())
+			return null;
+		UsbDevice usbDevice = devices.get(0);
+		logger.info("USB XBee Android device found: " + usbDevice.getDeviceName());
 		return usbDevice;
 	}
 
@@ -433,15 +1006,62 @@ public class AndroidUSBInterface implements IConnectionInterface {
 	 *                                 interface.
 	 */
 	private void startUSBConnection() throws InterfaceInUseException {
-		// Create the USB connection.
+		// Claim and configure the port.
+		claimPort();
+		// Instantiate input stream and output stream, or reuse them and their
+		// buffers if the interface was open before. Their threads are always
+		// new, the previous ones were joined by close().
+		if (inputStream == null) {
+			inputStream = new AndroidUSBInputStream(this, receiveEndPoint, usbConnection, statistics);
+			outputStream = new AndroidUSBOutputStream(sendEndPoint, usbConnection, statistics);
+		} else {
+			inputStream.setConnection(receiveEndPoint, usbConnection);
+			inputStream.clear();
+			outputStream.reopen(sendEndPoint, usbConnection);
+		}
+		threads.register(outputStream.getWriterThread());
+		inputStream.setWireTracer(wireTracer);
+		outputStream.setWireTracer(wireTracer);
+		// Start the read thread.
+		inputStream.startReadThread();
+		threads.register(inputStream.getReadThread());
+		// Listen for attach and detach events.
+		registerHotPlugReceiver();
+		// Connection finished.
+		isConnected = true;
+	}
+
+	/**
+	 * Opens the USB device connection, claims the USB interface of the port
+	 * and configures the USB bridge.
+	 * 
+	 * @throws InterfaceInUseException if there is an error claiming the USB
+	 *                                 interface.
+	 * 
+	 * @see #releasePort()
+	 */
+	private void claimPort() throws InterfaceInUseException {
+		// Create the USB connection, shared by all the ports of the device.
+		if (usbConnection == null)
+			usbConnection = acquireConnection(usbManager, usbDevice, port);
 		if (usbConnection == null)
-			usbConnection = usbManager.openDevice(usbDevice);
-		// Create the USB interface.
-		if (usbInterface == null)
-			usbInterface = usbDevice.getInterface(0);
+			throw new InterfaceInUseException("Could not open the USB device.");
+		serialNumber = getSerialNumber(usbDevice);
+		// Create the USB interface of the port.
+		if (usbInterface == null) {
+			if (port >= usbDevice.getInterfaceCount()) {
+				releaseConnection(usbDevice, usbConnection, port);
+				usbConnection = null;
+				throw new InterfaceInUseException("USB device does not have port " + port + ".");
+			}
+			usbInterface = usbDevice.getInterface(port);
+		}
 		// Claim USB interface.
-		if (!usbConnection.claimInterface(usbInterface, true)) 
+		if (!usbConnection.claimInterface(usbInterface, true)) {
+			// Do not leave the connection half open.
+			releasePort();
 			throw new InterfaceInUseException("Could not get control of USB interface, it may be in use by other applications.");
+		}
 		// Configure the USB end points.
 		for (int i = 0; i < usbInterface.getEndpointCount(); i++) {
 			if (usbInterface.getEndpoint(i).getType() == UsbConstants.USB_ENDPOINT_XFER_BULK) {
@@ -451,17 +1071,376 @@ public class AndroidUSBInterface implements IConnectionInterface {
 					sendEndPoint = usbInterface.getEndpoint(i);
 			} 
 		}
-		// Configure USB baud rate.
-		usbConnection.controlTransfer(0x40, 0x03, calculateBaudRate(baudRate, BASE_CLOCK), 0, null, 0, 0);
-		// Instantiate input stream and output stream.
-		inputStream = new AndroidUSBInputStream(this, receiveEndPoint, usbConnection);
-		outputStream = new AndroidUSBOutputStream(sendEndPoint, usbConnection);
-		// Start the read thread.
-		inputStream.startReadThread();
-		// Connection finished.
-		isConnected = true;
+		// Configure USB baud rate and latency timer.
+		configureBaudRate();
+		configureLatencyTimer();
+	}
+
+	/**
+	 * Releases the USB interface of the port and the USB device connection.
+	 * 
+	 * @see #claimPort()
+	 */
+	private void releasePort() {
+		// Release end points.
+		receiveEndPoint = null;
+		sendEndPoint = null;
+		// Disconnect USB connection
+		if (usbConnection != null) {
+			if (usbInterface != null)
+				usbConnection.releaseInterface(usbInterface);
+			releaseConnection(usbDevice, usbConnection, port);
+		}
+		// Release USB connection and USB interface.
+		usbConnection = null;
+		usbInterface = null;
+	}
+
+	/**
+	 * Adds the given listener to the list of listeners to be notified when
+	 * the USB device is detached and attached again.
+	 * 
+	 * @param listener The listener to add.
+	 * 
+	 * @throws NullPointerException if {@code listener == null}.
+	 * 
+	 * @see #removeConnectionListener(AndroidUSBConnectionListener)
+	 * @see AndroidUSBConnectionListener
+	 */
+	public void addConnectionListener(AndroidUSBConnectionListener listener) {
+		if (listener == null)
+			throw new NullPointerException("Listener cannot be null.");
+		
+		if (!connectionListeners.contains(listener))
+			connectionListeners.add(listener);
+	}
+
+	/**
+	 * Removes the given listener from the list of USB connection listeners.
+	 * 
+	 * @param listener The listener to remove.
+	 * 
+	 * @throws NullPointerException if {@code listener == null}.
+	 * 
+	 * @see #addConnectionListener(AndroidUSBConnectionListener)
+	 */
+	public void removeConnectionListener(AndroidUSBConnectionListener listener) {
+		if (listener == null)
+			throw new NullPointerException("Listener cannot be null.");
+		
+		connectionListeners.remove(listener);
+	}
+
+	/**
+	 * Returns whether the USB device is attached.
+	 * 
+	 * <p>An open interface stays open while its USB device is detached, the
+	 * I/O is stopped until the device is attached again.</p>
+	 * 
+	 * @return {@code true} if the interface is open and the USB device is
+	 *         attached, {@code false} otherwise.
+	 */
+	public boolean isAttached() {
+		synchronized (connectionLock) {
+			return isConnected && !detached;
+		}
+	}
+
+	/**
+	 * Returns the number of times the USB device has been detached while
+	 * this interface was open.
+	 * 
+	 * @return The number of outages.
+	 */
+	public int getOutageCount() {
+		synchronized (connectionLock) {
+			return outageCount;
+		}
+	}
+
+	/**
+	 * Returns the duration of the last outage, that is, the time from the
+	 * USB device detach until the connection was restored.
+	 * 
+	 * @return The duration of the last outage in milliseconds, {@code 0} if
+	 *         the connection has not been restored yet.
+	 */
+	public long getLastOutageDuration() {
+		synchronized (connectionLock) {
+			return lastOutageDuration;
+		}
+	}
+
+	/**
+	 * Registers the receiver of the USB attach and detach events.
+	 */
+	private void registerHotPlugReceiver() {
+		if (hotPlugRegistered)
+			return;
+		IntentFilter filter = new IntentFilter(UsbManager.ACTION_USB_DEVICE_DETACHED);
+		filter.addAction(UsbManager.ACTION_USB_DEVICE_ATTACHED);
+		context.registerReceiver(hotPlugReceiver, filter);
+		hotPlugRegistered = true;
+	}
+
+	/**
+	 * Unregisters the receiver of the USB attach and detach events.
+	 */
+	private void unregisterHotPlugReceiver() {
+		if (!hotPlugRegistered)
+			return;
+		hotPlugRegistered = false;
+		try {
+			context.unregisterReceiver(hotPlugReceiver);
+		} catch (IllegalArgumentException e) {
+			// The receiver was already unregistered.
+		}
+	}
+
+	/**
+	 * Stops the I/O of this interface when its USB device is detached.
+	 * 
+	 * <p>The interface stays open, so the data written meanwhile is kept in
+	 * the write queue until the device is attached again.</p>
+	 * 
+	 * @param device The detached USB device.
+	 */
+	private void deviceDetached(UsbDevice device) {
+		Thread readThread;
+		UsbDeviceConnection connection;
+		synchronized (connectionLock) {
+			if (!isConnected || detached || device == null || usbDevice == null
+					|| !device.getDeviceName().equals(usbDevice.getDeviceName()))
+				return;
+			detachTime = System.currentTimeMillis();
+			detached = true;
+			outageCount++;
+			// Stop the I/O right away, the device is not there anymore.
+			inputStream.stopReadThread();
+			outputStream.suspend();
+			readThread = inputStream.getReadThread();
+			connection = usbConnection;
+		}
+		// Wait for the read thread before releasing the connection it uses.
+		if (readThread != null && readThread != Thread.currentThread()) {
+			try {
+				readThread.join(TransportThreads.DEFAULT_JOIN_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (connectionLock) {
+			// The interface may have been closed meanwhile.
+			if (detached && usbConnection == connection)
+				releasePort();
+		}
+		logger.warn("USB XBee Android device detached: " + device.getDeviceName());
+		for (AndroidUSBConnectionListener listener : connectionListeners)
+			listener.connectionLost();
+	}
+
+	/**
+	 * Restores the connection if the attached USB device is the one this
+	 * interface was using.
+	 * 
+	 * <p>If Android already granted access to the device, the connection is
+	 * restored right away. Otherwise, the permission is requested and the
+	 * connection is restored once it is granted.</p>
+	 * 
+	 * @param device The attached USB device.
+	 */
+	private void deviceAttached(UsbDevice device) {
+		synchronized (connectionLock) {
+			if (!isConnected || !detached || reattachPending || !isSameDevice(device))
+				return;
+			if (!usbManager.hasPermission(device)) {
+				reattachPending = true;
+				requestUSBPermission(device);
+				return;
+			}
+		}
+		reattach(device);
+	}
+
+	/**
+	 * Returns whether the given USB device is the device this interface was
+	 * using before it was detached.
+	 * 
+	 * <p>Android assigns a new name to the device when it is attached again,
+	 * so the devices are compared by vendor ID, product ID, number of ports
+	 * and serial number. If the serial number is not available, the device
+	 * must be attached to the same bus. A device whose port is already
+	 * claimed by another interface is never the same device.</p>
+	 * 
+	 * @param device The USB device to check.
+	 * 
+	 * @return {@code true} if it is the same device, {@code false} otherwise.
+	 */
+	private boolean isSameDevice(UsbDevice device) {
+		if (device == null
+				|| device.getVendorId() != usbDevice.getVendorId()
+				|| device.getProductId() != usbDevice.getProductId()
+				|| device.getInterfaceCount() != usbDevice.getInterfaceCount()
+				|| isPortClaimed(device, port))
+			return false;
+		String attachedSerialNumber = getSerialNumber(device);
+		if (serialNumber != null && attachedSerialNumber != null)
+			return serialNumber.equals(attachedSerialNumber);
+		return getBusPath(device).equals(getBusPath(usbDevice));
+	}
+
+	/**
+	 * Returns the serial number of the given USB device.
+	 * 
+	 * <p>It is not available before Android 5.0, nor from Android 10 on
+	 * without the permissions to access the device.</p>
+	 * 
+	 * @param device The USB device.
+	 * 
+	 * @return The serial number, {@code null} if it is not available.
+	 */
+	private static String getSerialNumber(UsbDevice device) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)
+			return null;
+		try {
+			return device.getSerialNumber();
+		} catch (SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the path of the bus the given USB device is attached to, its
+	 * name without the device number.
+	 * 
+	 * @param device The USB device.
+	 * 
+	 * @return The bus path.
+	 */
+	private static String getBusPath(UsbDevice device) {
+		String name = device.getDeviceName();
+		int index = name.lastIndexOf('/');
+		return index < 0 ? name : name.substring(0, index);
+	}
+
+	/**
+	 * Restores the connection with the given USB device after an outage.
+	 * 
+	 * <p>The interface of the port is claimed again, the baud rate and
+	 * latency timer are restored and the I/O is resumed, including the
+	 * writes queued during the outage.</p>
+	 * 
+	 * @param device The attached USB device.
+	 */
+	private void reattach(UsbDevice device) {
+		long outageDuration;
+		synchronized (connectionLock) {
+			reattachPending = false;
+			if (!isConnected || !detached)
+				return;
+			usbDevice = device;
+			try {
+				claimPort();
+			} catch (InterfaceInUseException e) {
+				logger.error("Could not restore the USB connection: " + e.getMessage(), e);
+				releasePort();
+				return;
+			}
+			inputStream.setConnection(receiveEndPoint, usbConnection);
+			outputStream.resume(sendEndPoint, usbConnection);
+			inputStream.startReadThread();
+			threads.register(inputStream.getReadThread());
+			detached = false;
+			outageDuration = System.currentTimeMillis() - detachTime;
+			lastOutageDuration = outageDuration;
+		}
+		logger.info("USB XBee Android device attached again after " + outageDuration + " ms: " + device.getDeviceName());
+		for (AndroidUSBConnectionListener listener : connectionListeners)
+			listener.connectionRestored(outageDuration);
 	}
 	
+	/**
+	 * Returns the connection of the given USB device, opening it if no other
+	 * port of the device is in use.
+	 * 
+	 * @param usbManager The Android USB manager.
+	 * @param usbDevice The USB device.
+	 * @param port The port claimed by the caller.
+	 * 
+	 * @return The USB device connection, {@code null} if it could not be
+	 *         opened.
+	 * 
+	 * @see #releaseConnection(UsbDevice, UsbDeviceConnection, int)
+	 */
+	private static UsbDeviceConnection acquireConnection(UsbManager usbManager, UsbDevice usbDevice, int port) {
+		synchronized (sharedConnections) {
+			SharedConnection shared = sharedConnections.get(usbDevice.getDeviceName());
+			if (shared == null) {
+				UsbDeviceConnection connection = usbManager.openDevice(usbDevice);
+				if (connection == null)
+					return null;
+				shared = new SharedConnection(connection);
+				sharedConnections.put(usbDevice.getDeviceName(), shared);
+			}
+			shared.users++;
+			shared.ports.add(port);
+			return shared.connection;
+		}
+	}
+
+	/**
+	 * Releases the connection of the given USB device, closing it if no
+	 * other port of the device is in use.
+	 * 
+	 * @param usbDevice The USB device.
+	 * @param connection The USB device connection.
+	 * @param port The port released by the caller.
+	 * 
+	 * @see #acquireConnection(UsbManager, UsbDevice, int)
+	 */
+	private static void releaseConnection(UsbDevice usbDevice, UsbDeviceConnection connection, int port) {
+		synchronized (sharedConnections) {
+			SharedConnection shared = sharedConnections.get(usbDevice.getDeviceName());
+			if (shared != null && shared.connection == connection) {
+				shared.ports.remove(port);
+				if (--shared.users > 0)
+					return;
+				sharedConnections.remove(usbDevice.getDeviceName());
+			}
+			connection.close();
+		}
+	}
+
+	/**
+	 * Returns whether the given port of the USB device is claimed by an
+	 * interface.
+	 * 
+	 * @param usbDevice The USB device.
+	 * @param port The port.
+	 * 
+	 * @return {@code true} if the port is claimed, {@code false} otherwise.
+	 */
+	private static boolean isPortClaimed(UsbDevice usbDevice, int port) {
+		synchronized (sharedConnections) {
+			SharedConnection shared = sharedConnections.get(usbDevice.getDeviceName());
+			return shared != null && shared.ports.contains(port);
+		}
+	}
+
+	/**
+	 * Helper class that holds a USB device connection shared by the
+	 * interfaces using the ports of the device.
+	 */
+	private static class SharedConnection {
+		private final UsbDeviceConnection connection;
+		private final Set<Integer> ports = new HashSet<Integer>();
+		private int users = 0;
+
+		private SharedConnection(UsbDeviceConnection connection) {
+			this.connection = connection;
+		}
+	}
+
 	/**
 	 * Helper class used to listen for USB permission intents in Android.
 	 */
@@ -472,15 +1451,62 @@ public class AndroidUSBInterface implements IConnectionInterface {
 		 */
 		public void onReceive(Context arg0, Intent intent) {
 			if (intent.getAction().equals(ACTION_USB_PERMISSION)) {
-				usbDevice = (UsbDevice)intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
-				context.unregisterReceiver(mUsbReceiver);
-				if (permissionListener == null) {
-					if (intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false))
-						permissionsGranted = true;
-					permissionsReceived = true;
-				} else
-					permissionListener.permissionReceived(intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false));
+				UsbDevice device = (UsbDevice)intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
+				boolean granted = intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false);
+				boolean pendingReattach;
+				List<ConnectionFuture<UsbDevice>> waiters;
+				synchronized (connectionLock) {
+					// All the interfaces receive the answers, ignore the
+					// ones for devices requested by other interfaces.
+					if (device == null || permissionDevice == null
+							|| !device.getDeviceName().equals(permissionDevice.getDeviceName()))
+						return;
+					unregisterPermissionReceiver();
+					pendingReattach = reattachPending;
+					waiters = new ArrayList<ConnectionFuture<UsbDevice>>(permissionWaiters);
+					permissionWaiters.clear();
+					if (!pendingReattach && granted)
+						usbDevice = device;
+				}
+				if (pendingReattach) {
+					// Permission requested to restore the connection after an outage.
+					if (granted)
+						reattach(device);
+					else {
+						synchronized (connectionLock) {
+							reattachPending = false;
+						}
+						logger.error("User didn't grant permissions to access the attached XBee device.");
+					}
+					return;
+				}
+				for (ConnectionFuture<UsbDevice> waiter : waiters) {
+					if (granted)
+						waiter.complete(device);
+					else
+						waiter.fail(new PermissionDeniedException("User didn't grant permissions to access XBee device."));
+				}
+				if (permissionListener != null)
+					permissionListener.permissionReceived(granted);
 			}
 		}
 	};
+
+	/**
+	 * Helper class used to listen for USB attach and detach intents in
+	 * Android.
+	 */
+	private final BroadcastReceiver hotPlugReceiver = new BroadcastReceiver() {
+		/*
+		 * (non-Javadoc)
+		 * @see android.content.BroadcastReceiver#onReceive(android.content.Context, android.content.Intent)
+		 */
+		public void onReceive(Context arg0, Intent intent) {
+			UsbDevice device = (UsbDevice)intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
+			if (UsbManager.ACTION_USB_DEVICE_DETACHED.equals(intent.getAction()))
+				deviceDetached(device);
+			else if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(intent.getAction()))
+				deviceAttached(device);
+		}
+	};
 }
@@ -23,7 +23,8 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.digi.xbee.api.utils.HexUtils;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+import com.digi.xbee.api.android.connection.WireTracer;
 
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
@@ -38,15 +39,23 @@ public class AndroidUSBOutputStream extends OutputStream {
 	private static final int WRITE_TIMEOUT = 2000;
 	
 	// Variables.
-	private UsbDeviceConnection usbConnection;
+	private volatile UsbDeviceConnection usbConnection;
 
-	private UsbEndpoint sendEndPoint;
+	private volatile UsbEndpoint sendEndPoint;
 
-	private LinkedBlockingQueue<byte[]> writeQueue;
+	private LinkedBlockingQueue<WriteRequest> writeQueue;
+
+	private final TransportStatisticsCollector statistics;
+
+	private volatile WireTracer wireTracer;
 
 	private Logger logger;
 
-	private boolean streamOpen = true;
+	private volatile boolean streamOpen = true;
+
+	private DataWriter dataWriter;
+
+	private volatile boolean suspended = false;
 
 	/**
 	 * Class constructor. Instantiates a new {@code AndroidUSBOutputStream}
@@ -59,12 +68,35 @@ public class AndroidUSBOutputStream extends OutputStream {
 	 * @see UsbEndpoint
 	 */
 	public AndroidUSBOutputStream(UsbEndpoint writeEndpoint, UsbDeviceConnection connection) {
+		this(writeEndpoint, connection, new TransportStatisticsCollector());
+	}
+
+	/**
+	 * Class constructor. Instantiates a new {@code AndroidUSBOutputStream}
+	 * object with the given parameters.
+	 * 
+	 * @param writeEndpoint The USB end point to use to write data to.
+	 * @param connection The USB connection to use to write data to.
+	 * @param statistics The collector to report the sent data to.
+	 * 
+	 * @throws NullPointerException if {@code statistics == null}.
+	 * 
+	 * @see UsbDeviceConnection
+	 * @see UsbEndpoint
+	 * @see TransportStatisticsCollector
+	 */
+	public AndroidUSBOutputStream(UsbEndpoint writeEndpoint, UsbDeviceConnection connection,
+			TransportStatisticsCollector statistics) {
+		if (statistics == null)
+			throw new NullPointerException("Statistics collector cannot be null.");
+
 		this.usbConnection = connection;
 		this.sendEndPoint = writeEndpoint;
+		this.statistics = statistics;
 		this.logger = LoggerFactory.getLogger(AndroidUSBOutputStream.class);
 
 		writeQueue = new LinkedBlockingQueue<>(512);
-		DataWriter dataWriter = new DataWriter();
+		dataWriter = new DataWriter();
 		dataWriter.start();
 	}
 
@@ -92,39 +124,169 @@ public class AndroidUSBOutputStream extends OutputStream {
 	 */
 	@Override
 	public void write(byte[] buffer, int offset, int count) {
-		final byte[] finalData = new byte[count + offset];
+		final byte[] finalData = new byte[count];
 		System.arraycopy(buffer, offset, finalData, 0, count);
+		WriteRequest request = new WriteRequest(finalData, statistics.writeQueued());
 		try {
-			writeQueue.add(finalData);
+			writeQueue.add(request);
 		} catch (IllegalStateException  e) {
+			statistics.writeDone(request.queuedTime);
+			statistics.addTransferError();
+			WireTracer tracer = wireTracer;
+			if (tracer != null)
+				tracer.error("USB write queue full");
 			logger.error("Could not add data, write queue is full: " + e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Sets the wire tracer that receives a copy of the written data.
+	 * 
+	 * @param tracer The wire tracer, {@code null} to disable tracing.
+	 */
+	void setWireTracer(WireTracer tracer) {
+		this.wireTracer = tracer;
+	}
+
+	/**
+	 * Returns the number of writes waiting to be transferred.
+	 * 
+	 * @return The number of queued writes.
+	 */
+	public int getQueuedWrites() {
+		return writeQueue.size();
+	}
+
+	/**
+	 * Stops transferring the queued data until
+	 * {@link #resume(UsbEndpoint, UsbDeviceConnection)} is called.
+	 * 
+	 * <p>Used when the USB device is detached, data written meanwhile is
+	 * kept in the write queue.</p>
+	 */
+	void suspend() {
+		suspended = true;
+	}
+
+	/**
+	 * Resumes transferring the queued data using the given USB connection
+	 * and end point.
+	 * 
+	 * @param writeEndpoint The USB end point to use to write data to.
+	 * @param connection The USB connection to use to write data to.
+	 * 
+	 * @see #suspend()
+	 */
+	void resume(UsbEndpoint writeEndpoint, UsbDeviceConnection connection) {
+		this.sendEndPoint = writeEndpoint;
+		this.usbConnection = connection;
+		suspended = false;
+	}
+
+	/**
+	 * Opens again this stream after it was closed, using the given USB
+	 * connection and end point.
+	 * 
+	 * <p>The write queue is reused, so reopening does not allocate it
+	 * again. Data queued before the stream was closed is discarded.</p>
+	 * 
+	 * <p>The writer thread is not reused: a new one is started, because
+	 * closing the interface waits for the previous one to end, so a closed
+	 * interface owns no threads.</p>
+	 * 
+	 * @param writeEndpoint The USB end point to use to write data to.
+	 * @param connection The USB connection to use to write data to.
+	 */
+	void reopen(UsbEndpoint writeEndpoint, UsbDeviceConnection connection) {
+		if (streamOpen)
+			return;
+		writeQueue.clear();
+		this.sendEndPoint = writeEndpoint;
+		this.usbConnection = connection;
+		suspended = false;
+		streamOpen = true;
+		dataWriter = new DataWriter();
+		dataWriter.start();
+	}
+
+	/**
+	 * Returns the thread that transfers the queued data.
+	 * 
+	 * @return The writer thread.
+	 */
+	Thread getWriterThread() {
+		return dataWriter;
+	}
+
 	/**
 	 * Internal class used to write data coming from a queue.
 	 */
 	class DataWriter extends Thread {
+		DataWriter() {
+			super("AndroidUSBOutputStream");
+		}
+
 		@Override
 		public void run() {
+			WriteRequest retryRequest = null;
 			while (streamOpen) {
 				try {
-					byte[] dataToWrite = writeQueue.poll(100, TimeUnit.MILLISECONDS);
-					if (dataToWrite == null)
+					if (suspended) {
+						Thread.sleep(100);
 						continue;
-					usbConnection.bulkTransfer(sendEndPoint, dataToWrite, dataToWrite.length, WRITE_TIMEOUT);
-					logger.debug("Message sent: " + HexUtils.byteArrayToHexString(dataToWrite));
+					}
+					WriteRequest request = retryRequest;
+					retryRequest = null;
+					if (request == null)
+						request = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+					if (request == null)
+						continue;
+					byte[] dataToWrite = request.data;
+					int sentBytes = suspended ? -1 : usbConnection.bulkTransfer(sendEndPoint, dataToWrite, dataToWrite.length, WRITE_TIMEOUT);
+					if (sentBytes < 0 && suspended) {
+						// The device was detached, send the data once it is attached again.
+						retryRequest = request;
+						continue;
+					}
+					statistics.writeDone(request.queuedTime);
+					WireTracer tracer = wireTracer;
+					if (sentBytes < 0) {
+						statistics.addTransferError();
+						if (tracer != null)
+							tracer.error("USB write of " + dataToWrite.length + " bytes failed");
+					} else {
+						statistics.addSent(dataToWrite, 0, dataToWrite.length);
+						if (tracer != null)
+							tracer.record(WireTracer.Direction.TX, dataToWrite, 0, dataToWrite.length);
+					}
 				} catch (InterruptedException e) {
-					logger.error("Interrupted while getting data from the write queue: " + e.getMessage(), e);
+					// The stream is interrupted when it is closed.
+					if (streamOpen)
+						logger.error("Interrupted while getting data from the write queue: " + e.getMessage(), e);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Data waiting in the write queue.
+	 */
+	private static class WriteRequest {
+		private final byte[] data;
+		private final long queuedTime;
+
+		WriteRequest(byte[] data, long queuedTime) {
+			this.data = data;
+			this.queuedTime = queuedTime;
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		// Stop the data writer.
 		streamOpen = false;
+		if (dataWriter != null)
+			dataWriter.interrupt();
 		super.close();
 	}
 }
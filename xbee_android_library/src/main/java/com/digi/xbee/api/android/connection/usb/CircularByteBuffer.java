@@ -145,6 +145,28 @@ public class CircularByteBuffer {
 		return numBytes;
 	}
 
+	/**
+	 * Reads one byte from the circular byte buffer.
+	 * 
+	 * @return The read byte as an {@code int} between 0 and 255, or -1 if
+	 *         the buffer is empty.
+	 * 
+	 * @see #read(byte[], int, int)
+	 */
+	public synchronized int read() {
+		if (empty)
+			return -1;
+		
+		int value = buffer[readIndex] & 0xFF;
+		readIndex = (readIndex + 1) % buffer.length;
+		
+		// If we have read all bytes, set the buffer as empty.
+		if (readIndex == writeIndex)
+			empty = true;
+		
+		return value;
+	}
+
 	/**
 	 * Skips the given number of bytes from the circular byte buffer.
 	 * 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.ATCommandBatch;
+import com.digi.xbee.api.android.ATCommandBatchResult;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.exceptions.ATCommandException;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.models.ATCommandStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ATCommandBatchTest {
+
+	// Constants.
+	private final static String[] COMMANDS = {"NI", "SH", "SL", "MY", "NT", "NO", "CH", "NP"};
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private XBeeDevice device;
+
+	@Before
+	public void setup() throws Exception {
+		simulator = new XBeeSimulator();
+		simulator.setUARTLimited(false);
+		device = new XBeeDevice(simulator);
+		device.open();
+	}
+
+	@After
+	public void tearDown() {
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link ATCommandBatch#execute()}.
+	 *
+	 * <p>Verify that all the commands of a batch deeper than the pipeline
+	 * are answered with their values.</p>
+	 */
+	@Test
+	public void testExecute() throws Exception {
+		// Prepare the variables.
+		ATCommandBatch batch = new ATCommandBatch(device, 3);
+		for (String command : COMMANDS)
+			batch.add(command.toLowerCase());
+
+		// Execute the batch.
+		ATCommandBatchResult result = batch.execute();
+
+		// Perform verifications.
+		assertTrue(result.isSuccessful());
+		assertEquals(Arrays.asList(COMMANDS), Arrays.asList(result.getSuccessfulCommands().toArray()));
+		for (String command : COMMANDS)
+			assertArrayEquals(simulator.getParameter(command), result.getValue(command));
+	}
+
+	/**
+	 * Test method for {@link ATCommandBatch#execute()}.
+	 *
+	 * <p>Verify that a failed command is reported without affecting the
+	 * rest of the batch.</p>
+	 */
+	@Test
+	public void testPerCommandErrors() throws Exception {
+		// Prepare the variables.
+		ATCommandBatch batch = new ATCommandBatch(device).add("NI").add("ZZ").add("SL");
+
+		// Execute the batch.
+		ATCommandBatchResult result = batch.execute();
+
+		// Perform verifications.
+		assertFalse(result.isSuccessful());
+		assertArrayEquals("SIMULATOR".getBytes(), result.getValue("NI"));
+		assertArrayEquals(simulator.getParameter("SL"), result.getValue("SL"));
+		assertEquals(ATCommandStatus.INVALID_COMMAND, ((ATCommandException) result.getError("ZZ")).getCommandStatus());
+		try {
+			result.getValue("ZZ");
+			fail("The failed command should throw its error.");
+		} catch (ATCommandException e) {
+			assertEquals(ATCommandStatus.INVALID_COMMAND, e.getCommandStatus());
+		}
+	}
+
+	/**
+	 * Test method for {@link ATCommandBatch#add(String, byte[])}.
+	 *
+	 * <p>Verify that a command cannot be added twice.</p>
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateCommand() {
+		new ATCommandBatch(device).add("NI").add("ni");
+	}
+
+	/**
+	 * Test method for {@link ATCommandBatch#execute()}.
+	 *
+	 * <p>Verify that a batch cannot be executed on a closed device.</p>
+	 */
+	@Test(expected = InterfaceNotOpenException.class)
+	public void testClosedDevice() throws Exception {
+		// Prepare the variables.
+		ATCommandBatch batch = new ATCommandBatch(device).add("NI");
+		device.close();
+
+		// Execute the batch.
+		batch.execute();
+	}
+}
@@ -35,6 +35,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbEndpoint;
 
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
 import com.digi.xbee.api.android.connection.usb.AndroidUSBInputStream;
 import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
 import com.digi.xbee.api.android.connection.usb.CircularByteBuffer;
@@ -236,6 +237,33 @@ public class AndroidUSBInputStreamTest {
 		assertThat(buffer, is(equalTo(result)));
 	}
 
+	/**
+	 * Test method for {@link AndroidUSBInputStream#read(byte[], int, int)}
+	 *
+	 * <p>Verify that the read wait is only reported to the statistics when
+	 * the buffer was empty.</p>
+	 */
+	@Test
+	public void testReadWaitOnlyWhenBlocked() throws IOException {
+		// Set up the resources for the test.
+		byte[] buffer = new byte[2];
+		TransportStatisticsCollector statistics = new TransportStatisticsCollector();
+		AndroidUSBInputStream stream = new AndroidUSBInputStream(androidInterface, receiveEndPoint,
+				usbConnection, statistics);
+
+		Mockito.when(circularBuffer.read(Mockito.any(byte[].class), Mockito.anyInt(), Mockito.anyInt()))
+				.thenReturn(2).thenReturn(0).thenReturn(2);
+		Whitebox.setInternalState(stream, VARIABLE_READ_BUFFER, circularBuffer);
+
+		// Data already buffered.
+		assertThat(stream.read(buffer, 0, buffer.length), is(equalTo(2)));
+		assertThat(statistics.snapshot(0, 0, 1).getReadWaitLatency().getCount(), is(equalTo(0L)));
+
+		// Empty buffer.
+		assertThat(stream.read(buffer, 0, buffer.length), is(equalTo(2)));
+		assertThat(statistics.snapshot(0, 0, 1).getReadWaitLatency().getCount(), is(equalTo(1L)));
+	}
+
 	/**
 	 * Test method for {@link AndroidUSBInputStream#available()}
 	 *
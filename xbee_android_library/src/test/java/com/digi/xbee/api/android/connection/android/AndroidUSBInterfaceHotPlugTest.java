@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+
+import com.digi.xbee.api.android.connection.usb.AndroidUSBConnectionListener;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+
+public class AndroidUSBInterfaceHotPlugTest {
+
+	// Constants.
+	private static final int BAUD_RATE = 9600;
+	// Divisor of 9600 bauds with the 48 MHz clock.
+	private static final int BAUD_RATE_DIVISOR = 0x4138;
+	private static final int LATENCY_TIMER = 2;
+	private static final byte[] DATA = new byte[] {0x7E, 0x00, 0x04, 0x08, 0x01, 0x4E, 0x49, 0x5F};
+
+	// Variables.
+	private Context context;
+	private UsbManager usbManager;
+	private UsbDevice usbDevice;
+	private UsbDeviceConnection usbConnection;
+	private UsbDevice reattachedDevice;
+	private UsbDeviceConnection reattachedConnection;
+	private UsbEndpoint reattachedSendEndPoint;
+	private AndroidUSBConnectionListener listener;
+
+	@Before
+	public void setup() {
+		usbManager = Mockito.mock(UsbManager.class);
+		context = Mockito.mock(Context.class);
+		Mockito.when(context.getSystemService(Context.USB_SERVICE)).thenReturn(usbManager);
+
+		usbDevice = mockDevice("/dev/bus/usb/001/002");
+		usbConnection = mockConnection(usbDevice);
+		// Android gives a new name to the device when it is attached again.
+		reattachedDevice = mockDevice("/dev/bus/usb/001/003");
+		reattachedConnection = mockConnection(reattachedDevice);
+		reattachedSendEndPoint = reattachedDevice.getInterface(0).getEndpoint(1);
+
+		listener = Mockito.mock(AndroidUSBConnectionListener.class);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that when the USB device is detached the interface stays open
+	 * and, when it is attached again, the port is claimed and configured
+	 * again, the writes queued during the outage are sent and the outage is
+	 * reported, without asking for permissions again.</p>
+	 */
+	@Test
+	public void testDetachAndReattach() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		usbInterface.setLatencyTimer(LATENCY_TIMER);
+		usbInterface.addConnectionListener(listener);
+		usbInterface.open();
+		BroadcastReceiver hotPlugReceiver = getHotPlugReceiver();
+
+		// Detach the device.
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_DETACHED, usbDevice));
+
+		// Perform verifications.
+		assertTrue(usbInterface.isOpen());
+		assertFalse(usbInterface.isAttached());
+		Mockito.verify(usbConnection).close();
+		Mockito.verify(listener).connectionLost();
+
+		// Write data during the outage.
+		usbInterface.writeData(DATA);
+
+		// Attach the device again.
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_ATTACHED, reattachedDevice));
+
+		// Perform verifications.
+		assertTrue(usbInterface.isAttached());
+		assertEquals(1, usbInterface.getOutageCount());
+		Mockito.verify(reattachedConnection).claimInterface(reattachedDevice.getInterface(0), true);
+		Mockito.verify(reattachedConnection).controlTransfer(0x40, 0x03, BAUD_RATE_DIVISOR, 0, null, 0, 0);
+		Mockito.verify(reattachedConnection).controlTransfer(0x40, 0x09, LATENCY_TIMER, 0, null, 0, 0);
+		// Give the writer time to send the queued data.
+		Thread.sleep(500);
+		Mockito.verify(reattachedConnection).bulkTransfer(Mockito.eq(reattachedSendEndPoint),
+				Mockito.any(byte[].class), Mockito.eq(DATA.length), Mockito.anyInt());
+		Mockito.verify(listener).connectionRestored(usbInterface.getLastOutageDuration());
+		Mockito.verify(usbManager, Mockito.never()).requestPermission(Mockito.any(UsbDevice.class), Mockito.any(android.app.PendingIntent.class));
+
+		usbInterface.close();
+		Mockito.verify(reattachedConnection).close();
+		Mockito.verify(context).unregisterReceiver(hotPlugReceiver);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that when the USB device is detached the read thread
+	 * finishes before its connection is released.</p>
+	 */
+	@Test
+	public void testDetachJoinsReadThread() throws Exception {
+		// Prepare the variables.
+		Mockito.when(usbConnection.bulkTransfer(Mockito.any(UsbEndpoint.class), Mockito.any(byte[].class),
+				Mockito.anyInt(), Mockito.anyInt())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) {
+				// Emulate a transfer in progress.
+				long end = System.currentTimeMillis() + 50;
+				while (System.currentTimeMillis() < end);
+				return 0;
+			}
+		});
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		usbInterface.open();
+		final Thread readThread = (Thread)Whitebox.getInternalState(usbInterface.getInputStream(), "receiveThread");
+		final AtomicBoolean aliveOnRelease = new AtomicBoolean();
+		Mockito.doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				aliveOnRelease.set(readThread.isAlive());
+				return null;
+			}
+		}).when(usbConnection).close();
+
+		// Detach the device.
+		getHotPlugReceiver().onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_DETACHED, usbDevice));
+
+		// Perform verifications.
+		Mockito.verify(usbConnection).close();
+		assertFalse(aliveOnRelease.get());
+
+		usbInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that detaching a different USB device does not affect the
+	 * interface.</p>
+	 */
+	@Test
+	public void testDetachOtherDevice() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		usbInterface.addConnectionListener(listener);
+		usbInterface.open();
+
+		// Detach other device.
+		getHotPlugReceiver().onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_DETACHED, reattachedDevice));
+
+		// Perform verifications.
+		assertTrue(usbInterface.isAttached());
+		assertEquals(0, usbInterface.getOutageCount());
+		Mockito.verify(usbConnection, Mockito.never()).close();
+		Mockito.verify(listener, Mockito.never()).connectionLost();
+
+		usbInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that, when the serial number is not available, a device
+	 * attached to another bus after an outage is not used to restore the
+	 * connection.</p>
+	 */
+	@Test
+	public void testReattachOtherBus() throws Exception {
+		// Prepare the variables.
+		UsbDevice otherBusDevice = mockDevice("/dev/bus/usb/002/002");
+		mockConnection(otherBusDevice);
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		usbInterface.open();
+		BroadcastReceiver hotPlugReceiver = getHotPlugReceiver();
+
+		// Detach the device and attach another one.
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_DETACHED, usbDevice));
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_ATTACHED, otherBusDevice));
+
+		// Perform verifications.
+		assertFalse(usbInterface.isAttached());
+		Mockito.verify(usbManager, Mockito.never()).openDevice(otherBusDevice);
+		// The unit tests run with the API level of the stubs, below 21.
+		Mockito.verify(usbDevice, Mockito.never()).getSerialNumber();
+		Mockito.verify(otherBusDevice, Mockito.never()).getSerialNumber();
+
+		usbInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that a device attached after an outage is not used to
+	 * restore the connection if another interface already claimed it.</p>
+	 */
+	@Test
+	public void testReattachClaimedDevice() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface usbInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		usbInterface.open();
+		BroadcastReceiver hotPlugReceiver = getHotPlugReceiver();
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_DETACHED, usbDevice));
+
+		// Open the attached device with another interface.
+		AndroidUSBInterface otherInterface = new AndroidUSBInterface(context, BAUD_RATE, reattachedDevice);
+		otherInterface.open();
+		hotPlugReceiver.onReceive(context, mockIntent(UsbManager.ACTION_USB_DEVICE_ATTACHED, reattachedDevice));
+
+		// Perform verifications.
+		assertFalse(usbInterface.isAttached());
+		Mockito.verify(reattachedConnection, Mockito.times(1)).claimInterface(reattachedDevice.getInterface(0), true);
+
+		otherInterface.close();
+		usbInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#setLatencyTimer(int)}.
+	 *
+	 * <p>Verify that a {@code IllegalArgumentException} is thrown if the
+	 * latency timer is out of range.</p>
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetLatencyTimerOutOfRange() {
+		new AndroidUSBInterface(context, BAUD_RATE, usbDevice).setLatencyTimer(256);
+	}
+
+	private BroadcastReceiver getHotPlugReceiver() {
+		ArgumentCaptor<BroadcastReceiver> captor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+		Mockito.verify(context, Mockito.atLeastOnce()).registerReceiver(captor.capture(), Mockito.any(IntentFilter.class));
+		List<BroadcastReceiver> receivers = captor.getAllValues();
+		return receivers.get(receivers.size() - 1);
+	}
+
+	private Intent mockIntent(String action, UsbDevice device) {
+		Intent intent = Mockito.mock(Intent.class);
+		Mockito.when(intent.getAction()).thenReturn(action);
+		Mockito.doReturn(device).when(intent).getParcelableExtra(UsbManager.EXTRA_DEVICE);
+		return intent;
+	}
+
+	private UsbDevice mockDevice(String name) {
+		UsbDevice device = Mockito.mock(UsbDevice.class);
+		Mockito.when(device.getDeviceName()).thenReturn(name);
+		Mockito.when(device.getVendorId()).thenReturn(0x0403);
+		Mockito.when(device.getProductId()).thenReturn(0x6015);
+		Mockito.when(device.getInterfaceCount()).thenReturn(1);
+		UsbInterface usbInterface = Mockito.mock(UsbInterface.class);
+		UsbEndpoint in = mockEndpoint(UsbConstants.USB_DIR_IN);
+		UsbEndpoint out = mockEndpoint(UsbConstants.USB_DIR_OUT);
+		Mockito.when(usbInterface.getEndpointCount()).thenReturn(2);
+		Mockito.when(usbInterface.getEndpoint(0)).thenReturn(in);
+		Mockito.when(usbInterface.getEndpoint(1)).thenReturn(out);
+		Mockito.when(device.getInterface(0)).thenReturn(usbInterface);
+		Mockito.when(usbManager.hasPermission(device)).thenReturn(true);
+		return device;
+	}
+
+	private UsbDeviceConnection mockConnection(UsbDevice device) {
+		UsbDeviceConnection connection = Mockito.mock(UsbDeviceConnection.class);
+		Mockito.when(connection.claimInterface(Mockito.any(UsbInterface.class), Mockito.anyBoolean())).thenReturn(true);
+		Mockito.when(usbManager.openDevice(device)).thenReturn(connection);
+		return connection;
+	}
+
+	private UsbEndpoint mockEndpoint(int direction) {
+		UsbEndpoint endpoint = Mockito.mock(UsbEndpoint.class);
+		Mockito.when(endpoint.getType()).thenReturn(UsbConstants.USB_ENDPOINT_XFER_BULK);
+		Mockito.when(endpoint.getDirection()).thenReturn(direction);
+		Mockito.when(endpoint.getMaxPacketSize()).thenReturn(64);
+		return endpoint;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import android.content.Context;
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+
+import com.digi.xbee.api.android.connection.TransportThreads;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+
+public class AndroidUSBInterfaceLifecycleTest {
+
+	// Constants.
+	private static final int BAUD_RATE = 9600;
+	private static final int CYCLES = 1000;
+	private static final int WARM_UP_CYCLES = 20;
+	private static final long HEAP_TOLERANCE = 2 * 1024 * 1024;
+
+	// Variables.
+	private Context context;
+	private UsbDevice usbDevice;
+
+	@Before
+	public void setup() {
+		// Stub only mocks, so thousands of calls are not recorded.
+		UsbDeviceConnection usbConnection = Mockito.mock(UsbDeviceConnection.class, Mockito.withSettings().stubOnly());
+		Mockito.when(usbConnection.claimInterface(Mockito.any(UsbInterface.class), Mockito.anyBoolean())).thenReturn(true);
+		// Transfers wait like the real ones so the read thread does not spin.
+		Mockito.when(usbConnection.bulkTransfer(Mockito.any(UsbEndpoint.class), Mockito.any(byte[].class), Mockito.anyInt(),
+				Mockito.anyInt())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return -1;
+				}
+				return 0;
+			}
+		});
+
+		usbDevice = Mockito.mock(UsbDevice.class, Mockito.withSettings().stubOnly());
+		Mockito.when(usbDevice.getDeviceName()).thenReturn("/dev/bus/usb/001/005");
+		Mockito.when(usbDevice.getInterfaceCount()).thenReturn(1);
+		UsbInterface usbInterface = Mockito.mock(UsbInterface.class, Mockito.withSettings().stubOnly());
+		UsbEndpoint in = mockEndpoint(UsbConstants.USB_DIR_IN);
+		UsbEndpoint out = mockEndpoint(UsbConstants.USB_DIR_OUT);
+		Mockito.when(usbInterface.getEndpointCount()).thenReturn(2);
+		Mockito.when(usbInterface.getEndpoint(0)).thenReturn(in);
+		Mockito.when(usbInterface.getEndpoint(1)).thenReturn(out);
+		Mockito.when(usbDevice.getInterface(0)).thenReturn(usbInterface);
+
+		UsbManager usbManager = Mockito.mock(UsbManager.class, Mockito.withSettings().stubOnly());
+		Mockito.when(usbManager.hasPermission(usbDevice)).thenReturn(true);
+		Mockito.when(usbManager.openDevice(usbDevice)).thenReturn(usbConnection);
+		context = Mockito.mock(Context.class, Mockito.withSettings().stubOnly());
+		Mockito.when(context.getSystemService(Context.USB_SERVICE)).thenReturn(usbManager);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#close()}.
+	 *
+	 * <p>Verify that opening and closing the interface a thousand times does
+	 * not leave threads behind nor grow the heap.</p>
+	 */
+	@Test
+	public void testOpenCloseCycles() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		for (int i = 0; i < WARM_UP_CYCLES; i++) {
+			androidInterface.open();
+			androidInterface.close();
+		}
+		int baselineThreads = Thread.activeCount();
+		long baselineHeap = getUsedHeap();
+
+		// Open and close the interface.
+		for (int i = 0; i < CYCLES; i++) {
+			androidInterface.open();
+			androidInterface.close();
+		}
+
+		// Perform verifications.
+		assertTrue(TransportThreads.getLingeringThreads().isEmpty());
+		assertTrue(Thread.activeCount() <= baselineThreads);
+		assertTrue(getUsedHeap() <= baselineHeap + HEAP_TOLERANCE);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that the streams are reused when the interface is opened
+	 * again and are not available while it is closed.</p>
+	 */
+	@Test
+	public void testReopenReusesStreams() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		androidInterface.open();
+		InputStream inputStream = androidInterface.getInputStream();
+		OutputStream outputStream = androidInterface.getOutputStream();
+
+		// Close the interface.
+		androidInterface.close();
+
+		// Perform verifications.
+		assertNull(androidInterface.getInputStream());
+		assertNull(androidInterface.getOutputStream());
+
+		// Open the interface again.
+		androidInterface.open();
+
+		// Perform verifications.
+		assertSame(inputStream, androidInterface.getInputStream());
+		assertSame(outputStream, androidInterface.getOutputStream());
+
+		androidInterface.close();
+	}
+
+	/**
+	 * Test method for {@link TransportThreads#stopAll(long)}.
+	 *
+	 * <p>Verify that a thread that does not finish in time is reported as
+	 * lingering until it ends.</p>
+	 */
+	@Test
+	public void testLingeringThread() throws Exception {
+		// Prepare the variables.
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread stubborn = new Thread() {
+			@Override
+			public void run() {
+				// Ignore the interruptions until released.
+				while (release.getCount() > 0) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						// Keep waiting.
+					}
+				}
+			}
+		};
+		stubborn.start();
+		TransportThreads threads = new TransportThreads("test");
+		threads.register(stubborn);
+
+		// Stop the threads.
+		boolean stopped = threads.stopAll(50);
+
+		// Perform verifications.
+		assertFalse(stopped);
+		assertTrue(TransportThreads.getLingeringThreads().contains(stubborn));
+
+		// Let the thread finish.
+		release.countDown();
+		stubborn.join();
+
+		// Perform verifications.
+		assertFalse(TransportThreads.getLingeringThreads().contains(stubborn));
+		assertEquals(0, threads.getAliveCount());
+	}
+
+	private long getUsedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private UsbEndpoint mockEndpoint(int direction) {
+		UsbEndpoint endpoint = Mockito.mock(UsbEndpoint.class, Mockito.withSettings().stubOnly());
+		Mockito.when(endpoint.getType()).thenReturn(UsbConstants.USB_ENDPOINT_XFER_BULK);
+		Mockito.when(endpoint.getDirection()).thenReturn(direction);
+		Mockito.when(endpoint.getMaxPacketSize()).thenReturn(64);
+		return endpoint;
+	}
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+import com.digi.xbee.api.exceptions.InterfaceInUseException;
+import com.digi.xbee.api.exceptions.InvalidInterfaceException;
+import com.digi.xbee.api.exceptions.PermissionDeniedException;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({PendingIntent.class})
+public class AndroidUSBInterfaceOpenAsyncTest {
+
+	// Constants.
+	private static final int BAUD_RATE = 9600;
+
+	// Variables.
+	private Context context;
+	private UsbManager usbManager;
+	private UsbDevice usbDevice;
+	private UsbDeviceConnection usbConnection;
+	private UsbInterface usbInterface;
+
+	@Before
+	public void setup() {
+		usbConnection = Mockito.mock(UsbDeviceConnection.class);
+		Mockito.when(usbConnection.claimInterface(Mockito.any(UsbInterface.class), Mockito.anyBoolean())).thenReturn(true);
+
+		usbDevice = Mockito.mock(UsbDevice.class);
+		Mockito.when(usbDevice.getDeviceName()).thenReturn("/dev/bus/usb/001/004");
+		Mockito.when(usbDevice.getInterfaceCount()).thenReturn(1);
+		usbInterface = Mockito.mock(UsbInterface.class);
+		UsbEndpoint in = mockEndpoint(UsbConstants.USB_DIR_IN);
+		UsbEndpoint out = mockEndpoint(UsbConstants.USB_DIR_OUT);
+		Mockito.when(usbInterface.getEndpointCount()).thenReturn(2);
+		Mockito.when(usbInterface.getEndpoint(0)).thenReturn(in);
+		Mockito.when(usbInterface.getEndpoint(1)).thenReturn(out);
+		Mockito.when(usbDevice.getInterface(0)).thenReturn(usbInterface);
+
+		usbManager = Mockito.mock(UsbManager.class);
+		Mockito.when(usbManager.hasPermission(usbDevice)).thenReturn(false);
+		Mockito.when(usbManager.openDevice(usbDevice)).thenReturn(usbConnection);
+		context = Mockito.mock(Context.class);
+		Mockito.when(context.getSystemService(Context.USB_SERVICE)).thenReturn(usbManager);
+
+		PowerMockito.mockStatic(PendingIntent.class);
+		PowerMockito.when(PendingIntent.getBroadcast(Mockito.any(Context.class), Mockito.anyInt(),
+				Mockito.any(Intent.class), Mockito.anyInt())).thenReturn(Mockito.mock(PendingIntent.class));
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#openAsync()}.
+	 *
+	 * <p>Verify that the open future completes once the user grants the USB
+	 * permissions, without any thread waiting for them.</p>
+	 */
+	@Test
+	public void testOpenAsyncPermissionGranted() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+
+		// Perform verifications.
+		assertFalse(future.isDone());
+		assertFalse(androidInterface.isOpen());
+		Mockito.verify(usbManager).requestPermission(Mockito.eq(usbDevice), Mockito.any(PendingIntent.class));
+		try {
+			future.get(10, TimeUnit.MILLISECONDS);
+			fail("The open should not be completed before the permissions are granted.");
+		} catch (TimeoutException e) {
+			// Expected.
+		}
+
+		// Grant the permissions.
+		getPermissionReceiver().onReceive(context, mockPermissionIntent(true));
+
+		// Perform verifications.
+		assertSame(androidInterface, future.get(1, TimeUnit.SECONDS));
+		assertTrue(androidInterface.isOpen());
+		Mockito.verify(usbConnection).claimInterface(usbInterface, true);
+
+		androidInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#openAsync()}.
+	 *
+	 * <p>Verify that the open future fails with a
+	 * {@code PermissionDeniedException} if the user denies the USB
+	 * permissions.</p>
+	 */
+	@Test
+	public void testOpenAsyncPermissionDenied() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface and deny the permissions.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		getPermissionReceiver().onReceive(context, mockPermissionIntent(false));
+
+		// Perform verifications.
+		try {
+			future.get();
+			fail("The open should fail if the permissions are denied.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof PermissionDeniedException);
+		}
+		assertFalse(androidInterface.isOpen());
+		Mockito.verify(usbManager, Mockito.never()).openDevice(usbDevice);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#openAsync()}.
+	 *
+	 * <p>Verify that a permission answer for a USB device requested by
+	 * another interface is ignored.</p>
+	 */
+	@Test
+	public void testOpenAsyncPermissionForOtherDevice() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		UsbDevice otherDevice = Mockito.mock(UsbDevice.class);
+		Mockito.when(otherDevice.getDeviceName()).thenReturn("/dev/bus/usb/001/005");
+		Intent otherIntent = mockPermissionIntent(false);
+		Mockito.doReturn(otherDevice).when(otherIntent).getParcelableExtra(UsbManager.EXTRA_DEVICE);
+
+		// Open the interface and deny the permissions of the other device.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		BroadcastReceiver receiver = getPermissionReceiver();
+		receiver.onReceive(context, otherIntent);
+
+		// Perform verifications.
+		assertFalse(future.isDone());
+		Mockito.verify(context, Mockito.never()).unregisterReceiver(receiver);
+
+		// Grant the permissions of the requested device.
+		receiver.onReceive(context, mockPermissionIntent(true));
+
+		// Perform verifications.
+		assertSame(androidInterface, future.get(1, TimeUnit.SECONDS));
+		assertTrue(androidInterface.isOpen());
+
+		androidInterface.close();
+	}
+
+	/**
+	 * Test method for {@link ConnectionFuture#cancel(boolean)}.
+	 *
+	 * <p>Verify that cancelling the open future stops listening for the
+	 * permission answer and the interface is not opened.</p>
+	 */
+	@Test
+	public void testOpenAsyncCancel() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface and cancel it.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		BroadcastReceiver receiver = getPermissionReceiver();
+		assertTrue(future.cancel(false));
+
+		// Perform verifications.
+		assertTrue(future.isCancelled());
+		Mockito.verify(context).unregisterReceiver(receiver);
+		try {
+			future.get();
+			fail("A cancelled open should not return a result.");
+		} catch (CancellationException e) {
+			// Expected.
+		}
+		assertFalse(androidInterface.isOpen());
+	}
+
+	/**
+	 * Test method for {@link ConnectionFuture#cancel(boolean)}.
+	 *
+	 * <p>Verify that cancelling one open does not affect other callers
+	 * waiting for the same permission answer.</p>
+	 */
+	@Test
+	public void testOpenAsyncCancelOneCaller() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface twice and cancel the first open.
+		ConnectionFuture<AndroidUSBInterface> cancelled = androidInterface.openAsync();
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		BroadcastReceiver receiver = getPermissionReceiver();
+		assertTrue(cancelled.cancel(false));
+
+		// Perform verifications.
+		assertFalse(future.isDone());
+		Mockito.verify(context, Mockito.never()).unregisterReceiver(receiver);
+		Mockito.verify(usbManager, Mockito.times(1)).requestPermission(Mockito.eq(usbDevice), Mockito.any(PendingIntent.class));
+
+		// Grant the permissions.
+		receiver.onReceive(context, mockPermissionIntent(true));
+
+		// Perform verifications.
+		assertSame(androidInterface, future.get(1, TimeUnit.SECONDS));
+		assertTrue(androidInterface.isOpen());
+
+		androidInterface.close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#close()}.
+	 *
+	 * <p>Verify that closing the interface cancels the pending open and a
+	 * later permission answer does not open it.</p>
+	 */
+	@Test
+	public void testOpenAsyncClose() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface, close it and grant the permissions.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		BroadcastReceiver receiver = getPermissionReceiver();
+		androidInterface.close();
+		receiver.onReceive(context, mockPermissionIntent(true));
+
+		// Perform verifications.
+		assertTrue(future.isCancelled());
+		Mockito.verify(context).unregisterReceiver(receiver);
+		assertFalse(androidInterface.isOpen());
+		Mockito.verify(usbManager, Mockito.never()).openDevice(usbDevice);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#setOpenTimeout(long)}.
+	 *
+	 * <p>Verify that the open future fails with a {@code TimeoutException}
+	 * and the permission request is withdrawn if the user does not answer
+	 * in time.</p>
+	 */
+	@Test
+	public void testOpenAsyncTimeout() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		androidInterface.setOpenTimeout(50);
+
+		// Open the interface.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+		BroadcastReceiver receiver = getPermissionReceiver();
+
+		// Perform verifications.
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("The open should fail if the permissions are not answered in time.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof com.digi.xbee.api.exceptions.TimeoutException);
+		}
+		Mockito.verify(context).unregisterReceiver(receiver);
+		assertFalse(androidInterface.isOpen());
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that a blocking open fails with a
+	 * {@code PermissionDeniedException} if the user does not answer in
+	 * time.</p>
+	 */
+	@Test(expected=PermissionDeniedException.class)
+	public void testOpenTimeout() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		androidInterface.setOpenTimeout(50);
+
+		// Open the interface.
+		androidInterface.open();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that a blocking open fails with an
+	 * {@code InvalidInterfaceException} if the interface is closed while it
+	 * waits for the permissions.</p>
+	 */
+	@Test
+	public void testOpenClosedWhileWaiting() throws Exception {
+		// Prepare the variables.
+		final AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+		final AtomicReference<Exception> error = new AtomicReference<Exception>();
+		Thread opener = new Thread() {
+			@Override
+			public void run() {
+				try {
+					androidInterface.open();
+				} catch (Exception e) {
+					error.set(e);
+				}
+			}
+		};
+
+		// Open the interface and close it while it waits.
+		opener.start();
+		Mockito.verify(usbManager, Mockito.timeout(1000)).requestPermission(Mockito.eq(usbDevice), Mockito.any(PendingIntent.class));
+		androidInterface.close();
+		opener.join(1000);
+
+		// Perform verifications.
+		assertFalse(opener.isAlive());
+		assertTrue(error.get() instanceof InvalidInterfaceException);
+		assertFalse(androidInterface.isOpen());
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#openAsync()}.
+	 *
+	 * <p>Verify that the USB connection is released if the port cannot be
+	 * claimed.</p>
+	 */
+	@Test
+	public void testOpenAsyncClaimFailure() throws Exception {
+		// Prepare the variables.
+		Mockito.when(usbManager.hasPermission(usbDevice)).thenReturn(true);
+		Mockito.when(usbConnection.claimInterface(usbInterface, true)).thenReturn(false);
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+
+		// Perform verifications.
+		try {
+			future.get();
+			fail("The open should fail if the port cannot be claimed.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof InterfaceInUseException);
+		}
+		assertFalse(androidInterface.isOpen());
+		Mockito.verify(usbConnection).close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#openAsync()}.
+	 *
+	 * <p>Verify that the open future is completed right away when Android
+	 * already granted the USB permissions.</p>
+	 */
+	@Test
+	public void testOpenAsyncPermissionAlreadyGranted() throws Exception {
+		// Prepare the variables.
+		Mockito.when(usbManager.hasPermission(usbDevice)).thenReturn(true);
+		AndroidUSBInterface androidInterface = new AndroidUSBInterface(context, BAUD_RATE, usbDevice);
+
+		// Open the interface.
+		ConnectionFuture<AndroidUSBInterface> future = androidInterface.openAsync();
+
+		// Perform verifications.
+		assertTrue(future.isDone());
+		assertTrue(androidInterface.isOpen());
+		Mockito.verify(usbManager, Mockito.never()).requestPermission(Mockito.any(UsbDevice.class), Mockito.any(PendingIntent.class));
+
+		androidInterface.close();
+	}
+
+	private BroadcastReceiver getPermissionReceiver() {
+		ArgumentCaptor<BroadcastReceiver> captor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+		Mockito.verify(context).registerReceiver(captor.capture(), Mockito.any(IntentFilter.class));
+		return captor.getValue();
+	}
+
+	private Intent mockPermissionIntent(boolean granted) {
+		Intent intent = Mockito.mock(Intent.class);
+		Mockito.when(intent.getAction()).thenReturn("com.android.example.USB_PERMISSION");
+		Mockito.when(intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)).thenReturn(granted);
+		Mockito.doReturn(usbDevice).when(intent).getParcelableExtra(UsbManager.EXTRA_DEVICE);
+		return intent;
+	}
+
+	private UsbEndpoint mockEndpoint(int direction) {
+		UsbEndpoint endpoint = Mockito.mock(UsbEndpoint.class);
+		Mockito.when(endpoint.getType()).thenReturn(UsbConstants.USB_ENDPOINT_XFER_BULK);
+		Mockito.when(endpoint.getDirection()).thenReturn(direction);
+		Mockito.when(endpoint.getMaxPacketSize()).thenReturn(64);
+		return endpoint;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import android.content.Context;
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+
+import com.digi.xbee.api.android.connection.usb.AndroidUSBInterface;
+
+public class AndroidUSBInterfacePortTest {
+
+	// Constants.
+	private static final int PORTS = 4;
+	private static final int BAUD_RATE = 9600;
+	// Divisor of 9600 bauds with the 48 MHz clock.
+	private static final int BAUD_RATE_DIVISOR = 0x4138;
+
+	// Variables.
+	private Context context;
+	private UsbDevice usbDevice;
+	private UsbDeviceConnection usbConnection;
+	private UsbInterface[] usbInterfaces;
+
+	@Before
+	public void setup() {
+		usbConnection = Mockito.mock(UsbDeviceConnection.class);
+		Mockito.when(usbConnection.claimInterface(Mockito.any(UsbInterface.class), Mockito.anyBoolean())).thenReturn(true);
+
+		usbDevice = Mockito.mock(UsbDevice.class);
+		Mockito.when(usbDevice.getDeviceName()).thenReturn("/dev/bus/usb/001/002");
+		Mockito.when(usbDevice.getInterfaceCount()).thenReturn(PORTS);
+		usbInterfaces = new UsbInterface[PORTS];
+		for (int i = 0; i < PORTS; i++) {
+			usbInterfaces[i] = Mockito.mock(UsbInterface.class);
+			UsbEndpoint in = mockEndpoint(UsbConstants.USB_DIR_IN);
+			UsbEndpoint out = mockEndpoint(UsbConstants.USB_DIR_OUT);
+			Mockito.when(usbInterfaces[i].getEndpointCount()).thenReturn(2);
+			Mockito.when(usbInterfaces[i].getEndpoint(0)).thenReturn(in);
+			Mockito.when(usbInterfaces[i].getEndpoint(1)).thenReturn(out);
+			Mockito.when(usbDevice.getInterface(i)).thenReturn(usbInterfaces[i]);
+		}
+
+		UsbManager usbManager = Mockito.mock(UsbManager.class);
+		Mockito.when(usbManager.hasPermission(usbDevice)).thenReturn(true);
+		Mockito.when(usbManager.openDevice(usbDevice)).thenReturn(usbConnection);
+		context = Mockito.mock(Context.class);
+		Mockito.when(context.getSystemService(Context.USB_SERVICE)).thenReturn(usbManager);
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#open()}.
+	 *
+	 * <p>Verify that each port claims its own USB interface, configures the
+	 * baud rate of its own channel and shares the device connection with the
+	 * other ports.</p>
+	 */
+	@Test
+	public void testOpenPorts() throws Exception {
+		// Prepare the variables.
+		AndroidUSBInterface port1 = new AndroidUSBInterface(context, BAUD_RATE, usbDevice, 1);
+		AndroidUSBInterface port3 = new AndroidUSBInterface(context, BAUD_RATE, usbDevice, 3);
+
+		// Open the ports.
+		port1.open();
+		port3.open();
+
+		// Perform verifications.
+		assertEquals(PORTS, AndroidUSBInterface.getPortCount(usbDevice));
+		Mockito.verify(usbConnection).claimInterface(usbInterfaces[1], true);
+		Mockito.verify(usbConnection).claimInterface(usbInterfaces[3], true);
+		Mockito.verify(usbConnection).controlTransfer(0x40, 0x03, BAUD_RATE_DIVISOR, 2, null, 0, 0);
+		Mockito.verify(usbConnection).controlTransfer(0x40, 0x03, BAUD_RATE_DIVISOR, 4, null, 0, 0);
+		assertNotSame(port1.getInputStream(), port3.getInputStream());
+
+		// Close the ports, the connection is closed with the last one.
+		port1.close();
+		Mockito.verify(usbConnection, Mockito.never()).close();
+		port3.close();
+		Mockito.verify(usbConnection).close();
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#findDevices(Context)}.
+	 *
+	 * <p>Verify that the FT2232 and FT4232 bridges are found and the
+	 * unsupported FTDI chips are ignored.</p>
+	 */
+	@Test
+	public void testFindMultiPortDevices() {
+		// Prepare the variables.
+		UsbDevice ft2232 = mockDevice(0x0403, 0x6010);
+		UsbDevice ft4232 = mockDevice(0x0403, 0x6011);
+		UsbDevice ft232h = mockDevice(0x0403, 0x6014);
+		HashMap<String, UsbDevice> deviceList = new HashMap<String, UsbDevice>();
+		deviceList.put("ft2232", ft2232);
+		deviceList.put("ft4232", ft4232);
+		deviceList.put("ft232h", ft232h);
+		UsbManager usbManager = Mockito.mock(UsbManager.class);
+		Mockito.when(usbManager.getDeviceList()).thenReturn(deviceList);
+		Context context = Mockito.mock(Context.class);
+		Mockito.when(context.getSystemService(Context.USB_SERVICE)).thenReturn(usbManager);
+
+		// Look for the devices.
+		List<UsbDevice> devices = AndroidUSBInterface.findDevices(context);
+
+		// Perform verifications.
+		assertEquals(2, devices.size());
+		assertTrue(devices.contains(ft2232));
+		assertTrue(devices.contains(ft4232));
+	}
+
+	/**
+	 * Test method for {@link AndroidUSBInterface#AndroidUSBInterface(Context, int, UsbDevice, int)}.
+	 *
+	 * <p>Verify that a {@code IllegalArgumentException} is thrown if the port
+	 * is negative.</p>
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testCreateNegativePort() {
+		new AndroidUSBInterface(context, BAUD_RATE, usbDevice, -1);
+	}
+
+	private UsbDevice mockDevice(int vendorId, int productId) {
+		UsbDevice device = Mockito.mock(UsbDevice.class);
+		Mockito.when(device.getVendorId()).thenReturn(vendorId);
+		Mockito.when(device.getProductId()).thenReturn(productId);
+		return device;
+	}
+
+	private UsbEndpoint mockEndpoint(int direction) {
+		UsbEndpoint endpoint = Mockito.mock(UsbEndpoint.class);
+		Mockito.when(endpoint.getType()).thenReturn(UsbConstants.USB_ENDPOINT_XFER_BULK);
+		Mockito.when(endpoint.getDirection()).thenReturn(direction);
+		Mockito.when(endpoint.getMaxPacketSize()).thenReturn(64);
+		return endpoint;
+	}
+}
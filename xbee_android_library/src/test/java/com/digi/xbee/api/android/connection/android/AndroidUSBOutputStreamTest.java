@@ -104,4 +104,23 @@ public class AndroidUSBOutputStreamTest {
 		// Perform the verification.
 		Mockito.verify(usbConnection, Mockito.times(1)).bulkTransfer(sendEndPoint, array, array.length, timeout);
 	}
+
+	/**
+	 * Test method for {@link AndroidUSBOutputStream#write(byte[], int, int)}
+	 *
+	 * <p>Verify that only the given range of a byte array is written.</p>
+	 */
+	@Test
+	public void testWriteByteArrayRange() throws Exception {
+		// Prepare the variables.
+		byte[] array = new byte[]{0x7E, 0x20, 0x1A, 0x00};
+
+		// Call the method under test.
+		os.write(array, 1, 2);
+
+		Thread.sleep(20);
+
+		// Perform the verification.
+		Mockito.verify(usbConnection, Mockito.times(1)).bulkTransfer(sendEndPoint, new byte[]{0x20, 0x1A}, 2, timeout);
+	}
 }
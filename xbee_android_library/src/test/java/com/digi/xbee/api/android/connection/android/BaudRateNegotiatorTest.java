@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.BaudRateNegotiator;
+import com.digi.xbee.api.android.ParameterCache;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BaudRateNegotiatorTest {
+
+	// Constants.
+	private static final int INITIAL_BAUD_RATE = 9600;
+	private static final int MAX_BAUD_RATE = 115200;
+	private static final int LOWER_BAUD_RATE = 57600;
+
+	// Keep the lost answers short.
+	private static final int RECEIVE_TIMEOUT = 500;
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private XBeeDevice device;
+
+	@Before
+	public void setup() throws Exception {
+		// Keep the UART pacing: xbee-java can miss an instant answer to a
+		// synchronous request.
+		simulator = new XBeeSimulator();
+		simulator.setHostBaudRate(INITIAL_BAUD_RATE);
+		device = new XBeeDevice(simulator);
+		device.open();
+		device.setReceiveTimeout(RECEIVE_TIMEOUT);
+	}
+
+	@After
+	public void tearDown() {
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link BaudRateNegotiator#negotiate(com.digi.xbee.api.XBeeDevice, int)}.
+	 *
+	 * <p>Verify that both sides move to the maximum baud rate.</p>
+	 */
+	@Test
+	public void testNegotiate() throws Exception {
+		// Negotiate the baud rate.
+		int baudRate = BaudRateNegotiator.negotiate(device, MAX_BAUD_RATE);
+
+		// Perform verifications.
+		assertEquals(MAX_BAUD_RATE, baudRate);
+		assertEquals(MAX_BAUD_RATE, simulator.getBaudRate());
+		assertEquals(MAX_BAUD_RATE, simulator.getHostBaudRate());
+	}
+
+	/**
+	 * Test method for {@link BaudRateNegotiator#negotiate(com.digi.xbee.api.XBeeDevice, int)}.
+	 *
+	 * <p>Verify that a baud rate rejected by the module is skipped.</p>
+	 */
+	@Test
+	public void testRejectedBaudRate() throws Exception {
+		// Prepare the variables.
+		simulator.setMaxBaudRate(LOWER_BAUD_RATE);
+
+		// Negotiate the baud rate.
+		int baudRate = BaudRateNegotiator.negotiate(device, MAX_BAUD_RATE);
+
+		// Perform verifications.
+		assertEquals(LOWER_BAUD_RATE, baudRate);
+		assertEquals(LOWER_BAUD_RATE, simulator.getBaudRate());
+		assertEquals(LOWER_BAUD_RATE, simulator.getHostBaudRate());
+	}
+
+	/**
+	 * Test method for {@link BaudRateNegotiator#negotiate(com.digi.xbee.api.XBeeDevice, int)}.
+	 *
+	 * <p>Verify that when the link check fails both sides go back to the
+	 * original baud rate and the next lower one is tried.</p>
+	 */
+	@Test
+	public void testFailedLinkCheck() throws Exception {
+		// Prepare the variables.
+		simulator.setMaxHostReceiveBaudRate(LOWER_BAUD_RATE);
+
+		// Negotiate the baud rate.
+		int baudRate = BaudRateNegotiator.negotiate(device, MAX_BAUD_RATE);
+
+		// Perform verifications.
+		assertEquals(LOWER_BAUD_RATE, baudRate);
+		assertEquals(LOWER_BAUD_RATE, simulator.getBaudRate());
+		assertEquals(LOWER_BAUD_RATE, simulator.getHostBaudRate());
+	}
+
+	/**
+	 * Test method for {@link BaudRateNegotiator#negotiate(com.digi.xbee.api.XBeeDevice, int)}.
+	 *
+	 * <p>Verify that a lost answer to the baud rate change is not taken as a
+	 * rejection when the module switched.</p>
+	 */
+	@Test
+	public void testLostResponse() throws Exception {
+		// Prepare the variables.
+		simulator.setDroppedResponses("BD", 1);
+
+		// Negotiate the baud rate.
+		int baudRate = BaudRateNegotiator.negotiate(device, MAX_BAUD_RATE);
+
+		// Perform verifications.
+		assertEquals(MAX_BAUD_RATE, baudRate);
+		assertEquals(MAX_BAUD_RATE, simulator.getBaudRate());
+		assertEquals(MAX_BAUD_RATE, simulator.getHostBaudRate());
+	}
+
+	/**
+	 * Test method for {@link BaudRateNegotiator#negotiate(com.digi.xbee.api.XBeeDevice, int)}.
+	 *
+	 * <p>Verify that the baud rate cached by a {@link ParameterCache} of the
+	 * device is invalidated.</p>
+	 */
+	@Test
+	public void testInvalidatesParameterCache() throws Exception {
+		// Prepare the variables.
+		ParameterCache cache = new ParameterCache(device);
+		assertArrayEquals(new byte[] {0x03}, cache.getParameter("BD"));
+
+		try {
+			// Negotiate the baud rate.
+			BaudRateNegotiator.negotiate(device, MAX_BAUD_RATE);
+
+			// Perform verifications.
+			assertArrayEquals(new byte[] {0x07}, cache.getParameter("BD"));
+			assertEquals(2, cache.getMissCount());
+		} finally {
+			cache.close();
+		}
+	}
+}
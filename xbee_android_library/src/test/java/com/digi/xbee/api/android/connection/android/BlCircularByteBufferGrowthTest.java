@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.connection.bluetooth.BlCircularByteBuffer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BlCircularByteBufferGrowthTest {
+
+	// Constants.
+	private final static int INITIAL_SIZE = 16;
+	private final static int MAX_SIZE = 64;
+
+	/**
+	 * Test method for {@link BlCircularByteBuffer#BlCircularByteBuffer(int, int, boolean)}.
+	 *
+	 * <p>Verify that a {@code IllegalArgumentException} is thrown if the maximum size is
+	 * smaller than the initial size.</p>
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testCreateMaxSizeSmallerThanInitial() {
+		new BlCircularByteBuffer(INITIAL_SIZE, INITIAL_SIZE - 1, false);
+	}
+
+	/**
+	 * Test method for {@link BlCircularByteBuffer#BlCircularByteBuffer(int, int, boolean)}.
+	 *
+	 * <p>Verify that the buffer grows to hold the written data and the growth is
+	 * reported.</p>
+	 */
+	@Test
+	public void testGrowWithinLimit() throws IOException {
+		// Prepare the variables.
+		BlCircularByteBuffer buffer = new BlCircularByteBuffer(INITIAL_SIZE, MAX_SIZE, false);
+		byte[] data = new byte[40];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte)i;
+
+		// Write the data.
+		buffer.getOutputStream().write(data);
+
+		// Perform verifications.
+		assertEquals(MAX_SIZE, buffer.getSize());
+		assertEquals(MAX_SIZE, buffer.getPeakSize());
+		assertEquals(2, buffer.getResizeCount());
+		assertEquals(data.length, buffer.getAvailable());
+
+		byte[] readData = new byte[data.length];
+		assertEquals(data.length, buffer.getInputStream().read(readData));
+		assertArrayEquals(data, readData);
+	}
+
+	/**
+	 * Test method for {@link BlCircularByteBuffer#BlCircularByteBuffer(int, int, boolean)}.
+	 *
+	 * <p>Verify that a non blocking buffer throws an {@code IOException} instead of
+	 * growing over its maximum size.</p>
+	 */
+	@Test
+	public void testGrowOverLimit() throws IOException {
+		// Prepare the variables.
+		BlCircularByteBuffer buffer = new BlCircularByteBuffer(INITIAL_SIZE, MAX_SIZE, false);
+
+		// Write the data.
+		try {
+			buffer.getOutputStream().write(new byte[MAX_SIZE]);
+			fail("Writing more data than the maximum size should fail.");
+		} catch (IOException e) {
+			// Expected.
+		}
+
+		// Perform verifications.
+		assertEquals(MAX_SIZE, buffer.getSize());
+		assertEquals(MAX_SIZE, buffer.getMaxSize());
+		assertEquals(0, buffer.getAvailable());
+	}
+
+	/**
+	 * Test method for {@link BlCircularByteBuffer#setShrinkOnDrain(boolean)}.
+	 *
+	 * <p>Verify that a grown buffer goes back to its initial size once drained.</p>
+	 */
+	@Test
+	public void testShrinkOnDrain() throws IOException {
+		// Prepare the variables.
+		BlCircularByteBuffer buffer = new BlCircularByteBuffer(INITIAL_SIZE, MAX_SIZE, false);
+		buffer.setShrinkOnDrain(true);
+		byte[] data = new byte[INITIAL_SIZE * 2];
+
+		// Write and partially read the data.
+		buffer.getOutputStream().write(data);
+		buffer.getInputStream().read(new byte[INITIAL_SIZE]);
+
+		// Perform verifications.
+		assertEquals(MAX_SIZE, buffer.getSize());
+
+		// Read the rest of the data.
+		buffer.getInputStream().read(new byte[INITIAL_SIZE]);
+
+		// Perform verifications.
+		assertEquals(INITIAL_SIZE, buffer.getSize());
+		assertEquals(MAX_SIZE, buffer.getPeakSize());
+		assertEquals(3, buffer.getResizeCount());
+		assertEquals(0, buffer.getAvailable());
+	}
+
+	/**
+	 * Test method for {@link BlCircularByteBuffer#getBlockedWriteTime()}.
+	 *
+	 * <p>Verify that the time a writer waits for free space is reported.</p>
+	 */
+	@Test
+	public void testBlockedWriteTime() throws Exception {
+		// Prepare the variables.
+		final BlCircularByteBuffer buffer = new BlCircularByteBuffer(INITIAL_SIZE, INITIAL_SIZE, true);
+		buffer.getOutputStream().write(new byte[INITIAL_SIZE - 1]);
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					buffer.getInputStream().read(new byte[INITIAL_SIZE]);
+				} catch (Exception e) {
+					// Ignore.
+				}
+			}
+		};
+		reader.start();
+
+		// Write the data, this blocks until the reader makes room.
+		buffer.getOutputStream().write(new byte[4]);
+		reader.join();
+
+		// Perform verifications.
+		assertEquals(0, buffer.getResizeCount());
+		assertTrue(buffer.getBlockedWriteTime() > 0);
+		assertEquals(4, buffer.getAvailable());
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.connection.WireTracer;
+import com.digi.xbee.api.android.connection.capture.CaptureReader;
+import com.digi.xbee.api.android.connection.capture.CaptureRecord;
+import com.digi.xbee.api.android.connection.capture.CaptureWriter;
+import com.digi.xbee.api.packet.common.ATCommandPacket;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+public class CaptureWriterTest {
+
+	// Constants.
+	private final static String NAME = "test";
+	private final static int SEGMENT_SIZE = 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for {@link CaptureWriter#write(CaptureRecord.Type, long, byte[], int, int)}
+	 * and {@link CaptureReader#read()}.
+	 *
+	 * <p>Verify that the written records are read back in order across
+	 * segments.</p>
+	 */
+	@Test
+	public void testWriteAndRead() throws IOException {
+		// Prepare the variables.
+		File directory = folder.getRoot();
+		CaptureWriter writer = new CaptureWriter(directory, NAME, SEGMENT_SIZE, SEGMENT_SIZE * 10);
+		byte[] chunk = new byte[100];
+
+		// Write the records.
+		for (int i = 0; i < 20; i++) {
+			chunk[0] = (byte)i;
+			writer.write(CaptureRecord.Type.RX_CHUNK, System.nanoTime(), chunk, 0, chunk.length);
+			waitNextSegment(writer);
+		}
+		ATCommandPacket packet = new ATCommandPacket(1, "NI", (byte[])null);
+		writer.writeFrame(WireTracer.Direction.TX, packet);
+		writer.close();
+
+		// Perform verifications.
+		assertTrue(writer.getSegmentFiles().size() > 1);
+		CaptureReader reader = new CaptureReader(directory, NAME);
+		for (int i = 0; i < 20; i++) {
+			CaptureRecord record = reader.read();
+			assertEquals(CaptureRecord.Type.RX_CHUNK, record.getType());
+			assertEquals(chunk.length, record.getData().length);
+			assertEquals(i, record.getData()[0]);
+		}
+		CaptureRecord frame = reader.read();
+		assertEquals(CaptureRecord.Type.TX_FRAME, frame.getType());
+		assertArrayEquals(packet.generateByteArray(), frame.getData());
+		assertNull(reader.read());
+		reader.close();
+	}
+
+	/**
+	 * Test method for {@link CaptureWriter#CaptureWriter(File, String, int, long)}.
+	 *
+	 * <p>Verify that the oldest segments are deleted to honor the size cap.</p>
+	 */
+	@Test
+	public void testSizeCap() throws IOException {
+		// Prepare the variables.
+		File directory = folder.getRoot();
+		CaptureWriter writer = new CaptureWriter(directory, NAME, SEGMENT_SIZE, SEGMENT_SIZE * 3);
+		byte[] chunk = new byte[500];
+
+		// Write the records.
+		for (int i = 0; i < 10; i++) {
+			writer.write(CaptureRecord.Type.TX_CHUNK, System.nanoTime(), chunk, 0, chunk.length);
+			waitNextSegment(writer);
+		}
+		writer.close();
+
+		// Perform verifications.
+		File[] files = directory.listFiles();
+		assertEquals(2, files.length);
+		long totalSize = 0;
+		for (File file : files)
+			totalSize += file.length();
+		assertTrue(totalSize <= SEGMENT_SIZE * 3);
+		assertEquals(0, writer.getLostRecords());
+
+		CaptureReader reader = new CaptureReader(directory, NAME);
+		int records = 0;
+		while (reader.read() != null)
+			records++;
+		reader.close();
+		assertEquals(2, records);
+	}
+
+	/**
+	 * Test method for {@link CaptureWriter#write(CaptureRecord.Type, long, byte[], int, int)}.
+	 *
+	 * <p>Verify that a record needing a new segment is discarded instead of
+	 * waiting while the segment is still being created.</p>
+	 */
+	@Test(timeout = 5000)
+	public void testWriteSegmentNotReady() throws IOException {
+		// Prepare the variables.
+		File directory = folder.getRoot();
+		CaptureWriter writer = new CaptureWriter(directory, NAME, SEGMENT_SIZE, SEGMENT_SIZE * 10);
+		byte[] chunk = new byte[500];
+		writer.write(CaptureRecord.Type.TX_CHUNK, System.nanoTime(), chunk, 0, chunk.length);
+		waitNextSegment(writer);
+		Future<?> ready = (Future<?>)Whitebox.getInternalState(writer, "nextSegment");
+		Whitebox.setInternalState(writer, "nextSegment", new FutureTask<Object>(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return null;
+			}
+		}));
+
+		// Write a record that does not fit in the current segment.
+		writer.write(CaptureRecord.Type.TX_CHUNK, System.nanoTime(), chunk, 0, chunk.length);
+
+		// Perform verifications.
+		assertEquals(1, writer.getLostRecords());
+
+		Whitebox.setInternalState(writer, "nextSegment", ready);
+		writer.write(CaptureRecord.Type.TX_CHUNK, System.nanoTime(), chunk, 0, chunk.length);
+		writer.close();
+		assertEquals(1, writer.getLostRecords());
+		assertEquals(2, writer.getSegmentFiles().size());
+	}
+
+	/**
+	 * Waits until the segment created in advance by the given writer is
+	 * ready.
+	 */
+	private static void waitNextSegment(CaptureWriter writer) {
+		while (!((Future<?>)Whitebox.getInternalState(writer, "nextSegment")).isDone())
+			Thread.yield();
+	}
+}
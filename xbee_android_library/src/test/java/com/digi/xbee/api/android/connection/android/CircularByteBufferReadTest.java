@@ -106,6 +106,28 @@ public class CircularByteBufferReadTest {
 		assertEquals(0, writeIndex);
 	}
 	
+	/**
+	 * Test method for {@link CircularByteBuffer#read()}.
+	 * 
+	 * <p>Verify that single bytes are read in order across the end of the
+	 * buffer and that -1 is returned once it is empty.</p>
+	 */
+	@Test
+	public void testReadSingleBytes() {
+		// Move the write index close to the end of the buffer.
+		circularByteBuffer.skip(TEST_DATA_SIZE);
+		circularByteBuffer.write(dataToWrite, 0, TEST_DATA_SIZE);
+		
+		// Read data.
+		for (int i = 0; i < TEST_DATA_SIZE; i++)
+			assertEquals(dataToWrite[i] & 0xFF, circularByteBuffer.read());
+		
+		// Perform verifications.
+		assertEquals(-1, circularByteBuffer.read());
+		assertEquals(0, circularByteBuffer.availableToRead());
+		assertTrue((Boolean)Whitebox.getInternalState(circularByteBuffer, VARIABLE_EMPTY));
+	}
+	
 	/**
 	 * Test method for {@link CircularByteBuffer#read(byte[], int, int)}.
 	 * 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.IOSampleBuckets;
+import com.digi.xbee.api.android.IOSampleStore;
+import com.digi.xbee.api.io.IOLine;
+import com.digi.xbee.api.io.IOSample;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class IOSampleStoreTest {
+
+	// Constants.
+	private static final XBee64BitAddress ADDRESS = new XBee64BitAddress("0013A20040A1B2C3");
+
+	/**
+	 * Test method for {@link IOSampleStore#add(XBee64BitAddress, long, IOSample)}.
+	 *
+	 * <p>Verify that the analog and digital values of a sample are stored in
+	 * the series of their lines.</p>
+	 */
+	@Test
+	public void testAdd() {
+		// Prepare the variables.
+		IOSampleStore store = new IOSampleStore();
+
+		// Add two samples with an analog and a digital line.
+		store.add(ADDRESS, 1000, createSample(true, 511));
+		store.add(ADDRESS, 2000, createSample(false, 300));
+
+		// Perform verifications.
+		assertEquals(Arrays.asList(ADDRESS), store.getDevices());
+		assertEquals(Arrays.asList(IOLine.DIO1_AD1, IOLine.DIO4_AD4), store.getLines(ADDRESS));
+		assertEquals(2, store.getSampleCount(ADDRESS, IOLine.DIO1_AD1));
+		assertEquals(1000, store.getFirstTimestamp(ADDRESS, IOLine.DIO4_AD4));
+		assertEquals(2000, store.getLastTimestamp(ADDRESS, IOLine.DIO4_AD4));
+		assertEquals(0, store.getSampleCount(ADDRESS, IOLine.DIO0_AD0));
+		assertEquals(IOSampleStore.NO_TIMESTAMP, store.getLastTimestamp(ADDRESS, IOLine.DIO0_AD0));
+
+		IOSampleBuckets digital = store.downsample(ADDRESS, IOLine.DIO4_AD4, 0, 3000, 1);
+		assertEquals(0, digital.getMin(0));
+		assertEquals(1, digital.getMax(0));
+
+		store.remove(ADDRESS);
+		assertTrue(store.getDevices().isEmpty());
+		assertEquals(0, store.getSampleCount(ADDRESS, IOLine.DIO1_AD1));
+	}
+
+	/**
+	 * Test method for {@link IOSampleStore#downsample(XBee64BitAddress, IOLine, long, long, int)}.
+	 *
+	 * <p>Verify that the samples of a range are aggregated in buckets of the
+	 * same duration across segments.</p>
+	 */
+	@Test
+	public void testDownsample() {
+		// Prepare the variables.
+		IOSampleStore store = new IOSampleStore(4, 8);
+		for (int i = 0; i < 20; i++)
+			store.add(ADDRESS, i * 10, createSample(true, i));
+
+		// Aggregate from 50 (inclusive) to 150 (exclusive) in 4 buckets.
+		IOSampleBuckets buckets = store.downsample(ADDRESS, IOLine.DIO1_AD1, 50, 150, 4);
+
+		// Perform verifications.
+		assertEquals(4, buckets.getBucketCount());
+		assertEquals(25, buckets.getBucketDuration());
+		assertEquals(10, buckets.getTotalCount());
+		assertEquals(75, buckets.getStartTime(1));
+		// Samples 5, 6 and 7 fall in the first bucket.
+		assertEquals(3, buckets.getCount(0));
+		assertEquals(5, buckets.getMin(0));
+		assertEquals(7, buckets.getMax(0));
+		assertEquals(6.0, buckets.getAverage(0), 0);
+		// Samples 13 and 14 fall in the last bucket.
+		assertEquals(2, buckets.getCount(3));
+		assertEquals(13.5, buckets.getAverage(3), 0);
+
+		// A range without samples.
+		IOSampleBuckets empty = store.downsample(ADDRESS, IOLine.DIO1_AD1, 1000, 2000, 10);
+		assertEquals(0, empty.getTotalCount());
+		assertTrue(Double.isNaN(empty.getAverage(0)));
+	}
+
+	/**
+	 * Test method for {@link IOSampleStore#add(XBee64BitAddress, long, IOSample)}.
+	 *
+	 * <p>Verify that the oldest segment is reused once all the segments of a
+	 * series are full and that late samples keep the series sorted.</p>
+	 */
+	@Test
+	public void testBoundedSegments() {
+		// Prepare the variables.
+		IOSampleStore store = new IOSampleStore(4, 2);
+
+		// Add more samples than the series can keep.
+		for (int i = 0; i < 10; i++)
+			store.add(ADDRESS, i, createSample(true, i));
+
+		// Perform verifications, the last two segments are kept.
+		assertEquals(6, store.getSampleCount(ADDRESS, IOLine.DIO1_AD1));
+		assertEquals(4, store.getFirstTimestamp(ADDRESS, IOLine.DIO1_AD1));
+		assertEquals(9, store.getLastTimestamp(ADDRESS, IOLine.DIO1_AD1));
+		IOSampleBuckets buckets = store.downsample(ADDRESS, IOLine.DIO1_AD1, 0, 10, 10);
+		assertEquals(0, buckets.getCount(3));
+		assertEquals(4, buckets.getMin(4));
+
+		// A late sample is stored with the time of the last one.
+		store.add(ADDRESS, 2, createSample(true, 100));
+		assertEquals(9, store.getLastTimestamp(ADDRESS, IOLine.DIO1_AD1));
+		buckets = store.downsample(ADDRESS, IOLine.DIO1_AD1, 9, 10, 1);
+		assertEquals(2, buckets.getCount(0));
+		assertEquals(100, buckets.getMax(0));
+	}
+
+	/**
+	 * Creates an IO sample with DIO4 as digital line and AD1 as analog line.
+	 *
+	 * @param high Whether DIO4 is high.
+	 * @param analogValue The value of AD1.
+	 *
+	 * @return The IO sample.
+	 */
+	private IOSample createSample(boolean high, int analogValue) {
+		return new IOSample(new byte[] {
+				0x01,                                             // Number of samples.
+				0x00, 0x10,                                       // Digital mask: DIO4.
+				0x02,                                             // Analog mask: AD1.
+				0x00, (byte)(high ? 0x10 : 0x00),                 // Digital values.
+				(byte)(analogValue >> 8), (byte)analogValue});    // AD1 value.
+	}
+}
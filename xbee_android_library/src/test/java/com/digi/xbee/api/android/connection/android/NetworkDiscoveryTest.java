@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.NetworkDiscovery;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NetworkDiscoveryTest {
+
+	// Constants.
+	private static final XBee64BitAddress ADDRESS_A = new XBee64BitAddress("0013A20040000001");
+	private static final XBee64BitAddress ADDRESS_B = new XBee64BitAddress("0013A20040000002");
+	private static final XBee64BitAddress ADDRESS_C = new XBee64BitAddress("0013A20040000003");
+
+	// The simulator node discovery time is 6 seconds.
+	private static final long EARLY_FINISH = 4000;
+
+	// Time for the discovery thread to end after the future completes.
+	private static final long THREAD_END_WAIT = 200;
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private XBeeDevice device;
+	private NetworkDiscovery discovery;
+
+	private Thread.UncaughtExceptionHandler defaultHandler;
+	private final AtomicReference<Throwable> uncaught = new AtomicReference<Throwable>();
+
+	@Before
+	public void setup() throws Exception {
+		// Discovery callbacks run on threads of the library, fail the test
+		// if any of them throws.
+		defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread thread, Throwable throwable) {
+				uncaught.compareAndSet(null, throwable);
+			}
+		});
+		// Keep the UART pacing: xbee-java waits for a synchronous response
+		// after writing the request, so an instant answer can be missed and
+		// the discovery then stalls for the whole receive timeout.
+		simulator = new XBeeSimulator();
+		simulator.addDiscoverableNode(ADDRESS_A, new XBee16BitAddress("0001"), "NODE A", 100);
+		simulator.addDiscoverableNode(ADDRESS_B, new XBee16BitAddress("0002"), "NODE B", 200);
+		simulator.addDiscoverableNode(ADDRESS_C, new XBee16BitAddress("0003"), "NODE C", 400);
+		device = new XBeeDevice(simulator);
+		device.open();
+		discovery = new NetworkDiscovery(device);
+		discovery.setQuietWindow(NetworkDiscovery.NO_QUIET_WINDOW);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		Thread.sleep(THREAD_END_WAIT);
+		device.close();
+		Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+		if (uncaught.get() != null)
+			throw new AssertionError("Uncaught exception in a discovery thread", uncaught.get());
+	}
+
+	/**
+	 * Test method for {@link NetworkDiscovery#discover()}.
+	 *
+	 * <p>Verify that the discovery finishes as soon as the expected number
+	 * of nodes has answered.</p>
+	 */
+	@Test
+	public void testExpectedNodes() throws Exception {
+		// Prepare the variables.
+		discovery.setExpectedNodes(3);
+		long start = System.currentTimeMillis();
+
+		// Discover the network.
+		List<RemoteXBeeDevice> nodes = discovery.discover().get(10, TimeUnit.SECONDS);
+
+		// Perform verifications.
+		assertTrue(System.currentTimeMillis() - start < EARLY_FINISH);
+		assertEquals(3, nodes.size());
+		assertEquals(ADDRESS_A, nodes.get(0).get64BitAddress());
+		assertEquals("NODE C", nodes.get(2).getNodeID());
+		assertNotNull(device.getNetwork().getDevice(ADDRESS_B));
+		assertFalse(discovery.isRunning());
+	}
+
+	/**
+	 * Test method for {@link NetworkDiscovery#setQuietWindow(long)}.
+	 *
+	 * <p>Verify that the discovery finishes when no new node answers
+	 * during the quiet window.</p>
+	 */
+	@Test
+	public void testQuietWindow() throws Exception {
+		// Prepare the variables.
+		discovery.setQuietWindow(1000);
+		long start = System.currentTimeMillis();
+
+		// Discover the network.
+		List<RemoteXBeeDevice> nodes = discovery.discover().get(10, TimeUnit.SECONDS);
+
+		// Perform verifications.
+		assertTrue(System.currentTimeMillis() - start < EARLY_FINISH);
+		assertEquals(3, nodes.size());
+	}
+
+	/**
+	 * Test method for {@link NetworkDiscovery#discoverDevices(java.util.Collection)}
+	 * and {@link NetworkDiscovery#discoverDevicesByAddress(java.util.Collection)}.
+	 *
+	 * <p>Verify that a lookup finishes as soon as all the nodes looked up
+	 * have answered and only returns them.</p>
+	 */
+	@Test
+	public void testLookup() throws Exception {
+		// Look up by node identifier.
+		long start = System.currentTimeMillis();
+		List<RemoteXBeeDevice> nodes = discovery.discoverDevices(Arrays.asList("NODE B", "NODE A"))
+				.get(10, TimeUnit.SECONDS);
+		assertTrue(System.currentTimeMillis() - start < EARLY_FINISH);
+		assertEquals(2, nodes.size());
+		assertEquals("NODE A", nodes.get(0).getNodeID());
+		assertEquals("NODE B", nodes.get(1).getNodeID());
+
+		// Look up by address.
+		start = System.currentTimeMillis();
+		nodes = discovery.discoverDevicesByAddress(Arrays.asList(ADDRESS_C)).get(10, TimeUnit.SECONDS);
+		assertTrue(System.currentTimeMillis() - start < EARLY_FINISH);
+		assertEquals(1, nodes.size());
+		assertEquals(ADDRESS_C, nodes.get(0).get64BitAddress());
+	}
+
+	/**
+	 * Test method for {@link NetworkDiscovery#discover()}.
+	 *
+	 * <p>Verify that a second discovery fails while the first one is
+	 * running and that cancelling a discovery stops it.</p>
+	 */
+	@Test
+	public void testConcurrentAndCancel() throws Exception {
+		// Start a discovery that waits the whole discovery time.
+		ConnectionFuture<List<RemoteXBeeDevice>> first = discovery.discover();
+		assertTrue(discovery.isRunning());
+
+		// A second discovery fails.
+		try {
+			discovery.discover().get(1, TimeUnit.SECONDS);
+			fail("A second discovery should fail.");
+		} catch (ExecutionException e) {
+			// Expected.
+		}
+
+		// Cancel the first one.
+		assertTrue(first.cancel(true));
+		long deadline = System.currentTimeMillis() + EARLY_FINISH;
+		while ((discovery.isRunning() || device.getNetwork().isDiscoveryRunning())
+				&& System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		// Perform verifications.
+		assertFalse(discovery.isRunning());
+		assertFalse(device.getNetwork().isDiscoveryRunning());
+	}
+
+	/**
+	 * Test method for {@link NetworkDiscovery#discover()}.
+	 *
+	 * <p>Verify that a discovery that cannot start does not leave the
+	 * object running.</p>
+	 */
+	@Test
+	public void testStartFailure() throws Exception {
+		// Prepare the variables.
+		discovery.setExpectedNodes(3);
+		device.close();
+
+		// The device is not open.
+		try {
+			discovery.discover();
+			fail("The discovery should not start.");
+		} catch (InterfaceNotOpenException e) {
+			// Expected.
+		}
+		assertFalse(discovery.isRunning());
+
+		// A new discovery works once the device is open.
+		device.open();
+		assertEquals(3, discovery.discover().get(10, TimeUnit.SECONDS).size());
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.ParameterCache;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.models.ModemStatusEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParameterCacheTest {
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private XBeeDevice device;
+	private ParameterCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		simulator = new XBeeSimulator();
+		simulator.setUARTLimited(false);
+		device = new XBeeDevice(simulator);
+		device.open();
+		cache = new ParameterCache(device);
+	}
+
+	@After
+	public void tearDown() {
+		cache.close();
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#getParameter(String)}.
+	 *
+	 * <p>Verify that a parameter is read from the device only once.</p>
+	 */
+	@Test
+	public void testCachedRead() throws Exception {
+		// Read the parameter twice.
+		byte[] first = cache.getParameter("NT");
+		long frames = simulator.getReceivedFrames();
+		byte[] second = cache.getParameter("nt");
+
+		// Perform verifications.
+		assertArrayEquals(first, second);
+		assertEquals(frames, simulator.getReceivedFrames());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#getParameters(String...)}.
+	 *
+	 * <p>Verify that only the missing parameters are read from the device
+	 * and that all the values are returned in order.</p>
+	 */
+	@Test
+	public void testGetParameters() throws Exception {
+		// Prepare the variables.
+		cache.getParameter("NI");
+
+		// Read several parameters.
+		Map<String, byte[]> values = cache.getParameters("NI", "id", "OP", "NT");
+
+		// Perform verifications.
+		assertEquals(Arrays.asList("NI", "ID", "OP", "NT"), new ArrayList<String>(values.keySet()));
+		assertArrayEquals("SIMULATOR".getBytes(), values.get("NI"));
+		assertArrayEquals(simulator.getParameter("NT"), values.get("NT"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+
+		// Read them again from the cache.
+		long frames = simulator.getReceivedFrames();
+		cache.getParameters("ID", "OP", "NT");
+
+		// Perform verifications.
+		assertEquals(frames, simulator.getReceivedFrames());
+		assertEquals(4, cache.getHitCount());
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#setParameter(String, byte[])}.
+	 *
+	 * <p>Verify that setting a parameter invalidates its cached value.</p>
+	 */
+	@Test
+	public void testSetParameterInvalidates() throws Exception {
+		// Prepare the variables.
+		cache.getParameter("NI");
+
+		// Change the parameter and read it again.
+		cache.setParameter("NI", "RENAMED".getBytes());
+		byte[] value = cache.getParameter("NI");
+
+		// Perform verifications.
+		assertArrayEquals("RENAMED".getBytes(), value);
+		assertEquals(2, cache.getMissCount());
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#setTimeToLive(String, long)}.
+	 *
+	 * <p>Verify that a parameter is read again once its time to live
+	 * expires.</p>
+	 */
+	@Test
+	public void testTimeToLive() throws Exception {
+		// Prepare the variables.
+		cache.setTimeToLive("NT", 50);
+		cache.getParameter("NT");
+
+		// Read the parameter before and after it expires.
+		cache.getParameter("NT");
+		Thread.sleep(100);
+		cache.getParameter("NT");
+
+		// Perform verifications.
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(ParameterCache.DEFAULT_VOLATILE_TIME_TO_LIVE, cache.getTimeToLive("DB"));
+		assertEquals(ParameterCache.NO_EXPIRATION, cache.getTimeToLive("DH"));
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#getParameter(String)}.
+	 *
+	 * <p>Verify that a modem status event that implies a configuration
+	 * change invalidates the cache.</p>
+	 */
+	@Test
+	public void testModemStatusInvalidates() throws Exception {
+		// Prepare the variables.
+		cache.getParameter("NT");
+		cache.getParameter("NT");
+
+		// Generate a reset event.
+		simulator.setModemStatusEvent(ModemStatusEvent.STATUS_HARDWARE_RESET);
+		simulator.setTrafficRate(XBeeSimulator.Traffic.MODEM_STATUS, 100);
+		Thread.sleep(200);
+		simulator.setTrafficRate(XBeeSimulator.Traffic.MODEM_STATUS, 0);
+		cache.getParameter("NT");
+
+		// Perform verifications.
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	/**
+	 * Test method for {@link ParameterCache#readDeviceInfo()}.
+	 *
+	 * <p>Verify that the device information is read only once until the
+	 * cache is invalidated.</p>
+	 */
+	@Test
+	public void testReadDeviceInfo() throws Exception {
+		// Read the device information twice.
+		cache.readDeviceInfo();
+		long frames = simulator.getReceivedFrames();
+		cache.readDeviceInfo();
+
+		// Perform verifications.
+		assertEquals(frames, simulator.getReceivedFrames());
+		assertEquals("SIMULATOR", device.getNodeID());
+
+		// Invalidate the cache and read it again.
+		cache.invalidateAll();
+		cache.readDeviceInfo();
+
+		// Perform verifications.
+		assertTrue(simulator.getReceivedFrames() > frames);
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.RemoteATEngine;
+import com.digi.xbee.api.android.RemoteATListener;
+import com.digi.xbee.api.android.RemoteATOperation;
+import com.digi.xbee.api.android.RemoteATResult;
+import com.digi.xbee.api.android.RemoteNodeStatistics;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.exceptions.ATCommandException;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RemoteATEngineTest {
+
+	// Constants.
+	private final static int NODES = 20;
+	private final static int MAX_CONCURRENCY = 4;
+
+	// Variables.
+	private XBeeDevice device;
+	private List<RemoteXBeeDevice> remoteDevices;
+
+	@Before
+	public void setup() {
+		XBeeSimulator simulator = new XBeeSimulator();
+		simulator.setUARTLimited(false);
+		device = new XBeeDevice(simulator);
+		remoteDevices = new ArrayList<RemoteXBeeDevice>();
+		for (int i = 0; i < NODES; i++)
+			remoteDevices.add(new RemoteXBeeDevice(device, new XBee64BitAddress(String.format("0013A200400000%02X", i + 1))));
+	}
+
+	@After
+	public void tearDown() {
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link RemoteATEngine#execute(List, RemoteATOperation, RemoteATListener)}.
+	 *
+	 * <p>Verify that every node is processed once, the results are streamed
+	 * to the listener and the concurrency grows without exceeding the
+	 * maximum.</p>
+	 */
+	@Test
+	public void testExecute() throws Exception {
+		// Prepare the variables.
+		RemoteATEngine engine = new RemoteATEngine(MAX_CONCURRENCY, 0);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final List<RemoteATResult> streamed = new CopyOnWriteArrayList<RemoteATResult>();
+
+		// Execute an operation in all the nodes.
+		List<RemoteATResult> results = engine.execute(remoteDevices, new RemoteATOperation() {
+			@Override
+			public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException {
+				int current = inFlight.incrementAndGet();
+				synchronized (maxInFlight) {
+					maxInFlight.set(Math.max(maxInFlight.get(), current));
+				}
+				sleep(10);
+				inFlight.decrementAndGet();
+				return remoteDevice.get64BitAddress().getValue();
+			}
+		}, new RemoteATListener() {
+			@Override
+			public void resultReceived(RemoteATResult result) {
+				streamed.add(result);
+			}
+		});
+
+		// Perform verifications.
+		assertEquals(NODES, results.size());
+		assertEquals(NODES, streamed.size());
+		for (int i = 0; i < NODES; i++) {
+			RemoteATResult result = results.get(i);
+			assertSame(remoteDevices.get(i), result.getRemoteDevice());
+			assertTrue(result.isSuccessful());
+			assertEquals(1, result.getAttempts());
+			assertArrayEquals(remoteDevices.get(i).get64BitAddress().getValue(), result.getValue());
+		}
+		assertTrue(maxInFlight.get() <= MAX_CONCURRENCY);
+		assertEquals(MAX_CONCURRENCY, engine.getConcurrency());
+		RemoteNodeStatistics statistics = engine.getNodeStatistics(remoteDevices.get(0).get64BitAddress());
+		assertEquals(1, statistics.getAttempts());
+		assertEquals(1.0, statistics.getSuccessRate(), 0);
+		assertTrue(statistics.getAverageLatency() >= 10);
+		assertEquals(NODES, engine.getNodeStatistics().size());
+	}
+
+	/**
+	 * Test method for {@link RemoteATEngine#execute(List, RemoteATOperation, RemoteATListener)}.
+	 *
+	 * <p>Verify that concurrent executions share the maximum concurrency of
+	 * the engine.</p>
+	 */
+	@Test
+	public void testConcurrentExecutions() throws Exception {
+		// Prepare the variables.
+		final RemoteATEngine engine = new RemoteATEngine(MAX_CONCURRENCY, 0);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final RemoteATOperation operation = new RemoteATOperation() {
+			@Override
+			public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException {
+				int current = inFlight.incrementAndGet();
+				synchronized (maxInFlight) {
+					maxInFlight.set(Math.max(maxInFlight.get(), current));
+				}
+				sleep(10);
+				inFlight.decrementAndGet();
+				return null;
+			}
+		};
+
+		// Execute the operation from several threads at the same time.
+		List<Thread> threads = new ArrayList<Thread>();
+		final AtomicInteger processed = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						processed.addAndGet(engine.execute(remoteDevices, operation, null).size());
+					} catch (XBeeException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		// Perform verifications.
+		assertEquals(3 * NODES, processed.get());
+		assertTrue(maxInFlight.get() <= MAX_CONCURRENCY);
+		assertEquals(0, engine.getInFlight());
+	}
+
+	/**
+	 * Test method for {@link RemoteATEngine#execute(List, RemoteATOperation, RemoteATListener)}.
+	 *
+	 * <p>Verify that timeouts are retried and reduce the concurrency, while
+	 * other errors are not retried.</p>
+	 */
+	@Test
+	public void testRetries() throws Exception {
+		// Prepare the variables.
+		RemoteATEngine engine = new RemoteATEngine(MAX_CONCURRENCY, 2);
+		final Set<RemoteXBeeDevice> timedOut = ConcurrentHashMap.newKeySet();
+		final RemoteXBeeDevice rejecting = remoteDevices.get(0);
+
+		// Execute an operation that times out once in every node.
+		List<RemoteATResult> results = engine.execute(remoteDevices, new RemoteATOperation() {
+			@Override
+			public byte[] execute(RemoteXBeeDevice remoteDevice) throws XBeeException {
+				if (remoteDevice == rejecting)
+					throw new ATCommandException(ATCommandStatus.INVALID_COMMAND);
+				if (timedOut.add(remoteDevice))
+					throw new TimeoutException();
+				return null;
+			}
+		}, null);
+
+		// Perform verifications.
+		assertFalse(results.get(0).isSuccessful());
+		assertEquals(1, results.get(0).getAttempts());
+		for (int i = 1; i < NODES; i++) {
+			assertTrue(results.get(i).isSuccessful());
+			assertEquals(2, results.get(i).getAttempts());
+			assertEquals(0.5, engine.getNodeStatistics(remoteDevices.get(i).get64BitAddress()).getSuccessRate(), 0);
+		}
+	}
+
+	/**
+	 * Test method for {@link RemoteATEngine#getParameter(List, String, RemoteATListener)}.
+	 *
+	 * <p>Verify that transmission failures reported by the module are
+	 * retried and bring the concurrency down to one.</p>
+	 */
+	@Test
+	public void testTransmitFailures() throws Exception {
+		// Prepare the variables.
+		device.open();
+		RemoteATEngine engine = new RemoteATEngine(MAX_CONCURRENCY, 1);
+
+		// Read a parameter from nodes that never answer.
+		List<RemoteATResult> results = engine.getParameter(remoteDevices.subList(0, 4), "NI", null);
+
+		// Perform verifications.
+		for (RemoteATResult result : results) {
+			assertFalse(result.isSuccessful());
+			assertEquals(2, result.getAttempts());
+			assertEquals(ATCommandStatus.TX_FAILURE, ((ATCommandException) result.getError()).getCommandStatus());
+		}
+		assertEquals(1, engine.getConcurrency());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
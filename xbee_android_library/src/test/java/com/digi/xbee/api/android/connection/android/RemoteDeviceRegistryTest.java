@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.RemoteDeviceRegistry;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RemoteDeviceRegistryTest {
+
+	// Variables.
+	private XBeeDevice localDevice;
+
+	@Before
+	public void setup() {
+		localDevice = new XBeeDevice(new XBeeSimulator());
+	}
+
+	/**
+	 * Test method for {@link RemoteDeviceRegistry#put(RemoteXBeeDevice)}.
+	 *
+	 * <p>Verify that a device can be found by its 64-bit address, 16-bit
+	 * address and node identifier, and that the secondary indexes follow
+	 * the changes.</p>
+	 */
+	@Test
+	public void testLookups() {
+		// Prepare the variables.
+		RemoteDeviceRegistry registry = new RemoteDeviceRegistry();
+		RemoteXBeeDevice first = createDevice(1, "0001", "FIRST");
+		RemoteXBeeDevice second = createDevice(2, "FFFE", "SECOND");
+
+		// Register the devices.
+		assertNull(registry.put(first));
+		assertNull(registry.put(second));
+
+		// Perform verifications.
+		assertEquals(2, registry.size());
+		assertSame(first, registry.get(1L));
+		assertSame(first, registry.get(first.get64BitAddress()));
+		assertSame(first, registry.getBy16BitAddress(new XBee16BitAddress("0001")));
+		assertSame(second, registry.getByNodeID("SECOND"));
+		assertNull(registry.getBy16BitAddress(XBee16BitAddress.UNKNOWN_ADDRESS));
+
+		// The 16-bit address is reassigned and the node renamed.
+		RemoteXBeeDevice renamed = createDevice(2, "0001", "RENAMED");
+		assertSame(second, registry.put(renamed));
+		assertEquals(2, registry.size());
+		assertSame(renamed, registry.getBy16BitAddress(new XBee16BitAddress("0001")));
+		assertSame(renamed, registry.getByNodeID("RENAMED"));
+		assertNull(registry.getByNodeID("SECOND"));
+		assertSame(first, registry.getByNodeID("FIRST"));
+
+		// Remove a device.
+		assertSame(renamed, registry.remove(renamed.get64BitAddress()));
+		assertNull(registry.get(2L));
+		assertNull(registry.getBy16BitAddress(new XBee16BitAddress("0001")));
+		assertNull(registry.getByNodeID("RENAMED"));
+		assertEquals(1, registry.size());
+	}
+
+	/**
+	 * Test method for {@link RemoteDeviceRegistry#put(RemoteXBeeDevice)}.
+	 *
+	 * <p>Verify that a full registry evicts a device that has not been used
+	 * recently and notifies it.</p>
+	 */
+	@Test
+	public void testEviction() {
+		// Prepare the variables.
+		final List<RemoteXBeeDevice> evicted = new ArrayList<RemoteXBeeDevice>();
+		RemoteDeviceRegistry registry = new RemoteDeviceRegistry(3) {
+			@Override
+			protected void onEvicted(RemoteXBeeDevice device) {
+				evicted.add(device);
+			}
+		};
+		for (int i = 1; i <= 3; i++)
+			registry.put(createDevice(i, "000" + i, "NODE " + i));
+
+		// Use the first and third devices, the second one is evicted.
+		registry.get(1L);
+		registry.getByNodeID("NODE 3");
+		registry.put(createDevice(4, "0004", "NODE 4"));
+
+		// Perform verifications.
+		assertEquals(3, registry.size());
+		assertEquals(1, evicted.size());
+		assertEquals(2L, RemoteDeviceRegistry.toLong(evicted.get(0).get64BitAddress()));
+		assertNull(registry.get(2L));
+		assertNull(registry.getByNodeID("NODE 2"));
+		assertNotNull(registry.get(1L));
+		assertNotNull(registry.get(4L));
+		assertEquals(1, registry.getEvictionCount());
+
+		// Many more devices never exceed the capacity.
+		for (int i = 5; i < 10000; i++)
+			registry.put(createDevice(i, "0001", null));
+		assertEquals(3, registry.size());
+		assertEquals(3, registry.getDevices().size());
+		assertNotNull(registry.get(9999L));
+	}
+
+	/**
+	 * Test method for {@link RemoteDeviceRegistry#get(long)}.
+	 *
+	 * <p>Verify that readers can look up devices while a writer keeps
+	 * adding them.</p>
+	 */
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		// Prepare the variables.
+		final RemoteDeviceRegistry registry = new RemoteDeviceRegistry(256);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final List<RemoteXBeeDevice> devices = new ArrayList<RemoteXBeeDevice>();
+		for (int i = 0; i < 1024; i++)
+			devices.add(createDevice(i, "FFFE", "NODE " + i));
+
+		// Start the readers.
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread reader = new Thread() {
+				@Override
+				public void run() {
+					try {
+						long key = 0;
+						while (running.get()) {
+							RemoteXBeeDevice device = registry.get(key);
+							if (device != null && RemoteDeviceRegistry.toLong(device.get64BitAddress()) != key)
+								throw new AssertionError("Wrong device for " + key);
+							key = (key + 7) % 1024;
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			};
+			reader.start();
+			readers.add(reader);
+		}
+
+		// Add the devices from a single writer.
+		for (int round = 0; round < 20; round++) {
+			for (RemoteXBeeDevice device : devices)
+				registry.put(device);
+		}
+		running.set(false);
+		for (Thread reader : readers)
+			reader.join();
+
+		// Perform verifications.
+		assertNull(failure.get());
+		assertEquals(256, registry.size());
+	}
+
+	/**
+	 * Creates a remote device with the given values.
+	 */
+	private RemoteXBeeDevice createDevice(long address64, String address16, String nodeID) {
+		return new RemoteXBeeDevice(localDevice, new XBee64BitAddress(String.format("%016X", address64)),
+				new XBee16BitAddress(address16), nodeID);
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.connection.FrameSplitter;
+import com.digi.xbee.api.android.connection.replay.ReplayConnectionInterface;
+import com.digi.xbee.api.models.ATCommandStatus;
+import com.digi.xbee.api.models.OperatingMode;
+import com.digi.xbee.api.packet.XBeePacket;
+import com.digi.xbee.api.packet.common.ATCommandPacket;
+import com.digi.xbee.api.packet.common.ATCommandResponsePacket;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayConnectionInterfaceTest {
+
+	// Constants.
+	private final static byte[] AP_VALUE = new byte[] {0x01};
+
+	private final static int RECEIVE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Test method for {@link ReplayConnectionInterface#startReplay()}.
+	 *
+	 * <p>Verify that the whole byte stream is delivered when replaying as fast
+	 * as possible.</p>
+	 */
+	@Test
+	public void testReplayAsFastAsPossible() throws Exception {
+		// Prepare the variables.
+		byte[] frame = new ATCommandResponsePacket(1, ATCommandStatus.OK, "AP", AP_VALUE).generateByteArray();
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		for (int i = 0; i < 100; i++)
+			stream.write(frame);
+		byte[] data = stream.toByteArray();
+		ReplayConnectionInterface replay = new ReplayConnectionInterface(data, 7);
+		replay.setSpeed(ReplayConnectionInterface.AS_FAST_AS_POSSIBLE);
+		replay.setLoops(2);
+
+		// Replay and read the data.
+		replay.open();
+		replay.startReplay();
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		InputStream input = replay.getInputStream();
+		byte[] buffer = new byte[64];
+		while (received.size() < data.length * 2) {
+			int read = input.read(buffer, 0, buffer.length);
+			assertTrue("Replay stalled", read > 0);
+			received.write(buffer, 0, read);
+		}
+
+		// Perform verifications.
+		assertTrue(replay.waitForReplay(1000));
+		assertEquals(data.length * 2, replay.getReplayedBytes());
+		assertEquals(data.length * 2, replay.getTransportStatistics().getBytesReceived());
+		byte[] receivedData = received.toByteArray();
+		for (int i = 0; i < receivedData.length; i++)
+			assertEquals(data[i % data.length], receivedData[i]);
+
+		replay.close();
+	}
+
+	/**
+	 * Test method for {@link ReplayConnectionInterface#writeData(byte[])}.
+	 *
+	 * <p>Verify that the written data is recorded and local AT commands are
+	 * answered with the recorded response.</p>
+	 */
+	@Test
+	public void testATCommandAnswered() throws Exception {
+		// Prepare the variables.
+		byte[] data = new ATCommandResponsePacket(1, ATCommandStatus.OK, "AP", AP_VALUE).generateByteArray();
+		ReplayConnectionInterface replay = new ReplayConnectionInterface(data, data.length);
+		byte[] request = new ATCommandPacket(5, "AP", (byte[])null).generateByteArray();
+
+		// Write the AT command.
+		replay.open();
+		replay.writeData(request);
+
+		// Perform verifications.
+		List<byte[]> writes = replay.getWrites();
+		assertEquals(1, writes.size());
+		assertArrayEquals(request, writes.get(0));
+
+		byte[] buffer = new byte[64];
+		int read = replay.readData(buffer);
+		assertTrue(read > 0);
+		byte[] responseData = new byte[read];
+		System.arraycopy(buffer, 0, responseData, 0, read);
+		ATCommandResponsePacket response = (ATCommandResponsePacket) XBeePacket.parsePacket(
+				responseData, OperatingMode.API);
+		assertEquals(5, response.getFrameID());
+		assertEquals("AP", response.getCommand());
+		assertArrayEquals(AP_VALUE, response.getCommandValue());
+
+		replay.close();
+	}
+
+	/**
+	 * Test method for {@link ReplayConnectionInterface#setSpeed(double)}.
+	 *
+	 * <p>Verify that a {@code IllegalArgumentException} is thrown if the speed
+	 * is not positive.</p>
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetSpeedNotPositive() throws IOException {
+		new ReplayConnectionInterface(new byte[1], 1).setSpeed(0);
+	}
+
+	/**
+	 * Test method for {@link ReplayConnectionInterface#writeData(byte[])}.
+	 *
+	 * <p>Verify that a response to an AT command written while the replay
+	 * waits for space in the middle of a frame is delivered after that
+	 * frame.</p>
+	 */
+	@Test(timeout = 10000)
+	public void testATCommandAnsweredMidFrame() throws Exception {
+		// Prepare the variables.
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		stream.write(new ATCommandResponsePacket(1, ATCommandStatus.OK, "AP", AP_VALUE).generateByteArray());
+		byte[] frame = new ATCommandResponsePacket(1, ATCommandStatus.OK, "NI", new byte[18]).generateByteArray();
+		for (int i = 0; i < 3000; i++)
+			stream.write(frame);
+		byte[] data = stream.toByteArray();
+		ReplayConnectionInterface replay = new ReplayConnectionInterface(data, data.length);
+		replay.setSpeed(ReplayConnectionInterface.AS_FAST_AS_POSSIBLE);
+		byte[] request = new ATCommandPacket(5, "AP", (byte[])null).generateByteArray();
+
+		// Fill the receive buffer and write the AT command.
+		replay.open();
+		replay.startReplay();
+		InputStream input = replay.getInputStream();
+		while (input.available() < RECEIVE_BUFFER_SIZE)
+			Thread.sleep(10);
+		replay.writeData(request);
+
+		// Read and split the data.
+		FrameSplitter splitter = new FrameSplitter(false);
+		int frames = 0;
+		int responses = 0;
+		byte[] buffer = new byte[1024];
+		while (frames < 3002) {
+			int read = input.read(buffer, 0, buffer.length);
+			if (read < 0)
+				continue;
+			for (byte[] received : splitter.feed(buffer, 0, read)) {
+				ATCommandResponsePacket packet = (ATCommandResponsePacket) XBeePacket.parsePacket(
+						received, OperatingMode.API);
+				if (packet.getFrameID() == 5)
+					responses++;
+				frames++;
+			}
+		}
+
+		// Perform verifications.
+		assertEquals(1, responses);
+		assertTrue(splitter.isAtBoundary());
+
+		replay.close();
+	}
+
+	/**
+	 * Test method for {@link ReplayConnectionInterface#setMaxRecordedWrites(int)}.
+	 *
+	 * <p>Verify that only the most recent writes are recorded.</p>
+	 */
+	@Test
+	public void testMaxRecordedWrites() throws Exception {
+		// Prepare the variables.
+		ReplayConnectionInterface replay = new ReplayConnectionInterface(new byte[1], 1);
+		replay.setMaxRecordedWrites(2);
+
+		// Write the data.
+		replay.open();
+		for (int i = 0; i < 3; i++)
+			replay.writeData(new byte[] {(byte)i});
+
+		// Perform verifications.
+		List<byte[]> writes = replay.getWrites();
+		assertEquals(2, writes.size());
+		assertEquals(1, writes.get(0)[0]);
+		assertEquals(2, writes.get(1)[0]);
+
+		replay.setMaxRecordedWrites(0);
+		replay.writeData(new byte[] {3});
+		assertTrue(replay.getWrites().isEmpty());
+
+		replay.close();
+	}
+}
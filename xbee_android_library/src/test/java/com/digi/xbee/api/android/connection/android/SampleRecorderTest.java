@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.RecordedSample;
+import com.digi.xbee.api.android.RecorderStatistics;
+import com.digi.xbee.api.android.SampleRecorder;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.io.IOLine;
+import com.digi.xbee.api.io.IOSample;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeMessage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleRecorderTest {
+
+	// Constants.
+	private final static String NAME = "test";
+
+	private final static XBee64BitAddress FIRST = new XBee64BitAddress("0013A20040000001");
+	private final static XBee64BitAddress SECOND = new XBee64BitAddress("0013A20040000002");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for {@link SampleRecorder#query(long, long, XBee64BitAddress)}.
+	 *
+	 * <p>Verify that the recorded IO values and data payloads are read back
+	 * filtered by time and node.</p>
+	 */
+	@Test
+	public void testRecordAndQuery() throws IOException {
+		// Prepare the variables.
+		SampleRecorder recorder = new SampleRecorder(folder.getRoot(), NAME);
+		XBeeDevice localDevice = new XBeeDevice(new XBeeSimulator());
+		RemoteXBeeDevice remote = new RemoteXBeeDevice(localDevice, SECOND);
+
+		// Record the samples and frames.
+		for (int i = 0; i < 10; i++)
+			assertTrue(recorder.record(FIRST, 1000 + i * 100, createSample(i % 2 == 0, i)));
+		recorder.dataReceived(new XBeeMessage(remote, new byte[] {0x01, 0x02, 0x03}));
+		recorder.flush();
+
+		// Perform verifications.
+		List<RecordedSample> all = recorder.query(0, Long.MAX_VALUE, null);
+		assertEquals(21, all.size());
+		RecordedSample value = all.get(0);
+		assertEquals(RecordedSample.Type.IO_VALUE, value.getType());
+		assertEquals(1000, value.getTimestamp());
+		assertEquals(FIRST, value.get64BitAddress());
+		assertEquals(IOLine.DIO1_AD1, value.getIOLine());
+		assertEquals(0, value.getValue());
+		assertEquals(IOLine.DIO4_AD4, all.get(1).getIOLine());
+		assertEquals(1, all.get(1).getValue());
+
+		List<RecordedSample> range = recorder.query(1200, 1400, FIRST);
+		assertEquals(4, range.size());
+		assertEquals(1200, range.get(0).getTimestamp());
+		assertEquals(2, range.get(0).getValue());
+		assertEquals(1300, range.get(3).getTimestamp());
+
+		List<RecordedSample> data = recorder.query(0, Long.MAX_VALUE, SECOND);
+		assertEquals(1, data.size());
+		assertEquals(RecordedSample.Type.DATA, data.get(0).getType());
+		assertArrayEquals(new byte[] {0x01, 0x02, 0x03}, data.get(0).getData());
+
+		RecorderStatistics statistics = recorder.getStatistics();
+		assertEquals(21, statistics.getRecordedRows());
+		assertEquals(1, statistics.getWrittenBlocks());
+		assertEquals(0, statistics.getQueuedEvents());
+		assertEquals(0, statistics.getPendingRows());
+		assertEquals(1, statistics.getFlushLatency().getCount());
+		recorder.close();
+	}
+
+	/**
+	 * Test method for {@link SampleRecorder#flushAsync()}.
+	 *
+	 * <p>Verify that the queued rows are written without waiting for the
+	 * flush interval.</p>
+	 */
+	@Test(timeout = 5000)
+	public void testFlushAsync() throws Exception {
+		// Prepare the variables.
+		SampleRecorder recorder = new SampleRecorder(folder.getRoot(), NAME);
+		recorder.setFlushInterval(60000);
+
+		// Record a sample and ask for a flush.
+		assertTrue(recorder.record(FIRST, 1000, createSample(true, 1)));
+		recorder.flushAsync();
+
+		// Perform verifications.
+		while (recorder.getStatistics().getWrittenBlocks() == 0)
+			Thread.sleep(10);
+		assertEquals(2, recorder.query(0, Long.MAX_VALUE, FIRST).size());
+		recorder.close();
+	}
+
+	/**
+	 * Test method for {@link SampleRecorder#SampleRecorder(File, String)}.
+	 *
+	 * <p>Verify that the segments of a previous recording are queried and
+	 * that new rows are written to a new segment.</p>
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		// Prepare the variables.
+		SampleRecorder recorder = new SampleRecorder(folder.getRoot(), NAME);
+		recorder.record(FIRST, 1000, new byte[] {0x01});
+		recorder.close();
+
+		// Record more rows after reopening the recording.
+		SampleRecorder reopened = new SampleRecorder(folder.getRoot(), NAME);
+		reopened.record(FIRST, 2000, new byte[] {0x02});
+		reopened.close();
+
+		// Perform verifications.
+		List<File> segments = reopened.getSegmentFiles();
+		assertEquals(2, segments.size());
+		assertTrue(segments.get(0).getName().compareTo(segments.get(1).getName()) < 0);
+		List<RecordedSample> rows = reopened.query(0, Long.MAX_VALUE, FIRST);
+		assertEquals(2, rows.size());
+		assertEquals(1000, rows.get(0).getTimestamp());
+		assertEquals(2000, rows.get(1).getTimestamp());
+	}
+
+	/**
+	 * Test method for {@link SampleRecorder#flush()}.
+	 *
+	 * <p>Verify that the oldest segments are deleted when the recording
+	 * exceeds the maximum size and that their rows are no longer
+	 * returned.</p>
+	 */
+	@Test
+	public void testMaxSize() throws IOException {
+		// Prepare the variables.
+		SampleRecorder recorder = new SampleRecorder(folder.getRoot(), NAME, 512, 2048, 16);
+		byte[] payload = new byte[400];
+		for (int i = 0; i < payload.length; i++)
+			payload[i] = (byte)(i * 31 + 7);
+
+		// Write a block per flush.
+		for (int i = 0; i < 20; i++) {
+			payload[0] = (byte)i;
+			assertTrue(recorder.record(FIRST, i, payload.clone()));
+			recorder.flush();
+		}
+		recorder.close();
+
+		// Perform verifications.
+		long size = 0;
+		for (File file : recorder.getSegmentFiles())
+			size += file.length();
+		assertTrue(size <= 2048 + 512);
+		assertEquals(recorder.getSegmentFiles().size(), folder.getRoot().listFiles().length);
+		List<RecordedSample> rows = recorder.query(0, Long.MAX_VALUE, null);
+		assertTrue(rows.size() < 20);
+		assertEquals(19, rows.get(rows.size() - 1).getTimestamp());
+		assertEquals(19, rows.get(rows.size() - 1).getData()[0]);
+		assertEquals(20, recorder.getStatistics().getWrittenBlocks());
+		assertEquals(0, recorder.getStatistics().getWriteErrors());
+	}
+
+	/**
+	 * Creates an IO sample with DIO4 as digital line and AD1 as analog line.
+	 *
+	 * @param high Whether DIO4 is high.
+	 * @param analogValue The value of AD1.
+	 *
+	 * @return The IO sample.
+	 */
+	private IOSample createSample(boolean high, int analogValue) {
+		return new IOSample(new byte[] {
+				0x01,                                             // Number of samples.
+				0x00, 0x10,                                       // Digital mask: DIO4.
+				0x02,                                             // Analog mask: AD1.
+				0x00, (byte)(high ? 0x10 : 0x00),                 // Digital values.
+				(byte)(analogValue >> 8), (byte)analogValue});    // AD1 value.
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import android.content.Context;
+
+import com.digi.android.serial.EventType;
+import com.digi.android.serial.SerialPort;
+import com.digi.android.serial.SerialPortEvent;
+import com.digi.android.serial.SerialPortManager;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.serial.SerialPortDigiAndroid;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SerialPortDigiAndroid.class})
+public class SerialPortDigiAndroidDrainTest {
+
+	// Constants.
+	private static final String PORT = "/dev/ttymxc4";
+
+	// Size of the receive buffer of the serial port.
+	private static final int RECEIVE_BUFFER_SIZE = 8192;
+
+	// Variables.
+	private SerialPort serialPort;
+	private SerialPortEvent dataAvailable;
+
+	private SerialPortDigiAndroid port;
+
+	@Before
+	public void setup() throws Exception {
+		serialPort = Mockito.mock(SerialPort.class);
+		SerialPortManager manager = Mockito.mock(SerialPortManager.class);
+		Mockito.when(manager.openSerialPort(PORT)).thenReturn(serialPort);
+		PowerMockito.whenNew(SerialPortManager.class).withAnyArguments().thenReturn(manager);
+
+		dataAvailable = Mockito.mock(SerialPortEvent.class);
+		Mockito.when(dataAvailable.getEventType()).thenReturn(EventType.DATA_AVAILABLE);
+
+		port = new SerialPortDigiAndroid(Mockito.mock(Context.class), PORT, 9600);
+	}
+
+	@After
+	public void tearDown() {
+		port.close();
+	}
+
+	/**
+	 * Test method for {@link SerialPortDigiAndroid#serialEvent(SerialPortEvent)}.
+	 *
+	 * <p>Verify that a data available event drains all the bytes of the port,
+	 * in several chunks, and that they are read in order.</p>
+	 */
+	@Test
+	public void testDrain() throws Exception {
+		// Prepare the variables.
+		byte[] data = createData(3000);
+		open(data);
+
+		// Notify the received data.
+		port.serialEvent(dataAvailable);
+
+		// Perform verifications.
+		assertArrayEquals(data, readAll(port.getInputStream(), data.length));
+		TransportStatistics statistics = port.getTransportStatistics();
+		assertEquals(data.length, statistics.getBytesReceived());
+		assertEquals(0, statistics.getDroppedBytes());
+	}
+
+	/**
+	 * Test method for {@link SerialPortDigiAndroid#serialEvent(SerialPortEvent)}.
+	 *
+	 * <p>Verify that when the receive buffer overflows the oldest bytes are
+	 * discarded and counted as dropped.</p>
+	 */
+	@Test
+	public void testDrainOverflow() throws Exception {
+		// Prepare the variables.
+		byte[] data = createData(RECEIVE_BUFFER_SIZE + 1808);
+		open(data);
+
+		// Notify the received data.
+		port.serialEvent(dataAvailable);
+
+		// Perform verifications.
+		assertEquals(RECEIVE_BUFFER_SIZE, port.getInputStream().available());
+		assertArrayEquals(Arrays.copyOfRange(data, data.length - RECEIVE_BUFFER_SIZE, data.length),
+				readAll(port.getInputStream(), RECEIVE_BUFFER_SIZE));
+		TransportStatistics statistics = port.getTransportStatistics();
+		assertEquals(data.length, statistics.getBytesReceived());
+		assertEquals(data.length - RECEIVE_BUFFER_SIZE, statistics.getDroppedBytes());
+	}
+
+	/**
+	 * Opens the port with a serial port that returns the given data.
+	 */
+	private void open(byte[] data) throws Exception {
+		Mockito.when(serialPort.getInputStream()).thenReturn(new ByteArrayInputStream(data));
+		Mockito.when(serialPort.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+		port.open();
+	}
+
+	/**
+	 * Returns data that does not repeat within the receive buffer size.
+	 */
+	private static byte[] createData(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+			data[i] = (byte) (i % 251);
+		return data;
+	}
+
+	/**
+	 * Reads the given number of bytes from the given stream.
+	 */
+	private static byte[] readAll(InputStream stream, int length) throws Exception {
+		byte[] data = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			int readBytes = stream.read(data, offset, length - offset);
+			if (readBytes < 0)
+				break;
+			offset += readBytes;
+		}
+		assertEquals(length, offset);
+		return data;
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.NetworkDiscovery;
+import com.digi.xbee.api.android.TopologyCache;
+import com.digi.xbee.api.android.TopologyListener;
+import com.digi.xbee.api.android.TopologyNode;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.listeners.IDiscoveryListener;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TopologyCacheTest {
+
+	// Constants.
+	private static final String VARIABLE_DISCOVERY_LISTENER = "discoveryListener";
+
+	private static final XBee64BitAddress ADDRESS_A = new XBee64BitAddress("0013A20040A1B2C3");
+	private static final XBee64BitAddress ADDRESS_B = new XBee64BitAddress("0013A20040D4E5F6");
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private XBeeDevice device;
+	private File file;
+	private TopologyCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		simulator = new XBeeSimulator();
+		simulator.setUARTLimited(false);
+		device = new XBeeDevice(simulator);
+		device.open();
+		file = File.createTempFile("topology", ".bin");
+		assertTrue(file.delete());
+		cache = new TopologyCache(device, file);
+	}
+
+	@After
+	public void tearDown() {
+		cache.close();
+		device.close();
+		file.delete();
+	}
+
+	/**
+	 * Test method for {@link TopologyCache#save()} and
+	 * {@link TopologyCache#load()}.
+	 *
+	 * <p>Verify that the stored nodes are restored and preloaded into the
+	 * network of the device.</p>
+	 */
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		// Prepare the variables.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		discover(cache, ADDRESS_B, "5678", null);
+		cache.setSignalStrength(ADDRESS_A, -62);
+		cache.setRole(ADDRESS_B, TopologyNode.Role.END_DEVICE);
+		cache.save();
+		cache.close();
+		device.getNetwork().clearDeviceList();
+
+		// Load the file in a new cache.
+		cache = new TopologyCache(device, file);
+		assertEquals(2, cache.load());
+
+		// Perform verifications.
+		List<TopologyNode> nodes = cache.getNodes();
+		assertEquals(2, nodes.size());
+		assertEquals(ADDRESS_A, nodes.get(0).get64BitAddress());
+		assertEquals(new XBee16BitAddress("1234"), nodes.get(0).get16BitAddress());
+		assertEquals("NODE A", nodes.get(0).getNodeID());
+		assertEquals(-62, nodes.get(0).getSignalStrength());
+		assertNull(nodes.get(1).getNodeID());
+		assertEquals(TopologyNode.Role.END_DEVICE, nodes.get(1).getRole());
+		assertEquals(TopologyNode.UNKNOWN_SIGNAL_STRENGTH, nodes.get(1).getSignalStrength());
+		assertNotNull(device.getNetwork().getDevice(ADDRESS_A));
+		assertNotNull(device.getNetwork().getDevice(ADDRESS_B));
+	}
+
+	/**
+	 * Test method for {@link TopologyCache#load()}.
+	 *
+	 * <p>Verify that a missing file loads no nodes, that expired nodes are
+	 * discarded and that an invalid file is reported.</p>
+	 */
+	@Test
+	public void testLoadExpiredAndInvalid() throws Exception {
+		// A missing file is an empty cache.
+		assertEquals(0, cache.load());
+
+		// Prepare the variables.
+		discover(cache, ADDRESS_A, "1234", "OLD");
+		Thread.sleep(300);
+		discover(cache, ADDRESS_B, "5678", "NEW");
+		cache.save();
+		cache.close();
+
+		// Load the file with a shorter maximum age.
+		cache = new TopologyCache(device, file);
+		cache.setMaxAge(200);
+		assertEquals(1, cache.load());
+		assertNull(cache.getNode(ADDRESS_A));
+		assertNotNull(cache.getNode(ADDRESS_B));
+
+		// Corrupt the file.
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		out.close();
+		try {
+			cache.load();
+			fail("An invalid file should not be loaded.");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test method for {@link TopologyCache#addTopologyListener(TopologyListener)}.
+	 *
+	 * <p>Verify that a new listener receives the cached nodes immediately
+	 * and then only the differences.</p>
+	 */
+	@Test
+	public void testListenerDiffs() throws Exception {
+		// Prepare the variables.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		RecordingListener listener = new RecordingListener();
+
+		// Register the listener.
+		cache.addTopologyListener(listener);
+		assertEquals("loaded:1", listener.events.get(0));
+
+		// Same values, only the last seen time changes.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		assertEquals(1, listener.events.size());
+
+		// Changed node identifier and new node.
+		discover(cache, ADDRESS_A, "1234", "RENAMED");
+		discover(cache, ADDRESS_B, "5678", "NODE B");
+		complete(cache, true);
+
+		// Perform verifications.
+		assertEquals(3, listener.events.size());
+		assertEquals("updated:RENAMED", listener.events.get(1));
+		assertEquals("added:NODE B", listener.events.get(2));
+	}
+
+	/**
+	 * Test method for {@link TopologyCache#setMaxMissedDiscoveries(int)}.
+	 *
+	 * <p>Verify that nodes not found during consecutive successful
+	 * discoveries are removed from the cache and the network, and that
+	 * failed discoveries do not age them out.</p>
+	 */
+	@Test
+	public void testAgeOut() throws Exception {
+		// Prepare the variables.
+		cache.setMaxMissedDiscoveries(2);
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		discover(cache, ADDRESS_B, "5678", "NODE B");
+		complete(cache, true);
+		RecordingListener listener = new RecordingListener();
+		cache.addTopologyListener(listener);
+
+		// First miss.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		complete(cache, true);
+		assertEquals(1, cache.getNode(ADDRESS_B).getMissedDiscoveries());
+
+		// A failed discovery does not count.
+		complete(cache, false);
+		assertEquals(1, cache.getNode(ADDRESS_B).getMissedDiscoveries());
+
+		// Second miss.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		complete(cache, true);
+
+		// Perform verifications.
+		assertNull(cache.getNode(ADDRESS_B));
+		assertNotNull(cache.getNode(ADDRESS_A));
+		assertEquals(0, cache.getNode(ADDRESS_A).getMissedDiscoveries());
+		assertNull(device.getNetwork().getDevice(ADDRESS_B));
+		assertEquals("removed:NODE B", listener.events.get(listener.events.size() - 1));
+	}
+
+	/**
+	 * Test method for {@link TopologyCache#setMaxMissedDiscoveries(int)}.
+	 *
+	 * <p>Verify that discoveries stopped early by a {@link NetworkDiscovery}
+	 * do not age out the nodes that answer late.</p>
+	 */
+	@Test
+	public void testEarlyStoppedDiscoveries() throws Exception {
+		// Use a paced simulator, xbee-java can miss an instant answer to
+		// the discovery request.
+		cache.close();
+		device.close();
+		simulator = new XBeeSimulator();
+		simulator.addDiscoverableNode(ADDRESS_A, new XBee16BitAddress("1234"), "NODE A", 100);
+		simulator.addDiscoverableNode(ADDRESS_B, new XBee16BitAddress("5678"), "NODE B", 5000);
+		device = new XBeeDevice(simulator);
+		device.open();
+		cache = new TopologyCache(device, file);
+
+		// Prepare the variables.
+		discover(cache, ADDRESS_A, "1234", "NODE A");
+		discover(cache, ADDRESS_B, "5678", "NODE B");
+		complete(cache, true);
+		NetworkDiscovery discovery = new NetworkDiscovery(device);
+		discovery.setQuietWindow(500);
+
+		// Discover the network three times, the late node never answers.
+		for (int i = 0; i < TopologyCache.DEFAULT_MAX_MISSED_DISCOVERIES; i++)
+			assertEquals(1, discovery.discover().get(5, TimeUnit.SECONDS).size());
+
+		// Perform verifications.
+		assertNotNull(cache.getNode(ADDRESS_B));
+		assertEquals(0, cache.getNode(ADDRESS_B).getMissedDiscoveries());
+		assertNotNull(device.getNetwork().getDevice(ADDRESS_B));
+	}
+
+	/**
+	 * Simulates the discovery of a remote node, adding it to the network
+	 * like the discovery process does.
+	 */
+	private void discover(TopologyCache cache, XBee64BitAddress address, String address16, String nodeID) {
+		RemoteXBeeDevice remoteDevice = device.getNetwork().addRemoteDevice(
+				new RemoteXBeeDevice(device, address, new XBee16BitAddress(address16), nodeID));
+		((IDiscoveryListener)Whitebox.getInternalState(cache, VARIABLE_DISCOVERY_LISTENER)).deviceDiscovered(remoteDevice);
+	}
+
+	/**
+	 * Simulates the end of a discovery process.
+	 */
+	private void complete(TopologyCache cache, boolean successful) {
+		((IDiscoveryListener)Whitebox.getInternalState(cache, VARIABLE_DISCOVERY_LISTENER)).discoveryFinished(
+				successful ? null : "Error");
+	}
+
+	/**
+	 * Topology listener that records the received events.
+	 */
+	private static class RecordingListener implements TopologyListener {
+
+		private final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void topologyLoaded(List<TopologyNode> nodes) {
+			events.add("loaded:" + nodes.size());
+		}
+
+		@Override
+		public void nodeAdded(TopologyNode node) {
+			events.add("added:" + node.getNodeID());
+		}
+
+		@Override
+		public void nodeUpdated(TopologyNode node) {
+			events.add("updated:" + node.getNodeID());
+		}
+
+		@Override
+		public void nodeRemoved(TopologyNode node) {
+			events.add("removed:" + node.getNodeID());
+		}
+	}
+}
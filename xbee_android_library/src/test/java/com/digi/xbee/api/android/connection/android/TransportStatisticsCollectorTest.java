@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.connection.LatencyHistogram;
+import com.digi.xbee.api.android.connection.TransportStatistics;
+import com.digi.xbee.api.android.connection.TransportStatisticsCollector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransportStatisticsCollectorTest {
+
+	// Constants.
+	private final static byte[] FRAME = new byte[] {0x7E, 0x00, 0x04, 0x08, 0x01, 0x4E, 0x49, 0x5F};
+	// Frame with the delimiter value in the payload.
+	private final static byte[] FRAME_DELIMITER_PAYLOAD = new byte[] {0x7E, 0x00, 0x03, 0x08, 0x7E, 0x41, 0x38};
+	private final static byte[] FRAME_DELIMITER_PAYLOAD_ESCAPED = new byte[] {0x7E, 0x00, 0x03, 0x08, 0x7D, 0x5E,
+			0x41, 0x38};
+
+	/**
+	 * Test method for {@link TransportStatisticsCollector#addReceived(byte[], int, int)} and
+	 * {@link TransportStatisticsCollector#addSent(byte[], int, int)}.
+	 *
+	 * <p>Verify that bytes and frames are counted in both directions.</p>
+	 */
+	@Test
+	public void testCountBytesAndFrames() {
+		// Prepare the variables.
+		TransportStatisticsCollector collector = new TransportStatisticsCollector();
+
+		// Count the data.
+		collector.addReceived(FRAME, 0, FRAME.length);
+		collector.addReceived(FRAME, 0, FRAME.length);
+		collector.addSent(FRAME, 1, FRAME.length - 1);
+
+		// Perform verifications.
+		TransportStatistics statistics = collector.snapshot(0, 4, 16);
+		assertEquals(FRAME.length * 2, statistics.getBytesReceived());
+		assertEquals(2, statistics.getFramesReceived());
+		assertEquals(FRAME.length - 1, statistics.getBytesSent());
+		assertEquals(0, statistics.getFramesSent());
+		assertEquals(0.25f, statistics.getReceiveBufferFillLevel(), 0);
+	}
+
+	/**
+	 * Test method for {@link TransportStatisticsCollector#addReceived(byte[], int, int)}.
+	 *
+	 * <p>Verify that payload bytes with the delimiter value and frames split
+	 * in several chunks are counted as one frame.</p>
+	 */
+	@Test
+	public void testCountFramesByLength() {
+		// Prepare the variables.
+		TransportStatisticsCollector collector = new TransportStatisticsCollector();
+
+		// Count the data.
+		collector.addReceived(FRAME_DELIMITER_PAYLOAD, 0, FRAME_DELIMITER_PAYLOAD.length);
+		collector.addReceived(FRAME, 0, 3);
+		assertEquals(1, collector.snapshot(0, 0, 1).getFramesReceived());
+		collector.addReceived(FRAME, 3, FRAME.length - 3);
+
+		// Perform verifications.
+		TransportStatistics statistics = collector.snapshot(0, 0, 1);
+		assertEquals(2, statistics.getFramesReceived());
+		assertEquals(0, statistics.getResyncs());
+	}
+
+	/**
+	 * Test method for {@link TransportStatisticsCollector#setEscaped(boolean)}.
+	 *
+	 * <p>Verify that escaped frames are counted and that a frame cut by the
+	 * next delimiter counts as a resynchronization.</p>
+	 */
+	@Test
+	public void testCountEscapedFrames() {
+		// Prepare the variables.
+		TransportStatisticsCollector collector = new TransportStatisticsCollector();
+		collector.setEscaped(true);
+
+		// Count the data.
+		collector.addReceived(FRAME_DELIMITER_PAYLOAD_ESCAPED, 0, FRAME_DELIMITER_PAYLOAD_ESCAPED.length);
+		collector.addReceived(FRAME, 0, 4);
+		collector.addReceived(FRAME, 0, FRAME.length);
+		collector.addSent(FRAME_DELIMITER_PAYLOAD_ESCAPED, 0, FRAME_DELIMITER_PAYLOAD_ESCAPED.length);
+
+		// Perform verifications.
+		TransportStatistics statistics = collector.snapshot(0, 0, 1);
+		assertEquals(2, statistics.getFramesReceived());
+		assertEquals(1, statistics.getResyncs());
+		assertEquals(1, statistics.getFramesSent());
+	}
+
+	/**
+	 * Test method for {@link TransportStatisticsCollector#addReceived(byte[], int, int)}
+	 * and {@link TransportStatisticsCollector#addDropped(int)}.
+	 *
+	 * <p>Verify that bytes outside frames count as one resynchronization
+	 * and that dropped bytes do not.</p>
+	 */
+	@Test
+	public void testResyncs() {
+		// Prepare the variables.
+		TransportStatisticsCollector collector = new TransportStatisticsCollector();
+		byte[] garbage = new byte[] {0x11, 0x22, 0x33};
+
+		// Count the data.
+		collector.addReceived(garbage, 0, garbage.length);
+		collector.addReceived(garbage, 0, garbage.length);
+		collector.addReceived(FRAME, 0, FRAME.length);
+		collector.addDropped(8);
+
+		// Perform verifications.
+		TransportStatistics statistics = collector.snapshot(0, 0, 1);
+		assertEquals(1, statistics.getFramesReceived());
+		assertEquals(1, statistics.getResyncs());
+		assertEquals(8, statistics.getDroppedBytes());
+	}
+
+	/**
+	 * Test method for {@link TransportStatisticsCollector#snapshot(int, int, int)}.
+	 *
+	 * <p>Verify that a snapshot does not change when the collector does.</p>
+	 */
+	@Test
+	public void testSnapshotIsImmutable() {
+		// Prepare the variables.
+		TransportStatisticsCollector collector = new TransportStatisticsCollector();
+		collector.addDropped(10);
+		long queuedTime = collector.writeQueued();
+
+		// Take the snapshot and keep collecting.
+		TransportStatistics statistics = collector.snapshot(0, 0, 16);
+		collector.writeDone(queuedTime);
+		collector.addDropped(5);
+		collector.addTransferError();
+
+		// Perform verifications.
+		assertEquals(10, statistics.getDroppedBytes());
+		assertEquals(0, statistics.getResyncs());
+		assertEquals(0, statistics.getTransferErrors());
+		assertEquals(1, statistics.getWriteQueueDepth());
+		assertEquals(0, statistics.getWriteLatency().getCount());
+
+		statistics = collector.snapshot(0, 0, 16);
+		assertEquals(15, statistics.getDroppedBytes());
+		assertEquals(0, statistics.getResyncs());
+		assertEquals(1, statistics.getTransferErrors());
+		assertEquals(0, statistics.getWriteQueueDepth());
+		assertEquals(1, statistics.getWriteLatency().getCount());
+	}
+
+	/**
+	 * Test method for {@link LatencyHistogram#getPercentile(double)}.
+	 *
+	 * <p>Verify that latencies are placed in the right buckets.</p>
+	 */
+	@Test
+	public void testHistogramPercentiles() {
+		// Prepare the variables.
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++)
+			histogram.record(3000);
+		histogram.record(1000000);
+
+		// Perform verifications.
+		assertEquals(100, histogram.getCount());
+		assertEquals(99, histogram.getBucketCount(2));
+		assertEquals(4, histogram.getPercentile(50));
+		assertEquals(4, histogram.getPercentile(99));
+		assertEquals(1024, histogram.getPercentile(100));
+		assertEquals(1000000, histogram.getMaxTime());
+	}
+}
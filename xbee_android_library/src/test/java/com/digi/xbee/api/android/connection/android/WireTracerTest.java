@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES 
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR 
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES 
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN 
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF 
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.connection.WireTraceRecord;
+import com.digi.xbee.api.android.connection.WireTracer;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WireTracerTest {
+
+	// Constants.
+	private final static int SLOTS = 4;
+	private final static int SLOT_SIZE = 8;
+
+	/**
+	 * Test method for {@link WireTracer#record(WireTracer.Direction, byte[], int, int)}.
+	 *
+	 * <p>Verify that the recorded chunks are returned in order with their
+	 * direction and data.</p>
+	 */
+	@Test
+	public void testRecord() {
+		// Prepare the variables.
+		WireTracer tracer = new WireTracer(SLOTS, SLOT_SIZE);
+		byte[] data = new byte[] {0x7E, 0x00, 0x02, 0x23, 0x11, (byte)0xCB};
+
+		// Record the data.
+		tracer.record(WireTracer.Direction.TX, data, 0, data.length);
+		tracer.record(WireTracer.Direction.RX, data, 1, 2);
+
+		// Perform verifications.
+		List<WireTraceRecord> records = tracer.getRecords();
+		assertEquals(2, records.size());
+		assertEquals(WireTracer.Direction.TX, records.get(0).getDirection());
+		assertArrayEquals(data, records.get(0).getData());
+		assertEquals(WireTracer.Direction.RX, records.get(1).getDirection());
+		assertArrayEquals(new byte[] {0x00, 0x02}, records.get(1).getData());
+		assertTrue(records.get(0).getTimestamp() <= records.get(1).getTimestamp());
+	}
+
+	/**
+	 * Test method for {@link WireTracer#getRecords()}.
+	 *
+	 * <p>Verify that the oldest chunks are overwritten once the ring is full
+	 * and big chunks are truncated.</p>
+	 */
+	@Test
+	public void testWrapAndTruncate() {
+		// Prepare the variables.
+		WireTracer tracer = new WireTracer(SLOTS, SLOT_SIZE);
+
+		// Record more chunks than slots.
+		for (int i = 0; i < SLOTS + 2; i++)
+			tracer.record(WireTracer.Direction.RX, new byte[] {(byte)i}, 0, 1);
+		tracer.record(WireTracer.Direction.TX, new byte[SLOT_SIZE * 2], 0, SLOT_SIZE * 2);
+
+		// Perform verifications.
+		List<WireTraceRecord> records = tracer.getRecords();
+		assertEquals(SLOTS, records.size());
+		assertEquals(3, records.get(0).getSequence());
+		assertEquals(3, records.get(0).getData()[0]);
+		WireTraceRecord last = records.get(SLOTS - 1);
+		assertTrue(last.isTruncated());
+		assertEquals(SLOT_SIZE * 2, last.getLength());
+		assertEquals(SLOT_SIZE, last.getData().length);
+		assertEquals(SLOTS + 3, tracer.getRecordCount());
+		assertEquals(0, tracer.getLostRecords());
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.android.XBeeAsyncDevice;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.XBeeOperation;
+import com.digi.xbee.api.android.connection.ConnectionFuture;
+import com.digi.xbee.api.android.connection.ConnectionFutureFunction;
+import com.digi.xbee.api.android.connection.ConnectionFutureListener;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.exceptions.TimeoutException;
+import com.digi.xbee.api.exceptions.XBeeException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class XBeeAsyncDeviceTest {
+
+	// Constants.
+	private final static long WAIT_TIME = 5;
+
+	// Variables.
+	private XBeeDevice device;
+	private XBeeAsyncDevice asyncDevice;
+
+	@Before
+	public void setup() {
+		// Keep the UART pacing: xbee-java waits for a synchronous response
+		// after writing the request, so an instant answer can be missed.
+		XBeeSimulator simulator = new XBeeSimulator();
+		device = new XBeeDevice(simulator);
+		asyncDevice = new XBeeAsyncDevice(device);
+	}
+
+	@After
+	public void tearDown() {
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link XBeeAsyncDevice#getParameter(String)}.
+	 *
+	 * <p>Verify that the device is opened and the parameter read without
+	 * blocking the calling thread.</p>
+	 */
+	@Test
+	public void testGetParameter() throws Exception {
+		// Open the device and read the parameter.
+		asyncDevice.open().get(WAIT_TIME, TimeUnit.SECONDS);
+		ConnectionFuture<byte[]> future = asyncDevice.getParameter("NI");
+
+		// Perform verifications.
+		assertTrue(device.isOpen());
+		assertArrayEquals("SIMULATOR".getBytes(), future.get(WAIT_TIME, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test method for {@link ConnectionFuture#then(ConnectionFutureFunction, Executor)}.
+	 *
+	 * <p>Verify that a blocking step is chained to a previous operation.</p>
+	 */
+	@Test
+	public void testChainedOperations() throws Exception {
+		// Prepare the variables.
+		asyncDevice.open().get(WAIT_TIME, TimeUnit.SECONDS);
+
+		// Write a parameter and read it back.
+		ConnectionFuture<byte[]> future = asyncDevice.setParameter("NI", "RENAMED".getBytes()).then(
+				new ConnectionFutureFunction<Void, byte[]>() {
+			@Override
+			public byte[] apply(Void result) throws XBeeException {
+				return device.getParameter("NI");
+			}
+		}, XBeeAsyncDevice.getExecutor());
+
+		// Perform verifications.
+		assertArrayEquals("RENAMED".getBytes(), future.get(WAIT_TIME, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test method for {@link XBeeAsyncDevice#setTimeout(long)}.
+	 *
+	 * <p>Verify that an operation that exceeds the timeout fails with a
+	 * {@code TimeoutException} and its thread is interrupted.</p>
+	 */
+	@Test
+	public void testTimeout() throws Exception {
+		// Prepare the variables.
+		CountDownLatch interrupted = new CountDownLatch(1);
+		asyncDevice.setTimeout(100);
+
+		// Submit an operation that never ends.
+		ConnectionFuture<Void> future = asyncDevice.submit(new BlockingOperation(interrupted));
+
+		// Perform verifications.
+		try {
+			future.get(WAIT_TIME, TimeUnit.SECONDS);
+			fail("The operation should have timed out.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertTrue(interrupted.await(WAIT_TIME, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test method for {@link ConnectionFuture#cancel(boolean)}.
+	 *
+	 * <p>Verify that cancelling an operation interrupts its thread.</p>
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		// Prepare the variables.
+		CountDownLatch interrupted = new CountDownLatch(1);
+		ConnectionFuture<Void> future = asyncDevice.submit(new BlockingOperation(interrupted));
+
+		// Cancel the operation.
+		Thread.sleep(50);
+		boolean cancelled = future.cancel(true);
+
+		// Perform verifications.
+		assertTrue(cancelled);
+		assertTrue(future.isCancelled());
+		assertTrue(interrupted.await(WAIT_TIME, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test method for {@link ConnectionFuture#cancel(boolean)}.
+	 *
+	 * <p>Verify that cancelling an operation without
+	 * {@code mayInterruptIfRunning} lets its thread finish.</p>
+	 */
+	@Test
+	public void testCancelWithoutInterrupt() throws Exception {
+		// Prepare the variables.
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+		final boolean[] interrupted = new boolean[1];
+		ConnectionFuture<Void> future = asyncDevice.submit(new XBeeOperation<Void>() {
+			@Override
+			public Void execute() {
+				started.countDown();
+				try {
+					release.await(WAIT_TIME, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					interrupted[0] = true;
+				}
+				finished.countDown();
+				return null;
+			}
+		});
+
+		// Cancel the operation once it is running.
+		assertTrue(started.await(WAIT_TIME, TimeUnit.SECONDS));
+		boolean cancelled = future.cancel(false);
+		release.countDown();
+
+		// Perform verifications.
+		assertTrue(cancelled);
+		assertTrue(future.isCancelled());
+		assertFalse(future.isInterruptRequested());
+		assertTrue(finished.await(WAIT_TIME, TimeUnit.SECONDS));
+		assertFalse(interrupted[0]);
+	}
+
+	/**
+	 * Test method for {@link XBeeAsyncDevice#setCallbackExecutor(Executor)}.
+	 *
+	 * <p>Verify that the results are delivered in the given executor.</p>
+	 */
+	@Test
+	public void testCallbackExecutor() throws Exception {
+		// Prepare the variables.
+		final Thread callbackThread = new Thread("callbacks");
+		final Thread[] listenerThread = new Thread[1];
+		final CountDownLatch notified = new CountDownLatch(1);
+		final CountDownLatch listening = new CountDownLatch(1);
+		asyncDevice.setCallbackExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				Thread thread = new Thread(command, callbackThread.getName());
+				thread.start();
+			}
+		});
+
+		// Submit an operation.
+		ConnectionFuture<String> future = asyncDevice.submit(new XBeeOperation<String>() {
+			@Override
+			public String execute() throws XBeeException {
+				try {
+					listening.await();
+				} catch (InterruptedException e) {
+					throw new XBeeException(e);
+				}
+				return "done";
+			}
+		});
+		future.addListener(new ConnectionFutureListener<String>() {
+			@Override
+			public void operationCompleted(ConnectionFuture<String> finished) {
+				if (listenerThread[0] == null)
+					listenerThread[0] = Thread.currentThread();
+				notified.countDown();
+			}
+		});
+		listening.countDown();
+
+		// Perform verifications.
+		assertEquals("done", future.get(WAIT_TIME, TimeUnit.SECONDS));
+		assertTrue(notified.await(WAIT_TIME, TimeUnit.SECONDS));
+		assertEquals(callbackThread.getName(), listenerThread[0].getName());
+	}
+
+	/**
+	 * Operation that blocks until it is interrupted.
+	 */
+	private static class BlockingOperation implements XBeeOperation<Void> {
+
+		// Variables.
+		private final CountDownLatch interrupted;
+
+		BlockingOperation(CountDownLatch interrupted) {
+			this.interrupted = interrupted;
+		}
+
+		@Override
+		public Void execute() {
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return null;
+		}
+	}
+}
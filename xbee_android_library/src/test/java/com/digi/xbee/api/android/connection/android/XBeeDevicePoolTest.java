@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.XBeeDevice;
+import com.digi.xbee.api.android.XBeeDevicePool;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.exceptions.InterfaceNotOpenException;
+import com.digi.xbee.api.listeners.IDataReceiveListener;
+import com.digi.xbee.api.models.XBee16BitAddress;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeMessage;
+
+import org.mockito.internal.util.reflection.Whitebox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class XBeeDevicePoolTest {
+
+	// Constants.
+	private final static byte[] DATA = new byte[] {0x01, 0x02, 0x03};
+	private final static XBee64BitAddress REMOTE_ADDRESS_2 = new XBee64BitAddress("0013A20040000002");
+
+	// Variables.
+	private XBeeSimulator simulator1;
+	private XBeeSimulator simulator2;
+	private XBeeDevicePool pool;
+
+	@Before
+	public void setup() throws Exception {
+		simulator1 = new XBeeSimulator();
+		simulator1.setUARTLimited(false);
+		simulator2 = new XBeeSimulator();
+		simulator2.setUARTLimited(false);
+		pool = new XBeeDevicePool(Arrays.asList(new XBeeDevice(simulator1), new XBeeDevice(simulator2)));
+		pool.open();
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	/**
+	 * Test method for {@link XBeeDevicePool#sendData(XBee64BitAddress, byte[])}.
+	 *
+	 * <p>Verify that the round robin policy spreads the transmissions evenly
+	 * among the devices.</p>
+	 */
+	@Test
+	public void testSendDataRoundRobin() throws Exception {
+		// Prepare the variables.
+		pool.setBalancingPolicy(XBeeDevicePool.BalancingPolicy.ROUND_ROBIN);
+		long frames1 = simulator1.getReceivedFrames();
+		long frames2 = simulator2.getReceivedFrames();
+
+		// Send the data.
+		for (int i = 0; i < 10; i++)
+			pool.sendData(XBeeSimulator.DEFAULT_REMOTE_64_BIT_ADDRESS, DATA);
+
+		// Perform verifications.
+		assertEquals(2, pool.getDevices().size());
+		assertEquals(5, simulator1.getReceivedFrames() - frames1);
+		assertEquals(5, simulator2.getReceivedFrames() - frames2);
+	}
+
+	/**
+	 * Test method for {@link XBeeDevicePool#sendData(XBee64BitAddress, byte[])}.
+	 *
+	 * <p>Verify that a {@code InterfaceNotOpenException} is thrown if the
+	 * pool is closed after the device is selected.</p>
+	 */
+	@Test(expected=InterfaceNotOpenException.class)
+	public void testSendDataClosedConcurrently() throws Exception {
+		// Simulate a close between the selection and the transmission.
+		((Map<?, ?>)Whitebox.getInternalState(pool, "pendingTransmissions")).clear();
+
+		// Send the data.
+		pool.sendData(XBeeSimulator.DEFAULT_REMOTE_64_BIT_ADDRESS, DATA);
+	}
+
+	/**
+	 * Test method for {@link XBeeDevicePool#addDataListener(IDataReceiveListener)}.
+	 *
+	 * <p>Verify that the data received by every device reaches the pool
+	 * listeners.</p>
+	 */
+	@Test
+	public void testMergedDataListener() throws Exception {
+		// Prepare the variables.
+		final CountDownLatch latch1 = new CountDownLatch(3);
+		final CountDownLatch latch2 = new CountDownLatch(3);
+		simulator2.setRemoteAddress(REMOTE_ADDRESS_2, new XBee16BitAddress("5678"));
+		pool.addDataListener(new IDataReceiveListener() {
+			@Override
+			public void dataReceived(XBeeMessage xbeeMessage) {
+				if (xbeeMessage.getDevice().get64BitAddress().equals(XBeeSimulator.DEFAULT_REMOTE_64_BIT_ADDRESS))
+					latch1.countDown();
+				else
+					latch2.countDown();
+			}
+		});
+
+		// Generate traffic in both simulators.
+		simulator1.setTrafficRate(XBeeSimulator.Traffic.RECEIVE, 100);
+		simulator2.setTrafficRate(XBeeSimulator.Traffic.RECEIVE, 100);
+
+		// Perform verifications.
+		assertTrue(latch1.await(2, TimeUnit.SECONDS));
+		assertTrue(latch2.await(2, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test method for {@link XBeeDevicePool#addDataListener(IDataReceiveListener)}.
+	 *
+	 * <p>Verify that a broadcast received by several devices of the pool
+	 * reaches the pool listeners once, and that a repeated broadcast or a
+	 * unicast received by several devices is not dropped.</p>
+	 */
+	@Test
+	public void testBroadcastReceivedOnce() {
+		// Prepare the variables.
+		final AtomicInteger received = new AtomicInteger();
+		pool.addDataListener(new IDataReceiveListener() {
+			@Override
+			public void dataReceived(XBeeMessage xbeeMessage) {
+				received.incrementAndGet();
+			}
+		});
+		Map<?, ?> forwarders = (Map<?, ?>)Whitebox.getInternalState(pool, "dataForwarders");
+		IDataReceiveListener forwarder1 = (IDataReceiveListener)forwarders.get(pool.getDevices().get(0));
+		IDataReceiveListener forwarder2 = (IDataReceiveListener)forwarders.get(pool.getDevices().get(1));
+		RemoteXBeeDevice remote = new RemoteXBeeDevice(pool.getDevices().get(0), XBeeSimulator.DEFAULT_REMOTE_64_BIT_ADDRESS);
+
+		// Receive the same broadcast in both devices.
+		forwarder1.dataReceived(new XBeeMessage(remote, DATA, true));
+		forwarder2.dataReceived(new XBeeMessage(remote, DATA, true));
+
+		// Perform verifications.
+		assertEquals(1, received.get());
+
+		// Receive the broadcast again in both devices.
+		forwarder2.dataReceived(new XBeeMessage(remote, DATA, true));
+		forwarder1.dataReceived(new XBeeMessage(remote, DATA, true));
+
+		// Perform verifications.
+		assertEquals(2, received.get());
+
+		// Receive the same unicast in both devices.
+		forwarder1.dataReceived(new XBeeMessage(remote, DATA, false));
+		forwarder2.dataReceived(new XBeeMessage(remote, DATA, false));
+
+		// Perform verifications.
+		assertEquals(4, received.get());
+	}
+}
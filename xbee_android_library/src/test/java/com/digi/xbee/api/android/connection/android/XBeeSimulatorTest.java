@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019, Digi International Inc.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, you can obtain one at http://mozilla.org/MPL/2.0/.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.digi.xbee.api.android.connection.android;
+
+import com.digi.xbee.api.RemoteXBeeDevice;
+import com.digi.xbee.api.android.ZigBeeDevice;
+import com.digi.xbee.api.android.connection.simulator.XBeeSimulator;
+import com.digi.xbee.api.listeners.IDataReceiveListener;
+import com.digi.xbee.api.models.XBee64BitAddress;
+import com.digi.xbee.api.models.XBeeMessage;
+import com.digi.xbee.api.models.XBeeProtocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class XBeeSimulatorTest {
+
+	// Variables.
+	private XBeeSimulator simulator;
+	private ZigBeeDevice device;
+
+	@Before
+	public void setup() {
+		simulator = new XBeeSimulator();
+		simulator.setUARTLimited(false);
+		device = new ZigBeeDevice(simulator);
+	}
+
+	@After
+	public void tearDown() {
+		device.close();
+	}
+
+	/**
+	 * Test method for {@link XBeeSimulator#open()}.
+	 *
+	 * <p>Verify that a device can be opened against the simulator and reads
+	 * its parameters from it.</p>
+	 */
+	@Test
+	public void testOpenDevice() throws Exception {
+		// Open the device.
+		device.open();
+
+		// Perform verifications.
+		assertEquals("SIMULATOR", device.getNodeID());
+		assertEquals(new XBee64BitAddress("0013A20040A1B2C3"), device.get64BitAddress());
+		assertEquals(XBeeProtocol.ZIGBEE, device.getXBeeProtocol());
+
+		device.setNodeID("RENAMED");
+		assertArrayEquals("RENAMED".getBytes(), simulator.getParameter("NI"));
+	}
+
+	/**
+	 * Test method for {@link XBeeSimulator#setTrafficRate(XBeeSimulator.Traffic, double)}.
+	 *
+	 * <p>Verify that data sent to a remote device is acknowledged and the
+	 * generated receive traffic reaches the data listeners.</p>
+	 */
+	@Test
+	public void testTrafficAndTransmitStatus() throws Exception {
+		// Prepare the variables.
+		final CountDownLatch latch = new CountDownLatch(5);
+		device.open();
+		device.addDataListener(new IDataReceiveListener() {
+			@Override
+			public void dataReceived(XBeeMessage xbeeMessage) {
+				latch.countDown();
+			}
+		});
+
+		// Send data and generate traffic.
+		device.sendData(new RemoteXBeeDevice(device, XBeeSimulator.DEFAULT_REMOTE_64_BIT_ADDRESS), new byte[] {0x01});
+		simulator.setTrafficRate(XBeeSimulator.Traffic.RECEIVE, 200);
+
+		// Perform verifications.
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertTrue(simulator.getGeneratedFrames() >= 5);
+	}
+
+	/**
+	 * Test method for {@link XBeeSimulator#setUARTLimited(boolean)}.
+	 *
+	 * <p>Verify that writes are paced according to the configured baud
+	 * rate.</p>
+	 */
+	@Test
+	public void testUARTLimit() throws Exception {
+		// Prepare the variables, 9600 bauds transfer 960 bytes per second.
+		simulator.setUARTLimited(true);
+		simulator.open();
+
+		// Write the data.
+		long start = System.nanoTime();
+		simulator.writeData(new byte[96]);
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Perform verifications.
+		assertEquals(9600, simulator.getBaudRate());
+		assertTrue("Write took " + elapsed + " ms", elapsed >= 90);
+		simulator.close();
+	}
+}